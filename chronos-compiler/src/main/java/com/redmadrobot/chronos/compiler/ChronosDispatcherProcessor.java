@@ -0,0 +1,285 @@
+package com.redmadrobot.chronos.compiler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * An annotation processor which generates a dispatcher for every class that has Chronos callback
+ * methods, so that operation results can be delivered to the class without reflection. The
+ * processor does not require any annotations, it looks for callback methods by their names.
+ * <p/>
+ * No dispatcher is generated for a class which has a callback that can't be called from the
+ * generated code, as a generated dispatcher replaces the reflection-based one for the whole class.
+ *
+ * @author maximefimov
+ */
+@SupportedAnnotationTypes("*")
+public final class ChronosDispatcherProcessor extends AbstractProcessor {
+
+    /**
+     * Must be the same as {@code Chronos.OWN_CALLBACK_METHOD_NAME}.
+     */
+    private final static String OWN_CALLBACK_METHOD_NAME = "onOperationFinished";
+
+    /**
+     * Must be the same as {@code Chronos.BROADCAST_CALLBACK_METHOD_NAME}.
+     */
+    private final static String BROADCAST_CALLBACK_METHOD_NAME = "onBroadcastOperationFinished";
+
+    /**
+     * Must be the same as {@code ChronosDispatcher.GENERATED_CLASS_SUFFIX}.
+     */
+    private final static String GENERATED_CLASS_SUFFIX = "$$ChronosDispatcher";
+
+    private final static String DISPATCHER_INTERFACE = "com.redmadrobot.chronos.ChronosDispatcher";
+
+    private final static String RESULT_CLASS = "com.redmadrobot.chronos.ChronosOperationResult";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations,
+            final RoundEnvironment roundEnv) {
+        if (processingEnv.getElementUtils().getTypeElement(DISPATCHER_INTERFACE) == null) {
+            // Chronos is not on the classpath, nothing to generate
+            return false;
+        }
+
+        final List<TypeElement> types = new ArrayList<>();
+        for (final TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+            collectTypes(type, types);
+        }
+
+        for (final TypeElement type : types) {
+            if (!isDispatchable(type)) {
+                continue;
+            }
+
+            final PackageElement typePackage = processingEnv.getElementUtils().getPackageOf(type);
+            final List<ExecutableElement> ownCallbacks = new ArrayList<>();
+            final List<ExecutableElement> broadcastCallbacks = new ArrayList<>();
+            boolean isDispatchable = true;
+            for (final ExecutableElement method : ElementFilter.methodsIn(
+                    processingEnv.getElementUtils().getAllMembers(type))) {
+                final List<ExecutableElement> callbacks;
+                if (isCallback(method, OWN_CALLBACK_METHOD_NAME)) {
+                    callbacks = ownCallbacks;
+                } else if (isCallback(method, BROADCAST_CALLBACK_METHOD_NAME)) {
+                    callbacks = broadcastCallbacks;
+                } else {
+                    continue;
+                }
+                if (isCallableFrom(method, typePackage)) {
+                    callbacks.add(method);
+                } else {
+                    isDispatchable = false;
+                }
+            }
+
+            if (!isDispatchable) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                        "No dispatcher is generated for " + type
+                                + ", reflection will be used to call its callbacks", type);
+            } else if (!ownCallbacks.isEmpty() || !broadcastCallbacks.isEmpty()) {
+                writeDispatcher(type, typePackage, ownCallbacks, broadcastCallbacks);
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Adds a type and all its nested types to the list.
+     *
+     * @param type  a type to be added
+     * @param types a list to add types to
+     */
+    private static void collectTypes(final TypeElement type, final List<TypeElement> types) {
+        types.add(type);
+        for (final TypeElement nestedType : ElementFilter.typesIn(type.getEnclosedElements())) {
+            collectTypes(nestedType, types);
+        }
+    }
+
+    /**
+     * Checks if a dispatcher can be generated for a type.
+     *
+     * @param type a type to be checked
+     * @return {@code true} if a dispatcher can be generated; {@code false} otherwise
+     */
+    private boolean isDispatchable(final TypeElement type) {
+        if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) {
+            return false;
+        }
+        return isAccessibleFrom(type, processingEnv.getElementUtils().getPackageOf(type));
+    }
+
+    /**
+     * Checks if a method can be used as a callback to handle operation results.
+     *
+     * @param method     a method to be checked
+     * @param methodName a required method name
+     * @return {@code true} if method can be used as a callback; {@code false} otherwise
+     */
+    private boolean isCallback(final ExecutableElement method, final String methodName) {
+        return method.getSimpleName().contentEquals(methodName)
+                && method.getModifiers().contains(Modifier.PUBLIC)
+                && !method.getModifiers().contains(Modifier.STATIC)
+                && method.getReturnType().getKind() == TypeKind.VOID
+                && method.getParameters().size() == 1
+                && getParameterType(method).getKind() == TypeKind.DECLARED;
+    }
+
+    /**
+     * Checks if a callback can be called from the generated dispatcher.
+     *
+     * @param method      a callback method
+     * @param typePackage a package the dispatcher will be generated in
+     * @return {@code true} if the generated code can call the method; {@code false} if reflection
+     * must be used
+     */
+    private boolean isCallableFrom(final ExecutableElement method,
+            final PackageElement typePackage) {
+        final TypeElement parameterElement = (TypeElement) ((DeclaredType) getParameterType(method))
+                .asElement();
+        if (!isAccessibleFrom(parameterElement, typePackage)) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                    parameterElement + " is not accessible from the generated dispatcher", method);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks if a type can be referenced from the code in a given package.
+     *
+     * @param type        a type to be checked
+     * @param fromPackage a package of the referencing code
+     * @return {@code true} if the type is accessible; {@code false} otherwise
+     */
+    private boolean isAccessibleFrom(final TypeElement type, final PackageElement fromPackage) {
+        final boolean samePackage = processingEnv.getElementUtils().getPackageOf(type)
+                .equals(fromPackage);
+        Element element = type;
+        while (element.getKind() != ElementKind.PACKAGE) {
+            final Set<Modifier> modifiers = element.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE)) {
+                return false;
+            }
+            if (!samePackage && !modifiers.contains(Modifier.PUBLIC)) {
+                return false;
+            }
+            element = element.getEnclosingElement();
+        }
+        return true;
+    }
+
+    /**
+     * @param method a method with a single parameter
+     * @return the erased type of the method parameter
+     */
+    private TypeMirror getParameterType(final ExecutableElement method) {
+        final VariableElement parameter = method.getParameters().get(0);
+        return processingEnv.getTypeUtils().erasure(parameter.asType());
+    }
+
+    /**
+     * Writes a source file of the dispatcher.
+     *
+     * @param type               a Chronos client type
+     * @param typePackage        a package of the type
+     * @param ownCallbacks       methods which receive own operation results
+     * @param broadcastCallbacks methods which receive broadcast operation results
+     */
+    private void writeDispatcher(final TypeElement type, final PackageElement typePackage,
+            final List<ExecutableElement> ownCallbacks,
+            final List<ExecutableElement> broadcastCallbacks) {
+        final String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        final String packageName = typePackage.getQualifiedName().toString();
+        final String dispatcherName = (packageName.isEmpty() ? binaryName
+                : binaryName.substring(packageName.length() + 1)) + GENERATED_CLASS_SUFFIX;
+        final String typeName = processingEnv.getTypeUtils().erasure(type.asType()).toString();
+
+        final StringBuilder source = new StringBuilder();
+        source.append("// Generated by chronos-compiler. Do not modify!\n");
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("@SuppressWarnings(\"unchecked\")\n");
+        source.append("public final class ").append(dispatcherName).append(" implements ")
+                .append(DISPATCHER_INTERFACE).append(" {\n\n");
+        source.append("    @Override\n");
+        source.append("    public boolean dispatch(final Object listener,\n");
+        source.append("            final ").append(RESULT_CLASS).append("<?> result,\n");
+        source.append("            final boolean broadcast) {\n");
+        source.append("        final ").append(typeName).append(" target = (").append(typeName)
+                .append(") listener;\n");
+        source.append("        final Object value = result;\n");
+        source.append("        boolean delivered = false;\n");
+        source.append("        if (broadcast) {\n");
+        appendCalls(source, broadcastCallbacks);
+        source.append("        } else {\n");
+        appendCalls(source, ownCallbacks);
+        source.append("        }\n");
+        source.append("        return delivered;\n");
+        source.append("    }\n");
+        source.append("}\n");
+
+        try {
+            final JavaFileObject file = processingEnv.getFiler().createSourceFile(
+                    packageName.isEmpty() ? dispatcherName : packageName + "." + dispatcherName,
+                    type);
+            final Writer writer = file.openWriter();
+            try {
+                writer.write(source.toString());
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Can't write a dispatcher for " + type + ": " + e.getMessage(), type);
+        }
+    }
+
+    /**
+     * Appends type-checked callback calls to the dispatcher source.
+     *
+     * @param source    a dispatcher source
+     * @param callbacks methods to be called
+     */
+    private void appendCalls(final StringBuilder source, final List<ExecutableElement> callbacks) {
+        for (final ExecutableElement callback : callbacks) {
+            final String parameterType = getParameterType(callback).toString();
+            source.append("            if (value instanceof ").append(parameterType)
+                    .append(") {\n");
+            source.append("                target.").append(callback.getSimpleName()).append("((")
+                    .append(parameterType).append(") value);\n");
+            source.append("                delivered = true;\n");
+            source.append("            }\n");
+        }
+    }
+}
@@ -0,0 +1,43 @@
+# Rules which are applied to apps that use Chronos.
+
+# Dispatchers generated by chronos-compiler are instantiated via reflection
+-keep class * implements com.redmadrobot.chronos.ChronosDispatcher {
+    public <init>();
+}
+
+# A generated dispatcher is found by the name of its client with the "$$ChronosDispatcher" suffix,
+# so the names of both must be kept. Clients that only inherit callback methods need a rule of
+# their own
+-keepnames class **$$ChronosDispatcher
+-keepnames class * {
+    public void onOperationFinished(***);
+}
+-keepnames class * {
+    public void onBroadcastOperationFinished(***);
+}
+
+# Callback methods are found via reflection if there is no generated dispatcher
+-keepclassmembers class * {
+    public void onOperationFinished(***);
+    public void onBroadcastOperationFinished(***);
+}
+
+# Progress callback methods are always found via reflection
+-keepclassmembers class * {
+    public void onOperationProgress(***);
+}
+
+# Results are instantiated via reflection unless their operations create them
+-keepclassmembers class * extends com.redmadrobot.chronos.ChronosOperationResult {
+    <init>();
+}
+
+# Durable operations are serialized to the journal, and must be found by the same names after
+# the app is updated
+-keepnames class * extends com.redmadrobot.chronos.ChronosOperation implements java.io.Serializable
+-keepclassmembers class * extends com.redmadrobot.chronos.ChronosOperation implements java.io.Serializable {
+    static final long serialVersionUID;
+    !static !transient <fields>;
+    private void writeObject(java.io.ObjectOutputStream);
+    private void readObject(java.io.ObjectInputStream);
+}
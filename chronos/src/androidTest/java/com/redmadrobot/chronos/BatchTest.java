@@ -0,0 +1,146 @@
+package com.redmadrobot.chronos;
+
+import com.redmadrobot.chronos.mock.operation.SimpleErrorOperation;
+import com.redmadrobot.chronos.mock.operation.SimpleOperation;
+import com.redmadrobot.chronos.mock.operation.SimpleOperationResult;
+
+import org.jetbrains.annotations.Contract;
+
+import android.support.annotation.Nullable;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.redmadrobot.chronos.TestSettings.INPUT;
+import static com.redmadrobot.chronos.TestSettings.RESPONSE_WAIT;
+import static com.redmadrobot.chronos.util.TimingUtils.sleep;
+
+/**
+ * Test for batches of operations launched together.
+ *
+ * @author maximefimov
+ */
+public class BatchTest extends AndroidTestCase {
+
+    private final static int BATCH_SIZE = 4;
+
+    @SmallTest
+    public void testBatchIsDeliveredOnce() {
+        final BatchClient client = new BatchClient();
+        final ChronosConnector connector = new ChronosConnector();
+        connector.onCreate(client, null);
+        connector.onResume();
+
+        final List<ChronosOperation<?>> operations = new ArrayList<>();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            operations.add(new SimpleOperation(INPUT + i));
+        }
+        operations.add(new SimpleErrorOperation());
+        final int id = connector.runOperations(operations, false);
+        assertTrue(connector.isOperationRunning(id));
+        sleep(2 * RESPONSE_WAIT);
+
+        assertFalse(connector.isOperationRunning(id));
+        assertTrue(client.getResultObtained() == 1);
+        assertTrue(client.getSimpleResultObtained() == 0);
+        final List<ChronosOperationResult<?>> results = client.getResults();
+        assertNotNull(results);
+        assertTrue(results.size() == BATCH_SIZE + 1);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            final ChronosOperationResult<?> result = results.get(i);
+            assertTrue(result.isSuccessful());
+            assertTrue(SimpleOperation.isTransform(INPUT + i, (String) result.getOutput()));
+        }
+        assertFalse(results.get(BATCH_SIZE).isSuccessful());
+        // the batch is not an operation itself
+        assertNull(client.getBatchResult().getOperation());
+    }
+
+    @SmallTest
+    public void testEmptyBatch() {
+        final BatchClient client = new BatchClient();
+        final ChronosConnector connector = new ChronosConnector();
+        connector.onCreate(client, null);
+        connector.onResume();
+
+        connector.runOperations(new ArrayList<ChronosOperation<?>>(), false);
+        sleep();
+
+        assertTrue(client.getResultObtained() == 1);
+        final List<ChronosOperationResult<?>> results = client.getResults();
+        assertNotNull(results);
+        assertTrue(results.isEmpty());
+    }
+
+    @SmallTest
+    public void testCancelledBatchIsNotDelivered() {
+        final BatchClient client = new BatchClient();
+        final ChronosConnector connector = new ChronosConnector();
+        connector.onCreate(client, null);
+        connector.onResume();
+
+        final List<ChronosOperation<?>> operations = new ArrayList<>();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            operations.add(new SimpleOperation(INPUT));
+        }
+        final int id = connector.runOperations(operations, false);
+        assertTrue(connector.cancelOperation(id, false));
+        assertFalse(connector.isOperationRunning(id));
+        sleep(2 * RESPONSE_WAIT);
+
+        assertTrue(client.getResultObtained() == 0);
+        for (final ChronosOperation<?> operation : operations) {
+            assertTrue(operation.isCancelled());
+        }
+    }
+
+    /**
+     * A client which remembers the batch results it got.
+     */
+    public final static class BatchClient {
+
+        private List<ChronosOperationResult<?>> mResults;
+
+        private BatchOperationResult mBatchResult;
+
+        private int mResultObtained = 0;
+
+        private int mSimpleResultObtained = 0;
+
+        @Nullable
+        @Contract(pure = true)
+        public final List<ChronosOperationResult<?>> getResults() {
+            return mResults;
+        }
+
+        @Nullable
+        @Contract(pure = true)
+        public final BatchOperationResult getBatchResult() {
+            return mBatchResult;
+        }
+
+        @Contract(pure = true)
+        public final int getResultObtained() {
+            return mResultObtained;
+        }
+
+        @Contract(pure = true)
+        public final int getSimpleResultObtained() {
+            return mSimpleResultObtained;
+        }
+
+        @SuppressWarnings("UnusedDeclaration")
+        public final void onOperationFinished(final BatchOperationResult result) {
+            mResultObtained++;
+            mBatchResult = result;
+            mResults = result.getOutput();
+        }
+
+        @SuppressWarnings("UnusedDeclaration")
+        public final void onOperationFinished(final SimpleOperationResult result) {
+            mSimpleResultObtained++;
+        }
+    }
+}
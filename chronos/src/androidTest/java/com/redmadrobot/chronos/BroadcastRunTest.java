@@ -77,6 +77,29 @@ public class BroadcastRunTest extends AndroidTestCase {
         assertNull(secondActivity.getBroadcastError());
     }
 
+    @SmallTest
+    public void testOwnRunIsNotBroadcasted() {
+        final SimpleMockActivity firstActivity = new SimpleMockActivity();
+        final SimpleMockFragment fragment = new SimpleMockFragment();
+        firstActivity.addFragment(fragment);
+        final SimpleMockActivity secondActivity = new SimpleMockActivity();
+
+        firstActivity.start();
+        secondActivity.start();
+
+        secondActivity.runSimple(INPUT);
+        sleep();
+
+        assertTrue(secondActivity.getResultObtained() == 1);
+        assertFalse(secondActivity.gotBroadcastResult());
+
+        assertFalse(firstActivity.gotResult());
+        assertFalse(firstActivity.gotBroadcastResult());
+
+        assertFalse(fragment.gotResult());
+        assertFalse(fragment.gotBroadcastResult());
+    }
+
     @SmallTest
     public void testCancelRun() {
         final SimpleMockActivity firstActivity = new SimpleMockActivity();
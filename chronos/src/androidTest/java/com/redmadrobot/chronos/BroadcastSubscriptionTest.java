@@ -0,0 +1,160 @@
+package com.redmadrobot.chronos;
+
+import com.redmadrobot.chronos.mock.operation.SimpleOperationResult;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static com.redmadrobot.chronos.ListenerUtils.release;
+import static com.redmadrobot.chronos.ListenerUtils.resume;
+import static com.redmadrobot.chronos.ListenerUtils.runBroadcast;
+import static com.redmadrobot.chronos.TestSettings.INPUT;
+
+/**
+ * Test for the delivery of broadcast results by the subscriptions of clients.
+ *
+ * @author maximefimov
+ */
+public class BroadcastSubscriptionTest extends AndroidTestCase {
+
+    private final static String PROFILE_TOPIC = "profile";
+
+    private final static String CATALOG_TOPIC = "catalog";
+
+    @SmallTest
+    public void testResultReachesSubscribedClassesOnly() {
+        final ChronosListener simpleListener = resume(new SimpleResultClient());
+        final ChronosListener anyResultListener = resume(new AnyResultClient());
+        final ResultRouter router = ResultRouter.getInstance();
+
+        final ChronosOperationResult<String> otherResult = ChronosService.getInstance()
+                .createEmptyResult(new TopicOperation<>(OtherResult.class, null), true);
+        final ChronosOperationResult<String> simpleResult = ChronosService.getInstance()
+                .createEmptyResult(new TopicOperation<>(SimpleOperationResult.class, null), true);
+
+        assertFalse(router.isSubscribed(simpleListener, otherResult));
+        assertTrue(router.isSubscribed(anyResultListener, otherResult));
+        assertTrue(router.isSubscribed(simpleListener, simpleResult));
+        // the callback for the superclass is found by the class hierarchy of the result
+        assertTrue(router.isSubscribed(anyResultListener, simpleResult));
+        release(simpleListener);
+        release(anyResultListener);
+    }
+
+    @SmallTest
+    public void testTopicSubscriberGetsItsTopicsOnly() {
+        final TopicClient client = new TopicClient();
+        final ChronosListener listener = resume(client);
+
+        runBroadcast(new TopicOperation<>(SimpleOperationResult.class, PROFILE_TOPIC));
+        runBroadcast(new TopicOperation<>(SimpleOperationResult.class, CATALOG_TOPIC));
+        runBroadcast(new TopicOperation<>(SimpleOperationResult.class, null));
+
+        assertTrue(client.getResults().size() == 2);
+        assertEquals(PROFILE_TOPIC,
+                client.getResults().get(0).getOperation().getBroadcastTopic());
+        assertNull(client.getResults().get(1).getOperation().getBroadcastTopic());
+        release(listener);
+    }
+
+    @SmallTest
+    public void testSubscriptionIsReplacedOnResume() {
+        final ChronosListener listener = resume(new SimpleResultClient());
+        final ChronosOperationResult<String> otherResult = ChronosService.getInstance()
+                .createEmptyResult(new TopicOperation<>(OtherResult.class, null), true);
+        assertFalse(ResultRouter.getInstance().isSubscribed(listener, otherResult));
+
+        // a configuration change brings a new client of another class
+        listener.onPause();
+        listener.onResume(new AnyResultClient());
+        assertTrue(ResultRouter.getInstance().isSubscribed(listener, otherResult));
+        release(listener);
+    }
+
+    public final static class OtherResult extends ChronosOperationResult<String> {
+
+    }
+
+    /**
+     * An operation which broadcast result has a given class and topic.
+     */
+    private final static class TopicOperation<Result extends ChronosOperationResult<String>>
+            extends ChronosOperation<String> {
+
+        @NonNull
+        private final Class<Result> mResultClass;
+
+        @Nullable
+        private final String mTopic;
+
+        private TopicOperation(@NonNull final Class<Result> resultClass,
+                @Nullable final String topic) {
+            mResultClass = resultClass;
+            mTopic = topic;
+        }
+
+        @Nullable
+        @Override
+        public String run() {
+            return INPUT;
+        }
+
+        @NonNull
+        @Override
+        public Class<? extends ChronosOperationResult<String>> getResultClass() {
+            return mResultClass;
+        }
+
+        @Nullable
+        @Override
+        public String getBroadcastTopic() {
+            return mTopic;
+        }
+    }
+
+    public final static class SimpleResultClient {
+
+        @SuppressWarnings("UnusedDeclaration")
+        public final void onBroadcastOperationFinished(final SimpleOperationResult result) {
+        }
+    }
+
+    public final static class AnyResultClient {
+
+        @SuppressWarnings("UnusedDeclaration")
+        public final void onBroadcastOperationFinished(final ChronosOperationResult<?> result) {
+        }
+    }
+
+    /**
+     * A client which consumes the profile topic only, and remembers the results it got.
+     */
+    public final static class TopicClient implements BroadcastTopicSubscriber {
+
+        @NonNull
+        private final List<SimpleOperationResult> mResults = new ArrayList<>();
+
+        @NonNull
+        public final List<SimpleOperationResult> getResults() {
+            return mResults;
+        }
+
+        @Nullable
+        @Override
+        public Collection<String> getBroadcastTopics() {
+            return Collections.singleton(PROFILE_TOPIC);
+        }
+
+        @SuppressWarnings("UnusedDeclaration")
+        public final void onBroadcastOperationFinished(final SimpleOperationResult result) {
+            mResults.add(result);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.redmadrobot.chronos;
+
+import com.redmadrobot.chronos.mock.operation.SimpleOperationResult;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.redmadrobot.chronos.TestSettings.INPUT;
+
+/**
+ * Test for invalidation of cached operation outputs by the tags of the data they depend on.
+ *
+ * @author maximefimov
+ */
+public class CacheTagInvalidationTest extends AndroidTestCase {
+
+    private final static String PROFILE_TAG = "profile";
+
+    private final static String CATALOG_TAG = "catalog";
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        Chronos.clearResultCache();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        Chronos.clearResultCache();
+        super.tearDown();
+    }
+
+    @SmallTest
+    public void testWriteInvalidatesDependentOutputs() {
+        final AtomicInteger profileRunCount = new AtomicInteger(0);
+        final AtomicInteger catalogRunCount = new AtomicInteger(0);
+        Chronos.run(new TaggedReadOperation(PROFILE_TAG, profileRunCount, null));
+        Chronos.run(new TaggedReadOperation(CATALOG_TAG, catalogRunCount, null));
+
+        final ChronosOperationResult<String> writeResult = Chronos.run(new WriteOperation());
+        assertTrue(writeResult.isSuccessful());
+        final ChronosOperationResult<String> profileResult = Chronos.run(
+                new TaggedReadOperation(PROFILE_TAG, profileRunCount, null));
+        Chronos.run(new TaggedReadOperation(CATALOG_TAG, catalogRunCount, null));
+
+        assertEquals(INPUT, profileResult.getOutput());
+        assertTrue(profileRunCount.get() == 2);
+        assertTrue(catalogRunCount.get() == 1);
+        assertTrue(ChronosService.getInstance().getCacheTagIndex().getKeyCount(PROFILE_TAG) == 1);
+    }
+
+    @SmallTest
+    public void testOutputReadDuringInvalidationIsNotCached() throws InterruptedException {
+        final AtomicInteger runCount = new AtomicInteger(0);
+        final CountDownLatch release = new CountDownLatch(1);
+        final TaggedReadOperation blockedOperation = new TaggedReadOperation(PROFILE_TAG, runCount,
+                release);
+        final Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Chronos.run(blockedOperation);
+            }
+        });
+        reader.start();
+        while (runCount.get() == 0) {
+            Thread.sleep(1);
+        }
+        // the profile is changed while it is being read
+        Chronos.invalidateCachedResults(PROFILE_TAG);
+        release.countDown();
+        reader.join();
+
+        Chronos.run(new TaggedReadOperation(PROFILE_TAG, runCount, null));
+        assertTrue(runCount.get() == 2);
+    }
+
+    @SmallTest
+    public void testEvictedKeyIsUnbound() {
+        Chronos.configure(new ChronosConfiguration.Builder().setResultCacheSize(1).build());
+        try {
+            final AtomicInteger runCount = new AtomicInteger(0);
+            Chronos.run(new TaggedReadOperation(PROFILE_TAG, runCount, null));
+            // the profile is evicted by the catalog
+            Chronos.run(new TaggedReadOperation(CATALOG_TAG, runCount, null));
+
+            final CacheTagIndex index = ChronosService.getInstance().getCacheTagIndex();
+            assertTrue(index.getKeyCount(PROFILE_TAG) == 0);
+            assertTrue(index.getKeyCount(CATALOG_TAG) == 1);
+        } finally {
+            Chronos.configure(new ChronosConfiguration.Builder().build());
+        }
+    }
+
+    @SmallTest
+    public void testReplacedCacheKeysAreUnbound() {
+        Chronos.run(new TaggedReadOperation(PROFILE_TAG, new AtomicInteger(0), null));
+        final CacheTagIndex index = ChronosService.getInstance().getCacheTagIndex();
+        assertTrue(index.getKeyCount(PROFILE_TAG) == 1);
+
+        // the outputs are dropped along with the previous cache
+        Chronos.configure(new ChronosConfiguration.Builder().setResultCacheSize(1).build());
+        try {
+            assertTrue(index.getKeyCount(PROFILE_TAG) == 0);
+        } finally {
+            Chronos.configure(new ChronosConfiguration.Builder().build());
+        }
+    }
+
+    @SmallTest
+    public void testFailedWriteInvalidatesNothing() {
+        final AtomicInteger runCount = new AtomicInteger(0);
+        Chronos.run(new TaggedReadOperation(PROFILE_TAG, runCount, null));
+        final WriteOperation failedWrite = new WriteOperation();
+        failedWrite.mShouldFail = true;
+
+        assertFalse(Chronos.run(failedWrite).isSuccessful());
+        Chronos.run(new TaggedReadOperation(PROFILE_TAG, runCount, null));
+        assertTrue(runCount.get() == 1);
+    }
+
+    /**
+     * An operation which reads data of a tag, counts its runs, and may wait before it returns.
+     */
+    private final static class TaggedReadOperation extends ChronosOperation<String> {
+
+        @NonNull
+        private final String mTag;
+
+        @NonNull
+        private final AtomicInteger mRunCount;
+
+        @Nullable
+        private final CountDownLatch mRelease;
+
+        private TaggedReadOperation(@NonNull final String tag,
+                @NonNull final AtomicInteger runCount, @Nullable final CountDownLatch release) {
+            mTag = tag;
+            mRunCount = runCount;
+            mRelease = release;
+        }
+
+        @Nullable
+        @Override
+        public String run() {
+            mRunCount.incrementAndGet();
+            if (mRelease != null) {
+                try {
+                    mRelease.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return INPUT;
+        }
+
+        @NonNull
+        @Override
+        public Class<? extends ChronosOperationResult<String>> getResultClass() {
+            return SimpleOperationResult.class;
+        }
+
+        @Nullable
+        @Override
+        public String getCacheKey() {
+            return "read_" + mTag;
+        }
+
+        @NonNull
+        @Override
+        public Collection<String> getCacheTags() {
+            return Collections.singleton(mTag);
+        }
+    }
+
+    /**
+     * An operation which changes the profile.
+     */
+    private final static class WriteOperation extends ChronosOperation<String> {
+
+        private boolean mShouldFail = false;
+
+        @Nullable
+        @Override
+        public String run() {
+            if (mShouldFail) {
+                throw new IllegalStateException("The profile is not saved");
+            }
+            return INPUT;
+        }
+
+        @NonNull
+        @Override
+        public Class<? extends ChronosOperationResult<String>> getResultClass() {
+            return SimpleOperationResult.class;
+        }
+
+        @NonNull
+        @Override
+        public Collection<String> getInvalidatedTags() {
+            return Collections.singleton(PROFILE_TAG);
+        }
+    }
+}
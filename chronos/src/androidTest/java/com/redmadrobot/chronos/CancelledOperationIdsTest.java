@@ -0,0 +1,84 @@
+package com.redmadrobot.chronos;
+
+import com.redmadrobot.chronos.mock.operation.SimpleOperation;
+
+import android.support.annotation.NonNull;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.util.concurrent.FutureTask;
+
+import static com.redmadrobot.chronos.TestSettings.INPUT;
+
+/**
+ * Test for the bounded tracking of cancelled operation launches.
+ *
+ * @author maximefimov
+ */
+public class CancelledOperationIdsTest extends AndroidTestCase {
+
+    @SmallTest
+    public void testCancelledIsTracked() {
+        final CancelledOperationIds ids = new CancelledOperationIds();
+        ids.add(3);
+        ids.add(7);
+
+        for (int id = 1; id <= 10; id++) {
+            assertTrue(ids.contains(id) == (id == 3 || id == 7));
+        }
+        assertFalse(ids.contains(3 + CancelledOperationIds.CAPACITY));
+    }
+
+    @SmallTest
+    public void testOldIdsAreEvicted() {
+        final CancelledOperationIds ids = new CancelledOperationIds();
+        ids.add(1);
+        ids.add(CancelledOperationIds.CAPACITY);
+        assertTrue(ids.contains(1));
+
+        // the id which reuses the slot of the first launch
+        ids.add(CancelledOperationIds.CAPACITY + 1);
+        assertFalse(ids.contains(1));
+        assertTrue(ids.contains(CancelledOperationIds.CAPACITY + 1));
+    }
+
+    @SmallTest
+    public void testRelaunchOfCancelledOperationIsNotCancelled() {
+        final RunningOperationStorage storage = RunningOperationStorage.getInstance();
+        final SimpleOperation operation = new SimpleOperation(INPUT);
+        final ChronosOperationResult<String> cancelledResult = start(operation);
+        storage.cancel(cancelledResult.getId(), false);
+
+        final ChronosOperationResult<String> result = start(operation);
+        assertTrue(storage.isOperationCancelled(cancelledResult));
+        assertFalse(storage.isOperationCancelled(result));
+        storage.operationFinished(result.getId());
+    }
+
+    @SmallTest
+    public void testCancelledLaunchOutlivesRing() {
+        final RunningOperationStorage storage = RunningOperationStorage.getInstance();
+        final ChronosOperationResult<String> cancelledResult = start(new SimpleOperation(INPUT));
+        storage.cancel(cancelledResult.getId(), false);
+
+        // the id of the launch is evicted by the newer cancelled launches
+        for (int i = 0; i < CancelledOperationIds.CAPACITY; i++) {
+            storage.cancel(start(new SimpleOperation(INPUT)).getId(), false);
+        }
+        assertTrue(storage.isOperationCancelled(cancelledResult));
+    }
+
+    @NonNull
+    private static ChronosOperationResult<String> start(
+            @NonNull final SimpleOperation operation) {
+        final ChronosOperationResult<String> result = ChronosService.getInstance()
+                .createEmptyResult(operation, false);
+        RunningOperationStorage.getInstance().operationStarted(result, operation,
+                new FutureTask<Void>(new Runnable() {
+                    @Override
+                    public void run() {
+                    }
+                }, null));
+        return result;
+    }
+}
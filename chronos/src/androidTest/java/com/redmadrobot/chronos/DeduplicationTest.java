@@ -0,0 +1,274 @@
+package com.redmadrobot.chronos;
+
+import com.redmadrobot.chronos.mock.operation.SimpleOperationResult;
+
+import org.jetbrains.annotations.Contract;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.redmadrobot.chronos.TestSettings.INPUT;
+import static com.redmadrobot.chronos.TestSettings.OPERATION_WAIT;
+import static com.redmadrobot.chronos.util.TimingUtils.sleep;
+
+/**
+ * Test for coalescing of identical operations launched by different clients.
+ *
+ * @author maximefimov
+ */
+public class DeduplicationTest extends AndroidTestCase {
+
+    private final static String DEDUPLICATION_KEY = "deduplication_key";
+
+    private final static int CLIENT_COUNT = 8;
+
+    @SmallTest
+    public void testConcurrentDuplicatesRunOnce() throws InterruptedException {
+        final AtomicInteger runCount = new AtomicInteger(0);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final DeduplicatedClient[] clients = new DeduplicatedClient[CLIENT_COUNT];
+        final int[] ids = new int[CLIENT_COUNT];
+        final Thread[] threads = new Thread[CLIENT_COUNT];
+
+        for (int i = 0; i < CLIENT_COUNT; i++) {
+            final int index = i;
+            clients[i] = new DeduplicatedClient();
+            final ChronosConnector connector = new ChronosConnector();
+            connector.onCreate(clients[i], null);
+            connector.onResume();
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    ids[index] = connector.runOperation(new DeduplicatedOperation(runCount),
+                            false);
+                }
+            });
+            threads[i].start();
+        }
+        startLatch.countDown();
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        sleep();
+
+        assertTrue(runCount.get() == 1);
+        final Set<Integer> uniqueIds = new HashSet<>();
+        for (int i = 0; i < CLIENT_COUNT; i++) {
+            assertTrue(clients[i].getResultObtained() == 1);
+            assertEquals(INPUT, clients[i].getResult());
+            assertTrue(clients[i].getResultId() == ids[i]);
+            uniqueIds.add(ids[i]);
+        }
+        assertTrue(uniqueIds.size() == CLIENT_COUNT);
+    }
+
+    @SmallTest
+    public void testCancelledLaunchLeavesRun() {
+        final AtomicInteger runCount = new AtomicInteger(0);
+        final DeduplicatedClient cancellingClient = new DeduplicatedClient();
+        final ChronosConnector cancellingConnector = new ChronosConnector();
+        cancellingConnector.onCreate(cancellingClient, null);
+        cancellingConnector.onResume();
+        final DeduplicatedClient client = new DeduplicatedClient();
+        final ChronosConnector connector = new ChronosConnector();
+        connector.onCreate(client, null);
+        connector.onResume();
+
+        final int cancelledId = cancellingConnector
+                .runOperation(new DeduplicatedOperation(runCount), false);
+        final int id = connector.runOperation(new DeduplicatedOperation(runCount), false);
+        assertTrue(cancellingConnector.cancelOperation(cancelledId, false));
+        assertTrue(connector.isOperationRunning(id));
+        sleep();
+
+        assertTrue(runCount.get() == 1);
+        assertTrue(cancellingClient.getResultObtained() == 0);
+        assertTrue(client.getResultObtained() == 1);
+    }
+
+    @SmallTest
+    public void testSequentialDuplicatesRunSeparately() {
+        final AtomicInteger runCount = new AtomicInteger(0);
+        final DeduplicatedClient client = new DeduplicatedClient();
+        final ChronosConnector connector = new ChronosConnector();
+        connector.onCreate(client, null);
+        connector.onResume();
+
+        connector.runOperation(new DeduplicatedOperation(runCount), false);
+        sleep();
+        connector.runOperation(new DeduplicatedOperation(runCount), false);
+        sleep();
+
+        assertTrue(runCount.get() == 2);
+        assertTrue(client.getResultObtained() == 2);
+    }
+
+    @SmallTest
+    public void testDifferentResultClassesRunSeparately() {
+        final AtomicInteger runCount = new AtomicInteger(0);
+        final DeduplicatedClient client = new DeduplicatedClient();
+        final ChronosConnector connector = new ChronosConnector();
+        connector.onCreate(client, null);
+        connector.onResume();
+        final CountingClient countingClient = new CountingClient();
+        final ChronosConnector countingConnector = new ChronosConnector();
+        countingConnector.onCreate(countingClient, null);
+        countingConnector.onResume();
+
+        connector.runOperation(new DeduplicatedOperation(runCount), false);
+        countingConnector.runOperation(new CountingOperation(runCount), false);
+        sleep();
+
+        assertTrue(runCount.get() == 2);
+        assertTrue(client.getResultObtained() == 1);
+        assertEquals(INPUT, client.getResult());
+        assertTrue(countingClient.getResultObtained() == 1);
+        assertNotNull(countingClient.getResult());
+    }
+
+    /**
+     * An operation which counts its runs and is coalesced with the identical ones.
+     */
+    private final static class DeduplicatedOperation extends ChronosOperation<String> {
+
+        @NonNull
+        private final AtomicInteger mRunCount;
+
+        private DeduplicatedOperation(@NonNull final AtomicInteger runCount) {
+            mRunCount = runCount;
+        }
+
+        @Nullable
+        @Override
+        public String run() {
+            mRunCount.incrementAndGet();
+            sleep(OPERATION_WAIT);
+            return INPUT;
+        }
+
+        @NonNull
+        @Override
+        public Class<? extends ChronosOperationResult<String>> getResultClass() {
+            return SimpleOperationResult.class;
+        }
+
+        @Nullable
+        @Override
+        public String getDeduplicationKey() {
+            return DEDUPLICATION_KEY;
+        }
+    }
+
+    /**
+     * An operation which shares the deduplication key with {@link DeduplicatedOperation}, but has
+     * another result class, and returns the number of runs.
+     */
+    private final static class CountingOperation extends ChronosOperation<Integer> {
+
+        @NonNull
+        private final AtomicInteger mRunCount;
+
+        private CountingOperation(@NonNull final AtomicInteger runCount) {
+            mRunCount = runCount;
+        }
+
+        @Nullable
+        @Override
+        public Integer run() {
+            final int runCount = mRunCount.incrementAndGet();
+            sleep(OPERATION_WAIT);
+            return runCount;
+        }
+
+        @NonNull
+        @Override
+        public Class<? extends ChronosOperationResult<Integer>> getResultClass() {
+            return CountingOperationResult.class;
+        }
+
+        @Nullable
+        @Override
+        public String getDeduplicationKey() {
+            return DEDUPLICATION_KEY;
+        }
+    }
+
+    public final static class CountingOperationResult extends ChronosOperationResult<Integer> {
+
+    }
+
+    /**
+     * A client which remembers the results of {@link CountingOperation} it got.
+     */
+    public final static class CountingClient {
+
+        private Integer mResult;
+
+        private int mResultObtained = 0;
+
+        @Nullable
+        @Contract(pure = true)
+        public final Integer getResult() {
+            return mResult;
+        }
+
+        @Contract(pure = true)
+        public final int getResultObtained() {
+            return mResultObtained;
+        }
+
+        @SuppressWarnings("UnusedDeclaration")
+        public final void onOperationFinished(final CountingOperationResult result) {
+            mResultObtained++;
+            mResult = result.getOutput();
+        }
+    }
+
+    /**
+     * A client which remembers the results it got.
+     */
+    public final static class DeduplicatedClient {
+
+        private String mResult;
+
+        private int mResultId;
+
+        private int mResultObtained = 0;
+
+        @Nullable
+        @Contract(pure = true)
+        public final String getResult() {
+            return mResult;
+        }
+
+        @Contract(pure = true)
+        public final int getResultId() {
+            return mResultId;
+        }
+
+        @Contract(pure = true)
+        public final int getResultObtained() {
+            return mResultObtained;
+        }
+
+        @SuppressWarnings("UnusedDeclaration")
+        public final void onOperationFinished(final SimpleOperationResult result) {
+            final ChronosOperationResult<String> operationResult = result;
+            mResultObtained++;
+            mResultId = operationResult.getId();
+            mResult = result.getOutput();
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.redmadrobot.chronos;
+
+import com.redmadrobot.chronos.mock.operation.SimpleOperationResult;
+
+import org.jetbrains.annotations.Contract;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.redmadrobot.chronos.TestSettings.INPUT;
+import static com.redmadrobot.chronos.TestSettings.MICRO_WAIT;
+import static com.redmadrobot.chronos.TestSettings.SHORT_WAIT;
+import static com.redmadrobot.chronos.util.TimingUtils.sleep;
+
+/**
+ * Test for launches finished from the disk level of the cache of operation outputs. The memory level
+ * is disabled, so that every launch has to look for the output on disk, as after a restart of the
+ * process.
+ *
+ * @author maximefimov
+ */
+public class DiskCachedRunTest extends AndroidTestCase {
+
+    private final static String CACHE_KEY = "disk_cache_key";
+
+    private final static String CACHE_TAG = "disk_cache_tag";
+
+    private final static Charset UTF_8 = Charset.forName("UTF-8");
+
+    private File mCacheDirectory;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mCacheDirectory = new File(getContext().getCacheDir(), "results");
+        Chronos.configure(new ChronosConfiguration.Builder()
+                .setResultCacheSize(0)
+                .setDiskResultCacheDirectory(mCacheDirectory).build());
+        ChronosService.getInstance().awaitStorage();
+        Chronos.clearResultCache();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        Chronos.clearResultCache();
+        Chronos.configure(new ChronosConfiguration.Builder().build());
+        super.tearDown();
+    }
+
+    @SmallTest
+    public void testLaunchIsFinishedFromDisk() throws InterruptedException {
+        final ResultCacheStatistics statistics = Chronos.getResultCacheStatistics();
+        final long diskHitCount = statistics.getDiskHitCount();
+        final AtomicInteger runCount = new AtomicInteger(0);
+        final DiskCachingClient client = new DiskCachingClient();
+        final ChronosConnector connector = new ChronosConnector();
+        connector.onCreate(client, null);
+        connector.onResume();
+
+        int id = connector.runOperation(new DiskCachedOperation(runCount), false);
+        waitForOperation(connector, id);
+        // the process is restarted
+        Chronos.configure(new ChronosConfiguration.Builder()
+                .setResultCacheSize(0)
+                .setDiskResultCacheDirectory(mCacheDirectory)
+                .setDiskResultCacheSize(1024 * 1024).build());
+        ChronosService.getInstance().awaitStorage();
+        id = connector.runOperation(new DiskCachedOperation(runCount), false);
+        waitForOperation(connector, id);
+
+        assertTrue(runCount.get() == 1);
+        assertTrue(client.getResultObtained() == 2);
+        assertEquals(INPUT, client.getResult());
+        assertTrue(statistics.getDiskHitCount() == diskHitCount + 1);
+        connector.onPause();
+    }
+
+    @SmallTest
+    public void testDroppedCacheKeysAreUnbound() {
+        final ChronosConnector connector = new ChronosConnector();
+        connector.onCreate(new DiskCachingClient(), null);
+        connector.onResume();
+
+        final int id = connector.runOperation(new DiskCachedOperation(new AtomicInteger(0)),
+                false);
+        waitForOperation(connector, id);
+        connector.onPause();
+        final CacheTagIndex index = ChronosService.getInstance().getCacheTagIndex();
+        assertTrue(index.getKeyCount(CACHE_TAG) == 1);
+
+        final DiskResultCache diskCache = ChronosService.getInstance().getDiskResultCache();
+        Chronos.configure(new ChronosConfiguration.Builder().setResultCacheSize(0).build());
+        assertTrue(index.getKeyCount(CACHE_TAG) == 0);
+        assertNotNull(diskCache);
+        assertFalse(diskCache.contains(CACHE_KEY));
+    }
+
+    @SmallTest
+    public void testInvalidationRemovesFromDisk() {
+        final AtomicInteger runCount = new AtomicInteger(0);
+        final ChronosConnector connector = new ChronosConnector();
+        connector.onCreate(new DiskCachingClient(), null);
+        connector.onResume();
+
+        int id = connector.runOperation(new DiskCachedOperation(runCount), false);
+        waitForOperation(connector, id);
+        Chronos.invalidateCachedResult(CACHE_KEY);
+        id = connector.runOperation(new DiskCachedOperation(runCount), false);
+        waitForOperation(connector, id);
+
+        assertTrue(runCount.get() == 2);
+        connector.onPause();
+    }
+
+    @SmallTest
+    public void testBrokenEncodingKeepsOutput() {
+        final AtomicInteger runCount = new AtomicInteger(0);
+        final DiskCachingClient client = new DiskCachingClient();
+        final ChronosConnector connector = new ChronosConnector();
+        connector.onCreate(client, null);
+        connector.onResume();
+
+        final int id = connector.runOperation(new DiskCachedOperation(runCount, true), false);
+        waitForOperation(connector, id);
+
+        assertTrue(client.getResultObtained() == 1);
+        assertEquals(INPUT, client.getResult());
+        connector.onPause();
+    }
+
+    @SmallTest
+    public void testBrokenDecodingRunsOperation() {
+        final AtomicInteger runCount = new AtomicInteger(0);
+        final DiskCachingClient client = new DiskCachingClient();
+        final ChronosConnector connector = new ChronosConnector();
+        connector.onCreate(client, null);
+        connector.onResume();
+
+        int id = connector.runOperation(new DiskCachedOperation(runCount), false);
+        waitForOperation(connector, id);
+        id = connector.runOperation(new DiskCachedOperation(runCount, true), false);
+        waitForOperation(connector, id);
+
+        assertTrue(runCount.get() == 2);
+        assertTrue(client.getResultObtained() == 2);
+        assertEquals(INPUT, client.getResult());
+        connector.onPause();
+    }
+
+    private static void waitForOperation(@NonNull final ChronosConnector connector, final int id) {
+        while (connector.isOperationRunning(id)) {
+            sleep(SHORT_WAIT);
+        }
+        sleep(SHORT_WAIT);
+    }
+
+    /**
+     * An operation which counts its runs and caches its output on disk, optionally with a codec
+     * which always fails.
+     */
+    private final static class DiskCachedOperation extends ChronosOperation<String> {
+
+        @NonNull
+        private final AtomicInteger mRunCount;
+
+        private final boolean mIsCodecBroken;
+
+        private DiskCachedOperation(@NonNull final AtomicInteger runCount) {
+            this(runCount, false);
+        }
+
+        private DiskCachedOperation(@NonNull final AtomicInteger runCount,
+                final boolean isCodecBroken) {
+            mRunCount = runCount;
+            mIsCodecBroken = isCodecBroken;
+        }
+
+        @Nullable
+        @Override
+        public String run() {
+            mRunCount.incrementAndGet();
+            sleep(MICRO_WAIT);
+            return INPUT;
+        }
+
+        @NonNull
+        @Override
+        public Class<? extends ChronosOperationResult<String>> getResultClass() {
+            return SimpleOperationResult.class;
+        }
+
+        @Nullable
+        @Override
+        public String getCacheKey() {
+            return CACHE_KEY;
+        }
+
+        @NonNull
+        @Override
+        public Collection<String> getCacheTags() {
+            return Collections.singleton(CACHE_TAG);
+        }
+
+        @NonNull
+        @Override
+        public ResultCodec<String> getResultCodec() {
+            return new ResultCodec<String>() {
+                @NonNull
+                @Override
+                public byte[] encode(@Nullable final String output) throws IOException {
+                    if (mIsCodecBroken) {
+                        throw new IllegalStateException("Broken codec");
+                    }
+                    if (output == null) {
+                        throw new IOException("No output");
+                    }
+                    return output.getBytes(UTF_8);
+                }
+
+                @NonNull
+                @Override
+                public String decode(@NonNull final byte[] data) {
+                    if (mIsCodecBroken) {
+                        throw new IllegalStateException("Broken codec");
+                    }
+                    return new String(data, UTF_8);
+                }
+            };
+        }
+    }
+
+    /**
+     * A client which remembers the results it got.
+     */
+    public final static class DiskCachingClient {
+
+        private String mResult;
+
+        private int mResultObtained = 0;
+
+        @Nullable
+        @Contract(pure = true)
+        public final String getResult() {
+            return mResult;
+        }
+
+        @Contract(pure = true)
+        public final int getResultObtained() {
+            return mResultObtained;
+        }
+
+        @SuppressWarnings("UnusedDeclaration")
+        public final void onOperationFinished(final SimpleOperationResult result) {
+            mResultObtained++;
+            mResult = result.getOutput();
+        }
+    }
+}
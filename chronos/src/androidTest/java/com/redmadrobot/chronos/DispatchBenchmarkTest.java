@@ -0,0 +1,153 @@
+package com.redmadrobot.chronos;
+
+import com.redmadrobot.chronos.mock.gui.InheritedCallbackClient;
+import com.redmadrobot.chronos.mock.gui.SimpleMockActivity;
+import com.redmadrobot.chronos.mock.operation.HeavyOperationResult;
+import com.redmadrobot.chronos.mock.operation.HiddenResultOperation;
+import com.redmadrobot.chronos.mock.operation.SimpleOperation;
+import com.redmadrobot.chronos.mock.operation.SimpleOperationResult;
+
+import android.support.annotation.NonNull;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.test.suitebuilder.annotation.SmallTest;
+import android.util.Log;
+
+import java.lang.reflect.Method;
+
+import static com.redmadrobot.chronos.TestSettings.INPUT;
+
+/**
+ * Comparison of generated and reflection-based result delivery.
+ *
+ * @author maximefimov
+ */
+public class DispatchBenchmarkTest extends AndroidTestCase {
+
+    private final static String LOG_TAG = DispatchBenchmarkTest.class.getSimpleName();
+
+    private final static int WARM_UP_COUNT = 1000;
+
+    private final static int DELIVERY_COUNT = 100000;
+
+    private final static int ROUND_COUNT = 5;
+
+    @NonNull
+    private static ChronosOperationResult<String> createResult() {
+        final ChronosOperationResult<String> result = new SimpleOperationResult();
+        result.setId(1);
+        result.setOperation(new SimpleOperation(INPUT));
+        result.setOutput(INPUT);
+        return result;
+    }
+
+    private static long measure(@NonNull final ChronosDispatcher dispatcher,
+            @NonNull final Object listener, @NonNull final ChronosOperationResult<?> result,
+            final int count) {
+        final long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            dispatcher.dispatch(listener, result, false);
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Measures several rounds of deliveries, so that a pause of the test thread doesn't affect the
+     * result.
+     *
+     * @return the time of the fastest round, in nanoseconds
+     */
+    private static long measureBest(@NonNull final ChronosDispatcher dispatcher,
+            @NonNull final Object listener, @NonNull final ChronosOperationResult<?> result) {
+        long bestTime = Long.MAX_VALUE;
+        for (int i = 0; i < ROUND_COUNT; i++) {
+            bestTime = Math.min(bestTime, measure(dispatcher, listener, result, DELIVERY_COUNT));
+        }
+        return bestTime;
+    }
+
+    @SmallTest
+    public void testGeneratedDispatcherIsUsed() {
+        final ChronosDispatcher dispatcher = DispatcherRegistry.getInstance()
+                .getDispatcher(SimpleMockActivity.class);
+        assertNotSame(DispatcherRegistry.getInstance().getReflectionDispatcher(), dispatcher);
+        assertEquals(SimpleMockActivity.class.getName() + ChronosDispatcher.GENERATED_CLASS_SUFFIX,
+                dispatcher.getClass().getName());
+    }
+
+    @SmallTest
+    public void testInaccessibleCallbackUsesReflection() {
+        final ChronosDispatcher dispatcher = DispatcherRegistry.getInstance()
+                .getDispatcher(InheritedCallbackClient.class);
+        assertSame(DispatcherRegistry.getInstance().getReflectionDispatcher(), dispatcher);
+
+        final HiddenResultOperation operation = new HiddenResultOperation(INPUT);
+        final ChronosOperationResult<String> result = operation.createResult();
+        result.setId(1);
+        result.setOperation(operation);
+        result.setOutput(INPUT);
+
+        final InheritedCallbackClient listener = new InheritedCallbackClient();
+        assertTrue(dispatcher.dispatch(listener, result, false));
+        assertTrue(listener.getResultObtained() == 1);
+        assertEquals(INPUT, listener.getResult());
+    }
+
+    @SmallTest
+    public void testSameDelivery() {
+        final SimpleMockActivity generatedListener = new SimpleMockActivity();
+        final SimpleMockActivity reflectionListener = new SimpleMockActivity();
+        final ChronosOperationResult<String> result = createResult();
+
+        assertTrue(DispatcherRegistry.getInstance().getDispatcher(SimpleMockActivity.class)
+                .dispatch(generatedListener, result, false));
+        assertTrue(DispatcherRegistry.getInstance().getReflectionDispatcher()
+                .dispatch(reflectionListener, result, false));
+
+        assertTrue(generatedListener.getResultObtained() == 1);
+        assertTrue(reflectionListener.getResultObtained() == 1);
+        assertFalse(generatedListener.gotBroadcastResult());
+        assertFalse(reflectionListener.gotBroadcastResult());
+        assertEquals(reflectionListener.getResult(), generatedListener.getResult());
+    }
+
+    @SmallTest
+    public void testReflectionCallbacksCached() {
+        final ReflectionDispatcher dispatcher = new ReflectionDispatcher();
+
+        final Method[] callbacks = dispatcher.getCallbacks(SimpleMockActivity.class,
+                SimpleOperationResult.class, false);
+        assertTrue(callbacks.length == 1);
+        assertSame(callbacks, dispatcher.getCallbacks(SimpleMockActivity.class,
+                SimpleOperationResult.class, false));
+
+        final Method[] noCallbacks = dispatcher.getCallbacks(SimpleMockActivity.class,
+                HeavyOperationResult.class, false);
+        assertTrue(noCallbacks.length == 0);
+        assertSame(noCallbacks, dispatcher.getCallbacks(SimpleMockActivity.class,
+                HeavyOperationResult.class, false));
+    }
+
+    @LargeTest
+    public void testDeliveryTime() {
+        final SimpleMockActivity listener = new SimpleMockActivity();
+        final ChronosOperationResult<String> result = createResult();
+        final ChronosDispatcher generated = DispatcherRegistry.getInstance()
+                .getDispatcher(SimpleMockActivity.class);
+        final ChronosDispatcher reflection = DispatcherRegistry.getInstance()
+                .getReflectionDispatcher();
+        assertNotSame(reflection, generated);
+
+        measure(generated, listener, result, WARM_UP_COUNT);
+        measure(reflection, listener, result, WARM_UP_COUNT);
+
+        final long generatedTime = measureBest(generated, listener, result);
+        final long reflectionTime = measureBest(reflection, listener, result);
+
+        Log.i(LOG_TAG, "generated dispatcher: " + generatedTime / DELIVERY_COUNT + " ns/delivery");
+        Log.i(LOG_TAG, "reflection dispatcher: " + reflectionTime / DELIVERY_COUNT + " ns/delivery");
+        assertTrue(listener.getResultObtained()
+                == 2 * (WARM_UP_COUNT + ROUND_COUNT * DELIVERY_COUNT));
+        assertTrue(generatedTime < reflectionTime);
+    }
+}
@@ -0,0 +1,258 @@
+package com.redmadrobot.chronos;
+
+import com.redmadrobot.chronos.mock.operation.SimpleOperationResult;
+
+import org.jetbrains.annotations.Contract;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.MediumTest;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.redmadrobot.chronos.TestSettings.INPUT;
+import static com.redmadrobot.chronos.TestSettings.OPERATION_WAIT;
+import static com.redmadrobot.chronos.TestSettings.SHORT_WAIT;
+import static com.redmadrobot.chronos.util.TimingUtils.sleep;
+
+/**
+ * Test for relaunching of durable operations which were not finished by the previous process. The
+ * death of the process is simulated by closing the journal while an operation is running.
+ *
+ * @author maximefimov
+ */
+public class DurableOperationTest extends AndroidTestCase {
+
+    /**
+     * Runs of durable operations, it is static as a relaunched operation is a deserialized copy.
+     */
+    private final static AtomicInteger RUN_COUNT = new AtomicInteger(0);
+
+    private File mJournalDirectory;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        RUN_COUNT.set(0);
+        mJournalDirectory = new File(getContext().getCacheDir(), "journal");
+        //noinspection ResultOfMethodCallIgnored
+        mJournalDirectory.mkdirs();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        Chronos.configure(new ChronosConfiguration.Builder().build());
+        final File[] files = mJournalDirectory.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+        super.tearDown();
+    }
+
+    @MediumTest
+    public void testInterruptedOperationIsRelaunched() throws InterruptedException {
+        configureJournal(true);
+        final DurableClient client = new DurableClient();
+        final ChronosConnector connector = new ChronosConnector();
+        connector.onCreate(client, null);
+        connector.onResume();
+
+        final DurableClient broadcastClient = new DurableClient();
+        final ChronosConnector broadcastConnector = new ChronosConnector();
+        broadcastConnector.onCreate(broadcastClient, null);
+        broadcastConnector.onResume();
+
+        final int id = connector.runOperation(new DurableOperation(), true);
+        sleep(SHORT_WAIT);
+        // the process dies while the operation is running
+        configureJournal(false);
+        while (connector.isOperationRunning(id)) {
+            sleep(SHORT_WAIT);
+        }
+        sleep(SHORT_WAIT);
+        assertTrue(RUN_COUNT.get() == 1);
+        assertEquals(INPUT, client.getResult());
+        assertTrue(broadcastClient.getBroadcastResultObtained() == 1);
+
+        // the relaunched operation has no owner, so its result is only broadcasted
+        configureJournal(true);
+        final OperationJournal journal = ChronosService.getInstance().getJournal();
+        while (journal.getPendingCount() > 0) {
+            sleep(SHORT_WAIT);
+        }
+        sleep(SHORT_WAIT);
+        assertTrue(RUN_COUNT.get() == 2);
+        assertTrue(client.getBroadcastResultObtained() == 1);
+        assertTrue(broadcastClient.getBroadcastResultObtained() == 2);
+        connector.onPause();
+        broadcastConnector.onPause();
+    }
+
+    @SmallTest
+    public void testFinishedOperationIsNotRelaunched() throws InterruptedException {
+        configureJournal(true);
+        final DurableClient client = new DurableClient();
+        final ChronosConnector connector = new ChronosConnector();
+        connector.onCreate(client, null);
+        connector.onResume();
+
+        final int id = connector.runOperation(new DurableOperation(), false);
+        while (connector.isOperationRunning(id)) {
+            sleep(SHORT_WAIT);
+        }
+        configureJournal(false);
+        configureJournal(true);
+        sleep(OPERATION_WAIT);
+
+        assertTrue(RUN_COUNT.get() == 1);
+        connector.onPause();
+    }
+
+    @SmallTest
+    public void testCancelledOperationIsNotRelaunched() throws InterruptedException {
+        configureJournal(true);
+        final ChronosConnector connector = new ChronosConnector();
+        connector.onCreate(new DurableClient(), null);
+        connector.onResume();
+
+        final int id = connector.runOperation(new DurableOperation(), false);
+        assertTrue(connector.cancelOperation(id, false));
+        assertTrue(ChronosService.getInstance().getJournal().getPendingCount() == 0);
+        connector.onPause();
+    }
+
+    @SmallTest
+    public void testNotSerializableOperationIsRejected() throws InterruptedException {
+        configureJournal(true);
+        final ChronosConnector connector = new ChronosConnector();
+        connector.onCreate(new DurableClient(), null);
+        connector.onResume();
+
+        try {
+            connector.runOperation(new ChronosOperation<String>() {
+                @Nullable
+                @Override
+                public String run() {
+                    return INPUT;
+                }
+
+                @NonNull
+                @Override
+                public Class<? extends ChronosOperationResult<String>> getResultClass() {
+                    return SimpleOperationResult.class;
+                }
+
+                @Override
+                public boolean isDurable() {
+                    return true;
+                }
+            }, false);
+            fail("Not serializable durable operation is launched");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        connector.onPause();
+    }
+
+    @SmallTest
+    public void testOversizedOperationIsRejected() throws InterruptedException {
+        configureJournal(true);
+        final ChronosConnector connector = new ChronosConnector();
+        connector.onCreate(new DurableClient(), null);
+        connector.onResume();
+
+        try {
+            connector.runOperation(new OversizedOperation(), false);
+            fail("Oversized durable operation is launched");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        sleep(OPERATION_WAIT);
+        assertTrue(RUN_COUNT.get() == 0);
+        connector.onPause();
+    }
+
+    private void configureJournal(final boolean enabled) throws InterruptedException {
+        Chronos.configure(new ChronosConfiguration.Builder()
+                .setJournalDirectory(enabled ? mJournalDirectory : null).build());
+        ChronosService.getInstance().awaitStorage();
+    }
+
+    /**
+     * A durable operation which counts its runs.
+     */
+    private static class DurableOperation extends ChronosOperation<String>
+            implements Serializable {
+
+        private final static long serialVersionUID = 1L;
+
+        @Nullable
+        @Override
+        public String run() {
+            RUN_COUNT.incrementAndGet();
+            sleep(OPERATION_WAIT);
+            return INPUT;
+        }
+
+        @NonNull
+        @Override
+        public Class<? extends ChronosOperationResult<String>> getResultClass() {
+            return SimpleOperationResult.class;
+        }
+
+        @Override
+        public boolean isDurable() {
+            return true;
+        }
+    }
+
+    /**
+     * A durable operation which is serialized to more than a journal entry may take.
+     */
+    private final static class OversizedOperation extends DurableOperation {
+
+        private final static long serialVersionUID = 1L;
+
+        @SuppressWarnings("unused")
+        private final byte[] mPayload = new byte[OperationJournal.MAX_ENTRY_SIZE + 1];
+    }
+
+    /**
+     * A client which remembers the results it got.
+     */
+    public final static class DurableClient {
+
+        private String mResult;
+
+        private int mBroadcastResultObtained = 0;
+
+        @Nullable
+        @Contract(pure = true)
+        public final String getResult() {
+            return mResult;
+        }
+
+        @Contract(pure = true)
+        public final int getBroadcastResultObtained() {
+            return mBroadcastResultObtained;
+        }
+
+        @SuppressWarnings("UnusedDeclaration")
+        public final void onOperationFinished(final SimpleOperationResult result) {
+            mResult = result.getOutput();
+        }
+
+        @SuppressWarnings("UnusedDeclaration")
+        public final void onBroadcastOperationFinished(final SimpleOperationResult result) {
+            mBroadcastResultObtained++;
+            mResult = result.getOutput();
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.redmadrobot.chronos;
+
+import com.redmadrobot.chronos.mock.operation.SimpleOperation;
+import com.redmadrobot.chronos.mock.operation.SimpleOperationResult;
+
+import org.jetbrains.annotations.Contract;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.test.suitebuilder.annotation.SmallTest;
+import android.util.Log;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.redmadrobot.chronos.TestSettings.INPUT;
+import static com.redmadrobot.chronos.util.TimingUtils.sleep;
+
+/**
+ * Test for the thread pool behaviour under a burst of operations.
+ *
+ * @author maximefimov
+ */
+public class ExecutorLoadTest extends AndroidTestCase {
+
+    private final static String LOG_TAG = ExecutorLoadTest.class.getSimpleName();
+
+    private final static int BURST_SIZE = 10000;
+
+    private final static int MAXIMUM_POOL_SIZE = 4;
+
+    private final static long BURST_TIMEOUT_SECONDS = 60;
+
+    @Override
+    protected void tearDown() throws Exception {
+        Chronos.configure(new ChronosConfiguration.Builder().build());
+        super.tearDown();
+    }
+
+    @LargeTest
+    public void testBurstThreadCount() throws InterruptedException {
+        Chronos.configure(new ChronosConfiguration.Builder()
+                .setCorePoolSize(MAXIMUM_POOL_SIZE)
+                .setMaximumPoolSize(MAXIMUM_POOL_SIZE)
+                .setThreadNamePrefix(LOG_TAG)
+                .build());
+
+        final ChronosListener listener = ChronosListenerManager.getInstance().createListener();
+        final CountDownLatch latch = new CountDownLatch(BURST_SIZE);
+        final Set<String> threadNames = Collections.synchronizedSet(new HashSet<String>());
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < BURST_SIZE; i++) {
+            listener.invoke(new CountingOperation(latch, threadNames), false);
+        }
+        assertTrue(latch.await(BURST_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        final long time = System.nanoTime() - start;
+
+        Log.i(LOG_TAG, BURST_SIZE + " operations in " + TimeUnit.NANOSECONDS.toMillis(time)
+                + " ms, " + threadNames.size() + " threads");
+        assertTrue(threadNames.size() <= MAXIMUM_POOL_SIZE);
+        assertTrue(ChronosService.getInstance().getExecutor().getLargestPoolSize()
+                <= MAXIMUM_POOL_SIZE);
+        for (final String threadName : threadNames) {
+            assertTrue(threadName.startsWith(LOG_TAG));
+        }
+    }
+
+    @SmallTest
+    public void testRejectedRun() {
+        Chronos.configure(new ChronosConfiguration.Builder()
+                .setCorePoolSize(1)
+                .setMaximumPoolSize(1)
+                .setQueueCapacity(1)
+                .build());
+
+        final RejectingClient client = new RejectingClient();
+        final ChronosConnector connector = new ChronosConnector();
+        connector.onCreate(client, null);
+        connector.onResume();
+
+        // the first one occupies the thread, the second one waits in the queue
+        connector.runOperation(new SimpleOperation(INPUT), false);
+        connector.runOperation(new SimpleOperation(INPUT), false);
+        connector.runOperation(new SimpleOperation(INPUT), false);
+        sleep();
+
+        assertTrue(client.getRejectedCount() == 1);
+    }
+
+    @SmallTest
+    public void testDiscardedRun() {
+        Chronos.configure(new ChronosConfiguration.Builder()
+                .setCorePoolSize(1)
+                .setMaximumPoolSize(1)
+                .setQueueCapacity(1)
+                .setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy())
+                .build());
+
+        final RejectingClient client = new RejectingClient();
+        final ChronosConnector connector = new ChronosConnector();
+        connector.onCreate(client, null);
+        connector.onResume();
+
+        connector.runOperation(new SimpleOperation(INPUT), false);
+        connector.runOperation(new SimpleOperation(INPUT), false);
+        final int id = connector.runOperation(new SimpleOperation(INPUT), false);
+        sleep();
+
+        // a discarded operation is finished as a rejected one, rather than is never delivered
+        assertTrue(client.getRejectedCount() == 1);
+        assertFalse(connector.isOperationRunning(id));
+    }
+
+    @SmallTest
+    public void testDiscardOldestIsNotAccepted() {
+        try {
+            new ChronosConfiguration.Builder()
+                    .setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardOldestPolicy());
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * An operation which counts its runs and remembers the threads it was run in.
+     */
+    private final static class CountingOperation extends ChronosOperation<String> {
+
+        @NonNull
+        private final CountDownLatch mLatch;
+
+        @NonNull
+        private final Set<String> mThreadNames;
+
+        private CountingOperation(@NonNull final CountDownLatch latch,
+                @NonNull final Set<String> threadNames) {
+            mLatch = latch;
+            mThreadNames = threadNames;
+        }
+
+        @Nullable
+        @Override
+        public String run() {
+            mThreadNames.add(Thread.currentThread().getName());
+            mLatch.countDown();
+            return null;
+        }
+
+        @NonNull
+        @Override
+        public Class<? extends ChronosOperationResult<String>> getResultClass() {
+            return CountingOperationResult.class;
+        }
+    }
+
+    public final static class CountingOperationResult extends ChronosOperationResult<String> {
+
+    }
+
+    /**
+     * A client which counts rejected operations.
+     */
+    public final static class RejectingClient {
+
+        private final AtomicInteger mRejectedCount = new AtomicInteger(0);
+
+        @Contract(pure = true)
+        public final int getRejectedCount() {
+            return mRejectedCount.get();
+        }
+
+        @SuppressWarnings("UnusedDeclaration")
+        public final void onOperationFinished(final SimpleOperationResult result) {
+            if (result.getException() instanceof RejectedExecutionException) {
+                mRejectedCount.incrementAndGet();
+            }
+        }
+    }
+}
@@ -48,6 +48,28 @@ public class FragmentRunTest extends AndroidTestCase {
         assertNull(fragment.getError());
     }
 
+    @SmallTest
+    public void testRemovedWithSavedStateRun() {
+        final SimpleMockActivity activity = new SimpleMockActivity();
+        final SimpleMockFragment fragment = new SimpleMockFragment();
+        activity.addFragment(fragment);
+
+        activity.start();
+        fragment.runSimple(INPUT);
+        // the fragment is removed after its state is saved, like a page of a state pager adapter
+        fragment.onSaveInstanceState();
+        fragment.onPause();
+        fragment.onDestroy();
+        sleep();
+        // and is restored from the saved state later
+        fragment.restore();
+        fragment.onCreate();
+        fragment.onResume();
+        assertTrue(fragment.getResultObtained() == 1);
+        assertTrue(SimpleOperation.isTransform(INPUT, fragment.getResult()));
+        assertNull(fragment.getError());
+    }
+
     @SmallTest
     public void testErrorRun() {
         final SimpleMockActivity activity = new SimpleMockActivity();
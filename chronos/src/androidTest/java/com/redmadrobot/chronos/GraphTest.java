@@ -0,0 +1,203 @@
+package com.redmadrobot.chronos;
+
+import com.redmadrobot.chronos.mock.operation.SimpleErrorOperation;
+import com.redmadrobot.chronos.mock.operation.SimpleOperationResult;
+
+import org.jetbrains.annotations.Contract;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.redmadrobot.chronos.TestSettings.INPUT;
+import static com.redmadrobot.chronos.TestSettings.OPERATION_WAIT;
+import static com.redmadrobot.chronos.TestSettings.SHORT_WAIT;
+import static com.redmadrobot.chronos.util.TimingUtils.sleep;
+
+/**
+ * Test for operation graphs.
+ *
+ * @author maximefimov
+ */
+public class GraphTest extends AndroidTestCase {
+
+    @SmallTest
+    public void testDiamondIsDeliveredOnce() {
+        final GraphClient client = new GraphClient();
+        final ChronosConnector connector = new ChronosConnector();
+        connector.onCreate(client, null);
+        connector.onResume();
+
+        final AtomicInteger runCount = new AtomicInteger(0);
+        final OperationGraph.Builder builder = new OperationGraph.Builder();
+        final GraphNode<String> source = builder.add(new JoinOperation(runCount));
+        final GraphNode<String> left = builder.add(new JoinOperation(runCount, source), source);
+        final GraphNode<String> right = builder.add(new JoinOperation(runCount, source), source);
+        final GraphNode<String> sink = builder.add(new JoinOperation(runCount, left, right), left,
+                right);
+
+        final long startTime = System.currentTimeMillis();
+        final int id = connector.runOperation(builder.build(sink), false);
+        while (connector.isOperationRunning(id)) {
+            sleep(SHORT_WAIT);
+        }
+        final long elapsed = System.currentTimeMillis() - startTime;
+        sleep(SHORT_WAIT);
+
+        assertTrue(runCount.get() == 4);
+        assertTrue(client.getResultObtained() == 1);
+        assertEquals(INPUT + INPUT, client.getResult());
+        // the middle operations are run in parallel
+        assertTrue(elapsed < 4 * OPERATION_WAIT);
+    }
+
+    @SmallTest
+    public void testFailureIsDelivered() {
+        final GraphClient client = new GraphClient();
+        final ChronosConnector connector = new ChronosConnector();
+        connector.onCreate(client, null);
+        connector.onResume();
+
+        final AtomicInteger runCount = new AtomicInteger(0);
+        final OperationGraph.Builder builder = new OperationGraph.Builder();
+        final GraphNode<String> failing = builder.add(new SimpleErrorOperation());
+        final GraphNode<String> sink = builder.add(new JoinOperation(runCount, failing), failing);
+
+        connector.runOperation(builder.build(sink), false);
+        sleep();
+
+        assertTrue(runCount.get() == 0);
+        assertTrue(client.getResultObtained() == 1);
+        assertTrue(client.getErrorObtained() == 1);
+    }
+
+    @SmallTest
+    public void testSyncRun() {
+        final AtomicInteger runCount = new AtomicInteger(0);
+        final OperationGraph.Builder builder = new OperationGraph.Builder();
+        final GraphNode<String> source = builder.add(new JoinOperation(runCount));
+        final GraphNode<String> sink = builder.add(new JoinOperation(runCount, source, source),
+                source);
+
+        final ChronosOperationResult<String> result = Chronos.run(builder.build(sink));
+
+        assertTrue(runCount.get() == 2);
+        assertEquals(INPUT + INPUT, result.getOutput());
+    }
+
+    @SmallTest
+    public void testRelaunchIsRejected() {
+        final GraphClient client = new GraphClient();
+        final ChronosConnector connector = new ChronosConnector();
+        connector.onCreate(client, null);
+        connector.onResume();
+
+        final OperationGraph.Builder builder = new OperationGraph.Builder();
+        final OperationGraph<String> graph = builder.build(
+                builder.add(new JoinOperation(new AtomicInteger(0))));
+        connector.runOperation(graph, false);
+        try {
+            connector.runOperation(graph, false);
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        sleep();
+
+        assertTrue(client.getResultObtained() == 1);
+        assertFalse(Chronos.run(graph).isSuccessful());
+    }
+
+    @SmallTest
+    public void testForeignDependencyIsRejected() {
+        final GraphNode<String> foreign = new OperationGraph.Builder()
+                .add(new JoinOperation(new AtomicInteger(0)));
+        try {
+            new OperationGraph.Builder().add(new JoinOperation(new AtomicInteger(0)), foreign);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * An operation which concatenates the outputs of its dependencies, or returns the input if it
+     * has no dependencies.
+     */
+    private final static class JoinOperation extends ChronosOperation<String> {
+
+        @NonNull
+        private final AtomicInteger mRunCount;
+
+        @NonNull
+        private final GraphNode<?>[] mInputs;
+
+        private JoinOperation(@NonNull final AtomicInteger runCount,
+                @NonNull final GraphNode<?>... inputs) {
+            mRunCount = runCount;
+            mInputs = inputs;
+        }
+
+        @Nullable
+        @Override
+        public String run() {
+            mRunCount.incrementAndGet();
+            sleep(OPERATION_WAIT);
+            if (mInputs.length == 0) {
+                return INPUT;
+            }
+            final StringBuilder builder = new StringBuilder();
+            for (final GraphNode<?> input : mInputs) {
+                builder.append(input.getOutput());
+            }
+            return builder.toString();
+        }
+
+        @NonNull
+        @Override
+        public Class<? extends ChronosOperationResult<String>> getResultClass() {
+            return SimpleOperationResult.class;
+        }
+    }
+
+    /**
+     * A client which remembers the results it got.
+     */
+    public final static class GraphClient {
+
+        private String mResult;
+
+        private int mResultObtained = 0;
+
+        private int mErrorObtained = 0;
+
+        @Nullable
+        @Contract(pure = true)
+        public final String getResult() {
+            return mResult;
+        }
+
+        @Contract(pure = true)
+        public final int getResultObtained() {
+            return mResultObtained;
+        }
+
+        @Contract(pure = true)
+        public final int getErrorObtained() {
+            return mErrorObtained;
+        }
+
+        @SuppressWarnings("UnusedDeclaration")
+        public final void onOperationFinished(final SimpleOperationResult result) {
+            mResultObtained++;
+            if (result.isSuccessful()) {
+                mResult = result.getOutput();
+            } else {
+                mErrorObtained++;
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.redmadrobot.chronos;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Test for the map with primitive int keys.
+ *
+ * @author maximefimov
+ */
+public class IntObjectMapTest extends AndroidTestCase {
+
+    private final static int OPERATION_COUNT = 100000;
+
+    private final static int KEY_RANGE = 1000;
+
+    @SmallTest
+    public void testNullValue() {
+        final IntObjectMap<String> map = new IntObjectMap<>();
+        map.put(1, null);
+
+        assertTrue(map.containsKey(1));
+        assertNull(map.get(1));
+        assertFalse(map.containsKey(2));
+        assertTrue(map.size() == 1);
+    }
+
+    @SmallTest
+    public void testSameAsHashMap() {
+        final IntObjectMap<Integer> map = new IntObjectMap<>();
+        final Map<Integer, Integer> expectedMap = new HashMap<>();
+        final Random random = new Random(0);
+
+        for (int i = 0; i < OPERATION_COUNT; i++) {
+            final int key = random.nextInt(KEY_RANGE);
+            if (random.nextBoolean()) {
+                assertEquals(expectedMap.put(key, i), map.put(key, i));
+            } else {
+                assertEquals(expectedMap.remove(key), map.remove(key));
+            }
+            assertTrue(map.size() == expectedMap.size());
+        }
+
+        for (int key = 0; key < KEY_RANGE; key++) {
+            assertTrue(map.containsKey(key) == expectedMap.containsKey(key));
+            assertEquals(expectedMap.get(key), map.get(key));
+        }
+        assertTrue(map.keys().length == expectedMap.size());
+    }
+}
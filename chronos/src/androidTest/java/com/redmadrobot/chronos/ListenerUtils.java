@@ -0,0 +1,58 @@
+package com.redmadrobot.chronos;
+
+import android.support.annotation.NonNull;
+
+import static com.redmadrobot.chronos.TestSettings.MICRO_WAIT;
+import static com.redmadrobot.chronos.TestSettings.SHORT_WAIT;
+import static com.redmadrobot.chronos.util.TimingUtils.sleep;
+
+/**
+ * Utilities to drive Chronos listeners without GUI clients. They are kept in the same package as
+ * listeners, which are not accessible from other packages.
+ *
+ * @author maximefimov
+ */
+final class ListenerUtils {
+
+    private ListenerUtils() {
+    }
+
+    /**
+     * Launches an operation by a paused listener, so that only other clients receive its result,
+     * and waits until the result is delivered.
+     *
+     * @param operation an operation which result is broadcasted
+     */
+    static void runBroadcast(@NonNull final ChronosOperation<?> operation) {
+        final ChronosListener owner = ChronosListenerManager.getInstance().createListener();
+        final int id = owner.invoke(operation, true);
+        while (owner.isRunning(id)) {
+            sleep(MICRO_WAIT);
+        }
+        sleep(SHORT_WAIT);
+        release(owner);
+    }
+
+    /**
+     * Creates a listener and binds it to a client.
+     *
+     * @param client a client to receive results
+     * @return the resumed listener
+     */
+    @NonNull
+    static ChronosListener resume(@NonNull final Object client) {
+        final ChronosListener listener = ChronosListenerManager.getInstance().createListener();
+        listener.onResume(client);
+        return listener;
+    }
+
+    /**
+     * Pauses a listener and releases it, as a finishing client does.
+     *
+     * @param listener a listener to be released
+     */
+    static void release(@NonNull final ChronosListener listener) {
+        listener.onPause();
+        ChronosListenerManager.getInstance().releaseListener(listener.getId());
+    }
+}
@@ -1,6 +1,8 @@
 package com.redmadrobot.chronos;
 
 import com.redmadrobot.chronos.mock.gui.SampleHeavyActivity;
+import com.redmadrobot.chronos.mock.gui.SimpleMockActivity;
+import com.redmadrobot.chronos.mock.operation.SimpleOperation;
 
 import android.test.AndroidTestCase;
 import android.test.suitebuilder.annotation.MediumTest;
@@ -9,6 +11,7 @@ import android.test.suitebuilder.annotation.SmallTest;
 import java.util.LinkedList;
 import java.util.List;
 
+import static com.redmadrobot.chronos.TestSettings.INPUT;
 import static com.redmadrobot.chronos.util.TimingUtils.sleep;
 
 /**
@@ -49,4 +52,54 @@ public class MemoryTest extends AndroidTestCase {
             assertFalse(activity.isOutOfMemory());
         }
     }
+
+    @MediumTest
+    public void testFinishedListenersAreReleased() {
+        final ChronosListenerManager listenerManager = ChronosListenerManager.getInstance();
+        final int initialCount = listenerManager.getListenerCount();
+        final int activityCount = 100;
+        final List<Integer> ids = new LinkedList<>();
+        for (int i = 0; i < activityCount; i++) {
+            final SimpleMockActivity activity = new SimpleMockActivity();
+            activity.start();
+            ids.add(activity.runSimple(INPUT));
+            // rotation keeps the listener
+            activity.stop();
+            activity.start();
+            assertTrue(listenerManager.getListenerCount() == initialCount + 1);
+            activity.finish();
+        }
+
+        for (final int id : ids) {
+            while (RunningOperationStorage.getInstance().isOperationRunning(id)) {
+                sleep(TestSettings.SHORT_WAIT);
+            }
+        }
+        sleep();
+
+        assertTrue(listenerManager.getListenerCount() == initialCount);
+    }
+
+    @SmallTest
+    public void testFinishedRequestsAreForgotten() {
+        final ChronosListener listener = ChronosListenerManager.getInstance().createListener();
+        final int runCount = 3;
+        final List<Integer> ids = new LinkedList<>();
+        for (int i = 0; i < runCount; i++) {
+            ids.add(listener.invoke(new SimpleOperation(INPUT), false));
+            ids.add(listener.invoke(new SimpleOperation(INPUT), "tag" + i, false));
+        }
+        final int cancelledId = listener.invoke(new SimpleOperation(INPUT), false);
+        listener.cancel(cancelledId, false);
+        assertTrue(listener.getRequestCount() == 2 * runCount);
+
+        for (final int id : ids) {
+            while (listener.isRunning(id)) {
+                sleep(TestSettings.SHORT_WAIT);
+            }
+        }
+        sleep();
+
+        assertTrue(listener.getRequestCount() == 0);
+    }
 }
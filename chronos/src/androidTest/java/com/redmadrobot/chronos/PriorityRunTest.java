@@ -0,0 +1,119 @@
+package com.redmadrobot.chronos;
+
+import com.redmadrobot.chronos.mock.operation.SimpleOperation;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.redmadrobot.chronos.TestSettings.INPUT;
+import static com.redmadrobot.chronos.TestSettings.SHORT_WAIT;
+import static com.redmadrobot.chronos.util.TimingUtils.sleep;
+
+/**
+ * Test for the order of operations of different priorities.
+ *
+ * @author maximefimov
+ */
+public class PriorityRunTest extends AndroidTestCase {
+
+    private final static int OPERATION_COUNT = 5;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        Chronos.configure(new ChronosConfiguration.Builder()
+                .setCorePoolSize(1)
+                .setMaximumPoolSize(1)
+                .setPriorityAgingStep(SHORT_WAIT / 5, TimeUnit.MILLISECONDS)
+                .build());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        Chronos.configure(new ChronosConfiguration.Builder().build());
+        super.tearDown();
+    }
+
+    @SmallTest
+    public void testHighPriorityFirst() {
+        final ChronosListener listener = ChronosListenerManager.getInstance().createListener();
+        final List<Integer> runOrder = Collections.synchronizedList(new ArrayList<Integer>());
+
+        // occupies the only thread, so the others are queued
+        listener.invoke(new SimpleOperation(INPUT), false);
+        for (int i = 0; i < OPERATION_COUNT; i++) {
+            listener.invoke(new OrderedOperation(ChronosOperation.PRIORITY_LOW, runOrder), false);
+            listener.invoke(new OrderedOperation(ChronosOperation.PRIORITY_HIGH, runOrder), false);
+        }
+        sleep();
+
+        assertTrue(runOrder.size() == 2 * OPERATION_COUNT);
+        for (int i = 0; i < OPERATION_COUNT; i++) {
+            assertTrue(runOrder.get(i) == ChronosOperation.PRIORITY_HIGH);
+        }
+        assertTrue(Chronos.getQueueWaitStatistics(ChronosOperation.PRIORITY_HIGH)
+                .getPercentileMillis(99) <= Chronos.getQueueWaitStatistics(
+                ChronosOperation.PRIORITY_LOW).getPercentileMillis(99));
+    }
+
+    @SmallTest
+    public void testLowPriorityIsNotStarved() {
+        final ChronosListener listener = ChronosListenerManager.getInstance().createListener();
+        final List<Integer> runOrder = Collections.synchronizedList(new ArrayList<Integer>());
+
+        listener.invoke(new SimpleOperation(INPUT), false);
+        listener.invoke(new OrderedOperation(ChronosOperation.PRIORITY_LOW, runOrder), false);
+        // the low priority operation has been waiting longer than two aging steps
+        sleep(SHORT_WAIT);
+        listener.invoke(new OrderedOperation(ChronosOperation.PRIORITY_HIGH, runOrder), false);
+        sleep();
+
+        assertTrue(runOrder.size() == 2);
+        assertTrue(runOrder.get(0) == ChronosOperation.PRIORITY_LOW);
+    }
+
+    /**
+     * An operation which records its priority when run.
+     */
+    private final static class OrderedOperation extends ChronosOperation<Integer> {
+
+        private final int mPriority;
+
+        @NonNull
+        private final List<Integer> mRunOrder;
+
+        private OrderedOperation(final int priority, @NonNull final List<Integer> runOrder) {
+            mPriority = priority;
+            mRunOrder = runOrder;
+        }
+
+        @Nullable
+        @Override
+        public Integer run() {
+            mRunOrder.add(mPriority);
+            return mPriority;
+        }
+
+        @Override
+        public int getPriority() {
+            return mPriority;
+        }
+
+        @NonNull
+        @Override
+        public Class<? extends ChronosOperationResult<Integer>> getResultClass() {
+            return OrderedOperationResult.class;
+        }
+    }
+
+    public final static class OrderedOperationResult extends ChronosOperationResult<Integer> {
+
+    }
+}
@@ -0,0 +1,166 @@
+package com.redmadrobot.chronos;
+
+import com.redmadrobot.chronos.mock.operation.SimpleOperationResult;
+
+import org.jetbrains.annotations.Contract;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.util.concurrent.CountDownLatch;
+
+import static com.redmadrobot.chronos.TestSettings.INPUT;
+import static com.redmadrobot.chronos.TestSettings.MICRO_WAIT;
+import static com.redmadrobot.chronos.TestSettings.OPERATION_WAIT;
+import static com.redmadrobot.chronos.TestSettings.SHORT_WAIT;
+import static com.redmadrobot.chronos.util.TimingUtils.sleep;
+
+/**
+ * Test for progress delivery of running operations.
+ *
+ * @author maximefimov
+ */
+public class ProgressTest extends AndroidTestCase {
+
+    private final static int PROGRESS_COUNT = 1000;
+
+    @Override
+    protected void tearDown() throws Exception {
+        Chronos.configure(new ChronosConfiguration.Builder().build());
+        super.tearDown();
+    }
+
+    @SmallTest
+    public void testProgressIsConflated() {
+        Chronos.configure(new ChronosConfiguration.Builder()
+                .setProgressIntervalMillis(SHORT_WAIT).build());
+        final ProgressClient client = new ProgressClient();
+        final ChronosConnector connector = new ChronosConnector();
+        connector.onCreate(client, null);
+        connector.onResume();
+
+        final ProgressOperation operation = new ProgressOperation(null);
+        final int id = connector.runOperation(operation, false);
+        while (connector.isOperationRunning(id)) {
+            sleep(SHORT_WAIT);
+        }
+        sleep(SHORT_WAIT);
+
+        assertTrue(client.getResultObtained() == 1);
+        assertTrue(client.getProgressObtained() > 0);
+        // at most one delivery per interval, and maybe one more after the last one
+        assertTrue(client.getProgressObtained()
+                <= operation.getPublishingMillis() / SHORT_WAIT + 2);
+    }
+
+    @SmallTest
+    public void testPausedClientGetsNewestProgress() {
+        final CountDownLatch finishLatch = new CountDownLatch(1);
+        final ProgressClient client = new ProgressClient();
+        final ChronosConnector connector = new ChronosConnector();
+        connector.onCreate(client, null);
+
+        connector.runOperation(new ProgressOperation(finishLatch), false);
+        sleep();
+        assertTrue(client.getProgressObtained() == 0);
+
+        connector.onResume();
+        assertTrue(client.getProgressObtained() == 1);
+        assertTrue(client.getLastProgress() == PROGRESS_COUNT);
+
+        finishLatch.countDown();
+        sleep();
+        assertTrue(client.getResultObtained() == 1);
+        assertTrue(client.getProgressObtained() == 1);
+    }
+
+    /**
+     * An operation which publishes its progress many times.
+     */
+    private final static class ProgressOperation extends ChronosOperation<String> {
+
+        @Nullable
+        private final CountDownLatch mFinishLatch;
+
+        private volatile long mPublishingMillis;
+
+        private ProgressOperation(@Nullable final CountDownLatch finishLatch) {
+            mFinishLatch = finishLatch;
+        }
+
+        @Contract(pure = true)
+        private long getPublishingMillis() {
+            return mPublishingMillis;
+        }
+
+        @Nullable
+        @Override
+        public String run() {
+            final long startTime = System.currentTimeMillis();
+            final long stepNanos = OPERATION_WAIT * 1000000L / PROGRESS_COUNT;
+            for (int i = 1; i <= PROGRESS_COUNT; i++) {
+                publishProgress(i);
+                final long stepEnd = System.nanoTime() + stepNanos;
+                while (System.nanoTime() < stepEnd) {
+                    Thread.yield();
+                }
+            }
+            mPublishingMillis = System.currentTimeMillis() - startTime;
+            if (mFinishLatch != null) {
+                try {
+                    mFinishLatch.await();
+                } catch (InterruptedException e) {
+                    return null;
+                }
+            }
+            sleep(MICRO_WAIT);
+            return INPUT;
+        }
+
+        @NonNull
+        @Override
+        public Class<? extends ChronosOperationResult<String>> getResultClass() {
+            return SimpleOperationResult.class;
+        }
+    }
+
+    /**
+     * A client which counts the progress values it got.
+     */
+    public final static class ProgressClient {
+
+        private int mLastProgress;
+
+        private int mProgressObtained = 0;
+
+        private int mResultObtained = 0;
+
+        @Contract(pure = true)
+        public final int getLastProgress() {
+            return mLastProgress;
+        }
+
+        @Contract(pure = true)
+        public final int getProgressObtained() {
+            return mProgressObtained;
+        }
+
+        @Contract(pure = true)
+        public final int getResultObtained() {
+            return mResultObtained;
+        }
+
+        @SuppressWarnings("UnusedDeclaration")
+        public final void onOperationProgress(final Integer progress) {
+            mProgressObtained++;
+            mLastProgress = progress;
+        }
+
+        @SuppressWarnings("UnusedDeclaration")
+        public final void onOperationFinished(final SimpleOperationResult result) {
+            mResultObtained++;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.redmadrobot.chronos;
+
+import com.redmadrobot.chronos.mock.operation.SimpleOperationResult;
+
+import org.jetbrains.annotations.Contract;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.redmadrobot.chronos.TestSettings.INPUT;
+import static com.redmadrobot.chronos.TestSettings.SHORT_WAIT;
+import static com.redmadrobot.chronos.util.TimingUtils.sleep;
+
+/**
+ * Test for the cache of operation outputs.
+ *
+ * @author maximefimov
+ */
+public class ResultCacheTest extends AndroidTestCase {
+
+    private final static String CACHE_KEY = "cache_key";
+
+    @Override
+    protected void tearDown() throws Exception {
+        Chronos.configure(new ChronosConfiguration.Builder().build());
+        Chronos.clearResultCache();
+        super.tearDown();
+    }
+
+    @SmallTest
+    public void testRepeatedRunIsCached() {
+        final ResultCacheStatistics statistics = Chronos.getResultCacheStatistics();
+        final long hitCount = statistics.getHitCount();
+        final AtomicInteger runCount = new AtomicInteger(0);
+
+        final CachingClient client = new CachingClient();
+        final ChronosConnector connector = new ChronosConnector();
+        connector.onCreate(client, null);
+        connector.onResume();
+
+        connector.runOperation(new CachedOperation(CACHE_KEY, Long.MAX_VALUE, runCount), false);
+        sleep();
+        connector.runOperation(new CachedOperation(CACHE_KEY, Long.MAX_VALUE, runCount), false);
+        sleep();
+
+        assertTrue(runCount.get() == 1);
+        assertTrue(client.getResultObtained() == 2);
+        assertEquals(INPUT, client.getResult());
+        assertTrue(statistics.getHitCount() == hitCount + 1);
+    }
+
+    @SmallTest
+    public void testStaleIsNotUsed() {
+        final AtomicInteger runCount = new AtomicInteger(0);
+
+        Chronos.run(new CachedOperation(CACHE_KEY, SHORT_WAIT, runCount));
+        Chronos.run(new CachedOperation(CACHE_KEY, SHORT_WAIT, runCount));
+        assertTrue(runCount.get() == 1);
+
+        sleep(2 * SHORT_WAIT);
+        Chronos.run(new CachedOperation(CACHE_KEY, SHORT_WAIT, runCount));
+        assertTrue(runCount.get() == 2);
+    }
+
+    @SmallTest
+    public void testInvalidation() {
+        final AtomicInteger runCount = new AtomicInteger(0);
+
+        Chronos.run(new CachedOperation(CACHE_KEY, Long.MAX_VALUE, runCount));
+        Chronos.invalidateCachedResult(CACHE_KEY);
+        Chronos.run(new CachedOperation(CACHE_KEY, Long.MAX_VALUE, runCount));
+
+        assertTrue(runCount.get() == 2);
+    }
+
+    @SmallTest
+    public void testLeastRecentlyUsedIsEvicted() {
+        Chronos.configure(new ChronosConfiguration.Builder().setResultCacheSize(2).build());
+        final ResultCacheStatistics statistics = Chronos.getResultCacheStatistics();
+        final long evictionCount = statistics.getEvictionCount();
+        final AtomicInteger runCount = new AtomicInteger(0);
+
+        Chronos.run(new CachedOperation("first", Long.MAX_VALUE, runCount));
+        Chronos.run(new CachedOperation("second", Long.MAX_VALUE, runCount));
+        // the first one becomes the most recently used
+        Chronos.run(new CachedOperation("first", Long.MAX_VALUE, runCount));
+        Chronos.run(new CachedOperation("third", Long.MAX_VALUE, runCount));
+        assertTrue(runCount.get() == 3);
+        assertTrue(statistics.getEvictionCount() == evictionCount + 1);
+
+        Chronos.run(new CachedOperation("first", Long.MAX_VALUE, runCount));
+        assertTrue(runCount.get() == 3);
+        Chronos.run(new CachedOperation("second", Long.MAX_VALUE, runCount));
+        assertTrue(runCount.get() == 4);
+    }
+
+    @SmallTest
+    public void testBrokenSizeDoesNotBreakLaunch() {
+        final CachingClient client = new CachingClient();
+        final ChronosConnector connector = new ChronosConnector();
+        connector.onCreate(client, null);
+        connector.onResume();
+
+        final int id = connector.runOperation(new NegativeSizeOperation(), false);
+        sleep();
+
+        assertTrue(client.getResultObtained() == 1);
+        assertEquals(INPUT, client.getResult());
+        assertFalse(connector.isOperationRunning(id));
+    }
+
+    /**
+     * An operation which counts its runs and caches its output.
+     */
+    private final static class CachedOperation extends ChronosOperation<String> {
+
+        @NonNull
+        private final String mCacheKey;
+
+        private final long mMaxAgeMillis;
+
+        @NonNull
+        private final AtomicInteger mRunCount;
+
+        private CachedOperation(@NonNull final String cacheKey, final long maxAgeMillis,
+                @NonNull final AtomicInteger runCount) {
+            mCacheKey = cacheKey;
+            mMaxAgeMillis = maxAgeMillis;
+            mRunCount = runCount;
+        }
+
+        @Nullable
+        @Override
+        public String run() {
+            mRunCount.incrementAndGet();
+            return INPUT;
+        }
+
+        @NonNull
+        @Override
+        public Class<? extends ChronosOperationResult<String>> getResultClass() {
+            return SimpleOperationResult.class;
+        }
+
+        @Nullable
+        @Override
+        public String getCacheKey() {
+            return mCacheKey;
+        }
+
+        @Override
+        public long getCacheMaxAgeMillis() {
+            return mMaxAgeMillis;
+        }
+    }
+
+    /**
+     * An operation which tells a size its output can't be cached with.
+     */
+    private final static class NegativeSizeOperation extends ChronosOperation<String> {
+
+        @Nullable
+        @Override
+        public String run() {
+            return INPUT;
+        }
+
+        @NonNull
+        @Override
+        public Class<? extends ChronosOperationResult<String>> getResultClass() {
+            return SimpleOperationResult.class;
+        }
+
+        @Nullable
+        @Override
+        public String getCacheKey() {
+            return CACHE_KEY;
+        }
+
+        @Override
+        public int getCachedSize(@Nullable final String output) {
+            return -1;
+        }
+    }
+
+    /**
+     * A client which remembers the results it got.
+     */
+    public final static class CachingClient {
+
+        private String mResult;
+
+        private int mResultObtained = 0;
+
+        @Nullable
+        @Contract(pure = true)
+        public final String getResult() {
+            return mResult;
+        }
+
+        @Contract(pure = true)
+        public final int getResultObtained() {
+            return mResultObtained;
+        }
+
+        @SuppressWarnings("UnusedDeclaration")
+        public final void onOperationFinished(final SimpleOperationResult result) {
+            mResultObtained++;
+            mResult = result.getOutput();
+        }
+    }
+}
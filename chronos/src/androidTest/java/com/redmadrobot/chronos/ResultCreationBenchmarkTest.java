@@ -0,0 +1,124 @@
+package com.redmadrobot.chronos;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.test.suitebuilder.annotation.SmallTest;
+import android.util.Log;
+
+/**
+ * Comparison of reflective and reflection-free creation of operation results.
+ *
+ * @author maximefimov
+ */
+public class ResultCreationBenchmarkTest extends AndroidTestCase {
+
+    private final static String LOG_TAG = ResultCreationBenchmarkTest.class.getSimpleName();
+
+    private final static int WARM_UP_COUNT = 1000;
+
+    private final static int CREATION_COUNT = 100000;
+
+    private static long measure(@NonNull final ChronosOperation<String> operation,
+            final int count) {
+        final long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            ChronosService.getInstance().createEmptyResult(operation, false);
+        }
+        return System.nanoTime() - start;
+    }
+
+    @SmallTest
+    public void testNotPublicConstructor() {
+        final ChronosOperationResult<String> result = ChronosService.getInstance()
+                .createEmptyResult(new CachedOperation(), false);
+        assertTrue(result instanceof HiddenResult);
+        assertNotNull(result.getOperation());
+    }
+
+    @SmallTest
+    public void testFactoryResult() {
+        final ChronosOperationResult<String> result = ChronosService.getInstance()
+                .createEmptyResult(new FactoryOperation(), false);
+        assertTrue(result instanceof HiddenResult);
+        assertNotNull(result.getOperation());
+    }
+
+    @LargeTest
+    public void testCreationTime() {
+        final ChronosOperation<String> reflective = new ReflectiveOperation();
+        final ChronosOperation<String> cached = new CachedOperation();
+        final ChronosOperation<String> factory = new FactoryOperation();
+
+        measure(reflective, WARM_UP_COUNT);
+        measure(cached, WARM_UP_COUNT);
+        measure(factory, WARM_UP_COUNT);
+
+        final long reflectiveTime = measure(reflective, CREATION_COUNT);
+        final long cachedTime = measure(cached, CREATION_COUNT);
+        final long factoryTime = measure(factory, CREATION_COUNT);
+
+        Log.i(LOG_TAG, "Class.newInstance(): " + reflectiveTime / CREATION_COUNT + " ns/result");
+        Log.i(LOG_TAG, "cached constructor: " + cachedTime / CREATION_COUNT + " ns/result");
+        Log.i(LOG_TAG, "factory: " + factoryTime / CREATION_COUNT + " ns/result");
+    }
+
+    /**
+     * An operation which relies on the default result creation.
+     */
+    private static class CachedOperation extends ChronosOperation<String> {
+
+        @Nullable
+        @Override
+        public String run() {
+            return null;
+        }
+
+        @NonNull
+        @Override
+        public Class<? extends ChronosOperationResult<String>> getResultClass() {
+            return HiddenResult.class;
+        }
+    }
+
+    /**
+     * An operation which creates its results the way it was done before the constructor cache.
+     */
+    private final static class ReflectiveOperation extends CachedOperation {
+
+        @NonNull
+        @Override
+        public ChronosOperationResult<String> createResult() {
+            try {
+                return PublicResult.class.newInstance();
+            } catch (InstantiationException e) {
+                throw new RuntimeException(e);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * An operation which creates its results without reflection.
+     */
+    private final static class FactoryOperation extends CachedOperation {
+
+        @NonNull
+        @Override
+        public ChronosOperationResult<String> createResult() {
+            return new HiddenResult();
+        }
+    }
+
+    public final static class PublicResult extends ChronosOperationResult<String> {
+
+    }
+
+    private final static class HiddenResult extends ChronosOperationResult<String> {
+
+        private HiddenResult() {
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.redmadrobot.chronos;
+
+import com.redmadrobot.chronos.mock.operation.SimpleOperationResult;
+
+import org.jetbrains.annotations.Contract;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.MediumTest;
+import android.util.Log;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.redmadrobot.chronos.TestSettings.INPUT;
+import static com.redmadrobot.chronos.TestSettings.RESPONSE_WAIT;
+import static com.redmadrobot.chronos.util.TimingUtils.sleep;
+
+/**
+ * Measurement of frames dropped while a backlog of results is delivered on resume. It needs a real
+ * Main Thread looper and clock, so it runs on a device only, and there is no JVM counterpart of it
+ * among the unit tests.
+ *
+ * @author maximefimov
+ */
+public class ResumeDeliveryTest extends AndroidTestCase {
+
+    private final static String LOG_TAG = ResumeDeliveryTest.class.getSimpleName();
+
+    private final static long FRAME_MILLIS = 16;
+
+    private final static long DELIVERY_BUDGET_MILLIS = FRAME_MILLIS / 2;
+
+    private final static long BINDING_MILLIS = 4;
+
+    private final static int BACKLOG_SIZE = 30;
+
+    private final static int FRAME_COUNT = 20;
+
+    @Override
+    protected void tearDown() throws Exception {
+        Chronos.configure(new ChronosConfiguration.Builder().build());
+        super.tearDown();
+    }
+
+    @MediumTest
+    public void testBudgetedDeliveryDropsFewerFrames() throws InterruptedException {
+        Chronos.configure(new ChronosConfiguration.Builder().build());
+        final int droppedAtOnce = measureDroppedFrames();
+
+        Chronos.configure(new ChronosConfiguration.Builder()
+                .setResumeDeliveryBudgetMillis(DELIVERY_BUDGET_MILLIS).build());
+        final int droppedBudgeted = measureDroppedFrames();
+
+        Log.i(LOG_TAG, "dropped frames: " + droppedAtOnce + " at once, " + droppedBudgeted
+                + " with " + DELIVERY_BUDGET_MILLIS + " ms budget");
+        assertTrue(droppedBudgeted < droppedAtOnce);
+    }
+
+    /**
+     * Resumes a client with a backlog of results while frames are drawn in the Main Thread.
+     *
+     * @return the number of frames drawn later than they were due by a frame or more
+     */
+    private static int measureDroppedFrames() throws InterruptedException {
+        final BindingClient client = new BindingClient();
+        final ChronosConnector connector = new ChronosConnector();
+        connector.onCreate(client, null);
+        for (int i = 0; i < BACKLOG_SIZE; i++) {
+            connector.runOperation(new QuickOperation(), false);
+        }
+        sleep(RESPONSE_WAIT);
+        assertTrue(client.getResultObtained() == 0);
+
+        final Handler handler = new Handler(Looper.getMainLooper());
+        final FrameTicker ticker = new FrameTicker(handler);
+        handler.post(ticker);
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                connector.onResume();
+            }
+        });
+        assertTrue(ticker.await());
+        assertTrue(client.getResultObtained() == BACKLOG_SIZE);
+        return ticker.getDroppedFrames();
+    }
+
+    /**
+     * Simulates frame drawing in the Main Thread, and counts frames which were late.
+     */
+    private final static class FrameTicker implements Runnable {
+
+        @NonNull
+        private final Handler mHandler;
+
+        @NonNull
+        private final CountDownLatch mFinishLatch = new CountDownLatch(1);
+
+        private long mDueTime = 0;
+
+        private int mFrameCount = 0;
+
+        private volatile int mDroppedFrames = 0;
+
+        private FrameTicker(@NonNull final Handler handler) {
+            mHandler = handler;
+        }
+
+        @Override
+        public void run() {
+            final long now = SystemClock.uptimeMillis();
+            if (mDueTime > 0) {
+                mDroppedFrames += (now - mDueTime) / FRAME_MILLIS;
+            }
+            if (++mFrameCount < FRAME_COUNT) {
+                mDueTime = now + FRAME_MILLIS;
+                mHandler.postDelayed(this, FRAME_MILLIS);
+            } else {
+                mFinishLatch.countDown();
+            }
+        }
+
+        private boolean await() throws InterruptedException {
+            return mFinishLatch.await(FRAME_COUNT * FRAME_MILLIS * 10, TimeUnit.MILLISECONDS);
+        }
+
+        @Contract(pure = true)
+        private int getDroppedFrames() {
+            return mDroppedFrames;
+        }
+    }
+
+    /**
+     * An operation which finishes immediately.
+     */
+    private final static class QuickOperation extends ChronosOperation<String> {
+
+        @Nullable
+        @Override
+        public String run() {
+            return INPUT;
+        }
+
+        @NonNull
+        @Override
+        public Class<? extends ChronosOperationResult<String>> getResultClass() {
+            return SimpleOperationResult.class;
+        }
+    }
+
+    /**
+     * A client which spends some time to bind every result to its views.
+     */
+    public final static class BindingClient {
+
+        private int mResultObtained = 0;
+
+        @Contract(pure = true)
+        public final int getResultObtained() {
+            return mResultObtained;
+        }
+
+        @SuppressWarnings("UnusedDeclaration")
+        public final void onOperationFinished(final SimpleOperationResult result) {
+            final long bindingEnd = SystemClock.uptimeMillis() + BINDING_MILLIS;
+            while (SystemClock.uptimeMillis() < bindingEnd) {
+                // simulates view binding
+            }
+            mResultObtained++;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.redmadrobot.chronos;
+
+import org.jetbrains.annotations.Contract;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.redmadrobot.chronos.TestSettings.MICRO_WAIT;
+import static com.redmadrobot.chronos.TestSettings.SHORT_WAIT;
+import static com.redmadrobot.chronos.util.TimingUtils.sleep;
+
+/**
+ * Test for the memory budget of results stored by paused clients.
+ *
+ * @author maximefimov
+ */
+public class RetentionTest extends AndroidTestCase {
+
+    private final static long RESULT_SIZE = 40;
+
+    @Override
+    protected void tearDown() throws Exception {
+        Chronos.configure(new ChronosConfiguration.Builder().build());
+        super.tearDown();
+    }
+
+    @SmallTest
+    public void testOldestAreEvicted() {
+        Chronos.configure(new ChronosConfiguration.Builder()
+                .setStoredResultsBudgetBytes(2 * RESULT_SIZE).build());
+        final RetainingClient client = new RetainingClient();
+        final ChronosConnector connector = new ChronosConnector();
+        connector.onCreate(client, null);
+        for (int i = 0; i < 4; i++) {
+            connector.runOperation(new SizedOperation(String.valueOf(i),
+                    ChronosOperation.PRIORITY_NORMAL), false);
+            sleep(SHORT_WAIT);
+        }
+        connector.onResume();
+
+        final List<SizedResult> results = client.getResults();
+        assertTrue(results.size() == 4);
+        assertTrue(results.get(0).getException() instanceof ResultEvictedException);
+        assertTrue(results.get(1).getException() instanceof ResultEvictedException);
+        assertEquals("2", results.get(2).getOutput());
+        assertEquals("3", results.get(3).getOutput());
+    }
+
+    @SmallTest
+    public void testLowPriorityIsEvictedFirst() {
+        Chronos.configure(new ChronosConfiguration.Builder()
+                .setStoredResultsBudgetBytes(RESULT_SIZE).build());
+        final RetainingClient client = new RetainingClient();
+        final ChronosConnector connector = new ChronosConnector();
+        connector.onCreate(client, null);
+        connector.runOperation(new SizedOperation("high", ChronosOperation.PRIORITY_HIGH), false);
+        sleep(SHORT_WAIT);
+        connector.runOperation(new SizedOperation("low", ChronosOperation.PRIORITY_LOW), false);
+        sleep(SHORT_WAIT);
+        connector.onResume();
+
+        final List<SizedResult> results = client.getResults();
+        assertTrue(results.size() == 2);
+        assertEquals("high", results.get(0).getOutput());
+        assertTrue(results.get(1).getException() instanceof ResultEvictedException);
+    }
+
+    @SmallTest
+    public void testDeliveredAreReleased() {
+        final StoredResultRetention retention = StoredResultRetention.getInstance();
+        final long initialSize = retention.getTotalSize();
+        final RetainingClient client = new RetainingClient();
+        final ChronosConnector connector = new ChronosConnector();
+        connector.onCreate(client, null);
+        connector.runOperation(new SizedOperation("0", ChronosOperation.PRIORITY_NORMAL), false);
+        sleep(SHORT_WAIT);
+        assertTrue(retention.getTotalSize() == initialSize + RESULT_SIZE);
+
+        connector.onResume();
+        assertTrue(retention.getTotalSize() == initialSize);
+        assertTrue(client.getResults().size() == 1);
+    }
+
+    /**
+     * A result which estimates its size.
+     */
+    public final static class SizedResult extends ChronosOperationResult<String> {
+
+        @Override
+        public long getEstimatedSize() {
+            return RESULT_SIZE;
+        }
+    }
+
+    /**
+     * An operation which returns its name.
+     */
+    private final static class SizedOperation extends ChronosOperation<String> {
+
+        @NonNull
+        private final String mName;
+
+        private final int mPriority;
+
+        private SizedOperation(@NonNull final String name, final int priority) {
+            mName = name;
+            mPriority = priority;
+        }
+
+        @Nullable
+        @Override
+        public String run() {
+            sleep(MICRO_WAIT);
+            return mName;
+        }
+
+        @NonNull
+        @Override
+        public Class<? extends ChronosOperationResult<String>> getResultClass() {
+            return SizedResult.class;
+        }
+
+        @Override
+        public int getPriority() {
+            return mPriority;
+        }
+    }
+
+    /**
+     * A client which remembers the results it got.
+     */
+    public final static class RetainingClient {
+
+        private final List<SizedResult> mResults = new ArrayList<>();
+
+        @NonNull
+        @Contract(pure = true)
+        public final List<SizedResult> getResults() {
+            return mResults;
+        }
+
+        @SuppressWarnings("UnusedDeclaration")
+        public final void onOperationFinished(final SizedResult result) {
+            mResults.add(result);
+        }
+    }
+}
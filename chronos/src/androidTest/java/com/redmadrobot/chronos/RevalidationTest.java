@@ -0,0 +1,172 @@
+package com.redmadrobot.chronos;
+
+import com.redmadrobot.chronos.mock.operation.SimpleOperationResult;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.redmadrobot.chronos.TestSettings.MICRO_WAIT;
+import static com.redmadrobot.chronos.TestSettings.SHORT_WAIT;
+import static com.redmadrobot.chronos.util.TimingUtils.sleep;
+
+/**
+ * Test for launches in the stale-while-revalidate mode.
+ *
+ * @author maximefimov
+ */
+public class RevalidationTest extends AndroidTestCase {
+
+    private final static String CACHE_KEY = "revalidation_cache_key";
+
+    private final static String CACHED_OUTPUT = "cached";
+
+    private final static String FRESH_OUTPUT = "fresh";
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        Chronos.clearResultCache();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        Chronos.clearResultCache();
+        super.tearDown();
+    }
+
+    @SmallTest
+    public void testCachedOutputIsFollowedByFresh() {
+        final AtomicReference<String> source = new AtomicReference<>(CACHED_OUTPUT);
+        Chronos.run(new SourceOperation(source));
+        source.set(FRESH_OUTPUT);
+        final RevalidatingClient client = new RevalidatingClient();
+
+        runRevalidating(client, new SourceOperation(source));
+
+        assertTrue(client.getResults().size() == 2);
+        assertEquals(CACHED_OUTPUT, client.getResults().get(0).getOutput());
+        assertFalse(client.getResults().get(0).isFresh());
+        assertEquals(FRESH_OUTPUT, client.getResults().get(1).getOutput());
+        assertTrue(client.getResults().get(1).isFresh());
+        // the fresh output replaces the cached one
+        assertEquals(FRESH_OUTPUT, Chronos.run(new SourceOperation(source)).getOutput());
+    }
+
+    @SmallTest
+    public void testUnchangedOutputIsNotDeliveredTwice() {
+        final AtomicReference<String> source = new AtomicReference<>(CACHED_OUTPUT);
+        Chronos.run(new SourceOperation(source));
+        final RevalidatingClient client = new RevalidatingClient();
+
+        runRevalidating(client, new SourceOperation(source));
+
+        assertTrue(client.getResults().size() == 1);
+        assertFalse(client.getResults().get(0).isFresh());
+    }
+
+    @SmallTest
+    public void testFreshOutputIsDeliveredWithoutCache() {
+        final RevalidatingClient client = new RevalidatingClient();
+
+        runRevalidating(client, new SourceOperation(new AtomicReference<>(FRESH_OUTPUT)));
+
+        assertTrue(client.getResults().size() == 1);
+        assertEquals(FRESH_OUTPUT, client.getResults().get(0).getOutput());
+        assertTrue(client.getResults().get(0).isFresh());
+    }
+
+    @SmallTest
+    public void testPausedClientGetsFreshOutputOnly() {
+        final AtomicReference<String> source = new AtomicReference<>(CACHED_OUTPUT);
+        Chronos.run(new SourceOperation(source));
+        source.set(FRESH_OUTPUT);
+        final RevalidatingClient client = new RevalidatingClient();
+        final ChronosListener listener = ChronosListenerManager.getInstance().createListener();
+
+        // both results come while the listener is paused
+        final int id = listener.invokeRevalidating(new SourceOperation(source), false);
+        while (listener.isRunning(id)) {
+            sleep(MICRO_WAIT);
+        }
+        sleep(SHORT_WAIT);
+        listener.onResume(client);
+
+        assertTrue(client.getResults().size() == 1);
+        assertEquals(FRESH_OUTPUT, client.getResults().get(0).getOutput());
+        assertTrue(client.getResults().get(0).isFresh());
+        listener.onPause();
+        ChronosListenerManager.getInstance().releaseListener(listener.getId());
+    }
+
+    private static void runRevalidating(@NonNull final RevalidatingClient client,
+            @NonNull final SourceOperation operation) {
+        final ChronosListener listener = ChronosListenerManager.getInstance().createListener();
+        listener.onResume(client);
+        final int id = listener.invokeRevalidating(operation, false);
+        while (listener.isRunning(id)) {
+            sleep(MICRO_WAIT);
+        }
+        sleep(SHORT_WAIT);
+        // the launch is over, whether the fresh result was delivered or not
+        assertTrue(listener.getRequestCount() == 0);
+        listener.onPause();
+        ChronosListenerManager.getInstance().releaseListener(listener.getId());
+    }
+
+    /**
+     * An operation which returns the current value of a source.
+     */
+    private final static class SourceOperation extends ChronosOperation<String> {
+
+        @NonNull
+        private final AtomicReference<String> mSource;
+
+        private SourceOperation(@NonNull final AtomicReference<String> source) {
+            mSource = source;
+        }
+
+        @Nullable
+        @Override
+        public String run() {
+            sleep(MICRO_WAIT);
+            return mSource.get();
+        }
+
+        @NonNull
+        @Override
+        public Class<? extends ChronosOperationResult<String>> getResultClass() {
+            return SimpleOperationResult.class;
+        }
+
+        @Nullable
+        @Override
+        public String getCacheKey() {
+            return CACHE_KEY;
+        }
+    }
+
+    /**
+     * A client which remembers all the results it got.
+     */
+    public final static class RevalidatingClient {
+
+        @NonNull
+        private final List<SimpleOperationResult> mResults = new ArrayList<>();
+
+        @NonNull
+        public final List<SimpleOperationResult> getResults() {
+            return mResults;
+        }
+
+        @SuppressWarnings("UnusedDeclaration")
+        public final void onOperationFinished(final SimpleOperationResult result) {
+            mResults.add(result);
+        }
+    }
+}
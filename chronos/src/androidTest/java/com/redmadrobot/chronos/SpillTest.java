@@ -0,0 +1,231 @@
+package com.redmadrobot.chronos;
+
+import com.redmadrobot.chronos.mock.operation.SimpleOperationResult;
+
+import org.jetbrains.annotations.Contract;
+
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.redmadrobot.chronos.TestSettings.INPUT;
+import static com.redmadrobot.chronos.TestSettings.MICRO_WAIT;
+import static com.redmadrobot.chronos.TestSettings.SHORT_WAIT;
+import static com.redmadrobot.chronos.util.TimingUtils.sleep;
+
+/**
+ * Test for writing undelivered results to disk, and restoring them after the process death.
+ *
+ * @author maximefimov
+ */
+public class SpillTest extends AndroidTestCase {
+
+    /**
+     * An id which is not used by any listener of the test process.
+     */
+    private final static long RESTORED_LISTENER_ID = 1000000;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        Chronos.configure(new ChronosConfiguration.Builder()
+                .setResultSpillDirectory(getContext().getCacheDir()).build());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        ResultSpillStore.getInstance().flush();
+        Chronos.configure(new ChronosConfiguration.Builder().build());
+        super.tearDown();
+    }
+
+    @SmallTest
+    public void testSavedResultsAreWritten() throws InterruptedException {
+        final SpillingClient client = new SpillingClient();
+        final ChronosConnector connector = new ChronosConnector();
+        connector.onCreate(client, null);
+        connector.onResume();
+        connector.onPause();
+        connector.runOperation(new SpilledOperation(INPUT), false);
+        sleep(SHORT_WAIT);
+        final Bundle outState = new Bundle();
+        connector.onSaveInstanceState(outState);
+        // a result obtained after the state is saved is written too
+        connector.runOperation(new SpilledOperation(INPUT + INPUT), false);
+        sleep(SHORT_WAIT);
+        ResultSpillStore.getInstance().flush();
+
+        final List<OperationDelivery<?>> deliveries = ResultSpillStore.getInstance()
+                .restore(outState.getLong("chronos_listener_id"));
+        assertTrue(deliveries.size() == 2);
+        assertEquals(INPUT, deliveries.get(0).getResult().getOutput());
+        assertEquals(INPUT + INPUT, deliveries.get(1).getResult().getOutput());
+        assertTrue(deliveries.get(0).getResult() instanceof SimpleOperationResult);
+        // the operation doesn't outlive the process
+        assertNull(deliveries.get(0).getResult().getOperation());
+        connector.onDestroy(true);
+    }
+
+    @SmallTest
+    public void testRestoredListenerGetsResults() throws InterruptedException {
+        // the results written by a listener of the previous process
+        final int id = 1;
+        final List<OperationDelivery<?>> deliveries = new ArrayList<>();
+        deliveries.add(new OperationDelivery<>(createResult(id, INPUT),
+                OperationDelivery.DeliveryMode.NORMAL, null));
+        ResultSpillStore.getInstance().save(RESTORED_LISTENER_ID, deliveries);
+        ResultSpillStore.getInstance().flush();
+
+        final Bundle savedState = new Bundle();
+        savedState.putLong("chronos_listener_id", RESTORED_LISTENER_ID);
+        final SpillingClient restoredClient = new SpillingClient();
+        final ChronosConnector restoredConnector = new ChronosConnector();
+        restoredConnector.onCreate(restoredClient, savedState);
+        restoredConnector.onResume();
+        // the results are read in background, and are delivered once they are read
+        ResultSpillStore.getInstance().flush();
+        sleep(SHORT_WAIT);
+
+        final List<SimpleOperationResult> results = restoredClient.getResults();
+        assertTrue(results.size() == 1);
+        assertEquals(INPUT, results.get(0).getOutput());
+        final ChronosOperationResult<String> result = results.get(0);
+        assertTrue(result.getId() == id);
+        restoredConnector.onDestroy(true);
+    }
+
+    @SmallTest
+    public void testNewListenerKeepsSpilledResults() throws InterruptedException {
+        // the results written by a listener of the previous process which is not restored yet
+        final List<OperationDelivery<?>> deliveries = new ArrayList<>();
+        deliveries.add(new OperationDelivery<>(createResult(1, INPUT),
+                OperationDelivery.DeliveryMode.NORMAL, null));
+        ResultSpillStore.getInstance().save(RESTORED_LISTENER_ID + 2, deliveries);
+        ResultSpillStore.getInstance().flush();
+
+        final List<ChronosConnector> connectors = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            final ChronosConnector connector = new ChronosConnector();
+            connector.onCreate(new SpillingClient(), null);
+            final Bundle state = new Bundle();
+            connector.onSaveInstanceState(state);
+            assertTrue(state.getLong("chronos_listener_id") != RESTORED_LISTENER_ID + 2);
+            connectors.add(connector);
+        }
+        ResultSpillStore.getInstance().flush();
+
+        assertTrue(ResultSpillStore.getInstance().restore(RESTORED_LISTENER_ID + 2).size() == 1);
+        for (final ChronosConnector connector : connectors) {
+            connector.onDestroy(true);
+        }
+    }
+
+    @SmallTest
+    public void testStaleFilesAreRemoved() throws InterruptedException {
+        final List<OperationDelivery<?>> deliveries = new ArrayList<>();
+        deliveries.add(new OperationDelivery<>(createResult(1, INPUT),
+                OperationDelivery.DeliveryMode.NORMAL, null));
+        ResultSpillStore.getInstance().save(RESTORED_LISTENER_ID + 3, deliveries);
+        ResultSpillStore.getInstance().save(RESTORED_LISTENER_ID + 4, deliveries);
+        ResultSpillStore.getInstance().flush();
+        final File staleFile = ResultSpillStore.getFile(getContext().getCacheDir(),
+                RESTORED_LISTENER_ID + 3);
+        assertTrue(staleFile.setLastModified(
+                System.currentTimeMillis() - TimeUnit.DAYS.toMillis(30)));
+
+        Chronos.configure(new ChronosConfiguration.Builder()
+                .setResultSpillDirectory(getContext().getCacheDir()).build());
+        ResultSpillStore.getInstance().flush();
+
+        assertFalse(staleFile.exists());
+        assertTrue(ResultSpillStore.getInstance().restore(RESTORED_LISTENER_ID + 4).size() == 1);
+    }
+
+    @SmallTest
+    public void testSpillIsBounded() throws InterruptedException {
+        Chronos.configure(new ChronosConfiguration.Builder()
+                .setResultSpillDirectory(getContext().getCacheDir())
+                .setResultSpillMaxBytes(1024).build());
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            builder.append('x');
+        }
+        final String output = builder.toString();
+        final List<OperationDelivery<?>> deliveries = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            deliveries.add(new OperationDelivery<>(createResult(i, output + i),
+                    OperationDelivery.DeliveryMode.NORMAL, null));
+        }
+        ResultSpillStore.getInstance().save(RESTORED_LISTENER_ID + 1, deliveries);
+        ResultSpillStore.getInstance().flush();
+
+        final List<OperationDelivery<?>> restored = ResultSpillStore.getInstance()
+                .restore(RESTORED_LISTENER_ID + 1);
+        assertTrue(restored.size() > 0);
+        assertTrue(restored.size() < deliveries.size());
+        // the newest results are kept
+        assertEquals(output + 9, restored.get(restored.size() - 1).getResult().getOutput());
+    }
+
+    @NonNull
+    private static ChronosOperationResult<String> createResult(final int id,
+            @NonNull final String output) {
+        final ChronosOperationResult<String> result = new SimpleOperationResult();
+        result.setId(id);
+        result.setOperation(new SpilledOperation(output));
+        result.setOutput(output);
+        return result;
+    }
+
+    /**
+     * An operation with a serializable output.
+     */
+    private final static class SpilledOperation extends ChronosOperation<String> {
+
+        @NonNull
+        private final String mOutput;
+
+        private SpilledOperation(@NonNull final String output) {
+            mOutput = output;
+        }
+
+        @Nullable
+        @Override
+        public String run() {
+            sleep(MICRO_WAIT);
+            return mOutput;
+        }
+
+        @NonNull
+        @Override
+        public Class<? extends ChronosOperationResult<String>> getResultClass() {
+            return SimpleOperationResult.class;
+        }
+    }
+
+    /**
+     * A client which remembers the results it got.
+     */
+    public final static class SpillingClient {
+
+        private final List<SimpleOperationResult> mResults = new ArrayList<>();
+
+        @NonNull
+        @Contract(pure = true)
+        public final List<SimpleOperationResult> getResults() {
+            return mResults;
+        }
+
+        @SuppressWarnings("UnusedDeclaration")
+        public final void onOperationFinished(final SimpleOperationResult result) {
+            mResults.add(result);
+        }
+    }
+}
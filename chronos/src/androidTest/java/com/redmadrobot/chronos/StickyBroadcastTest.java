@@ -0,0 +1,170 @@
+package com.redmadrobot.chronos;
+
+import com.redmadrobot.chronos.mock.operation.SimpleOperationResult;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.redmadrobot.chronos.ListenerUtils.release;
+import static com.redmadrobot.chronos.ListenerUtils.resume;
+import static com.redmadrobot.chronos.ListenerUtils.runBroadcast;
+import static com.redmadrobot.chronos.TestSettings.INPUT;
+import static com.redmadrobot.chronos.TestSettings.SHORT_WAIT;
+import static com.redmadrobot.chronos.util.TimingUtils.sleep;
+
+/**
+ * Test for sticky broadcast results, which are delivered to clients created after the post.
+ *
+ * @author maximefimov
+ */
+public class StickyBroadcastTest extends AndroidTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        Chronos.clearStickyBroadcasts();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        Chronos.clearStickyBroadcasts();
+        super.tearDown();
+    }
+
+    @SmallTest
+    public void testLateClientGetsStickyResult() {
+        runBroadcast(new StickyOperation(null));
+
+        final BroadcastClient lateClient = new BroadcastClient();
+        final ChronosListener listener = resume(lateClient);
+        sleep(SHORT_WAIT);
+        // the sticky result is delivered on the first resume only
+        listener.onPause();
+        listener.onResume(lateClient);
+        sleep(SHORT_WAIT);
+
+        assertTrue(lateClient.getResults().size() == 1);
+        assertEquals(INPUT, lateClient.getResults().get(0).getOutput());
+        release(listener);
+    }
+
+    @SmallTest
+    public void testClientCreatedBeforePostGetsResultOnce() {
+        final BroadcastClient client = new BroadcastClient();
+        final ChronosListener listener = ChronosListenerManager.getInstance().createListener();
+        runBroadcast(new StickyOperation(null));
+
+        listener.onResume(client);
+        sleep(SHORT_WAIT);
+
+        assertTrue(client.getResults().size() == 1);
+        release(listener);
+    }
+
+    @SmallTest
+    public void testClearedResultIsNotDelivered() {
+        runBroadcast(new StickyOperation("first_topic"));
+        runBroadcast(new StickyOperation("second_topic"));
+        Chronos.clearStickyBroadcast("first_topic");
+
+        final BroadcastClient lateClient = new BroadcastClient();
+        final ChronosListener listener = resume(lateClient);
+        sleep(SHORT_WAIT);
+        assertTrue(lateClient.getResults().size() == 1);
+        release(listener);
+
+        Chronos.clearStickyBroadcasts();
+        final BroadcastClient clientAfterClearing = new BroadcastClient();
+        final ChronosListener nextListener = resume(clientAfterClearing);
+        sleep(SHORT_WAIT);
+        assertTrue(clientAfterClearing.getResults().isEmpty());
+        release(nextListener);
+    }
+
+    @SmallTest
+    public void testClearedResultClassIsNotDelivered() {
+        runBroadcast(new StickyOperation(null));
+        Chronos.clearStickyBroadcast(SimpleOperationResult.class);
+
+        final BroadcastClient lateClient = new BroadcastClient();
+        final ChronosListener listener = resume(lateClient);
+        sleep(SHORT_WAIT);
+        assertTrue(lateClient.getResults().isEmpty());
+        release(listener);
+    }
+
+    @SmallTest
+    public void testStoreIsBounded() {
+        final StickyBroadcastStore store = StickyBroadcastStore.getInstance();
+        for (int i = 0; i < 3; i++) {
+            final ChronosOperationResult<String> result = ChronosService.getInstance()
+                    .createEmptyResult(new StickyOperation("topic" + i), true);
+            store.put(result, 2);
+        }
+
+        assertTrue(store.size() == 2);
+        final List<ChronosOperationResult<?>> results = store.getResults(store.getSequence());
+        assertEquals("topic1", results.get(0).getOperation().getBroadcastTopic());
+        assertEquals("topic2", results.get(1).getOperation().getBroadcastTopic());
+    }
+
+    /**
+     * An operation which broadcast result is sticky.
+     */
+    private final static class StickyOperation extends ChronosOperation<String> {
+
+        @Nullable
+        private final String mTopic;
+
+        private StickyOperation(@Nullable final String topic) {
+            mTopic = topic;
+        }
+
+        @Nullable
+        @Override
+        public String run() {
+            return INPUT;
+        }
+
+        @NonNull
+        @Override
+        public Class<? extends ChronosOperationResult<String>> getResultClass() {
+            return SimpleOperationResult.class;
+        }
+
+        @Nullable
+        @Override
+        public String getBroadcastTopic() {
+            return mTopic;
+        }
+
+        @Override
+        public boolean isStickyBroadcast() {
+            return true;
+        }
+    }
+
+    /**
+     * A client which remembers all the broadcast results it got.
+     */
+    public final static class BroadcastClient {
+
+        @NonNull
+        private final List<SimpleOperationResult> mResults = new ArrayList<>();
+
+        @NonNull
+        public final List<SimpleOperationResult> getResults() {
+            return mResults;
+        }
+
+        @SuppressWarnings("UnusedDeclaration")
+        public final void onBroadcastOperationFinished(final SimpleOperationResult result) {
+            mResults.add(result);
+        }
+    }
+}
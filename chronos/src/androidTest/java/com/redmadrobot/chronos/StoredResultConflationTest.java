@@ -0,0 +1,141 @@
+package com.redmadrobot.chronos;
+
+import com.redmadrobot.chronos.mock.operation.SimpleOperationResult;
+
+import org.jetbrains.annotations.Contract;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import static com.redmadrobot.chronos.TestSettings.MICRO_WAIT;
+import static com.redmadrobot.chronos.TestSettings.SHORT_WAIT;
+import static com.redmadrobot.chronos.util.TimingUtils.sleep;
+
+/**
+ * Test for conflation of results stored while a client is paused.
+ *
+ * @author maximefimov
+ */
+public class StoredResultConflationTest extends AndroidTestCase {
+
+    private final static String TAG = "refresh";
+
+    private final static int LAUNCH_COUNT = 5;
+
+    @Override
+    protected void tearDown() throws Exception {
+        Chronos.configure(new ChronosConfiguration.Builder().build());
+        super.tearDown();
+    }
+
+    @SmallTest
+    public void testAllAreKeptByDefault() {
+        final CountingClient client = launchWhilePaused(true);
+        assertTrue(client.getResultObtained() == LAUNCH_COUNT);
+    }
+
+    @SmallTest
+    public void testNewestIsKeptPerTag() {
+        Chronos.configure(new ChronosConfiguration.Builder()
+                .setStoredResultsConflatedByTag(true).build());
+        final CountingClient client = launchWhilePaused(true);
+        assertTrue(client.getResultObtained() == 1);
+        assertEquals(String.valueOf(LAUNCH_COUNT - 1), client.getResult());
+    }
+
+    @SmallTest
+    public void testUntaggedAreNotConflatedByTag() {
+        Chronos.configure(new ChronosConfiguration.Builder()
+                .setStoredResultsConflatedByTag(true).build());
+        final CountingClient client = launchWhilePaused(false);
+        assertTrue(client.getResultObtained() == LAUNCH_COUNT);
+    }
+
+    @SmallTest
+    public void testNewestIsKeptPerClass() {
+        Chronos.configure(new ChronosConfiguration.Builder()
+                .setStoredResultsConflatedByClass(true).build());
+        final CountingClient client = launchWhilePaused(false);
+        assertTrue(client.getResultObtained() == 1);
+        assertEquals(String.valueOf(LAUNCH_COUNT - 1), client.getResult());
+    }
+
+    /**
+     * Launches operations one after another while the client is paused, and resumes it.
+     *
+     * @param tagged {@code true} if the operations should be launched with the same tag
+     * @return the resumed client
+     */
+    @NonNull
+    private static CountingClient launchWhilePaused(final boolean tagged) {
+        final CountingClient client = new CountingClient();
+        final ChronosConnector connector = new ChronosConnector();
+        connector.onCreate(client, null);
+        for (int i = 0; i < LAUNCH_COUNT; i++) {
+            final NumberOperation operation = new NumberOperation(i);
+            if (tagged) {
+                connector.runOperation(operation, TAG, false);
+            } else {
+                connector.runOperation(operation, false);
+            }
+            sleep(SHORT_WAIT);
+        }
+        assertTrue(client.getResultObtained() == 0);
+        connector.onResume();
+        return client;
+    }
+
+    /**
+     * An operation which returns its number.
+     */
+    private final static class NumberOperation extends ChronosOperation<String> {
+
+        private final int mNumber;
+
+        private NumberOperation(final int number) {
+            mNumber = number;
+        }
+
+        @Nullable
+        @Override
+        public String run() {
+            sleep(MICRO_WAIT);
+            return String.valueOf(mNumber);
+        }
+
+        @NonNull
+        @Override
+        public Class<? extends ChronosOperationResult<String>> getResultClass() {
+            return SimpleOperationResult.class;
+        }
+    }
+
+    /**
+     * A client which remembers the results it got.
+     */
+    public final static class CountingClient {
+
+        private String mResult;
+
+        private int mResultObtained = 0;
+
+        @Nullable
+        @Contract(pure = true)
+        public final String getResult() {
+            return mResult;
+        }
+
+        @Contract(pure = true)
+        public final int getResultObtained() {
+            return mResultObtained;
+        }
+
+        @SuppressWarnings("UnusedDeclaration")
+        public final void onOperationFinished(final SimpleOperationResult result) {
+            mResultObtained++;
+            mResult = result.getOutput();
+        }
+    }
+}
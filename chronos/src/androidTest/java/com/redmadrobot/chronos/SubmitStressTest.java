@@ -0,0 +1,132 @@
+package com.redmadrobot.chronos;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.util.Log;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.redmadrobot.chronos.TestSettings.SHORT_WAIT;
+import static com.redmadrobot.chronos.util.TimingUtils.sleep;
+
+/**
+ * Stress test for submitting and finishing operations from several threads at once.
+ *
+ * @author maximefimov
+ */
+public class SubmitStressTest extends AndroidTestCase {
+
+    private final static String LOG_TAG = SubmitStressTest.class.getSimpleName();
+
+    private final static int OPERATIONS_PER_THREAD = 5000;
+
+    private final static long TIMEOUT_SECONDS = 60;
+
+    @Override
+    protected void tearDown() throws Exception {
+        Chronos.configure(new ChronosConfiguration.Builder().build());
+        super.tearDown();
+    }
+
+    @LargeTest
+    public void testSubmitThroughput() throws InterruptedException {
+        final int cores = Runtime.getRuntime().availableProcessors();
+        Chronos.configure(new ChronosConfiguration.Builder()
+                .setCorePoolSize(cores)
+                .setMaximumPoolSize(cores)
+                .build());
+        final ChronosListener owner = ChronosListenerManager.getInstance().createListener();
+
+        final int maxThreadCount = Math.max(2, cores);
+        for (int threadCount = 1; threadCount <= maxThreadCount; threadCount *= 2) {
+            final long operationsPerSecond = submitAll(owner, threadCount);
+            Log.i(LOG_TAG, threadCount + " submitting threads, " + cores + " cores: "
+                    + operationsPerSecond + " operations/s");
+        }
+    }
+
+    /**
+     * Submits operations from several threads at once and waits until all of them are finished.
+     *
+     * @param owner       the listener which launches the operations
+     * @param threadCount the number of submitting threads
+     * @return the number of operations submitted and finished per second
+     */
+    private long submitAll(@NonNull final ChronosListener owner, final int threadCount)
+            throws InterruptedException {
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final CountDownLatch runLatch = new CountDownLatch(threadCount * OPERATIONS_PER_THREAD);
+        final int[][] ids = new int[threadCount][OPERATIONS_PER_THREAD];
+
+        final Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            final int[] threadIds = ids[i];
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < OPERATIONS_PER_THREAD; j++) {
+                        threadIds[j] = ChronosService.getInstance()
+                                .runAsync(new LatchOperation(runLatch), false, owner);
+                        RunningOperationStorage.getInstance().isOperationRunning(threadIds[j]);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+
+        final long start = System.nanoTime();
+        startLatch.countDown();
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(runLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        for (final int[] threadIds : ids) {
+            for (final int id : threadIds) {
+                while (RunningOperationStorage.getInstance().isOperationRunning(id)) {
+                    sleep(SHORT_WAIT);
+                }
+            }
+        }
+        final long time = System.nanoTime() - start;
+
+        return threadCount * OPERATIONS_PER_THREAD * TimeUnit.SECONDS.toNanos(1) / time;
+    }
+
+    /**
+     * An operation which only counts down the latch.
+     */
+    private final static class LatchOperation extends ChronosOperation<String> {
+
+        @NonNull
+        private final CountDownLatch mLatch;
+
+        private LatchOperation(@NonNull final CountDownLatch latch) {
+            mLatch = latch;
+        }
+
+        @Nullable
+        @Override
+        public String run() {
+            mLatch.countDown();
+            return null;
+        }
+
+        @NonNull
+        @Override
+        public Class<? extends ChronosOperationResult<String>> getResultClass() {
+            return LatchOperationResult.class;
+        }
+    }
+
+    public final static class LatchOperationResult extends ChronosOperationResult<String> {
+
+    }
+}
@@ -0,0 +1,12 @@
+package com.redmadrobot.chronos.mock.gui;
+
+import com.redmadrobot.chronos.mock.operation.HiddenResultClient;
+
+/**
+ * Chronos client which inherits a callback for a result class it can't access.
+ *
+ * @author maximefimov
+ */
+public final class InheritedCallbackClient extends HiddenResultClient {
+
+}
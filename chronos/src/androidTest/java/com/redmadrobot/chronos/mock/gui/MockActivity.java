@@ -30,6 +30,8 @@ public abstract class MockActivity {
 
     private State mState = State.INSTANCED;
 
+    private boolean mIsFinishing = false;
+
     public final void start() {
         onCreate();
         onResume();
@@ -40,6 +42,19 @@ public abstract class MockActivity {
         onPause();
     }
 
+    @Contract(pure = true)
+    public final boolean isFinishing() {
+        return mIsFinishing;
+    }
+
+    public final void finish() {
+        mIsFinishing = true;
+        if (mState == State.RESUMED) {
+            onPause();
+        }
+        onDestroy(true);
+    }
+
     public final void addFragment(@NonNull final MockFragment mockFragment) {
         if (mState == State.SAVED || mState == State.PAUSED) {
             throw new IllegalStateException("Wrong state: " + mState);
@@ -84,7 +99,7 @@ public abstract class MockActivity {
     }
 
     protected void onPause() {
-        if (mState != State.SAVED) {
+        if (!(mState == State.RESUMED || mState == State.SAVED)) {
             throw new IllegalStateException("Wrong state: " + mState);
         }
         mState = State.PAUSED;
@@ -94,6 +109,17 @@ public abstract class MockActivity {
         }
     }
 
+    protected void onDestroy(final boolean isFinishing) {
+        if (mState != State.PAUSED) {
+            throw new IllegalStateException("Wrong state: " + mState);
+        }
+        mState = State.DESTROYED;
+        mHelper.onDestroy(isFinishing);
+        for (final MockFragment fragment : mMockFragments) {
+            fragment.onDestroy();
+        }
+    }
+
     /**
      * Runs an operation in a background thread. Only one operation with the given tag may run in a
      * single moment of time. The result will be delivered to {@link Chronos#OWN_CALLBACK_METHOD_NAME}
@@ -68,13 +68,31 @@ public abstract class MockFragment {
     }
 
     public void onPause() {
-        if (mState != State.SAVED) {
+        if (!(mState == State.RESUMED || mState == State.SAVED)) {
             throw new IllegalStateException("Wrong state: " + mState);
         }
         mState = State.PAUSED;
         mHelper.onPause();
     }
 
+    public void onDestroy() {
+        if (mState != State.PAUSED) {
+            throw new IllegalStateException("Wrong state: " + mState);
+        }
+        mState = State.DESTROYED;
+        mHelper.onDestroy(mMockActivity != null && mMockActivity.isFinishing());
+    }
+
+    /**
+     * Brings the destroyed fragment back, as if it was instantiated again from its saved state.
+     */
+    public void restore() {
+        if (mState != State.DESTROYED) {
+            throw new IllegalStateException("Wrong state: " + mState);
+        }
+        mState = State.INSTANCED;
+    }
+
     /**
      * Runs an operation in a background thread. Only one operation with the given tag may run in a
      * single moment of time. The result will be delivered to {@link Chronos#OWN_CALLBACK_METHOD_NAME}
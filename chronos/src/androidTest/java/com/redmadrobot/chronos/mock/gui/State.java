@@ -10,5 +10,6 @@ enum State {
     CREATED,
     RESUMED,
     SAVED,
-    PAUSED
+    PAUSED,
+    DESTROYED
 }
@@ -0,0 +1,12 @@
+package com.redmadrobot.chronos.mock.operation;
+
+import com.redmadrobot.chronos.ChronosOperationResult;
+
+/**
+ * Result class which is not accessible outside of its package.
+ *
+ * @author maximefimov
+ */
+final class HiddenOperationResult extends ChronosOperationResult<String> {
+
+}
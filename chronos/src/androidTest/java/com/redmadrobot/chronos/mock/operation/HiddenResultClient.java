@@ -0,0 +1,32 @@
+package com.redmadrobot.chronos.mock.operation;
+
+import android.support.annotation.Nullable;
+
+/**
+ * Chronos client which callback takes a result class that is not accessible outside of its
+ * package, so the callback can't be called from a dispatcher generated for a subclass in another
+ * package.
+ *
+ * @author maximefimov
+ */
+public class HiddenResultClient {
+
+    private String mResult;
+
+    private int mResultObtained = 0;
+
+    @Nullable
+    public final String getResult() {
+        return mResult;
+    }
+
+    public final int getResultObtained() {
+        return mResultObtained;
+    }
+
+    @SuppressWarnings("UnusedDeclaration")
+    public final void onOperationFinished(final HiddenOperationResult result) {
+        mResultObtained++;
+        mResult = result.getOutput();
+    }
+}
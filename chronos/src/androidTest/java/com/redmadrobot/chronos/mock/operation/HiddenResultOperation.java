@@ -0,0 +1,33 @@
+package com.redmadrobot.chronos.mock.operation;
+
+import com.redmadrobot.chronos.ChronosOperation;
+import com.redmadrobot.chronos.ChronosOperationResult;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Operation which result class is not accessible outside of its package.
+ *
+ * @author maximefimov
+ */
+public final class HiddenResultOperation extends ChronosOperation<String> {
+
+    private final String mInput;
+
+    public HiddenResultOperation(@NonNull final String input) {
+        mInput = input;
+    }
+
+    @Nullable
+    @Override
+    public String run() {
+        return mInput;
+    }
+
+    @NonNull
+    @Override
+    public Class<? extends ChronosOperationResult<String>> getResultClass() {
+        return HiddenOperationResult.class;
+    }
+}
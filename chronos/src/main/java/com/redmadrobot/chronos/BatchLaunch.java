@@ -0,0 +1,38 @@
+package com.redmadrobot.chronos;
+
+import org.jetbrains.annotations.Contract;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A descriptor of a batch of operations launched together. Chronos runs the operations of a batch
+ * in parallel, while the batch itself is never run, it only has a launch id, so that it can be
+ * cancelled and delivered as a single launch.
+ *
+ * @author maximefimov
+ * @see ChronosService#runBatchAsync(List, boolean, ChronosListener)
+ */
+final class BatchLaunch {
+
+    @NonNull
+    private final List<ChronosOperation<?>> mOperations;
+
+    /**
+     * @param operations the operations of the batch
+     */
+    BatchLaunch(@NonNull final List<? extends ChronosOperation<?>> operations) {
+        mOperations = new ArrayList<>(operations);
+    }
+
+    /**
+     * @return the operations of the batch
+     */
+    @NonNull
+    @Contract(pure = true)
+    final List<ChronosOperation<?>> getOperations() {
+        return mOperations;
+    }
+}
@@ -0,0 +1,16 @@
+package com.redmadrobot.chronos;
+
+import java.util.List;
+
+/**
+ * Result of a batch of operations, launched together by {@link ChronosConnector#runOperations(List,
+ * boolean)}. Its output is the list of results of the operations, in the order they were passed to
+ * the launch. Every result in the list has its own output or exception, while the batch itself is
+ * always successful.
+ *
+ * @author maximefimov
+ * @see ChronosConnector#runOperations(List, boolean)
+ */
+public final class BatchOperationResult extends ChronosOperationResult<List<ChronosOperationResult<?>>> {
+
+}
@@ -0,0 +1,126 @@
+package com.redmadrobot.chronos;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A run of a batch of operations. The operations are run as separate tasks, and the batch is
+ * finished when the last of them is, so its result is posted to the main thread only once. The run
+ * is stored as the running operation of the batch launch, so cancelling the launch cancels every
+ * task of the batch.
+ *
+ * @author maximefimov
+ * @see ChronosService#runBatchAsync(List, boolean, ChronosListener)
+ */
+final class BatchRun extends FutureTask<Void> {
+
+    @NonNull
+    private final static Runnable NO_ACTION = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    @NonNull
+    private final BatchLaunch mLaunch;
+
+    @NonNull
+    private final ChronosOperationResult<List<ChronosOperationResult<?>>> mResult;
+
+    @NonNull
+    private final List<ChronosOperationResult<?>> mPartResults;
+
+    @NonNull
+    private final List<Future<?>> mTasks;
+
+    @NonNull
+    private final AtomicInteger mRemainingParts;
+
+    /**
+     * @param launch the descriptor of the batch
+     * @param result the result of the batch launch
+     */
+    BatchRun(@NonNull final BatchLaunch launch,
+            @NonNull final ChronosOperationResult<List<ChronosOperationResult<?>>> result) {
+        super(NO_ACTION, null);
+        mLaunch = launch;
+        mResult = result;
+        final int partCount = launch.getOperations().size();
+        mPartResults = new ArrayList<>(partCount);
+        mTasks = new ArrayList<>(partCount);
+        // the submission of the parts counts as one more part, so that the batch is not finished
+        // until all of its parts are submitted
+        mRemainingParts = new AtomicInteger(partCount + 1);
+    }
+
+    /**
+     * @return the unique id of the batch launch
+     */
+    final int getId() {
+        return mResult.getId();
+    }
+
+    /**
+     * Adds a result of the next operation of the batch. Must be called from the submitting thread
+     * only, in the order of the operations.
+     *
+     * @param partResult the result of the operation
+     */
+    final void addPartResult(@NonNull final ChronosOperationResult<?> partResult) {
+        mPartResults.add(partResult);
+    }
+
+    /**
+     * Binds the run to a task which executes one of its operations.
+     *
+     * @param task the task of the operation
+     * @return {@code true} if the task should be executed, {@code false} if the batch is already
+     * cancelled
+     */
+    synchronized final boolean addTask(@NonNull final Future<?> task) {
+        if (isCancelled()) {
+            return false;
+        }
+        mTasks.add(task);
+        return true;
+    }
+
+    /**
+     * Is called when an operation of the batch is finished, or when all of them are submitted.
+     * Posts the result of the batch after the last call.
+     */
+    final void onPartFinished() {
+        if (mRemainingParts.decrementAndGet() != 0) {
+            return;
+        }
+        if (!isCancelled()) {
+            mResult.setOutput(mPartResults);
+            ResultRouter.getInstance().post(mResult);
+        }
+        run();
+        RunningOperationStorage.getInstance().operationFinished(getId());
+    }
+
+    @Override
+    public boolean cancel(final boolean mayInterruptIfRunning) {
+        final List<Future<?>> tasks;
+        synchronized (this) {
+            if (!super.cancel(mayInterruptIfRunning)) {
+                return false;
+            }
+            tasks = new ArrayList<>(mTasks);
+        }
+        for (final ChronosOperation<?> operation : mLaunch.getOperations()) {
+            operation.cancel();
+        }
+        for (final Future<?> task : tasks) {
+            task.cancel(mayInterruptIfRunning);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,206 @@
+package com.redmadrobot.chronos;
+
+import org.jetbrains.annotations.Contract;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An index of listeners by the broadcast results they consume. A listener subscribes with the
+ * parameter classes of the broadcast callbacks of its client, and, optionally, with the topics it
+ * is interested in, so a broadcast result is passed only to the listeners which have a callback
+ * for it, without scanning all of them. The class hierarchy of every result class is resolved
+ * once, and the listeners are looked up by each of its classes and interfaces.
+ * <p/>
+ * A listener which client is not known yet is subscribed to everything, so that it stores all the
+ * broadcast results until it is resumed. The class is not thread-safe.
+ *
+ * @author maximefimov
+ * @see BroadcastTopicSubscriber
+ * @see ResultRouter
+ */
+final class BroadcastSubscriptions {
+
+    /**
+     * Listeners which client is not known yet, they get every broadcast result.
+     */
+    @NonNull
+    private final Set<ChronosListener> mUnresolvedListeners = new LinkedHashSet<>();
+
+    @NonNull
+    private final Map<Class<?>, Set<ChronosListener>> mListenersByClass = new HashMap<>();
+
+    @NonNull
+    private final Map<ChronosListener, Subscription> mSubscriptions = new HashMap<>();
+
+    /**
+     * All the superclasses and interfaces of result classes, including the classes themselves.
+     */
+    @NonNull
+    private final Map<Class<?>, Class<?>[]> mHierarchies = new HashMap<>();
+
+    /**
+     * Subscribes a listener to all the broadcast results, until its client is known.
+     *
+     * @param listener a listener which client is not known yet
+     */
+    final void subscribeAll(@NonNull final ChronosListener listener) {
+        unsubscribe(listener);
+        mUnresolvedListeners.add(listener);
+    }
+
+    /**
+     * Replaces the subscription of a listener.
+     *
+     * @param listener      a listener to be subscribed
+     * @param resultClasses the parameter classes of the broadcast callbacks of its client
+     * @param topics        the topics the client consumes, or {@code null} if it consumes all of
+     *                      them
+     */
+    final void subscribe(@NonNull final ChronosListener listener,
+            @NonNull final Class<?>[] resultClasses, @Nullable final Collection<String> topics) {
+        unsubscribe(listener);
+        if (resultClasses.length == 0) {
+            return;
+        }
+        mSubscriptions.put(listener, new Subscription(resultClasses,
+                topics != null ? new HashSet<>(topics) : null));
+        for (final Class<?> resultClass : resultClasses) {
+            Set<ChronosListener> listeners = mListenersByClass.get(resultClass);
+            if (listeners == null) {
+                listeners = new LinkedHashSet<>();
+                mListenersByClass.put(resultClass, listeners);
+            }
+            listeners.add(listener);
+        }
+    }
+
+    /**
+     * Removes the subscription of a listener.
+     *
+     * @param listener a listener to be unsubscribed
+     */
+    final void unsubscribe(@NonNull final ChronosListener listener) {
+        mUnresolvedListeners.remove(listener);
+        final Subscription subscription = mSubscriptions.remove(listener);
+        if (subscription == null) {
+            return;
+        }
+        for (final Class<?> resultClass : subscription.mResultClasses) {
+            final Set<ChronosListener> listeners = mListenersByClass.get(resultClass);
+            if (listeners != null) {
+                listeners.remove(listener);
+                if (listeners.isEmpty()) {
+                    mListenersByClass.remove(resultClass);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the listeners which consume a broadcast result.
+     *
+     * @param operationResult a broadcast result
+     * @return the listeners, in the order they were subscribed within each class
+     */
+    @NonNull
+    final ChronosListener[] getListeners(@NonNull final ChronosOperationResult<?> operationResult) {
+        final String topic = operationResult.getBroadcastTopic();
+        final Set<ChronosListener> listeners = new LinkedHashSet<>(mUnresolvedListeners);
+        for (final Class<?> resultClass : getHierarchy(operationResult.getClass())) {
+            final Set<ChronosListener> classListeners = mListenersByClass.get(resultClass);
+            if (classListeners == null) {
+                continue;
+            }
+            for (final ChronosListener listener : classListeners) {
+                if (topic == null || mSubscriptions.get(listener).consumes(topic)) {
+                    listeners.add(listener);
+                }
+            }
+        }
+        return listeners.toArray(new ChronosListener[listeners.size()]);
+    }
+
+    /**
+     * Checks if a listener consumes a broadcast result.
+     *
+     * @param listener        a listener
+     * @param operationResult a broadcast result
+     * @return {@code true} if the result should be passed to the listener, {@code false}
+     * otherwise
+     */
+    @Contract(pure = true)
+    final boolean isSubscribed(@NonNull final ChronosListener listener,
+            @NonNull final ChronosOperationResult<?> operationResult) {
+        if (mUnresolvedListeners.contains(listener)) {
+            return true;
+        }
+        final Subscription subscription = mSubscriptions.get(listener);
+        if (subscription == null) {
+            return false;
+        }
+        final String topic = operationResult.getBroadcastTopic();
+        if (topic != null && !subscription.consumes(topic)) {
+            return false;
+        }
+        for (final Class<?> resultClass : subscription.mResultClasses) {
+            if (resultClass.isAssignableFrom(operationResult.getClass())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @NonNull
+    private Class<?>[] getHierarchy(@NonNull final Class<?> resultClass) {
+        Class<?>[] hierarchy = mHierarchies.get(resultClass);
+        if (hierarchy == null) {
+            final Set<Class<?>> classes = new LinkedHashSet<>();
+            addHierarchy(resultClass, classes);
+            hierarchy = classes.toArray(new Class<?>[classes.size()]);
+            mHierarchies.put(resultClass, hierarchy);
+        }
+        return hierarchy;
+    }
+
+    private static void addHierarchy(@Nullable final Class<?> type,
+            @NonNull final Set<Class<?>> classes) {
+        if (type == null || !classes.add(type)) {
+            return;
+        }
+        addHierarchy(type.getSuperclass(), classes);
+        for (final Class<?> implementedInterface : type.getInterfaces()) {
+            addHierarchy(implementedInterface, classes);
+        }
+    }
+
+    private final static class Subscription {
+
+        @NonNull
+        private final Class<?>[] mResultClasses;
+
+        /**
+         * The consumed topics, or {@code null} if all of them are consumed.
+         */
+        @Nullable
+        private final Set<String> mTopics;
+
+        private Subscription(@NonNull final Class<?>[] resultClasses,
+                @Nullable final Set<String> topics) {
+            mResultClasses = resultClasses;
+            mTopics = topics;
+        }
+
+        @Contract(pure = true)
+        private boolean consumes(@NonNull final String topic) {
+            return mTopics == null || mTopics.contains(topic);
+        }
+    }
+}
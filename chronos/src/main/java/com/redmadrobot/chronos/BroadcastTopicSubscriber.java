@@ -0,0 +1,26 @@
+package com.redmadrobot.chronos;
+
+import android.support.annotation.Nullable;
+
+import java.util.Collection;
+
+/**
+ * A Chronos client which consumes broadcast results of particular topics only. A client which
+ * doesn't implement the interface gets the broadcast results of all topics it has callbacks for.
+ * The topics are read every time the client is resumed, when it subscribes to broadcast results.
+ *
+ * @author maximefimov
+ * @see ChronosOperation#getBroadcastTopic()
+ * @see Chronos#BROADCAST_CALLBACK_METHOD_NAME
+ */
+public interface BroadcastTopicSubscriber {
+
+    /**
+     * Returns the topics of the broadcast results the client consumes. Results without a topic are
+     * passed to the client anyway, if it has a callback for their class.
+     *
+     * @return the topics, or {@code null} if the client consumes all of them
+     */
+    @Nullable
+    Collection<String> getBroadcastTopics();
+}
@@ -0,0 +1,21 @@
+package com.redmadrobot.chronos;
+
+import android.support.annotation.NonNull;
+
+/**
+ * A listener of outputs leaving a level of the cache by themselves, because they were evicted or
+ * are no longer fresh, rather than because they were removed or replaced.
+ *
+ * @author maximefimov
+ * @see ResultCache
+ * @see DiskResultCache
+ */
+interface CacheEvictionListener {
+
+    /**
+     * Called in the thread which caused the eviction.
+     *
+     * @param cacheKey the cache key of the evicted output
+     */
+    void onEvicted(@NonNull String cacheKey);
+}
@@ -0,0 +1,269 @@
+package com.redmadrobot.chronos;
+
+import org.jetbrains.annotations.Contract;
+
+import android.support.annotation.NonNull;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A reverse index of cached operation outputs by the tags they depend on, so that invalidation of a
+ * tag costs the number of outputs which depend on it, rather than the number of all cached ones.
+ * <p/>
+ * The index also keeps the time every tag was invalidated last, by a logical clock, which is used
+ * to drop outputs of launches that were running while a tag they depend on was invalidated: such
+ * outputs could be read before the data were changed. A launch takes a stamp before it is run, and
+ * its output is cached only if none of its tags were invalidated after that stamp, both before and
+ * after it is put to the cache. The invalidation time of a tag is kept only while there is a launch
+ * holding an older stamp, as it makes no difference for the newer ones.
+ * <p/>
+ * A cache key is unbound when its output leaves the cache, so that the index doesn't outgrow the
+ * cache. Every binding has its own generation, so that an output which leaves the cache doesn't
+ * unbind the key once a newer output is bound to it. All the methods are thread-safe.
+ *
+ * @author maximefimov
+ * @see ChronosOperation#getCacheTags()
+ * @see ChronosOperation#getInvalidatedTags()
+ */
+final class CacheTagIndex {
+
+    @NonNull
+    private final Map<String, Set<String>> mKeysByTag = new HashMap<>();
+
+    @NonNull
+    private final Map<String, Binding> mBindingsByKey = new HashMap<>();
+
+    /**
+     * Stamps of the last invalidation of tags, from the oldest to the newest one.
+     */
+    @NonNull
+    private final LinkedHashMap<String, Long> mInvalidationStamps = new LinkedHashMap<>();
+
+    /**
+     * The numbers of launches holding the stamps, from the oldest stamp to the newest one.
+     */
+    @NonNull
+    private final LinkedHashMap<Long, Integer> mHeldStamps = new LinkedHashMap<>();
+
+    private long mClock = 0;
+
+    private long mNextGeneration = 1;
+
+    /**
+     * Takes a stamp before a launch is run. The stamp must be released when the output of the
+     * launch is cached or dropped.
+     *
+     * @return a stamp of the current state of the index
+     * @see #releaseStamp(long)
+     */
+    synchronized final long acquireStamp() {
+        final Integer count = mHeldStamps.get(mClock);
+        mHeldStamps.put(mClock, count != null ? count + 1 : 1);
+        return mClock;
+    }
+
+    /**
+     * Releases a stamp taken by {@link #acquireStamp()}, and forgets the invalidations which no
+     * launch can be affected by any more.
+     *
+     * @param stamp a stamp to be released
+     */
+    synchronized final void releaseStamp(final long stamp) {
+        final Integer count = mHeldStamps.get(stamp);
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            mHeldStamps.put(stamp, count - 1);
+        } else {
+            mHeldStamps.remove(stamp);
+            pruneInvalidationStamps();
+        }
+    }
+
+    /**
+     * Binds a cache key to the tags the output depends on, unless any of the tags was invalidated
+     * after the launch has been started.
+     *
+     * @param cacheKey the cache key of an operation
+     * @param tags     the tags the output of the operation depends on
+     * @param stamp    the stamp taken before the launch was run
+     * @return {@code true} if the output may be cached, {@code false} if it may be stale
+     */
+    synchronized final boolean add(@NonNull final String cacheKey,
+            @NonNull final Collection<String> tags, final long stamp) {
+        if (isInvalidatedSince(tags, stamp)) {
+            return false;
+        }
+        removeKey(cacheKey);
+        if (!tags.isEmpty()) {
+            mBindingsByKey.put(cacheKey, new Binding(new HashSet<>(tags), mNextGeneration++));
+            for (final String tag : tags) {
+                Set<String> keys = mKeysByTag.get(tag);
+                if (keys == null) {
+                    keys = new HashSet<>();
+                    mKeysByTag.put(tag, keys);
+                }
+                keys.add(cacheKey);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if any of the tags was invalidated after a given stamp.
+     *
+     * @param tags  the tags the output of an operation depends on
+     * @param stamp the stamp taken before the launch was run
+     * @return {@code true} if the output of the launch may be stale, {@code false} otherwise
+     */
+    @Contract(pure = true)
+    synchronized final boolean isInvalidatedSince(@NonNull final Collection<String> tags,
+            final long stamp) {
+        for (final String tag : tags) {
+            final Long invalidationStamp = mInvalidationStamps.get(tag);
+            if (invalidationStamp != null && invalidationStamp > stamp) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Invalidates tags, and unbinds the cache keys which depend on them.
+     *
+     * @param tags the tags to be invalidated
+     * @return the cache keys of outputs which depend on any of the tags, and should be removed
+     * from the cache
+     */
+    @NonNull
+    synchronized final Set<String> invalidate(@NonNull final Collection<String> tags) {
+        if (tags.isEmpty()) {
+            return Collections.emptySet();
+        }
+        mClock++;
+        final Set<String> invalidatedKeys = new HashSet<>();
+        for (final String tag : tags) {
+            // re-inserted, so that the stamps stay in their order
+            mInvalidationStamps.remove(tag);
+            mInvalidationStamps.put(tag, mClock);
+            final Set<String> keys = mKeysByTag.get(tag);
+            if (keys != null) {
+                invalidatedKeys.addAll(keys);
+            }
+        }
+        for (final String cacheKey : invalidatedKeys) {
+            removeKey(cacheKey);
+        }
+        pruneInvalidationStamps();
+        return invalidatedKeys;
+    }
+
+    /**
+     * Unbinds a cache key which output has been removed from the cache.
+     *
+     * @param cacheKey the cache key of an operation
+     */
+    synchronized final void remove(@NonNull final String cacheKey) {
+        removeKey(cacheKey);
+    }
+
+    /**
+     * @param cacheKey the cache key of an operation
+     * @return the generation of the binding of the key, or {@code 0} if it is not bound
+     * @see #remove(String, long)
+     */
+    @Contract(pure = true)
+    synchronized final long getGeneration(@NonNull final String cacheKey) {
+        final Binding binding = mBindingsByKey.get(cacheKey);
+        return binding != null ? binding.mGeneration : 0;
+    }
+
+    /**
+     * Unbinds a cache key which output has left the cache, unless it has been bound again since.
+     *
+     * @param cacheKey   the cache key of an operation
+     * @param generation the generation of the binding taken before the output was found to be gone
+     * @see #getGeneration(String)
+     */
+    synchronized final void remove(@NonNull final String cacheKey, final long generation) {
+        if (getGeneration(cacheKey) == generation) {
+            removeKey(cacheKey);
+        }
+    }
+
+    /**
+     * Unbinds all the cache keys, invalidation stamps are kept.
+     */
+    synchronized final void clear() {
+        mKeysByTag.clear();
+        mBindingsByKey.clear();
+    }
+
+    /**
+     * @param tag a tag
+     * @return the number of cache keys bound to the tag
+     */
+    @Contract(pure = true)
+    synchronized final int getKeyCount(@NonNull final String tag) {
+        final Set<String> keys = mKeysByTag.get(tag);
+        return keys != null ? keys.size() : 0;
+    }
+
+    /**
+     * @return the number of tags which invalidation time is kept
+     */
+    @Contract(pure = true)
+    synchronized final int getInvalidationCount() {
+        return mInvalidationStamps.size();
+    }
+
+    /**
+     * Forgets the invalidations which are not newer than the oldest held stamp, or all of them, if
+     * no stamp is held.
+     */
+    private void pruneInvalidationStamps() {
+        final long oldestStamp = mHeldStamps.isEmpty() ? mClock
+                : mHeldStamps.keySet().iterator().next();
+        final Iterator<Long> iterator = mInvalidationStamps.values().iterator();
+        while (iterator.hasNext() && iterator.next() <= oldestStamp) {
+            iterator.remove();
+        }
+    }
+
+    private void removeKey(@NonNull final String cacheKey) {
+        final Binding binding = mBindingsByKey.remove(cacheKey);
+        if (binding == null) {
+            return;
+        }
+        for (final String tag : binding.mTags) {
+            final Set<String> keys = mKeysByTag.get(tag);
+            if (keys != null) {
+                keys.remove(cacheKey);
+                if (keys.isEmpty()) {
+                    mKeysByTag.remove(tag);
+                }
+            }
+        }
+    }
+
+    private final static class Binding {
+
+        @NonNull
+        private final Set<String> mTags;
+
+        private final long mGeneration;
+
+        private Binding(@NonNull final Set<String> tags, final long generation) {
+            mTags = tags;
+            mGeneration = generation;
+        }
+    }
+}
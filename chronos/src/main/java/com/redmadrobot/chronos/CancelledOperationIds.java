@@ -0,0 +1,50 @@
+package com.redmadrobot.chronos;
+
+import org.jetbrains.annotations.Contract;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A bounded set of cancelled operation launch ids. As launch ids grow monotonically, the set keeps
+ * cancelled ids in a ring of {@link #CAPACITY} slots, so it takes a constant amount of memory. A
+ * slot is reused when an id that is a multiple of {@link #CAPACITY} launches newer is cancelled.
+ * The set is thread-safe and does not block.
+ *
+ * @author maximefimov
+ * @see RunningOperationStorage
+ */
+final class CancelledOperationIds {
+
+    /**
+     * The number of slots in the ring. Must be a power of two.
+     */
+    final static int CAPACITY = 4096;
+
+    private final static int ID_MASK = CAPACITY - 1;
+
+    @NonNull
+    private final AtomicIntegerArray mSlots = new AtomicIntegerArray(CAPACITY);
+
+    /**
+     * Marks an operation launch as cancelled.
+     *
+     * @param id the unique id of operations' launch
+     */
+    final void add(final int id) {
+        mSlots.set(id & ID_MASK, id);
+    }
+
+    /**
+     * Checks if the operation launch was marked as cancelled.
+     *
+     * @param id the unique id of operations' launch
+     * @return {@code true} if the launch was marked as cancelled, {@code false} if it was not, or
+     * its slot was reused by a newer cancelled launch
+     */
+    @Contract(pure = true)
+    final boolean contains(final int id) {
+        return id != 0 && mSlots.get(id & ID_MASK) == id;
+    }
+}
@@ -2,6 +2,8 @@ package com.redmadrobot.chronos;
 
 import android.support.annotation.NonNull;
 
+import java.util.Arrays;
+
 /**
  * Class, which provides a static access to the Chronos library.
  *
@@ -17,9 +19,137 @@ public final class Chronos {
     @NonNull
     public final static String BROADCAST_CALLBACK_METHOD_NAME = "onBroadcastOperationFinished";
 
+    @SuppressWarnings("WeakerAccess")
+    @NonNull
+    public final static String PROGRESS_CALLBACK_METHOD_NAME = "onOperationProgress";
+
     private Chronos() {
     }
 
+    /**
+     * Applies a new configuration of Chronos. The call doesn't read or write files, and has the
+     * following effects:
+     * <ul>
+     * <li>the thread pool which runs operations in background is replaced, operations that have
+     * already been launched are finished in the previous pool;</li>
+     * <li>the progress interval applies to the progress published from then on;</li>
+     * <li>if the memory cache size is changed, the memory cache is replaced, and the outputs cached
+     * in it are dropped;</li>
+     * <li>if the disk cache directory or size is changed, the disk cache is replaced. The new one is
+     * opened in a background thread, and launches miss it until it is open. The files of the
+     * previous one are kept;</li>
+     * <li>if there is a spill directory, the files left in it by listeners which were never restored
+     * are deleted in a background thread;</li>
+     * <li>if the journal directory is changed, the journal is replaced. The new one is opened in a
+     * background thread, which then launches again the durable operations that the previous process
+     * hasn't finished. Durable launches made until the journal is open wait for it.</li>
+     * </ul>
+     *
+     * @param configuration the new configuration
+     * @see ChronosConfiguration.Builder
+     */
+    public static void configure(@NonNull final ChronosConfiguration configuration) {
+        ChronosService.getInstance().configure(configuration);
+    }
+
+    /**
+     * Gets the statistics of the time operations with a given priority wait in the queue before
+     * they are started.
+     *
+     * @param priority an operation priority
+     * @return the statistics, which is updated as new operations are started
+     * @see ChronosOperation#getPriority()
+     */
+    @NonNull
+    public static QueueWaitStatistics getQueueWaitStatistics(final int priority) {
+        return ChronosService.getInstance().getQueueWaitStatistics(priority);
+    }
+
+    /**
+     * Gets the statistics of the cache of operation outputs.
+     *
+     * @return the statistics, which is updated as operations are launched
+     * @see ChronosOperation#getCacheKey()
+     */
+    @NonNull
+    public static ResultCacheStatistics getResultCacheStatistics() {
+        return ChronosService.getInstance().getResultCacheStatistics();
+    }
+
+    /**
+     * Removes a cached operation output both from memory and from disk, so that the next launch of
+     * an operation with the same key will be run.
+     *
+     * @param cacheKey the cache key of an operation
+     * @see ChronosOperation#getCacheKey()
+     */
+    public static void invalidateCachedResult(@NonNull final String cacheKey) {
+        ChronosService.getInstance().getCacheTagIndex().remove(cacheKey);
+        ChronosService.getInstance().getResultCache().remove(cacheKey);
+        final DiskResultCache diskCache = ChronosService.getInstance().getDiskResultCache();
+        if (diskCache != null) {
+            diskCache.remove(cacheKey);
+        }
+    }
+
+    /**
+     * Invalidates tags of data, which were changed not by an operation, so that cached operation
+     * outputs which depend on any of them are removed both from memory and from disk, and running
+     * launches of such operations do not cache their outputs.
+     *
+     * @param tags the tags of the changed data
+     * @see ChronosOperation#getCacheTags()
+     * @see ChronosOperation#getInvalidatedTags()
+     */
+    public static void invalidateCachedResults(@NonNull final String... tags) {
+        ChronosService.getInstance().invalidateTags(Arrays.asList(tags));
+    }
+
+    /**
+     * Removes all cached operation outputs both from memory and from disk.
+     *
+     * @see ChronosOperation#getCacheKey()
+     */
+    public static void clearResultCache() {
+        ChronosService.getInstance().getCacheTagIndex().clear();
+        ChronosService.getInstance().getResultCache().clear();
+        final DiskResultCache diskCache = ChronosService.getInstance().getDiskResultCache();
+        if (diskCache != null) {
+            diskCache.clear();
+        }
+    }
+
+    /**
+     * Drops all the sticky broadcast results, so that Chronos clients created from now on don't
+     * receive them.
+     *
+     * @see ChronosOperation#isStickyBroadcast()
+     */
+    public static void clearStickyBroadcasts() {
+        StickyBroadcastStore.getInstance().clear();
+    }
+
+    /**
+     * Drops the sticky broadcast result of a topic.
+     *
+     * @param topic a broadcast topic
+     * @see ChronosOperation#getBroadcastTopic()
+     */
+    public static void clearStickyBroadcast(@NonNull final String topic) {
+        StickyBroadcastStore.getInstance().remove(topic);
+    }
+
+    /**
+     * Drops the sticky broadcast result of a result class, which operations have no topic.
+     *
+     * @param resultClass a class of operation results
+     * @see ChronosOperation#getResultClass()
+     */
+    public static void clearStickyBroadcast(
+            @NonNull final Class<? extends ChronosOperationResult<?>> resultClass) {
+        StickyBroadcastStore.getInstance().remove(resultClass);
+    }
+
     /**
      * Cancels all running operations for all objects.
      *
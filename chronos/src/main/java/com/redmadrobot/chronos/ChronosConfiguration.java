@@ -0,0 +1,655 @@
+package com.redmadrobot.chronos;
+
+import org.jetbrains.annotations.Contract;
+
+import android.os.Process;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.File;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A set of parameters of the thread pool which runs operations in background, and of the cache of
+ * operation outputs.
+ *
+ * @author maximefimov
+ * @see Chronos#configure(ChronosConfiguration)
+ */
+public final class ChronosConfiguration {
+
+    private final static int CPU_COUNT = Runtime.getRuntime().availableProcessors();
+
+    private final int mCorePoolSize;
+
+    private final int mMaximumPoolSize;
+
+    private final long mKeepAliveMillis;
+
+    private final int mQueueCapacity;
+
+    @NonNull
+    private final RejectedExecutionHandler mRejectedExecutionHandler;
+
+    private final long mPriorityAgingStepMillis;
+
+    private final int mThreadPriority;
+
+    @NonNull
+    private final String mThreadNamePrefix;
+
+    private final int mResultCacheSize;
+
+    private final long mProgressIntervalMillis;
+
+    private final long mResumeDeliveryBudgetMillis;
+
+    private final boolean mStoredResultsConflatedByTag;
+
+    private final boolean mStoredResultsConflatedByClass;
+
+    private final long mStoredResultsBudgetBytes;
+
+    @Nullable
+    private final File mResultSpillDirectory;
+
+    private final int mResultSpillMaxBytes;
+
+    @Nullable
+    private final File mJournalDirectory;
+
+    @Nullable
+    private final File mDiskResultCacheDirectory;
+
+    private final long mDiskResultCacheSize;
+
+    private final int mStickyBroadcastCapacity;
+
+    private ChronosConfiguration(@NonNull final Builder builder) {
+        mCorePoolSize = builder.mCorePoolSize;
+        mMaximumPoolSize = builder.mMaximumPoolSize;
+        mKeepAliveMillis = builder.mKeepAliveMillis;
+        mQueueCapacity = builder.mQueueCapacity;
+        mRejectedExecutionHandler = builder.mRejectedExecutionHandler;
+        mPriorityAgingStepMillis = builder.mPriorityAgingStepMillis;
+        mThreadPriority = builder.mThreadPriority;
+        mThreadNamePrefix = builder.mThreadNamePrefix;
+        mResultCacheSize = builder.mResultCacheSize;
+        mProgressIntervalMillis = builder.mProgressIntervalMillis;
+        mResumeDeliveryBudgetMillis = builder.mResumeDeliveryBudgetMillis;
+        mStoredResultsConflatedByTag = builder.mStoredResultsConflatedByTag;
+        mStoredResultsConflatedByClass = builder.mStoredResultsConflatedByClass;
+        mStoredResultsBudgetBytes = builder.mStoredResultsBudgetBytes;
+        mResultSpillDirectory = builder.mResultSpillDirectory;
+        mResultSpillMaxBytes = builder.mResultSpillMaxBytes;
+        mJournalDirectory = builder.mJournalDirectory;
+        mDiskResultCacheDirectory = builder.mDiskResultCacheDirectory;
+        mDiskResultCacheSize = builder.mDiskResultCacheSize;
+        mStickyBroadcastCapacity = builder.mStickyBroadcastCapacity;
+    }
+
+    /**
+     * @return the number of threads which are kept in the pool, unless they are idle longer than
+     * keep alive time
+     */
+    @Contract(pure = true)
+    public final int getCorePoolSize() {
+        return mCorePoolSize;
+    }
+
+    /**
+     * @return the maximum number of threads in the pool
+     */
+    @Contract(pure = true)
+    public final int getMaximumPoolSize() {
+        return mMaximumPoolSize;
+    }
+
+    /**
+     * @return the time in milliseconds an idle thread waits for a new operation before terminating
+     */
+    @Contract(pure = true)
+    public final long getKeepAliveMillis() {
+        return mKeepAliveMillis;
+    }
+
+    /**
+     * @return the maximum number of operations waiting for a free thread
+     */
+    @Contract(pure = true)
+    public final int getQueueCapacity() {
+        return mQueueCapacity;
+    }
+
+    /**
+     * @return the handler of operations which can't be accepted because both the pool and the
+     * queue are full
+     */
+    @NonNull
+    @Contract(pure = true)
+    public final RejectedExecutionHandler getRejectedExecutionHandler() {
+        return mRejectedExecutionHandler;
+    }
+
+    /**
+     * @return the time in milliseconds an operation should wait in the queue to get its priority
+     * raised by one level
+     * @see ChronosOperation#getPriority()
+     */
+    @Contract(pure = true)
+    public final long getPriorityAgingStepMillis() {
+        return mPriorityAgingStepMillis;
+    }
+
+    /**
+     * @return the Linux priority of pool threads
+     * @see Process#setThreadPriority(int)
+     */
+    @Contract(pure = true)
+    public final int getThreadPriority() {
+        return mThreadPriority;
+    }
+
+    /**
+     * @return the prefix of pool thread names
+     */
+    @NonNull
+    @Contract(pure = true)
+    public final String getThreadNamePrefix() {
+        return mThreadNamePrefix;
+    }
+
+    /**
+     * @return the maximum total size of cached operation outputs, {@code 0} if the cache is
+     * disabled
+     * @see ChronosOperation#getCachedSize(Object)
+     */
+    @Contract(pure = true)
+    public final int getResultCacheSize() {
+        return mResultCacheSize;
+    }
+
+    /**
+     * @return the minimal time between two progress deliveries of an operation launch, in
+     * milliseconds
+     * @see ChronosOperation#publishProgress(Object)
+     */
+    @Contract(pure = true)
+    public final long getProgressIntervalMillis() {
+        return mProgressIntervalMillis;
+    }
+
+    /**
+     * @return the time a client may spend in a single Main Thread message to receive the results
+     * stored while it was paused, in milliseconds; {@code 0} if all of them are delivered at once
+     */
+    @Contract(pure = true)
+    public final long getResumeDeliveryBudgetMillis() {
+        return mResumeDeliveryBudgetMillis;
+    }
+
+    /**
+     * @return {@code true} if a paused client keeps only the newest undelivered result of the
+     * launches with the same tag, {@code false} if it keeps all of them
+     */
+    @Contract(pure = true)
+    public final boolean areStoredResultsConflatedByTag() {
+        return mStoredResultsConflatedByTag;
+    }
+
+    /**
+     * @return {@code true} if a paused client keeps only the newest undelivered result of every
+     * result class, {@code false} if it keeps all of them
+     */
+    @Contract(pure = true)
+    public final boolean areStoredResultsConflatedByClass() {
+        return mStoredResultsConflatedByClass;
+    }
+
+    /**
+     * @return the maximum total size of results of known size stored by all paused clients, in
+     * bytes
+     * @see ChronosOperationResult#getEstimatedSize()
+     */
+    @Contract(pure = true)
+    public final long getStoredResultsBudgetBytes() {
+        return mStoredResultsBudgetBytes;
+    }
+
+    /**
+     * @return the directory where undelivered results of a client are written when it saves its
+     * state, or {@code null} if they are not written to disk
+     */
+    @Nullable
+    @Contract(pure = true)
+    public final File getResultSpillDirectory() {
+        return mResultSpillDirectory;
+    }
+
+    /**
+     * @return the maximum size of the file with undelivered results of a single client, in bytes
+     */
+    @Contract(pure = true)
+    public final int getResultSpillMaxBytes() {
+        return mResultSpillMaxBytes;
+    }
+
+    /**
+     * @return the directory of the journal of durable operations, or {@code null} if durable
+     * operations are not journaled
+     * @see ChronosOperation#isDurable()
+     */
+    @Nullable
+    @Contract(pure = true)
+    public final File getJournalDirectory() {
+        return mJournalDirectory;
+    }
+
+    /**
+     * @return the directory of the disk cache of operation outputs, or {@code null} if outputs are
+     * cached only in memory
+     * @see ChronosOperation#getResultCodec()
+     */
+    @Nullable
+    @Contract(pure = true)
+    public final File getDiskResultCacheDirectory() {
+        return mDiskResultCacheDirectory;
+    }
+
+    /**
+     * @return the maximum total size of operation outputs cached on disk, in bytes
+     */
+    @Contract(pure = true)
+    public final long getDiskResultCacheSize() {
+        return mDiskResultCacheSize;
+    }
+
+    /**
+     * @return the maximum number of sticky broadcast results kept for clients created later
+     * @see ChronosOperation#isStickyBroadcast()
+     */
+    @Contract(pure = true)
+    public final int getStickyBroadcastCapacity() {
+        return mStickyBroadcastCapacity;
+    }
+
+    /**
+     * A builder of {@link ChronosConfiguration}. By default, the pool has {@code 2 * CPU_COUNT + 1}
+     * threads, an unbounded queue, and background priority threads, which are terminated after
+     * {@code 30} seconds of idling. Operation priority is raised by one level for every {@code 500}
+     * milliseconds spent in the queue. Up to {@code 64} operation outputs of the default size are
+     * cached. Progress of an operation is delivered at most once per {@code 16} milliseconds, which
+     * is a frame at 60 fps. All the results obtained while a client was paused are stored, and are
+     * delivered at once when it is resumed. Stored results of known size take up to an eighth of
+     * the maximum heap size, and are not written to disk. Durable operations are not journaled,
+     * and operation outputs are cached only in memory. Up to {@code 16} sticky broadcast results
+     * are kept.
+     */
+    @SuppressWarnings("unused")
+    public final static class Builder {
+
+        private int mCorePoolSize = CPU_COUNT * 2 + 1;
+
+        private int mMaximumPoolSize = CPU_COUNT * 2 + 1;
+
+        private long mKeepAliveMillis = TimeUnit.SECONDS.toMillis(30);
+
+        private int mQueueCapacity = Integer.MAX_VALUE;
+
+        @NonNull
+        private RejectedExecutionHandler mRejectedExecutionHandler
+                = new ThreadPoolExecutor.AbortPolicy();
+
+        private long mPriorityAgingStepMillis = 500;
+
+        private int mThreadPriority = Process.THREAD_PRIORITY_BACKGROUND;
+
+        @NonNull
+        private String mThreadNamePrefix = "Chronos";
+
+        private int mResultCacheSize = 64;
+
+        private long mProgressIntervalMillis = 16;
+
+        private long mResumeDeliveryBudgetMillis = 0;
+
+        private boolean mStoredResultsConflatedByTag = false;
+
+        private boolean mStoredResultsConflatedByClass = false;
+
+        private long mStoredResultsBudgetBytes = Runtime.getRuntime().maxMemory() / 8;
+
+        @Nullable
+        private File mResultSpillDirectory = null;
+
+        private int mResultSpillMaxBytes = 256 * 1024;
+
+        @Nullable
+        private File mJournalDirectory = null;
+
+        @Nullable
+        private File mDiskResultCacheDirectory = null;
+
+        private long mDiskResultCacheSize = 4 * 1024 * 1024;
+
+        private int mStickyBroadcastCapacity = 16;
+
+        /**
+         * @param corePoolSize the number of threads which are kept in the pool, unless they are
+         *                     idle longer than keep alive time. Threads above this number are
+         *                     created only when the queue is full.
+         * @return the builder
+         */
+        @NonNull
+        public final Builder setCorePoolSize(final int corePoolSize) {
+            mCorePoolSize = corePoolSize;
+            return this;
+        }
+
+        /**
+         * @param maximumPoolSize the maximum number of threads in the pool
+         * @return the builder
+         */
+        @NonNull
+        public final Builder setMaximumPoolSize(final int maximumPoolSize) {
+            mMaximumPoolSize = maximumPoolSize;
+            return this;
+        }
+
+        /**
+         * @param keepAliveTime the time an idle thread waits for a new operation before terminating
+         * @param unit          the time unit of {@code keepAliveTime}
+         * @return the builder
+         */
+        @NonNull
+        public final Builder setKeepAliveTime(final long keepAliveTime,
+                @NonNull final TimeUnit unit) {
+            mKeepAliveMillis = unit.toMillis(keepAliveTime);
+            return this;
+        }
+
+        /**
+         * @param queueCapacity the maximum number of operations waiting for a free thread
+         * @return the builder
+         */
+        @NonNull
+        public final Builder setQueueCapacity(final int queueCapacity) {
+            mQueueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * @param handler the handler of operations which can't be accepted because both the pool
+         *                and the queue are full. If the handler throws {@link
+         *                java.util.concurrent.RejectedExecutionException}, which is the default
+         *                behaviour, or silently discards the operation, the operation is finished
+         *                with that exception as its result. The handler must not remove other
+         *                operations from the queue, so {@link ThreadPoolExecutor.DiscardOldestPolicy}
+         *                is not accepted: the queue is ordered by priority, and its head is the
+         *                operation to be run next rather than the oldest one.
+         * @return the builder
+         * @throws IllegalArgumentException if the handler is {@link
+         *                                  ThreadPoolExecutor.DiscardOldestPolicy}
+         */
+        @NonNull
+        public final Builder setRejectedExecutionHandler(
+                @NonNull final RejectedExecutionHandler handler) {
+            if (handler instanceof ThreadPoolExecutor.DiscardOldestPolicy) {
+                throw new IllegalArgumentException("Queued operations can't be discarded");
+            }
+            mRejectedExecutionHandler = handler;
+            return this;
+        }
+
+        /**
+         * @param agingStep the time an operation should wait in the queue to get its priority
+         *                  raised by one level
+         * @param unit      the time unit of {@code agingStep}
+         * @return the builder
+         * @see ChronosOperation#getPriority()
+         */
+        @NonNull
+        public final Builder setPriorityAgingStep(final long agingStep,
+                @NonNull final TimeUnit unit) {
+            mPriorityAgingStepMillis = unit.toMillis(agingStep);
+            return this;
+        }
+
+        /**
+         * @param threadPriority the Linux priority of pool threads
+         * @return the builder
+         * @see Process#setThreadPriority(int)
+         */
+        @NonNull
+        public final Builder setThreadPriority(final int threadPriority) {
+            mThreadPriority = threadPriority;
+            return this;
+        }
+
+        /**
+         * @param threadNamePrefix the prefix of pool thread names
+         * @return the builder
+         */
+        @NonNull
+        public final Builder setThreadNamePrefix(@NonNull final String threadNamePrefix) {
+            mThreadNamePrefix = threadNamePrefix;
+            return this;
+        }
+
+        /**
+         * @param resultCacheSize the maximum total size of cached operation outputs, the size of
+         *                        an output is {@code 1} unless its operation estimates it in other
+         *                        units, like bytes. {@code 0} disables the cache.
+         * @return the builder
+         * @see ChronosOperation#getCacheKey()
+         * @see ChronosOperation#getCachedSize(Object)
+         */
+        @NonNull
+        public final Builder setResultCacheSize(final int resultCacheSize) {
+            mResultCacheSize = resultCacheSize;
+            return this;
+        }
+
+        /**
+         * @param progressIntervalMillis the minimal time between two progress deliveries of an
+         *                               operation launch, in milliseconds. Only the newest
+         *                               progress published during the interval is delivered.
+         * @return the builder
+         * @see ChronosOperation#publishProgress(Object)
+         */
+        @NonNull
+        public final Builder setProgressIntervalMillis(final long progressIntervalMillis) {
+            mProgressIntervalMillis = progressIntervalMillis;
+            return this;
+        }
+
+        /**
+         * @param resumeDeliveryBudgetMillis the time a client may spend in a single Main Thread
+         *                                   message to receive the results stored while it was
+         *                                   paused, in milliseconds. The rest of them is delivered
+         *                                   in the next messages, so that a long backlog does not
+         *                                   block the Main Thread for several frames. Results
+         *                                   obtained meanwhile are delivered after the backlog, so
+         *                                   they are delayed too. {@code 0} makes all of them
+         *                                   delivered at once.
+         * @return the builder
+         */
+        @NonNull
+        public final Builder setResumeDeliveryBudgetMillis(final long resumeDeliveryBudgetMillis) {
+            mResumeDeliveryBudgetMillis = resumeDeliveryBudgetMillis;
+            return this;
+        }
+
+        /**
+         * @param storedResultsConflatedByTag {@code true} if a paused client should keep only the
+         *                                    newest undelivered result of the launches with the
+         *                                    same tag, so that a screen is bound once to the
+         *                                    latest data on resume, even if a tagged operation
+         *                                    has finished several times while it was paused
+         * @return the builder
+         */
+        @NonNull
+        public final Builder setStoredResultsConflatedByTag(
+                final boolean storedResultsConflatedByTag) {
+            mStoredResultsConflatedByTag = storedResultsConflatedByTag;
+            return this;
+        }
+
+        /**
+         * @param storedResultsConflatedByClass {@code true} if a paused client should keep only
+         *                                      the newest undelivered result of every result
+         *                                      class, separately for own and broadcast results.
+         *                                      It fits clients which need only the latest data
+         *                                      of every kind, whatever launch it came from.
+         * @return the builder
+         */
+        @NonNull
+        public final Builder setStoredResultsConflatedByClass(
+                final boolean storedResultsConflatedByClass) {
+            mStoredResultsConflatedByClass = storedResultsConflatedByClass;
+            return this;
+        }
+
+        /**
+         * @param storedResultsBudgetBytes the maximum total size of results stored by all paused
+         *                                 clients, in bytes. Only the results that estimate their
+         *                                 size are counted. When the budget is exceeded, results
+         *                                 of lower priority operations are evicted first, the
+         *                                 oldest ones first among the same priority.
+         * @return the builder
+         * @see ChronosOperationResult#getEstimatedSize()
+         */
+        @NonNull
+        public final Builder setStoredResultsBudgetBytes(final long storedResultsBudgetBytes) {
+            mStoredResultsBudgetBytes = storedResultsBudgetBytes;
+            return this;
+        }
+
+        /**
+         * @param resultSpillDirectory the directory where undelivered results of a client are
+         *                             written when it saves its state, so that they are
+         *                             delivered to it after the process is killed and the
+         *                             client is restored. Only results with a serializable
+         *                             output are written. The files of clients which are not
+         *                             restored for a week are removed when Chronos is
+         *                             configured. {@code null} disables writing,
+         *                             {@link android.content.Context#getCacheDir()} fits well
+         *                             otherwise.
+         * @return the builder
+         */
+        @NonNull
+        public final Builder setResultSpillDirectory(@Nullable final File resultSpillDirectory) {
+            mResultSpillDirectory = resultSpillDirectory;
+            return this;
+        }
+
+        /**
+         * @param resultSpillMaxBytes the maximum size of the file with undelivered results of a
+         *                            single client, in bytes. The newest results are kept if not
+         *                            all of them fit.
+         * @return the builder
+         */
+        @NonNull
+        public final Builder setResultSpillMaxBytes(final int resultSpillMaxBytes) {
+            mResultSpillMaxBytes = resultSpillMaxBytes;
+            return this;
+        }
+
+        /**
+         * @param journalDirectory the directory of the journal of durable operations. The
+         *                         journal is opened when the configuration is applied, and the
+         *                         durable operations which were not finished by the previous
+         *                         process are launched again, so the configuration should be
+         *                         applied at the application start, like in {@link
+         *                         android.app.Application#onCreate()}. {@code null} disables the
+         *                         journal, {@link android.content.Context#getFilesDir()} fits well
+         *                         otherwise.
+         * @return the builder
+         * @see ChronosOperation#isDurable()
+         */
+        @NonNull
+        public final Builder setJournalDirectory(@Nullable final File journalDirectory) {
+            mJournalDirectory = journalDirectory;
+            return this;
+        }
+
+        /**
+         * @param diskResultCacheDirectory the directory of the disk cache of operation outputs,
+         *                                 which should not be used for anything else. Only the
+         *                                 outputs of operations which provide a codec are cached
+         *                                 on disk. {@code null} disables the disk cache, a
+         *                                 subdirectory of {@link android.content.Context#getCacheDir()}
+         *                                 fits well otherwise.
+         * @return the builder
+         * @see ChronosOperation#getResultCodec()
+         */
+        @NonNull
+        public final Builder setDiskResultCacheDirectory(
+                @Nullable final File diskResultCacheDirectory) {
+            mDiskResultCacheDirectory = diskResultCacheDirectory;
+            return this;
+        }
+
+        /**
+         * @param diskResultCacheSize the maximum total size of operation outputs cached on disk,
+         *                            in bytes. The least recently used outputs are evicted
+         *                            first.
+         * @return the builder
+         */
+        @NonNull
+        public final Builder setDiskResultCacheSize(final long diskResultCacheSize) {
+            mDiskResultCacheSize = diskResultCacheSize;
+            return this;
+        }
+
+        /**
+         * @param stickyBroadcastCapacity the maximum number of sticky broadcast results kept for
+         *                                clients created later. The oldest results are dropped
+         *                                first, {@code 0} disables sticky broadcasts.
+         * @return the builder
+         * @see ChronosOperation#isStickyBroadcast()
+         */
+        @NonNull
+        public final Builder setStickyBroadcastCapacity(final int stickyBroadcastCapacity) {
+            mStickyBroadcastCapacity = stickyBroadcastCapacity;
+            return this;
+        }
+
+        /**
+         * @return a new configuration
+         * @throws IllegalArgumentException if any of parameters is invalid
+         */
+        @NonNull
+        public final ChronosConfiguration build() {
+            if (mCorePoolSize < 0 || mMaximumPoolSize <= 0 || mMaximumPoolSize < mCorePoolSize
+                    || mKeepAliveMillis < 0 || mQueueCapacity <= 0
+                    || mPriorityAgingStepMillis <= 0) {
+                throw new IllegalArgumentException("Invalid thread pool parameters");
+            }
+            if (mResultCacheSize < 0) {
+                throw new IllegalArgumentException("Invalid result cache size");
+            }
+            if (mProgressIntervalMillis < 0) {
+                throw new IllegalArgumentException("Invalid progress interval");
+            }
+            if (mResumeDeliveryBudgetMillis < 0) {
+                throw new IllegalArgumentException("Invalid resume delivery budget");
+            }
+            if (mStoredResultsBudgetBytes < 0) {
+                throw new IllegalArgumentException("Invalid stored results budget");
+            }
+            if (mResultSpillMaxBytes <= 0) {
+                throw new IllegalArgumentException("Invalid result spill size");
+            }
+            if (mDiskResultCacheSize <= 0) {
+                throw new IllegalArgumentException("Invalid disk result cache size");
+            }
+            if (mStickyBroadcastCapacity < 0) {
+                throw new IllegalArgumentException("Invalid sticky broadcast capacity");
+            }
+            return new ChronosConfiguration(this);
+        }
+    }
+}
@@ -4,6 +4,8 @@ import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import java.util.List;
+
 /**
  * Basic interface for providing GUI elements an access to Chronos.
  *
@@ -17,6 +19,8 @@ public final class ChronosConnector {
 
     private Object mGUIClient;
 
+    private boolean mStateSaved;
+
     /**
      * GUI client should call this method in its own onCreate() method.
      *
@@ -26,9 +30,10 @@ public final class ChronosConnector {
     public final void onCreate(@NonNull final Object client,
             @Nullable final Bundle savedInstanceState) {
         mGUIClient = client;
+        mStateSaved = false;
         if (savedInstanceState != null) {
             mChronosListener = ChronosListenerManager.getInstance()
-                    .getListener(savedInstanceState.getInt(KEY_CHRONOS_LISTENER_ID));
+                    .getListener(savedInstanceState.getLong(KEY_CHRONOS_LISTENER_ID));
         } else {
             mChronosListener = ChronosListenerManager.getInstance()
                     .createListener();
@@ -39,6 +44,7 @@ public final class ChronosConnector {
      * GUI client should call this method in its own onResume() method.
      */
     public final void onResume() {
+        mStateSaved = false;
         mChronosListener.onResume(mGUIClient);
     }
 
@@ -49,7 +55,9 @@ public final class ChronosConnector {
      */
     public final void onSaveInstanceState(@Nullable final Bundle outState) {
         if (outState != null) {
-            outState.putInt(KEY_CHRONOS_LISTENER_ID, mChronosListener.getId());
+            outState.putLong(KEY_CHRONOS_LISTENER_ID, mChronosListener.getId());
+            mStateSaved = true;
+            mChronosListener.onSaveInstanceState();
         }
     }
 
@@ -60,6 +68,24 @@ public final class ChronosConnector {
         mChronosListener.onPause();
     }
 
+    /**
+     * GUI client should call this method in its own onDestroy() method. If the client is finishing,
+     * or its state was not saved, it will never be restored, so all its undelivered results are
+     * dropped and the resources bound to it are released. Running operations are not cancelled.
+     *
+     * @param isFinishing {@code true} if the client is being destroyed finally, not for the
+     *                    recreation, like when the configuration is changed; {@code false}
+     *                    otherwise. A fragment should pass {@code true} only if its activity is
+     *                    finishing, as a removed fragment may still be restored from its saved
+     *                    state, like the pages of {@code FragmentStatePagerAdapter}.
+     */
+    public final void onDestroy(final boolean isFinishing) {
+        if (isFinishing || !mStateSaved) {
+            ChronosListenerManager.getInstance().releaseListener(mChronosListener.getId());
+        }
+        mGUIClient = null;
+    }
+
     /**
      * Runs an operation in a background thread. Only one operation with the given tag may run in a
      * single moment of time. The result will be delivered to {@link Chronos#OWN_CALLBACK_METHOD_NAME}
@@ -101,6 +127,46 @@ public final class ChronosConnector {
         return mChronosListener.invoke(operation, broadcast);
     }
 
+    /**
+     * Runs an operation in a background thread in the stale-while-revalidate mode. If the output
+     * of the operation is cached, even if it is no longer fresh, it is delivered to {@link
+     * Chronos#OWN_CALLBACK_METHOD_NAME} method at once. The operation is run anyway, and its result
+     * is delivered to the same method under the same launch id, unless its output equals the
+     * cached one, so the client does not bind the same data twice. The results are told apart by
+     * {@link ChronosOperationResult#isFresh()}. A paused client gets only the fresh result, if
+     * it comes before the client is resumed. If {@code broadcast} is {@code true} all other
+     * Chronos clients will receive the results in {@link Chronos#BROADCAST_CALLBACK_METHOD_NAME}
+     * method.
+     *
+     * @param operation an operation to be run in background
+     * @param broadcast {@code true} if the results should be broadcasted, {@code false} otherwise
+     * @return a unique launch id, which is running until the fresh result is obtained
+     * @see ChronosOperation#getCacheKey()
+     * @see #cancelOperation(int, boolean)
+     */
+    public final int runOperationRevalidating(@NonNull final ChronosOperation<?> operation,
+            final boolean broadcast) {
+        return mChronosListener.invokeRevalidating(operation, broadcast);
+    }
+
+    /**
+     * Runs a batch of operations in background threads. The operations are run in parallel, but
+     * the batch is a single launch with a single id, and its {@link BatchOperationResult} is
+     * delivered to {@link Chronos#OWN_CALLBACK_METHOD_NAME} method once, when all the operations
+     * are finished. It holds the results of the operations in the order they are listed. If {@code
+     * broadcast} is {@code true} all other Chronos clients will receive the result in {@link
+     * Chronos#BROADCAST_CALLBACK_METHOD_NAME} method.
+     *
+     * @param operations operations to be run in background
+     * @param broadcast  {@code true} if the result should be broadcasted, {@code false} otherwise
+     * @return a unique launch id of the batch
+     * @see #cancelOperation(int, boolean)
+     */
+    public final int runOperations(@NonNull final List<? extends ChronosOperation<?>> operations,
+            final boolean broadcast) {
+        return mChronosListener.invokeAll(operations, broadcast);
+    }
+
     /**
      * Cancels a running operation. It is not guaranteed that execution would be interrupted
      * immediately, however, no result would be delivered to the GUI client, or any other Chronos
@@ -0,0 +1,36 @@
+package com.redmadrobot.chronos;
+
+import android.support.annotation.NonNull;
+
+/**
+ * An object that passes operation results to the callback methods of a particular Chronos client
+ * class. Implementations are generated at compile time by chronos-compiler, one per client class,
+ * and are named after the client class with {@link #GENERATED_CLASS_SUFFIX} appended. User code
+ * should never implement this interface manually.
+ *
+ * @author maximefimov
+ * @see Chronos#OWN_CALLBACK_METHOD_NAME
+ * @see Chronos#BROADCAST_CALLBACK_METHOD_NAME
+ */
+public interface ChronosDispatcher {
+
+    /**
+     * A suffix which is appended to the binary name of a client class to get the name of its
+     * generated dispatcher.
+     */
+    @NonNull
+    String GENERATED_CLASS_SUFFIX = "$$ChronosDispatcher";
+
+    /**
+     * Calls every client callback method that is able to receive the result.
+     *
+     * @param listener  a client to pass the result to
+     * @param result    an operation result to be delivered
+     * @param broadcast {@code true} if the result should be passed to {@link
+     *                  Chronos#BROADCAST_CALLBACK_METHOD_NAME} methods, {@code false} if to {@link
+     *                  Chronos#OWN_CALLBACK_METHOD_NAME} ones
+     * @return {@code true} if at least one callback method was called, {@code false} otherwise
+     */
+    boolean dispatch(@NonNull final Object listener, @NonNull final ChronosOperationResult<?> result,
+            final boolean broadcast);
+}
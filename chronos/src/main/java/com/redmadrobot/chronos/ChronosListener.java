@@ -2,23 +2,28 @@ package com.redmadrobot.chronos;
 
 import org.jetbrains.annotations.Contract;
 
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.util.Log;
 
-import java.lang.ref.SoftReference;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
-import de.greenrobot.event.EventBus;
-
 /**
  * The interaction module which passes data and control between GUI elements and Chronos services.
+ * <p/>
+ * Results are delivered in the order they were obtained. While the results stored when the
+ * listener was paused are being delivered, new results are stored behind them even though the
+ * listener is resumed, so with {@link ChronosConfiguration#getResumeDeliveryBudgetMillis()} set
+ * a new result may wait for several Main Thread messages: the order is preserved at the cost of
+ * latency.
  *
  * @author maximefimov
  */
@@ -29,72 +34,102 @@ final class ChronosListener {
     @NonNull
     private final static String LOG_TAG = ChronosListener.class.getSimpleName();
 
-    private final int mId;
+    private final long mId;
 
     @NonNull
     private final Map<String, Integer> mTaggedRequests = new HashMap<>();
 
+    /**
+     * Tags of the operation launches which are not finished yet by their ids, {@code null} for
+     * the launches without a tag.
+     */
+    @NonNull
+    private final IntObjectMap<String> mRequestTags = new IntObjectMap<>();
+
     @NonNull
-    private final List<Integer> mUntaggedRequests = new LinkedList<>();
+    private final Deque<OperationDelivery<?>> mStoredResults = new ArrayDeque<>();
 
+    /**
+     * The newest undelivered progress of the operation launches by their ids.
+     */
     @NonNull
-    private final List<SoftReference<OperationDelivery<?>>> mStoredResults = new LinkedList<>();
+    private final IntObjectMap<Object> mStoredProgress = new IntObjectMap<>();
 
     private State mState = State.PAUSED;
 
     private Object mServiceListener;
 
+    @Nullable
+    private Handler mMainHandler;
+
+    private boolean mIsBacklogScheduled = false;
+
+    /**
+     * {@code true} if the bound GUI element has saved its state and has not been resumed since, so
+     * the stored results are kept on disk too.
+     */
+    private boolean mIsStateSaved = false;
+
+    /**
+     * The number of the newest sticky broadcast result at the moment the listener was created, it
+     * gets the results up to it when it is resumed for the first time.
+     */
+    private final long mStickySequence;
+
+    private boolean mIsResumedOnce = false;
+
+    /**
+     * The number of interim results stored since the stored results were empty last time, so the
+     * stored results are searched for the interim result of a launch only if there may be one.
+     */
+    private int mStoredInterimCount = 0;
+
+    /**
+     * Continues the delivery of stored results in the next Main Thread message.
+     */
+    @NonNull
+    private final Runnable mBacklogDelivery = new Runnable() {
+        @Override
+        public void run() {
+            mIsBacklogScheduled = false;
+            if (mState == State.RESUMED) {
+                deliverStoredResults();
+            }
+        }
+    };
+
     private enum State {
         PAUSED,
         RESUMED
     }
 
-    private enum DeliveryMode {
-        NORMAL,
-        BROADCAST
-    }
-
     /**
      * @param id a unique id that is bound to the instance being created
      * @see ChronosListenerManager#createListener()
-     * @see ChronosListenerManager#getListener(int)
+     * @see ChronosListenerManager#getListener(long)
      */
-    ChronosListener(final int id) {
+    ChronosListener(final long id) {
         mId = id;
-        EventBus.getDefault().register(this);
+        mStickySequence = StickyBroadcastStore.getInstance().getSequence();
+        // the client class is not known yet, so the listener accepts broadcast results until it is
+        ResultRouter.getInstance().subscribeToAllBroadcasts(this);
         logd("ServiceConnector with id=" + id + " was created");
     }
 
     /**
-     * Checks if a method can be used as a callback to handle operation result.
-     *
-     * @param method      a method to be checked
-     * @param resultClass an operation result class
-     * @param methodName  a required method name
-     * @return {@code true} if method can be used as a callback; {@code false} otherwise
+     * @return the id by which the instance can be restored via {@link ChronosListenerManager#getListener(long)}
      */
     @Contract(pure = true)
-    private static boolean isCallback(@NonNull final Method method,
-            @NonNull final Class<?> resultClass,
-            @NonNull final String methodName) {
-        if (method.getName().equals(methodName)) {
-            if (method.getReturnType() == Void.TYPE) {
-                final Class<?>[] parameters = method.getParameterTypes();
-                if (parameters.length == 1 && parameters[0].isAssignableFrom(resultClass)) {
-                    return true;
-                }
-            }
-        }
-
-        return false;
+    public final long getId() {
+        return mId;
     }
 
     /**
-     * @return the id by which the instance can be restored via {@link ChronosListenerManager#getListener(int)}
+     * @return the number of operation launches which are tracked as not finished yet
      */
     @Contract(pure = true)
-    public final int getId() {
-        return mId;
+    final int getRequestCount() {
+        return mRequestTags.size();
     }
 
     /**
@@ -110,24 +145,61 @@ final class ChronosListener {
         logd("onResume");
         mServiceListener = serviceListener;
         mState = State.RESUMED;
+        if (mIsStateSaved) {
+            mIsStateSaved = false;
+            ResultSpillStore.getInstance().delete(mId);
+        }
+        final Class<?>[] broadcastResultClasses = DispatcherRegistry.getInstance()
+                .getBroadcastResultClasses(serviceListener.getClass());
+        ResultRouter.getInstance().subscribeToBroadcasts(this, broadcastResultClasses,
+                serviceListener instanceof BroadcastTopicSubscriber
+                        ? ((BroadcastTopicSubscriber) serviceListener).getBroadcastTopics() : null);
+        if (!mIsResumedOnce) {
+            mIsResumedOnce = true;
+            if (broadcastResultClasses.length > 0) {
+                storeStickyResults();
+            }
+        }
 
-        if (!mStoredResults.isEmpty()) {
-            logd("has undelivered results");
-            final List<SoftReference<OperationDelivery<?>>> oldResults = new ArrayList<>(
-                    mStoredResults);
-            mStoredResults.clear();
-            for (SoftReference<OperationDelivery<?>> result : oldResults) {
-                final OperationDelivery<?> delivery = result.get();
-                if (delivery != null) {
-                    deliverResult(delivery);
+        if (!mStoredProgress.isEmpty()) {
+            logd("has undelivered progress");
+            final int[] ids = mStoredProgress.keys();
+            for (final int id : ids) {
+                final Object progress = mStoredProgress.remove(id);
+                if (progress != null) {
+                    deliverProgress(progress);
                 }
             }
-            logd("no more undelivered results");
+        }
+
+        if (!mStoredResults.isEmpty()) {
+            logd("has undelivered results");
+            deliverStoredResults();
         } else {
             logd("has no undelivered results");
         }
     }
 
+    /**
+     * Puts the sticky broadcast results posted before the listener was created ahead of the stored
+     * results, as they are older than any of them.
+     */
+    private void storeStickyResults() {
+        final List<ChronosOperationResult<?>> results = StickyBroadcastStore.getInstance()
+                .getResults(mStickySequence);
+        logd("has " + results.size() + " sticky results");
+        for (int i = results.size() - 1; i >= 0; i--) {
+            final ChronosOperationResult<?> result = results.get(i);
+            if (!ResultRouter.getInstance().isSubscribed(this, result)) {
+                continue;
+            }
+            final OperationDelivery<?> delivery = new OperationDelivery<>(result,
+                    OperationDelivery.DeliveryMode.BROADCAST, null);
+            mStoredResults.addFirst(delivery);
+            StoredResultRetention.getInstance().retain(delivery);
+        }
+    }
+
     /**
      * This method must be called by a bound GUI element when it passes its own onPause state.
      *
@@ -140,42 +212,166 @@ final class ChronosListener {
     }
 
     /**
-     * This method is used to listening to results stream and operate with them. User should never
-     * call this method manually.
+     * This method must be called by a bound GUI element when it saves its state. From now on, and
+     * until the element is resumed, the undelivered results are also written to disk, if it is
+     * enabled, so that they survive the death of the process.
      *
-     * @param operationResult the result to process
+     * @see ChronosConfiguration#getResultSpillDirectory()
      */
-    @SuppressWarnings("unused")
-    public final void onEventMainThread(@Nullable final ChronosOperationResult<?> operationResult) {
-        if (operationResult == null) {
-            //somehow the bus delivered us a null object, it should be ignored
-            return;
+    final void onSaveInstanceState() {
+        logd("onSaveInstanceState");
+        mIsStateSaved = true;
+        ResultSpillStore.getInstance().save(mId, mStoredResults);
+    }
+
+    /**
+     * Puts the results which were written to disk by the listener with the same id in the previous
+     * process ahead of the stored results, as they are older than any of them, and delivers them if
+     * the listener is resumed already.
+     *
+     * @param deliveries the restored results in the order they were obtained
+     * @see ChronosListenerManager#getListener(long)
+     */
+    final void onSpilledResultsRestored(@NonNull final List<OperationDelivery<?>> deliveries) {
+        logd("restored " + deliveries.size() + " results");
+        for (int i = deliveries.size() - 1; i >= 0; i--) {
+            final OperationDelivery<?> delivery = deliveries.get(i);
+            mStoredResults.addFirst(delivery);
+            StoredResultRetention.getInstance().retain(delivery);
         }
-        final int operationId = operationResult.getId();
-
-        DeliveryMode deliveryMode = null;
-
-        if (!RunningOperationStorage.getInstance().isOperationCancelled(operationId)) {
-            if (mTaggedRequests.containsValue(operationId)) {
-                deliveryMode = DeliveryMode.NORMAL;
-            } else if (mUntaggedRequests.contains(operationResult.getId())) {
-                mUntaggedRequests.remove(Integer.valueOf(operationId));
-                deliveryMode = DeliveryMode.NORMAL;
-            } else if (operationResult.isBroadcast()) {
-                deliveryMode = DeliveryMode.BROADCAST;
-            }
+        if (mIsStateSaved) {
+            ResultSpillStore.getInstance().save(mId, mStoredResults);
         }
+        if (mState == State.RESUMED) {
+            deliverStoredResults();
+        }
+    }
+
+    /**
+     * This method must be called when a bound GUI element is destroyed and will never be restored.
+     * Running operations are not cancelled, but their results are dropped.
+     *
+     * @see ChronosListenerManager#releaseListener(long)
+     */
+    final void onRelease() {
+        logd("onRelease");
+        mState = State.PAUSED;
+        mServiceListener = null;
+        if (mIsStateSaved) {
+            mIsStateSaved = false;
+            ResultSpillStore.getInstance().delete(mId);
+        }
+        for (final OperationDelivery<?> delivery : mStoredResults) {
+            StoredResultRetention.getInstance().release(delivery);
+        }
+        mStoredResults.clear();
+        mStoredProgress.clear();
+        mTaggedRequests.clear();
+        mRequestTags.clear();
+        ResultRouter.getInstance().unregisterListener(this);
+    }
 
-        if (deliveryMode != null) {
-            final OperationDelivery<?> operationDelivery = new OperationDelivery<>(operationResult,
-                    deliveryMode);
-            logd("operation delivery: " + operationDelivery);
-            onOperationFinished(operationDelivery);
+    /**
+     * Handles a result of the operation that was launched by this listener.
+     *
+     * @param operationResult the result to process
+     * @see ResultRouter
+     */
+    final void onOwnResult(@NonNull final ChronosOperationResult<?> operationResult) {
+        final String tag = removeRequest(operationResult.getId());
+        final OperationDelivery<?> operationDelivery = new OperationDelivery<>(operationResult,
+                OperationDelivery.DeliveryMode.NORMAL, tag);
+        logd("operation delivery: " + operationDelivery);
+        onOperationFinished(operationDelivery);
+    }
+
+    /**
+     * Handles a cached output of the revalidating operation that was launched by this listener.
+     * The launch is still tracked until its final result.
+     *
+     * @param operationResult the result to process
+     * @see ChronosService#runRevalidatingAsync(ChronosOperation, boolean, ChronosListener)
+     */
+    final void onOwnInterimResult(@NonNull final ChronosOperationResult<?> operationResult) {
+        final OperationDelivery<?> operationDelivery = new OperationDelivery<>(operationResult,
+                OperationDelivery.DeliveryMode.NORMAL, mRequestTags.get(operationResult.getId()),
+                true);
+        logd("interim operation delivery: " + operationDelivery);
+        onOperationFinished(operationDelivery);
+    }
+
+    /**
+     * Handles the end of the revalidating operation that was launched by this listener, which
+     * output is the same as the cached one it has already delivered.
+     *
+     * @param id the unique id of operations' launch
+     * @see ResultRouter
+     */
+    final void onOwnResultUnchanged(final int id) {
+        removeRequest(id);
+    }
+
+    /**
+     * Handles an intermediate value of the operation that was launched by this listener. While the
+     * listener is paused, only the newest value of every launch is kept.
+     *
+     * @param id       the unique id of operations' launch
+     * @param progress the progress to process
+     * @see ResultRouter#publishProgress(int, Object)
+     */
+    final void onOwnProgress(final int id, @NonNull final Object progress) {
+        switch (mState) {
+            case PAUSED:
+                mStoredProgress.put(id, progress);
+                break;
+            case RESUMED:
+                deliverProgress(progress);
+                break;
+            default:
+                throw new IllegalStateException("Unknown state: " + mState);
         }
     }
 
     /**
-     * Launches an operation in background thread.
+     * Handles a cancellation of the operation that was launched by this listener.
+     *
+     * @param id the unique id of operations' launch
+     * @see ResultRouter
+     */
+    final void onOwnOperationCancelled(final int id) {
+        removeRequest(id);
+    }
+
+    /**
+     * Handles a broadcast result of the operation that was launched by some other listener.
+     *
+     * @param operationResult the result to process
+     * @see ResultRouter
+     */
+    final void onBroadcastResult(@NonNull final ChronosOperationResult<?> operationResult) {
+        final OperationDelivery<?> operationDelivery = new OperationDelivery<>(operationResult,
+                OperationDelivery.DeliveryMode.BROADCAST, null);
+        logd("operation delivery: " + operationDelivery);
+        onOperationFinished(operationDelivery);
+    }
+
+    /**
+     * Handles a cached output of the revalidating operation that was launched by some other
+     * listener, which broadcasts its results.
+     *
+     * @param operationResult the result to process
+     * @see ResultRouter
+     */
+    final void onBroadcastInterimResult(@NonNull final ChronosOperationResult<?> operationResult) {
+        final OperationDelivery<?> operationDelivery = new OperationDelivery<>(operationResult,
+                OperationDelivery.DeliveryMode.BROADCAST, null, true);
+        logd("interim operation delivery: " + operationDelivery);
+        onOperationFinished(operationDelivery);
+    }
+
+    /**
+     * Launches an operation in background thread. A durable operation is written to the journal in
+     * the calling thread, see {@link ChronosOperation#isDurable()}.
      *
      * @param operation       an operation to be launched
      * @param broadcastResult {@code true} if the result should be broadcasted, {@code false}
@@ -187,14 +383,17 @@ final class ChronosListener {
     public final int invoke(@NonNull final ChronosOperation<?> operation,
             final boolean broadcastResult) {
         logd("invoking untagged operation");
-        final int id = ChronosService.getInstance().runAsync(operation, broadcastResult);
-        mUntaggedRequests.add(id);
+        final int id = ChronosService.getInstance().runAsync(operation, broadcastResult,
+                this);
+        mRequestTags.put(id, null);
         return id;
     }
 
     /**
      * Launches an operation in background thread. If operation, launched with the same tag from the
-     * same ServiceConnector is running, new operation launch will not be triggered.
+     * same ServiceConnector is running, new operation launch will not be triggered. A durable
+     * operation is written to the journal in the calling thread, see {@link
+     * ChronosOperation#isDurable()}.
      *
      * @param operation       an operation to be launched
      * @param tag             a pre-cache key of the launch
@@ -216,8 +415,52 @@ final class ChronosListener {
         }
 
         logd("operation with tag=" + tag + " is not running, start it");
-        final int id = ChronosService.getInstance().runAsync(operation, broadcastResult);
+        final int id = ChronosService.getInstance().runAsync(operation, broadcastResult,
+                this);
         mTaggedRequests.put(tag, id);
+        mRequestTags.put(id, tag);
+        return id;
+    }
+
+    /**
+     * Launches an operation in background thread in the stale-while-revalidate mode. The cached
+     * output of the operation, if there is one, is delivered at once, and the fresh one is
+     * delivered when the operation is finished, unless it is the same. If the cached output is
+     * still stored when the fresh one comes, because the listener is paused, it is dropped.
+     *
+     * @param operation       an operation to be launched
+     * @param broadcastResult {@code true} if the results should be broadcasted, {@code false}
+     *                        otherwise
+     * @return a unique launch id
+     * @see #cancel(int, boolean)
+     * @see ChronosOperationResult#isFresh()
+     */
+    public final int invokeRevalidating(@NonNull final ChronosOperation<?> operation,
+            final boolean broadcastResult) {
+        logd("invoking revalidating operation");
+        final int id = ChronosService.getInstance().runRevalidatingAsync(operation,
+                broadcastResult, this);
+        mRequestTags.put(id, null);
+        return id;
+    }
+
+    /**
+     * Launches a batch of operations in background threads. The batch is tracked as a single
+     * launch, and its result is delivered once, when all the operations are finished.
+     *
+     * @param operations      operations to be launched
+     * @param broadcastResult {@code true} if the result should be broadcasted, {@code false}
+     *                        otherwise
+     * @return a unique launch id of the batch
+     * @see #cancel(int, boolean)
+     * @see BatchOperationResult
+     */
+    public final int invokeAll(@NonNull final List<? extends ChronosOperation<?>> operations,
+            final boolean broadcastResult) {
+        logd("invoking batch of " + operations.size() + " operations");
+        final int id = ChronosService.getInstance().runBatchAsync(operations, broadcastResult,
+                this);
+        mRequestTags.put(id, null);
         return id;
     }
 
@@ -236,8 +479,8 @@ final class ChronosListener {
      * @see Chronos#cancelAll(boolean)
      */
     public final boolean cancel(final int id, final boolean mayInterrupt) {
-        //noinspection SimplifiableIfStatement
-        if (mUntaggedRequests.contains(id) || mTaggedRequests.containsValue(id)) {
+        if (mRequestTags.containsKey(id)) {
+            removeRequest(id);
             return RunningOperationStorage.getInstance().cancel(id, mayInterrupt);
         } else {
             return false;
@@ -303,6 +546,27 @@ final class ChronosListener {
         return "ServiceConnector[id=" + getId() + "]";
     }
 
+    /**
+     * Stops tracking of a finished or cancelled operation launch.
+     *
+     * @param id the unique id of operations' launch
+     * @return the tag of the launch, or {@code null} if it was launched without a tag
+     */
+    @Nullable
+    private String removeRequest(final int id) {
+        // the progress is outdated once the launch is over
+        mStoredProgress.remove(id);
+        final String tag = mRequestTags.remove(id);
+        if (tag != null) {
+            final Integer taggedId = mTaggedRequests.get(tag);
+            // the tag may be already bound to a newer launch
+            if (taggedId != null && taggedId == id) {
+                mTaggedRequests.remove(tag);
+            }
+        }
+        return tag;
+    }
+
     /**
      * A dispatcher method which decides what to do with an operation result.
      *
@@ -315,7 +579,12 @@ final class ChronosListener {
                 storeResult(operationResult);
                 break;
             case RESUMED:
-                deliverResult(operationResult);
+                if (mStoredResults.isEmpty()) {
+                    deliverResult(operationResult);
+                } else {
+                    // the backlog is being delivered, the result must not overtake it
+                    storeResult(operationResult);
+                }
                 break;
             default:
                 throw new IllegalStateException("Unknown state: " + mState);
@@ -323,14 +592,83 @@ final class ChronosListener {
     }
 
     /**
-     * Storing an operation result to use it later.
+     * Delivers the results stored while the listener was paused, in the order they were obtained.
+     * If the delivery takes longer than {@link ChronosConfiguration#getResumeDeliveryBudgetMillis()},
+     * the rest of the results is delivered in the next Main Thread message, so that other messages,
+     * like frame drawing, are not delayed by the whole backlog.
+     */
+    private void deliverStoredResults() {
+        final long budgetMillis = ChronosService.getInstance().getConfiguration()
+                .getResumeDeliveryBudgetMillis();
+        final long deadline = SystemClock.uptimeMillis() + budgetMillis;
+        while (mState == State.RESUMED && !mStoredResults.isEmpty()) {
+            if (budgetMillis > 0 && SystemClock.uptimeMillis() >= deadline) {
+                logd("delivery budget is exceeded, " + mStoredResults.size() + " results left");
+                scheduleStoredResults();
+                return;
+            }
+            final OperationDelivery<?> delivery = mStoredResults.pollFirst();
+            StoredResultRetention.getInstance().release(delivery);
+            deliverResult(delivery);
+        }
+        logd("no more undelivered results");
+    }
+
+    /**
+     * Schedules the delivery of the rest of the stored results to the next Main Thread message.
+     */
+    private void scheduleStoredResults() {
+        if (mIsBacklogScheduled) {
+            return;
+        }
+        if (mMainHandler == null) {
+            mMainHandler = new Handler(Looper.getMainLooper());
+        }
+        mIsBacklogScheduled = true;
+        mMainHandler.post(mBacklogDelivery);
+    }
+
+    /**
+     * Storing an operation result to use it later. The stored interim result of the same launch is
+     * dropped, as well as the results conflated with the new one, if conflation is enabled.
+     * Results of a known size are counted in the memory budget of stored results, and may be
+     * evicted by it. If the state of the bound GUI element is saved, the stored results are
+     * rewritten to disk.
      *
      * @param operationDelivery an operation result to be stored
      * @see #deliverResult(OperationDelivery)
      */
     private void storeResult(@NonNull final OperationDelivery<?> operationDelivery) {
         logd("store delivery " + operationDelivery);
-        mStoredResults.add(new SoftReference<OperationDelivery<?>>(operationDelivery));
+        final ChronosConfiguration configuration = ChronosService.getInstance().getConfiguration();
+        final boolean conflateByTag = configuration.areStoredResultsConflatedByTag()
+                && operationDelivery.getTag() != null;
+        final boolean conflateByClass = configuration.areStoredResultsConflatedByClass();
+        if (mStoredResults.isEmpty()) {
+            mStoredInterimCount = 0;
+        }
+        final boolean hasStoredInterim = mStoredInterimCount > 0;
+        if (hasStoredInterim || conflateByTag || conflateByClass) {
+            final Iterator<OperationDelivery<?>> iterator = mStoredResults.iterator();
+            while (iterator.hasNext()) {
+                final OperationDelivery<?> storedDelivery = iterator.next();
+                if (hasStoredInterim && operationDelivery.supersedes(storedDelivery)
+                        || conflateByTag && operationDelivery.hasSameTag(storedDelivery)
+                        || conflateByClass && operationDelivery.hasSameClass(storedDelivery)) {
+                    logd("drop outdated delivery " + storedDelivery);
+                    iterator.remove();
+                    StoredResultRetention.getInstance().release(storedDelivery);
+                }
+            }
+        }
+        if (operationDelivery.isInterim()) {
+            mStoredInterimCount++;
+        }
+        mStoredResults.add(operationDelivery);
+        StoredResultRetention.getInstance().retain(operationDelivery);
+        if (mIsStateSaved) {
+            ResultSpillStore.getInstance().save(mId, mStoredResults);
+        }
     }
 
     /**
@@ -344,49 +682,44 @@ final class ChronosListener {
         logd("deliver delivery " + operationDelivery);
         switch (operationDelivery.getDeliveryMode()) {
             case NORMAL:
-                deliverResult(operationDelivery.getResult(), Chronos.OWN_CALLBACK_METHOD_NAME,
-                        true);
+                deliverResult(operationDelivery.getResult(), false, true);
                 break;
             case BROADCAST:
-                deliverResult(operationDelivery.getResult(), Chronos.BROADCAST_CALLBACK_METHOD_NAME,
-                        false);
+                deliverResult(operationDelivery.getResult(), true, false);
                 break;
             default:
                 break;
         }
     }
 
+    /**
+     * Calls bound client methods to pass an operation progress.
+     *
+     * @param progress a progress value to be delivered
+     */
+    private void deliverProgress(@NonNull final Object progress) {
+        logd("deliver progress " + progress);
+        DispatcherRegistry.getInstance().dispatchProgress(mServiceListener, progress);
+    }
+
     /**
      * Call bound client methods to pass an operation result.
      *
      * @param operationResult  an operation result to be delivered
-     * @param methodName       a name of a method that will be called
+     * @param broadcast        {@code true} if the result should be passed to broadcast callbacks,
+     *                         {@code false} otherwise
      * @param warnIfNoCallback {@code true} if a warning message should be posted to LogCat if there
      *                         is no suitable method in the bound client; {@code false} otherwise
      */
-    @SuppressWarnings("TryWithIdenticalCatches")
     private void deliverResult(@NonNull final ChronosOperationResult<?> operationResult,
-            @NonNull final String methodName, final boolean warnIfNoCallback) {
-        final Class listenerClass = mServiceListener.getClass();
-        final Method[] listenerMethods = listenerClass.getMethods();
-
-        Method callbackMethod = null;
-
-        final Class resultClass = operationResult.getClass();
-        for (Method method : listenerMethods) {
-            if (isCallback(method, resultClass, methodName)) {
-                callbackMethod = method;
-                try {
-                    callbackMethod.invoke(mServiceListener, operationResult);
-                } catch (IllegalAccessException e) {
-                    Log.w(LOG_TAG, Log.getStackTraceString(e));
-                } catch (InvocationTargetException e) {
-                    Log.w(LOG_TAG, Log.getStackTraceString(e));
-                }
-            }
-        }
-
-        if (warnIfNoCallback && callbackMethod == null) {
+            final boolean broadcast, final boolean warnIfNoCallback) {
+        final ChronosDispatcher dispatcher = DispatcherRegistry.getInstance()
+                .getDispatcher(mServiceListener.getClass());
+        final boolean delivered = dispatcher.dispatch(mServiceListener, operationResult, broadcast);
+
+        if (warnIfNoCallback && !delivered) {
+            final String methodName = broadcast ? Chronos.BROADCAST_CALLBACK_METHOD_NAME
+                    : Chronos.OWN_CALLBACK_METHOD_NAME;
             Log.w(LOG_TAG,
                     "Operation result (id=" + operationResult.getId() + "; class=" + operationResult
                             .getClass().getName() + ") was obtained, but there is no method in "
@@ -394,7 +727,7 @@ final class ChronosListener {
             );
             Log.w(LOG_TAG, "Method should look like");
             Log.w(LOG_TAG,
-                    "public void " + methodName + "(" + resultClass.getName()
+                    "public void " + methodName + "(" + operationResult.getClass().getName()
                             + " result) {}"
             );
         }
@@ -411,31 +744,4 @@ final class ChronosListener {
             Log.d(LOG_TAG, this.toString() + " " + message);
         }
     }
-
-    private final static class OperationDelivery<T> {
-
-        @NonNull
-        private final ChronosOperationResult<T> mResult;
-
-        @NonNull
-        private final DeliveryMode mDeliveryMode;
-
-        private OperationDelivery(@NonNull final ChronosOperationResult<T> result,
-                @NonNull final DeliveryMode deliveryMode) {
-            mResult = result;
-            mDeliveryMode = deliveryMode;
-        }
-
-        @NonNull
-        @Contract(pure = true)
-        public final ChronosOperationResult<T> getResult() {
-            return mResult;
-        }
-
-        @NonNull
-        @Contract(pure = true)
-        public final DeliveryMode getDeliveryMode() {
-            return mDeliveryMode;
-        }
-    }
 }
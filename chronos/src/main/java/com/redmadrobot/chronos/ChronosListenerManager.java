@@ -5,12 +5,15 @@ import org.jetbrains.annotations.Contract;
 import android.support.annotation.NonNull;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A controller which handles saving\restoration processes of GUI objects, and help them to connect
- * to Chronos.
+ * to Chronos. The ids of ServiceConnectors start from a random number in every process, so that an
+ * id restored from the state saved by the previous process is never given to a new ServiceConnector.
  *
  * @author maximefimov
  */
@@ -18,9 +21,9 @@ final class ChronosListenerManager {
 
     private final static ChronosListenerManager INSTANCE = new ChronosListenerManager();
 
-    private final AtomicInteger mNextConnectorId = new AtomicInteger(0);
+    private final AtomicLong mNextConnectorId = new AtomicLong(new Random().nextLong());
 
-    private final Map<Integer, ChronosListener> mListeners;
+    private final Map<Long, ChronosListener> mListeners;
 
     private ChronosListenerManager() {
         mListeners = new HashMap<>();
@@ -34,13 +37,13 @@ final class ChronosListenerManager {
 
     /**
      * Creates a new ServiceConnector instance. Do not call this method twice for a same object,
-     * instead use {@link #getListener(int)} method.
+     * instead use {@link #getListener(long)} method.
      *
      * @return a created ServiceConnector
      */
     @NonNull
     public final synchronized ChronosListener createListener() {
-        final int connectorId = mNextConnectorId.getAndIncrement();
+        final long connectorId = mNextConnectorId.getAndIncrement();
         final ChronosListener result = new ChronosListener(connectorId);
 
         mListeners.put(connectorId, result);
@@ -53,17 +56,62 @@ final class ChronosListenerManager {
      *
      * @param id an id of the saved ServiceConnector
      * @return a restored ServiceConnector, or a new one, if there is no saved instance with a given
-     * id
+     * id. A new one gets the results which were written to disk by the ServiceConnector with the
+     * same id before the process was killed, they are read in background and may come after it is
+     * resumed.
      * @see {@link ChronosListener#getId()}
      * @see #createListener()
      */
     @NonNull
-    public final synchronized ChronosListener getListener(final int id) {
+    public final synchronized ChronosListener getListener(final long id) {
         ChronosListener chronosListener = mListeners.get(id);
         if (chronosListener == null) {
-            chronosListener = new ChronosListener(id);
-            mListeners.put(id, chronosListener);
+            final ChronosListener restoredListener = new ChronosListener(id);
+            chronosListener = restoredListener;
+            mListeners.put(id, restoredListener);
+            ResultSpillStore.getInstance().restore(id, new ResultSpillStore.RestoreCallback() {
+                @Override
+                public void onRestored(@NonNull final List<OperationDelivery<?>> deliveries) {
+                    onSpilledResultsRestored(restoredListener, deliveries);
+                }
+            });
         }
         return chronosListener;
     }
+
+    /**
+     * Passes the restored results to a ServiceConnector, unless it is released already.
+     *
+     * @param chronosListener a ServiceConnector the results were written by
+     * @param deliveries      the restored results
+     */
+    private synchronized void onSpilledResultsRestored(
+            @NonNull final ChronosListener chronosListener,
+            @NonNull final List<OperationDelivery<?>> deliveries) {
+        if (mListeners.get(chronosListener.getId()) == chronosListener) {
+            chronosListener.onSpilledResultsRestored(deliveries);
+        }
+    }
+
+    /**
+     * Removes previously created ServiceConnector, so that it could be garbage collected. Must be
+     * called only when the GUI object bound to the ServiceConnector will never be restored.
+     *
+     * @param id an id of the ServiceConnector
+     * @see #getListener(long)
+     */
+    public final synchronized void releaseListener(final long id) {
+        final ChronosListener chronosListener = mListeners.remove(id);
+        if (chronosListener != null) {
+            chronosListener.onRelease();
+        }
+    }
+
+    /**
+     * @return the number of ServiceConnectors which are not released yet
+     */
+    @Contract(pure = true)
+    final synchronized int getListenerCount() {
+        return mListeners.size();
+    }
 }
@@ -6,6 +6,8 @@ import org.jetbrains.annotations.Contract;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -21,9 +23,28 @@ import java.util.concurrent.atomic.AtomicBoolean;
  */
 public abstract class ChronosOperation<Output> {
 
+    /**
+     * A priority of work that the user does not wait for, such as prefetching.
+     */
+    public final static int PRIORITY_LOW = 0;
+
+    /**
+     * The default priority of operations.
+     */
+    public final static int PRIORITY_NORMAL = 1;
+
+    /**
+     * A priority of work that is required to render the visible screen.
+     */
+    public final static int PRIORITY_HIGH = 2;
 
     private final AtomicBoolean mIsCancelled = new AtomicBoolean(false);
 
+    private volatile int mLaunchId = 0;
+
+    @Nullable
+    private volatile InFlightOperation mSharedRun;
+
     /**
      * The method for performing business-logic related work. Can contain time-consuming calls, but
      * should not perform any interaction with the UI, as it will be launched not in the Main
@@ -47,6 +68,198 @@ public abstract class ChronosOperation<Output> {
     @Contract(pure = true)
     public abstract Class<? extends ChronosOperationResult<Output>> getResultClass();
 
+    /**
+     * Creates an empty result object which is filled when the operation is complete. By default an
+     * instance of {@link #getResultClass()} is created via its constructor without arguments, found
+     * once by reflection. Override the method to create results without reflection at all.
+     *
+     * @return a new instance of {@link #getResultClass()}
+     */
+    @NonNull
+    public ChronosOperationResult<Output> createResult() {
+        return ResultConstructorCache.getInstance().newInstance(getResultClass());
+    }
+
+    /**
+     * Returns a key under which the output of the operation is cached. While the cached output is
+     * fresh, launches of operations with the same key are not run, but are finished with that
+     * output instead. So operations with equal keys must produce equal outputs, which is true for
+     * idempotent reads, like loading of a profile or a catalog page. Only successful outputs are
+     * cached.
+     *
+     * @return the cache key, or {@code null}, which is the default, if the output should not be
+     * cached
+     * @see #getCacheMaxAgeMillis()
+     * @see Chronos#invalidateCachedResult(String)
+     * @see ChronosConfiguration.Builder#setResultCacheSize(int)
+     */
+    @Nullable
+    @Contract(pure = true)
+    public String getCacheKey() {
+        return null;
+    }
+
+    /**
+     * Returns a key by which identical launches are coalesced. While an operation is running, any
+     * launch of an operation with the same key and the same {@link #getResultClass()}, made by any
+     * Chronos client, is not run, but joins the running one and gets a copy of its output under
+     * its own launch id. A cancelled launch just leaves the shared run, which is cancelled only
+     * when no launches are left in it. Synchronous launches are never coalesced.
+     *
+     * @return the deduplication key, by default the same as {@link #getCacheKey()}, as cached
+     * operations are supposed to be idempotent; or {@code null} if identical launches should run
+     * separately
+     */
+    @Nullable
+    @Contract(pure = true)
+    public String getDeduplicationKey() {
+        return getCacheKey();
+    }
+
+    /**
+     * Returns the time the cached output of the operation stays fresh.
+     *
+     * @return the time in milliseconds, {@link Long#MAX_VALUE} by default, so the output stays in
+     * the cache until it is evicted or invalidated
+     * @see #getCacheKey()
+     */
+    @Contract(pure = true)
+    public long getCacheMaxAgeMillis() {
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Estimates the size of the output in the cache.
+     *
+     * @param output the output to be cached
+     * @return the size of the output in the units of {@link ChronosConfiguration#getResultCacheSize()},
+     * {@code 1} by default
+     * @see #getCacheKey()
+     */
+    @Contract(pure = true)
+    public int getCachedSize(@Nullable final Output output) {
+        return 1;
+    }
+
+    /**
+     * Returns the tags of the data the output depends on, like the names of the entities the
+     * operation reads. The cached output is removed both from memory and from disk when any of the
+     * tags is invalidated, and the output of a launch which was running at that time is not cached
+     * at all, as it may have been read before the data were changed.
+     *
+     * @return the tags, empty by default. They are used only if {@link #getCacheKey()} is not
+     * {@code null}.
+     * @see #getInvalidatedTags()
+     * @see Chronos#invalidateCachedResults(String...)
+     */
+    @NonNull
+    @Contract(pure = true)
+    public Collection<String> getCacheTags() {
+        return Collections.emptySet();
+    }
+
+    /**
+     * Returns the tags of the data the operation changes, like the names of the entities it
+     * writes. When the operation finishes successfully, the tags are invalidated, so the cached
+     * outputs of operations which depend on any of them are removed, and a running launch of such
+     * an operation does not cache its output.
+     *
+     * @return the tags, empty by default
+     * @see #getCacheTags()
+     */
+    @NonNull
+    @Contract(pure = true)
+    public Collection<String> getInvalidatedTags() {
+        return Collections.emptySet();
+    }
+
+    /**
+     * Returns a codec of the output, which allows the output to be cached on disk, so that it
+     * outlives the process. A launch which misses the memory cache looks for the output on disk in
+     * a background thread before running the operation. The output stays fresh on disk for {@link
+     * #getCacheMaxAgeMillis()} too, counted in wall-clock time.
+     *
+     * @return the codec, or {@code null}, which is the default, if the output should be cached
+     * only in memory. It is used only if {@link #getCacheKey()} is not {@code null}.
+     * @see ChronosConfiguration.Builder#setDiskResultCacheDirectory(java.io.File)
+     */
+    @Nullable
+    @Contract(pure = true)
+    public ResultCodec<Output> getResultCodec() {
+        return null;
+    }
+
+    /**
+     * Returns the priority of the operation. Operations of higher priority are taken from the queue
+     * first, however, an operation of lower priority is not delayed forever, as the time it spends
+     * in the queue raises its priority. A running operation is never interrupted in favor of
+     * another one.
+     *
+     * @return the priority of the operation, {@link #PRIORITY_NORMAL} by default
+     * @see #PRIORITY_LOW
+     * @see #PRIORITY_HIGH
+     * @see ChronosConfiguration.Builder#setPriorityAgingStep(long, java.util.concurrent.TimeUnit)
+     */
+    @Contract(pure = true)
+    public int getPriority() {
+        return PRIORITY_NORMAL;
+    }
+
+    /**
+     * Checks if the operation must be finished even if the process dies while it is running, like
+     * an upload or a sync. If the operation journal is enabled, a durable operation is written to
+     * it when it is launched, and if the process dies before the operation is finished, it is
+     * launched again when the journal is opened in the next process, without an owner, so only
+     * its broadcast result is delivered. A durable operation may be run more than once, so it
+     * should be idempotent. Only single asynchronous launches are journaled.
+     * <p/>
+     * The entry is written in the thread which launches the operation, usually the Main Thread, so
+     * that the launch is durable as soon as it is submitted. It costs the serialization of the
+     * operation and a single write system call without a sync, but the write may also wait for a
+     * compaction of the journal, which syncs the file, done by a finishing durable operation.
+     *
+     * @return {@code true} if the operation is durable, {@code false}, which is the default,
+     * otherwise. A durable operation must be {@link java.io.Serializable}, and must not take more
+     * than 1 MB serialized, or its launch is rejected; the state of this class is not serialized.
+     * @see ChronosConfiguration.Builder#setJournalDirectory(java.io.File)
+     */
+    @Contract(pure = true)
+    public boolean isDurable() {
+        return false;
+    }
+
+    /**
+     * Returns a topic of the broadcast results of the operation, like the name of the entity it
+     * loads. Results of operations of different classes may share a topic. A broadcast result with
+     * a topic is passed only to the clients which consume the topic.
+     *
+     * @return the topic, or {@code null}, which is the default, if the results are told apart by
+     * their classes only
+     * @see #isStickyBroadcast()
+     * @see BroadcastTopicSubscriber
+     */
+    @Nullable
+    @Contract(pure = true)
+    public String getBroadcastTopic() {
+        return null;
+    }
+
+    /**
+     * Checks if the latest successful broadcast result of the operation should be kept, so that
+     * Chronos clients created later receive it in {@link Chronos#BROADCAST_CALLBACK_METHOD_NAME}
+     * method when they are resumed for the first time, rather than running the same operation
+     * again. A single result is kept per {@link #getBroadcastTopic()}, or per result class if there
+     * is no topic.
+     *
+     * @return {@code true} if the broadcast result is sticky, {@code false} by default
+     * @see Chronos#clearStickyBroadcasts()
+     * @see ChronosConfiguration.Builder#setStickyBroadcastCapacity(int)
+     */
+    @Contract(pure = true)
+    public boolean isStickyBroadcast() {
+        return false;
+    }
+
     /**
      * Checks if the operation was cancelled.
      *
@@ -66,4 +279,41 @@ public abstract class ChronosOperation<Output> {
     final void cancel() {
         mIsCancelled.set(true);
     }
-}
\ No newline at end of file
+
+    /**
+     * Publishes an intermediate value of the operation, like the progress of a download, to the
+     * {@link Chronos#PROGRESS_CALLBACK_METHOD_NAME} method of the client which has launched the
+     * operation. The method must have only one parameter of a class of the value. Values are
+     * delivered at most once per {@link ChronosConfiguration#getProgressIntervalMillis()}, the
+     * intermediate ones are dropped, and while the client is paused only the newest value is
+     * kept. No progress is delivered after the result of the operation, or for synchronous runs.
+     *
+     * @param progress a value to be delivered
+     */
+    protected final void publishProgress(@NonNull final Object progress) {
+        final InFlightOperation sharedRun = mSharedRun;
+        if (sharedRun != null) {
+            sharedRun.publishProgress(progress);
+            return;
+        }
+        final int launchId = mLaunchId;
+        if (launchId != 0) {
+            ResultRouter.getInstance().publishProgress(launchId, progress);
+        }
+    }
+
+    /**
+     * @param launchId the unique id of the launch which progress of the operation belongs to
+     */
+    final void setLaunchId(final int launchId) {
+        mLaunchId = launchId;
+    }
+
+    /**
+     * @param sharedRun the run shared by identical launches, which progress of the operation
+     *                  belongs to
+     */
+    final void setSharedRun(@NonNull final InFlightOperation sharedRun) {
+        mSharedRun = sharedRun;
+    }
+}
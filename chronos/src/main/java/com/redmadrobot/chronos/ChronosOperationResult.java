@@ -8,14 +8,22 @@ import android.support.annotation.Nullable;
 /**
  * Result of an {@link ChronosOperation} execution. Contain either
  * operations' output, or an exception, thrown during the operations' execution. <br><br> It's a
- * must for subclasses to have a public constructor with no arguments.
+ * must for subclasses to have a constructor with no arguments, unless the related operation
+ * overrides {@link ChronosOperation#createResult()}.
  *
  * @param <ResultType> type of output generated by the related operation.
  * @author maximefimov
  * @see ChronosOperation#getResultClass()
+ * @see ChronosOperation#createResult()
  */
 public abstract class ChronosOperationResult<ResultType> {
 
+    /**
+     * A value of {@link #getEstimatedSize()} which means that the size of the result is not
+     * known.
+     */
+    public final static long SIZE_UNKNOWN = -1;
+
     private int mId;
 
     private ChronosOperation<ResultType> mOperation;
@@ -26,6 +34,12 @@ public abstract class ChronosOperationResult<ResultType> {
 
     private boolean isBroadcast = false;
 
+    private boolean mIsFresh = true;
+
+    private boolean mIsUnchanged = false;
+
+    private volatile boolean mIsCancelled = false;
+
     /**
      * @return the operations' output, is the launch was successful. If exception waw thrown during
      * the operations' run, null will be returned. However, null may be a valid result of the
@@ -65,10 +79,12 @@ public abstract class ChronosOperationResult<ResultType> {
     }
 
     /**
-     * @return operation which result is stored in this object.
+     * @return operation which result is stored in this object, or {@code null} if it is a result of
+     * a batch launch, or a result restored from disk after the process was restarted
+     * @see BatchOperationResult
      */
     @SuppressWarnings("unused")
-    @NonNull
+    @Nullable
     @Contract(pure = true)
     public final ChronosOperation<ResultType> getOperation() {
         return mOperation;
@@ -81,6 +97,26 @@ public abstract class ChronosOperationResult<ResultType> {
         mOperation = operation;
     }
 
+    /**
+     * @return the broadcast topic of the operation, or {@code null} if the result has no topic
+     * @see ChronosOperation#getBroadcastTopic()
+     */
+    @Nullable
+    @Contract(pure = true)
+    final String getBroadcastTopic() {
+        return mOperation != null ? mOperation.getBroadcastTopic() : null;
+    }
+
+    /**
+     * @return {@code true} if the result should be kept for the clients which subscribe later,
+     * {@code false} otherwise
+     * @see ChronosOperation#isStickyBroadcast()
+     */
+    @Contract(pure = true)
+    final boolean isStickyBroadcast() {
+        return mOperation != null && mOperation.isStickyBroadcast();
+    }
+
     /**
      * @return Text error description. May be null if there was no error, or it doesn't have a
      * description.
@@ -101,6 +137,80 @@ public abstract class ChronosOperationResult<ResultType> {
         return mException == null;
     }
 
+    /**
+     * Checks if the output was produced by a run of the operation, rather than taken from the cache
+     * of outputs. A launch in the stale-while-revalidate mode delivers the cached output first, with
+     * this flag unset, and then the fresh one.
+     *
+     * @return {@code true} if the operation was run for the launch, {@code false} if the output is
+     * a cached one
+     * @see ChronosOperation#getCacheKey()
+     * @see com.redmadrobot.chronos.gui.ChronosConnectorWrapper#runOperationRevalidating(ChronosOperation)
+     */
+    @Contract(pure = true)
+    public final boolean isFresh() {
+        return mIsFresh;
+    }
+
+    /**
+     * @param isFresh {@code false} if the output was taken from the cache
+     * @see #isFresh()
+     */
+    final void setFresh(final boolean isFresh) {
+        mIsFresh = isFresh;
+    }
+
+    /**
+     * @return {@code true} if the fresh output of a revalidating launch equals the cached one,
+     * which has already been delivered, so the result is not delivered again
+     */
+    @Contract(pure = true)
+    final boolean isUnchanged() {
+        return mIsUnchanged;
+    }
+
+    /**
+     * @param isUnchanged {@code true} if the result should finish the launch without being
+     *                    delivered
+     * @see #isUnchanged()
+     */
+    final void setUnchanged(final boolean isUnchanged) {
+        mIsUnchanged = isUnchanged;
+    }
+
+    /**
+     * @return {@code true} if the launch of the result was cancelled, so the result must not be
+     * delivered
+     */
+    @Contract(pure = true)
+    final boolean isCancelled() {
+        return mIsCancelled;
+    }
+
+    /**
+     * Marks the launch of the result as cancelled.
+     *
+     * @see #isCancelled()
+     */
+    final void markCancelled() {
+        mIsCancelled = true;
+    }
+
+    /**
+     * Estimates the memory held by the result, which is used when the result is stored until its
+     * client is resumed. Stored results of a known size are kept within {@link
+     * ChronosConfiguration#getStoredResultsBudgetBytes()}, and the ones that don't fit are
+     * replaced with empty results with {@link ResultEvictedException}. Results of unknown size
+     * are kept by soft references, so they may be collected at any time, in which case they are
+     * replaced the same way.
+     *
+     * @return the estimated size of the result in bytes, {@link #SIZE_UNKNOWN} by default
+     */
+    @Contract(pure = true)
+    public long getEstimatedSize() {
+        return SIZE_UNKNOWN;
+    }
+
     /**
      * @return the unique id of operation launch.
      * @see #setId(int)
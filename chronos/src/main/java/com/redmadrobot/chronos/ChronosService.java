@@ -2,14 +2,28 @@ package com.redmadrobot.chronos;
 
 import org.jetbrains.annotations.Contract;
 
+import android.os.Process;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import de.greenrobot.event.EventBus;
-
 /**
  * An entity which runs operations.
  *
@@ -20,16 +34,92 @@ final class ChronosService {
     @NonNull
     private final static ChronosService INSTANCE = new ChronosService();
 
+    @NonNull
+    private final static String LOG_TAG = ChronosService.class.getSimpleName();
+
+    @NonNull
+    private final static String JOURNAL_FILE_NAME = "chronos-journal.bin";
+
+    @NonNull
+    private final static String STORAGE_THREAD_NAME_PREFIX = "ChronosStorage";
+
     @NonNull
     private final AtomicInteger mLastOperationId = new AtomicInteger(0);
 
     @NonNull
-    private final EventBus mEventBus = EventBus.getDefault();
+    private final ResultRouter mResultRouter = ResultRouter.getInstance();
 
     @NonNull
-    private final ExecutorService mExecutorService = Executors.newCachedThreadPool();
+    private final ConcurrentMap<Integer, QueueWaitStatistics> mQueueWaitStatistics
+            = new ConcurrentHashMap<>();
+
+    @NonNull
+    private volatile ChronosConfiguration mConfiguration = new ChronosConfiguration.Builder()
+            .build();
+
+    @NonNull
+    private volatile ThreadPoolExecutor mExecutorService = createExecutor(mConfiguration);
+
+    @NonNull
+    private final ConcurrentMap<InFlightOperation.Key, InFlightOperation> mInFlightOperations
+            = new ConcurrentHashMap<>();
+
+    @NonNull
+    private final ResultCacheStatistics mResultCacheStatistics = new ResultCacheStatistics();
+
+    /**
+     * Unbinds the cache keys which outputs have left both levels of the cache from their tags.
+     */
+    @NonNull
+    private final CacheEvictionListener mEvictionListener = new CacheEvictionListener() {
+        @Override
+        public void onEvicted(@NonNull final String cacheKey) {
+            // the generation is taken first, so that a key bound again meanwhile is kept
+            final long generation = mCacheTagIndex.getGeneration(cacheKey);
+            if (generation == 0 || mResultCache.contains(cacheKey)) {
+                return;
+            }
+            final DiskResultCache diskCache = mDiskResultCache;
+            if (diskCache == null || !diskCache.contains(cacheKey)) {
+                mCacheTagIndex.remove(cacheKey, generation);
+            }
+        }
+    };
+
+    @NonNull
+    private volatile ResultCache mResultCache = new ResultCache(
+            mConfiguration.getResultCacheSize(), mResultCacheStatistics, mEvictionListener);
+
+    @NonNull
+    private final CacheTagIndex mCacheTagIndex = new CacheTagIndex();
+
+    /**
+     * The second level of the cache of operation outputs, or {@code null} if it is disabled.
+     */
+    @Nullable
+    private volatile DiskResultCache mDiskResultCache;
+
+    /**
+     * The journal of durable operations, or {@code null} if it is disabled.
+     */
+    @Nullable
+    private volatile OperationJournal mJournal;
+
+    /**
+     * A single background thread which opens the disk cache and the journal, so that they are
+     * opened in the order they were configured in.
+     */
+    @NonNull
+    private final ExecutorService mStorageExecutor;
 
     private ChronosService() {
+        mResultRouter.setProgressIntervalMillis(mConfiguration.getProgressIntervalMillis());
+        final ThreadPoolExecutor storageExecutor = new ThreadPoolExecutor(1, 1, 1,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ChronosThreadFactory(STORAGE_THREAD_NAME_PREFIX,
+                        Process.THREAD_PRIORITY_BACKGROUND));
+        storageExecutor.allowCoreThreadTimeOut(true);
+        mStorageExecutor = storageExecutor;
     }
 
     @NonNull
@@ -38,6 +128,29 @@ final class ChronosService {
         return INSTANCE;
     }
 
+    /**
+     * Creates a thread pool to run operations.
+     *
+     * @param configuration parameters of the pool
+     * @return a new thread pool
+     */
+    @NonNull
+    private static ThreadPoolExecutor createExecutor(
+            @NonNull final ChronosConfiguration configuration) {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                configuration.getCorePoolSize(),
+                configuration.getMaximumPoolSize(),
+                configuration.getKeepAliveMillis(), TimeUnit.MILLISECONDS,
+                new PriorityTaskQueue(configuration.getQueueCapacity()),
+                new ChronosThreadFactory(configuration.getThreadNamePrefix(),
+                        configuration.getThreadPriority()),
+                new RejectedTaskHandler(configuration.getRejectedExecutionHandler()));
+        if (configuration.getKeepAliveMillis() > 0) {
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
     /**
      * Runs operation, handling all the exceptions that may ne thrown while running.
      *
@@ -55,6 +168,193 @@ final class ChronosService {
         }
     }
 
+    /**
+     * Runs operation, unless its output is cached on disk, and caches a successful output in memory
+     * and, if the operation has a codec, on disk. The memory cache must have been checked already.
+     * Disk is accessed in the calling thread. A successful operation invalidates the tags it
+     * changes, and the output is not cached if any of its tags were invalidated while it was
+     * running.
+     *
+     * @param operation       an operation to be executed
+     * @param operationResult an empty result object to be filled with business-logic content
+     * @param cacheKey        the key to cache the output by, or {@code null}
+     * @param <Output>        class of the result, returned by the Operations' {@code run} method
+     */
+    private <Output> void runCached(@NonNull final ChronosOperation<Output> operation,
+            @NonNull final ChronosOperationResult<Output> operationResult,
+            @Nullable final String cacheKey) {
+        if (cacheKey == null) {
+            silentRun(operation, operationResult);
+            invalidateTags(operation, operationResult);
+            return;
+        }
+        final long stamp = mCacheTagIndex.acquireStamp();
+        try {
+            final DiskResultCache diskCache = mDiskResultCache;
+            final ResultCodec<Output> codec = diskCache != null ? operation.getResultCodec()
+                    : null;
+            if (codec != null
+                    && loadFromDisk(diskCache, cacheKey, operation, codec, operationResult,
+                    stamp)) {
+                return;
+            }
+            runAndCache(operation, operationResult, cacheKey, stamp, diskCache, codec);
+        } finally {
+            mCacheTagIndex.releaseStamp(stamp);
+        }
+    }
+
+    /**
+     * Runs operation, and caches a successful output in memory and, if there is a codec, on disk.
+     *
+     * @param operation       an operation to be executed
+     * @param operationResult an empty result object to be filled with business-logic content
+     * @param cacheKey        the key to cache the output by
+     * @param stamp           the stamp of the tag index taken before the launch was started
+     * @param diskCache       the disk cache, or {@code null} if it is disabled
+     * @param codec           the codec of the output, or {@code null} if it is not cached on disk
+     * @param <Output>        class of the result, returned by the Operations' {@code run} method
+     */
+    private <Output> void runAndCache(@NonNull final ChronosOperation<Output> operation,
+            @NonNull final ChronosOperationResult<Output> operationResult,
+            @NonNull final String cacheKey, final long stamp,
+            @Nullable final DiskResultCache diskCache, @Nullable final ResultCodec<Output> codec) {
+        silentRun(operation, operationResult);
+        invalidateTags(operation, operationResult);
+        if (!operationResult.isSuccessful()) {
+            return;
+        }
+        final Collection<String> tags = operation.getCacheTags();
+        if (mCacheTagIndex.isInvalidatedSince(tags, stamp)) {
+            return;
+        }
+        mResultCache.put(cacheKey, operation, operationResult);
+        if (diskCache != null && codec != null) {
+            storeOnDisk(diskCache, cacheKey, operation, codec, operationResult, tags);
+        }
+        bind(cacheKey, tags, stamp);
+    }
+
+    /**
+     * Binds a cache key to its tags after the output is put to the cache, so that an eviction of
+     * the output racing with the puts can't leave the output unbound, and drops the output if any
+     * of its tags were invalidated since the launch was started.
+     */
+    private void bind(@NonNull final String cacheKey, @NonNull final Collection<String> tags,
+            final long stamp) {
+        mCacheTagIndex.add(cacheKey, tags, stamp);
+        dropIfInvalidated(cacheKey, tags, stamp);
+    }
+
+    /**
+     * Invalidates the tags changed by a successful operation.
+     */
+    private void invalidateTags(@NonNull final ChronosOperation<?> operation,
+            @NonNull final ChronosOperationResult<?> operationResult) {
+        if (operationResult.isSuccessful()) {
+            final Collection<String> tags = operation.getInvalidatedTags();
+            if (!tags.isEmpty()) {
+                invalidateTags(tags);
+            }
+        }
+    }
+
+    /**
+     * Removes an output which has just been cached, if any of its tags were invalidated while it
+     * was being put to the cache, as the invalidation could miss it.
+     */
+    private void dropIfInvalidated(@NonNull final String cacheKey,
+            @NonNull final Collection<String> tags, final long stamp) {
+        if (mCacheTagIndex.isInvalidatedSince(tags, stamp)) {
+            mCacheTagIndex.remove(cacheKey);
+            removeCachedResult(cacheKey);
+        }
+    }
+
+    private void removeCachedResult(@NonNull final String cacheKey) {
+        mResultCache.remove(cacheKey);
+        final DiskResultCache diskCache = mDiskResultCache;
+        if (diskCache != null) {
+            diskCache.remove(cacheKey);
+        }
+    }
+
+    /**
+     * Invalidates tags of data, so that the cached outputs which depend on any of them are removed
+     * both from memory and from disk, and launches which are running now do not cache their
+     * outputs. Runs in flight which depend on the tags are not joined by new launches any more.
+     *
+     * @param tags the tags of the changed data
+     * @see CacheTagIndex
+     */
+    final void invalidateTags(@NonNull final Collection<String> tags) {
+        for (final String cacheKey : mCacheTagIndex.invalidate(tags)) {
+            removeCachedResult(cacheKey);
+        }
+        for (final Map.Entry<InFlightOperation.Key, InFlightOperation> entry
+                : mInFlightOperations.entrySet()) {
+            if (!Collections.disjoint(entry.getValue().getOperation().getCacheTags(), tags)) {
+                mInFlightOperations.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Finishes a launch with an output cached on disk, if there is a fresh one, and puts the output
+     * to the memory cache for the rest of its age. An output the codec fails to decode is removed
+     * from the disk cache.
+     *
+     * @return {@code true} if the result got the cached output, {@code false} otherwise
+     */
+    private <Output> boolean loadFromDisk(@NonNull final DiskResultCache diskCache,
+            @NonNull final String cacheKey, @NonNull final ChronosOperation<Output> operation,
+            @NonNull final ResultCodec<Output> codec,
+            @NonNull final ChronosOperationResult<Output> operationResult, final long stamp) {
+        final byte[] data = diskCache.get(cacheKey, operationResult.getClass().getName());
+        if (data == null) {
+            return false;
+        }
+        final Output output;
+        try {
+            output = codec.decode(data);
+        } catch (IOException | RuntimeException e) {
+            Log.w(LOG_TAG, "Can't decode output cached by key " + cacheKey + ": " + e);
+            diskCache.remove(cacheKey);
+            return false;
+        }
+        operationResult.setOutput(output);
+        operationResult.setFresh(false);
+        mResultCacheStatistics.onDiskHit();
+        final long maxAge = diskCache.getExpirationTime(cacheKey) - System.currentTimeMillis();
+        final Collection<String> tags = operation.getCacheTags();
+        if (maxAge > 0 && !mCacheTagIndex.isInvalidatedSince(tags, stamp)) {
+            mResultCache.put(cacheKey, operation, operationResult, maxAge);
+            bind(cacheKey, tags, stamp);
+        }
+        return true;
+    }
+
+    /**
+     * Caches a successful output on disk. A failure to encode the output is logged, the launch
+     * keeps the output anyway.
+     */
+    private <Output> void storeOnDisk(@NonNull final DiskResultCache diskCache,
+            @NonNull final String cacheKey, @NonNull final ChronosOperation<Output> operation,
+            @NonNull final ResultCodec<Output> codec,
+            @NonNull final ChronosOperationResult<Output> operationResult,
+            @NonNull final Collection<String> tags) {
+        try {
+            final long now = System.currentTimeMillis();
+            final long maxAge = operation.getCacheMaxAgeMillis();
+            final long expirationTime = maxAge < Long.MAX_VALUE - now ? now + maxAge
+                    : Long.MAX_VALUE;
+            diskCache.put(cacheKey, operationResult.getClass().getName(),
+                    codec.encode(operationResult.getOutput()), expirationTime, tags);
+        } catch (IOException | RuntimeException e) {
+            Log.w(LOG_TAG, "Can't cache output by key " + cacheKey + " on disk: " + e);
+        }
+    }
+
     /**
      * Creates a template object for storing operations' run result.
      *
@@ -66,21 +366,13 @@ final class ChronosService {
      */
     @NonNull
     @Contract(pure = true)
-    private <Output> ChronosOperationResult<Output> createEmptyResult(
+    final <Output> ChronosOperationResult<Output> createEmptyResult(
             @NonNull final ChronosOperation<Output> operation, final boolean broadcastResult) {
-        final ChronosOperationResult<Output> operationResult;
-        final Class<? extends ChronosOperationResult<Output>> resultClass = operation
-                .getResultClass();
-        try {
-            operationResult = resultClass.newInstance();
-        } catch (InstantiationException e) {
-            throw new RuntimeException("Can't create a new instance of " + resultClass.getName());
-        } catch (IllegalAccessException e) {
-            throw new RuntimeException(resultClass.getName() + " constructor is not accessible");
-        }
+        final ChronosOperationResult<Output> operationResult = operation.createResult();
         operationResult.setId(mLastOperationId.incrementAndGet());
         operationResult.setOperation(operation);
         operationResult.setBroadcast(broadcastResult);
+        operation.setLaunchId(operationResult.getId());
 
         return operationResult;
     }
@@ -92,29 +384,695 @@ final class ChronosService {
      * @param <Output>        class of the result, returned by the Operations' {@code run} method
      * @param broadcastResult {@code true} if the result should be broadcasted, {@code false}
      *                        otherwise
+     * @param owner           the listener which should receive the result
      * @return the unique id of the launch
+     * @throws IllegalStateException    if the operation is a graph which has already been
+     *                                  launched
+     * @throws IllegalArgumentException if the operation is durable, but can't be journaled
      */
+    @SuppressWarnings("unchecked")
     final <Output> int runAsync(@NonNull final ChronosOperation<Output> operation,
-            final boolean broadcastResult) {
+            final boolean broadcastResult, @NonNull final ChronosListener owner) {
+        if (operation instanceof OperationGraph) {
+            ((OperationGraph<Output>) operation).onLaunched();
+        }
+        final OperationJournal journal = mJournal;
+        // a durable operation which can't be journaled is rejected before anything is started
+        final byte[] journalEntry = journal != null && operation.isDurable()
+                && !(operation instanceof OperationGraph)
+                ? JournalEntry.toBytes(operation, broadcastResult) : null;
+
         final ChronosOperationResult<Output> result = createEmptyResult(operation, broadcastResult);
         final int id = result.getId();
+        mResultRouter.registerOwner(id, owner);
 
-        synchronized (ChronosService.this) {
-            RunningOperationStorage.getInstance().operationStarted(id, operation,
-                    mExecutorService.submit(new Runnable() {
-                        @Override
-                        public void run() {
-                            silentRun(operation, result);
-                            mEventBus.post(result);
-                            synchronized (ChronosService.this) {
-                                RunningOperationStorage.getInstance().operationFinished(id);
-                            }
-                        }
-                    }));
+        if (operation instanceof OperationGraph) {
+            final GraphRun<Output> graphRun = new GraphRun<>((OperationGraph<Output>) operation,
+                    result, this);
+            RunningOperationStorage.getInstance().operationStarted(result, operation, graphRun);
+            graphRun.start();
+            return id;
+        }
+
+        final String cacheKey = operation.getCacheKey();
+        if (cacheKey != null && mResultCache.get(cacheKey, result)) {
+            mResultRouter.post(result);
+            return id;
+        }
+
+        if (journalEntry != null) {
+            try {
+                RunningOperationStorage.getInstance()
+                        .operationJournaled(id, journal, journal.append(journalEntry));
+            } catch (IOException e) {
+                Log.w(LOG_TAG, "Can't journal launch " + id + ", it is not durable: " + e);
+            }
+        }
+        launch(operation, result, cacheKey);
+        return id;
+    }
+
+    /**
+     * Runs operation in background in the stale-while-revalidate mode. The output cached in memory,
+     * even an expired one, is delivered at once, or, if there is none, the output cached on disk is
+     * delivered from the background thread. Then the operation is run regardless of the cache, and
+     * its result is delivered under the same launch id, unless it has the same output as the
+     * cached one. Revalidating launches are never coalesced.
+     *
+     * @param operation       an operation to be executed
+     * @param <Output>        class of the result, returned by the Operations' {@code run} method
+     * @param broadcastResult {@code true} if the result should be broadcasted, {@code false}
+     *                        otherwise
+     * @param owner           the listener which should receive the results
+     * @return the unique id of the launch
+     * @see ChronosOperationResult#isFresh()
+     */
+    final <Output> int runRevalidatingAsync(@NonNull final ChronosOperation<Output> operation,
+            final boolean broadcastResult, @NonNull final ChronosListener owner) {
+        final ChronosOperationResult<Output> result = createEmptyResult(operation, broadcastResult);
+        final int id = result.getId();
+        mResultRouter.registerOwner(id, owner);
+
+        final String cacheKey = operation.getCacheKey();
+        final ChronosOperationResult<Output> memoryResult = createInterimResult(operation, result);
+        final boolean isCachedInMemory = cacheKey != null
+                && mResultCache.getStale(cacheKey, memoryResult);
+        if (isCachedInMemory) {
+            mResultRouter.postInterim(memoryResult);
+        }
+
+        final int priority = operation.getPriority();
+        final PriorityTask task = new PriorityTask(new Runnable() {
+            @Override
+            public void run() {
+                revalidate(operation, result, cacheKey, isCachedInMemory ? memoryResult : null);
+                mResultRouter.post(result);
+                RunningOperationStorage.getInstance().operationFinished(id);
+            }
+        }, priority, TimeUnit.MILLISECONDS.toNanos(mConfiguration.getPriorityAgingStepMillis()),
+                getQueueWaitStatistics(priority));
+        RunningOperationStorage.getInstance().operationStarted(result, operation, task);
+        try {
+            execute(task);
+        } catch (RejectedExecutionException e) {
+            // both the pool and its queue are full, the operation will never run
+            RunningOperationStorage.getInstance().operationFinished(id);
+            result.setException(e);
+            mResultRouter.post(result);
+        }
+        return id;
+    }
+
+    /**
+     * Delivers the output cached on disk, unless one was delivered from memory, then runs operation
+     * and caches its output. If the output is the same as the delivered one, the result is marked
+     * as unchanged, so it finishes the launch without being delivered.
+     *
+     * @param operation    an operation to be executed
+     * @param result       the result of the launch
+     * @param cacheKey     the key to cache the output by, or {@code null}
+     * @param cachedResult the result which has been delivered from memory, or {@code null}
+     * @param <Output>     class of the result, returned by the Operations' {@code run} method
+     */
+    private <Output> void revalidate(@NonNull final ChronosOperation<Output> operation,
+            @NonNull final ChronosOperationResult<Output> result, @Nullable final String cacheKey,
+            @Nullable final ChronosOperationResult<Output> cachedResult) {
+        if (cacheKey == null) {
+            runCached(operation, result, null);
+            return;
+        }
+        final long stamp = mCacheTagIndex.acquireStamp();
+        ChronosOperationResult<Output> deliveredResult = cachedResult;
+        try {
+            final DiskResultCache diskCache = mDiskResultCache;
+            final ResultCodec<Output> codec = diskCache != null ? operation.getResultCodec()
+                    : null;
+            if (deliveredResult == null && diskCache != null && codec != null) {
+                final ChronosOperationResult<Output> diskResult = createInterimResult(operation,
+                        result);
+                if (loadFromDisk(diskCache, cacheKey, operation, codec, diskResult, stamp)) {
+                    mResultRouter.postInterim(diskResult);
+                    deliveredResult = diskResult;
+                }
+            }
+            runAndCache(operation, result, cacheKey, stamp, diskCache, codec);
+        } finally {
+            mCacheTagIndex.releaseStamp(stamp);
+        }
+        if (deliveredResult != null && result.isSuccessful()) {
+            final Output output = result.getOutput();
+            final Output deliveredOutput = deliveredResult.getOutput();
+            result.setUnchanged(output == null ? deliveredOutput == null
+                    : output.equals(deliveredOutput));
+        }
+    }
+
+    /**
+     * Creates a result which delivers a cached output of a revalidating launch.
+     *
+     * @param operation the operation of the launch
+     * @param result    the result of the launch
+     * @param <Output>  class of the result, returned by the Operations' {@code run} method
+     * @return an empty result with the same id
+     */
+    @NonNull
+    private static <Output> ChronosOperationResult<Output> createInterimResult(
+            @NonNull final ChronosOperation<Output> operation,
+            @NonNull final ChronosOperationResult<Output> result) {
+        final ChronosOperationResult<Output> interimResult = operation.createResult();
+        interimResult.setId(result.getId());
+        interimResult.setOperation(operation);
+        interimResult.setBroadcast(result.isBroadcast());
+        return interimResult;
+    }
+
+    /**
+     * Runs operation in background, or joins the identical operation which is already running.
+     *
+     * @param operation an operation to be executed
+     * @param result    the result of the launch
+     * @param cacheKey  the key to cache the output by, or {@code null}
+     * @param <Output>  class of the result, returned by the Operations' {@code run} method
+     */
+    private <Output> void launch(@NonNull final ChronosOperation<Output> operation,
+            @NonNull final ChronosOperationResult<Output> result, @Nullable final String cacheKey) {
+        final String deduplicationKey = operation.getDeduplicationKey();
+        if (deduplicationKey != null) {
+            runShared(deduplicationKey, operation, result, cacheKey);
+            return;
+        }
+
+        final int id = result.getId();
+        final int priority = operation.getPriority();
+        final PriorityTask task = new PriorityTask(new Runnable() {
+            @Override
+            public void run() {
+                runCached(operation, result, cacheKey);
+                mResultRouter.post(result);
+                RunningOperationStorage.getInstance().operationFinished(id);
+            }
+        }, priority, TimeUnit.MILLISECONDS.toNanos(mConfiguration.getPriorityAgingStepMillis()),
+                getQueueWaitStatistics(priority));
+        RunningOperationStorage.getInstance().operationStarted(result, operation, task);
+        try {
+            execute(task);
+        } catch (RejectedExecutionException e) {
+            // both the pool and its queue are full, the operation will never run
+            RunningOperationStorage.getInstance().operationFinished(id);
+            result.setException(e);
+            mResultRouter.post(result);
         }
+    }
+
+    /**
+     * Launches again the durable operations which were not finished by the previous process. The
+     * launches have no owner, so only their broadcast results are delivered.
+     *
+     * @param journal the journal which has just been opened
+     * @param entries the data of the journal entries which are not completed, by their ids
+     */
+    private void relaunch(@NonNull final OperationJournal journal,
+            @NonNull final Map<Long, byte[]> entries) {
+        for (final Map.Entry<Long, byte[]> entry : entries.entrySet()) {
+            final JournalEntry journalEntry;
+            try {
+                journalEntry = JournalEntry.fromBytes(entry.getValue());
+            } catch (IOException | ClassNotFoundException e) {
+                Log.w(LOG_TAG, "Can't restore durable operation, it is dropped: " + e);
+                try {
+                    journal.complete(entry.getKey());
+                } catch (IOException completionException) {
+                    Log.w(LOG_TAG, "Can't complete journal entry: " + completionException);
+                }
+                continue;
+            }
+            relaunch(journal, entry.getKey(), journalEntry.getOperation(),
+                    journalEntry.isBroadcast());
+        }
+    }
+
+    private <Output> void relaunch(@NonNull final OperationJournal journal, final long entryId,
+            @NonNull final ChronosOperation<Output> operation, final boolean broadcastResult) {
+        final ChronosOperationResult<Output> result = createEmptyResult(operation, broadcastResult);
+        RunningOperationStorage.getInstance().operationJournaled(result.getId(), journal, entryId);
+        launch(operation, result, operation.getCacheKey());
+    }
+
+    /**
+     * Runs operation in background, or joins the launch to the identical operation which is
+     * already running. Launches are identical if they have the same deduplication key and result
+     * class.
+     *
+     * @param deduplicationKey the key by which identical launches are coalesced
+     * @param operation        an operation to be executed
+     * @param result           the result of the launch
+     * @param cacheKey         the key to cache the output by, or {@code null}
+     * @param <Output>         class of the result, returned by the Operations' {@code run} method
+     * @see InFlightOperation
+     */
+    private <Output> void runShared(@NonNull final String deduplicationKey,
+            @NonNull final ChronosOperation<Output> operation,
+            @NonNull final ChronosOperationResult<Output> result, @Nullable final String cacheKey) {
+        final InFlightOperation.Key key = new InFlightOperation.Key(deduplicationKey,
+                result.getClass());
+        while (true) {
+            final InFlightOperation inFlightOperation = mInFlightOperations.get(key);
+            if (inFlightOperation != null) {
+                if (inFlightOperation.join(result)) {
+                    return;
+                }
+                // the run is finishing, a new one should be started
+                mInFlightOperations.remove(key, inFlightOperation);
+                continue;
+            }
+
+            final InFlightOperation newOperation = new InFlightOperation(key, mInFlightOperations,
+                    operation);
+            if (mInFlightOperations.putIfAbsent(key, newOperation) != null
+                    || !newOperation.join(result)) {
+                continue;
+            }
+            operation.setSharedRun(newOperation);
+
+            final int priority = operation.getPriority();
+            final PriorityTask task = new PriorityTask(new Runnable() {
+                @Override
+                public void run() {
+                    runCached(operation, result, cacheKey);
+                    newOperation.finish(result);
+                }
+            }, priority, TimeUnit.MILLISECONDS.toNanos(
+                    mConfiguration.getPriorityAgingStepMillis()),
+                    getQueueWaitStatistics(priority));
+            if (newOperation.start(task)) {
+                try {
+                    execute(task);
+                } catch (RejectedExecutionException e) {
+                    // both the pool and its queue are full, the operation will never run
+                    result.setException(e);
+                    newOperation.finish(result);
+                }
+            }
+            return;
+        }
+    }
+
+    /**
+     * Runs a batch of operations in background. The operations are run in parallel, but the batch
+     * is a single launch: it has one id, and its result is posted once, when all the operations are
+     * finished. Outputs of the operations are cached as for single launches, but identical
+     * operations are not coalesced.
+     *
+     * @param operations      operations to be executed
+     * @param broadcastResult {@code true} if the result should be broadcasted, {@code false}
+     *                        otherwise
+     * @param owner           the listener which should receive the result
+     * @return the unique id of the launch
+     * @see BatchOperationResult
+     */
+    final int runBatchAsync(@NonNull final List<? extends ChronosOperation<?>> operations,
+            final boolean broadcastResult, @NonNull final ChronosListener owner) {
+        final BatchLaunch batchLaunch = new BatchLaunch(operations);
+        final ChronosOperationResult<List<ChronosOperationResult<?>>> result
+                = new BatchOperationResult();
+        result.setId(mLastOperationId.incrementAndGet());
+        result.setBroadcast(broadcastResult);
+        final BatchRun batchRun = new BatchRun(batchLaunch, result);
+        final int id = batchRun.getId();
+        mResultRouter.registerOwner(id, owner);
+        // the parts are cancelled by the run itself
+        RunningOperationStorage.getInstance().operationStarted(result, null, batchRun);
+
+        for (final ChronosOperation<?> operation : batchLaunch.getOperations()) {
+            runBatchPart(operation, batchRun);
+        }
+        batchRun.onPartFinished();
         return id;
     }
 
+    /**
+     * Runs a single operation of a batch in background.
+     *
+     * @param operation an operation to be executed
+     * @param batchRun  the run of the batch
+     * @param <Output>  class of the result, returned by the Operations' {@code run} method
+     */
+    private <Output> void runBatchPart(@NonNull final ChronosOperation<Output> operation,
+            @NonNull final BatchRun batchRun) {
+        final ChronosOperationResult<Output> result = operation.createResult();
+        result.setId(batchRun.getId());
+        result.setOperation(operation);
+        operation.setLaunchId(batchRun.getId());
+        batchRun.addPartResult(result);
+
+        final String cacheKey = operation.getCacheKey();
+        if (cacheKey != null && mResultCache.get(cacheKey, result)) {
+            batchRun.onPartFinished();
+            return;
+        }
+
+        final int priority = operation.getPriority();
+        final PriorityTask task = new PriorityTask(new Runnable() {
+            @Override
+            public void run() {
+                runCached(operation, result, cacheKey);
+                batchRun.onPartFinished();
+            }
+        }, priority, TimeUnit.MILLISECONDS.toNanos(mConfiguration.getPriorityAgingStepMillis()),
+                getQueueWaitStatistics(priority));
+        if (batchRun.addTask(task)) {
+            try {
+                execute(task);
+            } catch (RejectedExecutionException e) {
+                // both the pool and its queue are full, the operation will never run
+                result.setException(e);
+                batchRun.onPartFinished();
+            }
+        }
+    }
+
+    /**
+     * Runs a single operation of a graph in background. Its output is cached as for single
+     * launches.
+     *
+     * @param graphRun the run of the graph
+     * @param node     the node of the operation, all its dependencies must be finished
+     * @param <Output> class of the result, returned by the Operations' {@code run} method
+     * @see OperationGraph
+     */
+    final <Output> void runGraphNode(@NonNull final GraphRun<?> graphRun,
+            @NonNull final GraphNode<Output> node) {
+        final ChronosOperation<Output> operation = node.getOperation();
+        final ChronosOperationResult<Output> result = operation.createResult();
+        result.setId(graphRun.getId());
+        result.setOperation(operation);
+        operation.setLaunchId(graphRun.getId());
+
+        final String cacheKey = operation.getCacheKey();
+        if (cacheKey != null && mResultCache.get(cacheKey, result)) {
+            node.setOutput(result.getOutput());
+            graphRun.onNodeFinished(node, null);
+            return;
+        }
+
+        final int priority = operation.getPriority();
+        final PriorityTask task = new PriorityTask(new Runnable() {
+            @Override
+            public void run() {
+                runCached(operation, result, cacheKey);
+                if (result.isSuccessful()) {
+                    node.setOutput(result.getOutput());
+                }
+                graphRun.onNodeFinished(node, result.getException());
+            }
+        }, priority, TimeUnit.MILLISECONDS.toNanos(mConfiguration.getPriorityAgingStepMillis()),
+                getQueueWaitStatistics(priority));
+        if (graphRun.addTask(task)) {
+            try {
+                execute(task);
+            } catch (RejectedExecutionException e) {
+                // both the pool and its queue are full, the operation will never run
+                graphRun.onNodeFinished(node, e);
+            }
+        }
+    }
+
+    /**
+     * Submits a task to the current thread pool. If the pool has been replaced and shut down during
+     * the submission, the task is submitted to the new one.
+     *
+     * @param task a task to be executed
+     * @throws RejectedExecutionException if the current pool can't accept the task
+     */
+    private void execute(@NonNull final PriorityTask task) {
+        ThreadPoolExecutor executor = mExecutorService;
+        while (true) {
+            try {
+                executor.execute(task);
+                return;
+            } catch (RejectedExecutionException e) {
+                final ThreadPoolExecutor currentExecutor = mExecutorService;
+                if (currentExecutor == executor || !executor.isShutdown()) {
+                    throw e;
+                }
+                executor = currentExecutor;
+            }
+        }
+    }
+
+    /**
+     * Applies a new configuration. Replaces the thread pool which runs operations, operations that
+     * have already been submitted to the previous pool are finished in it. Sets the progress
+     * interval. Replaces the memory cache if its size is changed, the disk cache if its directory
+     * or size is changed, and the journal if its directory is changed. The disk cache and the
+     * journal are opened in the storage thread, and stale spill files are removed in the thread of
+     * the spill store, so no files are read or written in the calling thread.
+     *
+     * @param configuration the new configuration
+     * @see Chronos#configure(ChronosConfiguration)
+     */
+    synchronized final void configure(@NonNull final ChronosConfiguration configuration) {
+        final ThreadPoolExecutor previousExecutor = mExecutorService;
+        final ChronosConfiguration previousConfiguration = mConfiguration;
+        mConfiguration = configuration;
+        mExecutorService = createExecutor(configuration);
+        mResultRouter.setProgressIntervalMillis(configuration.getProgressIntervalMillis());
+        previousExecutor.shutdown();
+        if (mResultCache.getMaxSize() != configuration.getResultCacheSize()) {
+            final ResultCache previousResultCache = mResultCache;
+            mResultCache = new ResultCache(configuration.getResultCacheSize(),
+                    mResultCacheStatistics, mEvictionListener);
+            unbindDroppedKeys(previousResultCache.getKeys());
+        }
+        final File spillDirectory = configuration.getResultSpillDirectory();
+        if (spillDirectory != null) {
+            ResultSpillStore.getInstance().removeStaleFiles(spillDirectory);
+        }
+        final File diskCacheDirectory = configuration.getDiskResultCacheDirectory();
+        final DiskResultCache diskCache = mDiskResultCache;
+        if (diskCacheDirectory == null) {
+            mDiskResultCache = null;
+            if (diskCache != null) {
+                unbindDroppedKeys(diskCache.close());
+            }
+        } else if (diskCache == null || !diskCacheDirectory.equals(diskCache.getDirectory())
+                || diskCache.getMaxSize() != configuration.getDiskResultCacheSize()) {
+            // closed first, so that it doesn't write the index the new cache reads
+            final Set<String> droppedKeys = diskCache != null ? diskCache.close()
+                    : Collections.<String>emptySet();
+            openDiskResultCache(diskCacheDirectory, configuration.getDiskResultCacheSize());
+            unbindDroppedKeys(droppedKeys);
+        }
+        final File journalDirectory = configuration.getJournalDirectory();
+        final File previousJournalDirectory = previousConfiguration.getJournalDirectory();
+        if (journalDirectory == null ? previousJournalDirectory != null
+                : !journalDirectory.equals(previousJournalDirectory) || mJournal == null) {
+            openJournal(journalDirectory);
+        }
+    }
+
+    /**
+     * Replaces the disk cache of operation outputs, which is opened in the storage thread. The
+     * outputs cached by the previous process are kept, unless they don't fit the new size, and
+     * are indexed by their tags again. Launches miss the disk level until the cache is open.
+     *
+     * @param directory the directory of the cache
+     * @param maxSize   the maximum total size of the cached outputs, in bytes
+     */
+    private void openDiskResultCache(@NonNull final File directory, final long maxSize) {
+        final DiskResultCache diskCache = new DiskResultCache(directory, maxSize,
+                mEvictionListener);
+        mDiskResultCache = diskCache;
+        mStorageExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    diskCache.open();
+                } catch (IOException e) {
+                    synchronized (ChronosService.this) {
+                        if (mDiskResultCache == diskCache) {
+                            Log.w(LOG_TAG, "Can't open disk result cache, it is disabled: " + e);
+                            mDiskResultCache = null;
+                        }
+                    }
+                    return;
+                }
+                // the cache is not replaced while its keys are bound
+                synchronized (ChronosService.this) {
+                    if (mDiskResultCache == diskCache) {
+                        indexTags(diskCache);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Binds the cache keys of outputs on disk to their tags.
+     *
+     * @param diskCache an open disk cache
+     */
+    private void indexTags(@NonNull final DiskResultCache diskCache) {
+        final long stamp = mCacheTagIndex.acquireStamp();
+        try {
+            for (final Map.Entry<String, Collection<String>> entry
+                    : diskCache.getTags().entrySet()) {
+                mCacheTagIndex.add(entry.getKey(), entry.getValue(), stamp);
+            }
+        } finally {
+            mCacheTagIndex.releaseStamp(stamp);
+        }
+    }
+
+    /**
+     * Unbinds the cache keys which outputs have been dropped along with a replaced level of the
+     * cache, unless the outputs are still in the current levels.
+     *
+     * @param cacheKeys the cache keys of the outputs in the replaced level
+     */
+    private void unbindDroppedKeys(@NonNull final Collection<String> cacheKeys) {
+        for (final String cacheKey : cacheKeys) {
+            mEvictionListener.onEvicted(cacheKey);
+        }
+    }
+
+    /**
+     * @return the disk cache of operation outputs, or {@code null} if it is disabled
+     */
+    @Nullable
+    @Contract(pure = true)
+    final DiskResultCache getDiskResultCache() {
+        return mDiskResultCache;
+    }
+
+    /**
+     * Replaces the journal of durable operations, which is opened in the storage thread, and then
+     * launches again the operations which were not finished by the previous process. Durable
+     * launches made meanwhile wait until the journal is open. The launches which are still running
+     * in the previous journal will be repeated when it is opened again.
+     *
+     * @param journalDirectory the directory of the new journal, or {@code null} to disable it
+     */
+    private void openJournal(@Nullable final File journalDirectory) {
+        final OperationJournal previousJournal = mJournal;
+        mJournal = null;
+        if (previousJournal != null) {
+            previousJournal.close();
+        }
+        if (journalDirectory == null) {
+            return;
+        }
+        final OperationJournal journal = new OperationJournal(
+                new File(journalDirectory, JOURNAL_FILE_NAME));
+        mJournal = journal;
+        mStorageExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Map<Long, byte[]> entries;
+                try {
+                    entries = journal.open();
+                } catch (IOException e) {
+                    synchronized (ChronosService.this) {
+                        if (mJournal == journal) {
+                            Log.w(LOG_TAG, "Can't open operation journal, it is disabled: " + e);
+                            mJournal = null;
+                        }
+                    }
+                    return;
+                }
+                relaunch(journal, entries);
+            }
+        });
+    }
+
+    /**
+     * Waits until the disk cache and the journal scheduled to be opened are open.
+     *
+     * @throws InterruptedException if the current thread was interrupted while waiting
+     */
+    final void awaitStorage() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        mStorageExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        });
+        latch.await();
+    }
+
+    /**
+     * @return the journal of durable operations, or {@code null} if it is disabled
+     */
+    @Nullable
+    @Contract(pure = true)
+    final OperationJournal getJournal() {
+        return mJournal;
+    }
+
+    /**
+     * Gets the statistics of queue wait time of operations with a given priority.
+     *
+     * @param priority an operation priority
+     * @return the statistics, which is updated as new operations are started
+     */
+    @NonNull
+    final QueueWaitStatistics getQueueWaitStatistics(final int priority) {
+        final QueueWaitStatistics statistics = mQueueWaitStatistics.get(priority);
+        if (statistics != null) {
+            return statistics;
+        }
+        final QueueWaitStatistics newStatistics = new QueueWaitStatistics();
+        final QueueWaitStatistics previousStatistics = mQueueWaitStatistics
+                .putIfAbsent(priority, newStatistics);
+        return previousStatistics != null ? previousStatistics : newStatistics;
+    }
+
+    /**
+     * @return the cache of operation outputs
+     */
+    @NonNull
+    @Contract(pure = true)
+    final ResultCache getResultCache() {
+        return mResultCache;
+    }
+
+    /**
+     * @return the index of cached operation outputs by the tags they depend on
+     */
+    @NonNull
+    @Contract(pure = true)
+    final CacheTagIndex getCacheTagIndex() {
+        return mCacheTagIndex;
+    }
+
+    /**
+     * @return the statistics of the cache of operation outputs
+     */
+    @NonNull
+    @Contract(pure = true)
+    final ResultCacheStatistics getResultCacheStatistics() {
+        return mResultCacheStatistics;
+    }
+
+    /**
+     * @return the current configuration
+     */
+    @NonNull
+    @Contract(pure = true)
+    final ChronosConfiguration getConfiguration() {
+        return mConfiguration;
+    }
+
+    /**
+     * @return the thread pool which runs operations
+     */
+    @NonNull
+    @Contract(pure = true)
+    final ThreadPoolExecutor getExecutor() {
+        return mExecutorService;
+    }
+
     /**
      * Runs operation in the same thread.
      *
@@ -129,8 +1087,11 @@ final class ChronosService {
             @NonNull final ChronosOperation<Output> operation, final boolean broadcastResult) {
         final ChronosOperationResult<Output> result = createEmptyResult(operation, broadcastResult);
 
-        silentRun(operation, result);
-        mEventBus.post(result);
+        final String cacheKey = operation.getCacheKey();
+        if (cacheKey == null || !mResultCache.get(cacheKey, result)) {
+            runCached(operation, result, cacheKey);
+        }
+        mResultRouter.send(result);
 
         return result;
     }
@@ -0,0 +1,45 @@
+package com.redmadrobot.chronos;
+
+import android.os.Process;
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A factory of named threads with a given Linux priority, which is used to run operations.
+ *
+ * @author maximefimov
+ * @see ChronosConfiguration
+ */
+final class ChronosThreadFactory implements ThreadFactory {
+
+    @NonNull
+    private final AtomicInteger mThreadCount = new AtomicInteger(0);
+
+    @NonNull
+    private final String mNamePrefix;
+
+    private final int mPriority;
+
+    /**
+     * @param namePrefix a prefix of thread names
+     * @param priority   the Linux priority of threads
+     * @see Process#setThreadPriority(int)
+     */
+    ChronosThreadFactory(@NonNull final String namePrefix, final int priority) {
+        mNamePrefix = namePrefix;
+        mPriority = priority;
+    }
+
+    @Override
+    public Thread newThread(@NonNull final Runnable runnable) {
+        return new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(mPriority);
+                runnable.run();
+            }
+        }, mNamePrefix + " #" + mThreadCount.incrementAndGet());
+    }
+}
@@ -0,0 +1,537 @@
+package com.redmadrobot.chronos;
+
+import org.jetbrains.annotations.Contract;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * A disk cache of encoded operation outputs by operation cache keys, the second level behind {@link
+ * ResultCache}. Every output is stored in its own file, and an index of all of them is kept both in
+ * memory, where an output is found by its key in constant time, and in an index file, so that the
+ * cache outlives the process. Outputs are evicted in the least recently used order when the total
+ * size of their files exceeds the limit, and are dropped when they are no longer fresh.
+ * <p/>
+ * An output file holds a header of a magic number and a format version, the cache key, the result
+ * class name, the expiration time, the encoded output and a CRC32 checksum of it. The index file
+ * holds the entries, along with the tags the outputs depend on, from the least to the most recently
+ * used one. Both are replaced only by complete new files, and the index is rewritten every time an
+ * output is added or removed, so the usage order of the outputs read since then is lost with the
+ * process. Output files which are not in the index, and index entries without a valid file, are
+ * dropped.
+ * <p/>
+ * The class does not depend on Android, and all the methods are thread-safe.
+ *
+ * @author maximefimov
+ * @see ChronosOperation#getResultCodec()
+ */
+final class DiskResultCache {
+
+    private final static int ENTRY_MAGIC = 0x43484331;
+
+    private final static int INDEX_MAGIC = 0x43484931;
+
+    private final static int VERSION = 2;
+
+    @NonNull
+    private final static String INDEX_FILE_NAME = "index";
+
+    @NonNull
+    private final static String ENTRY_FILE_SUFFIX = ".entry";
+
+    @NonNull
+    private final static String TEMP_SUFFIX = ".tmp";
+
+    @NonNull
+    private final File mDirectory;
+
+    private final long mMaxSize;
+
+    @Nullable
+    private final CacheEvictionListener mEvictionListener;
+
+    /**
+     * Entries of the index in the least recently used order.
+     */
+    @NonNull
+    private final LinkedHashMap<String, Entry> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+
+    @NonNull
+    private final CRC32 mChecksum = new CRC32();
+
+    private long mSize = 0;
+
+    private long mNextFileId = 1;
+
+    private boolean mIsOpen = false;
+
+    private boolean mIsClosed = false;
+
+    /**
+     * @param directory the directory of the cache, which should not be used for anything else
+     * @param maxSize   the maximum total size of the cached outputs, in bytes
+     */
+    DiskResultCache(@NonNull final File directory, final long maxSize) {
+        this(directory, maxSize, null);
+    }
+
+    /**
+     * @param directory        the directory of the cache, which should not be used for anything
+     *                         else
+     * @param maxSize          the maximum total size of the cached outputs, in bytes
+     * @param evictionListener the listener of outputs which are evicted, are no longer fresh or
+     *                         are damaged, it is called while the cache is locked
+     */
+    DiskResultCache(@NonNull final File directory, final long maxSize,
+            @Nullable final CacheEvictionListener evictionListener) {
+        mDirectory = directory;
+        mMaxSize = maxSize;
+        mEvictionListener = evictionListener;
+    }
+
+    /**
+     * Reads the index, and deletes the files which are not in it. Until the cache is open, it
+     * neither finds outputs, nor stores them.
+     *
+     * @throws IOException if the directory can't be created, or the cache is already closed
+     */
+    synchronized final void open() throws IOException {
+        if (mIsClosed) {
+            throw new IOException("Cache is closed");
+        }
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            throw new IOException("Can't create " + mDirectory);
+        }
+        mEntries.clear();
+        mSize = 0;
+        readIndex();
+
+        final File[] files = mDirectory.listFiles();
+        if (files != null) {
+            final long now = System.currentTimeMillis();
+            final Map<String, Entry> entriesByFileName = new LinkedHashMap<>();
+            for (final Entry entry : mEntries.values()) {
+                entriesByFileName.put(entry.getFileName(), entry);
+            }
+            for (final File file : files) {
+                final String fileName = file.getName();
+                if (fileName.equals(INDEX_FILE_NAME)) {
+                    continue;
+                }
+                final Entry entry = entriesByFileName.remove(fileName);
+                if (entry == null || entry.mSize != file.length() || now >= entry.mExpirationTime) {
+                    delete(file);
+                    if (entry != null) {
+                        mEntries.remove(entry.mKey);
+                    }
+                }
+            }
+            // entries without files
+            for (final Entry entry : entriesByFileName.values()) {
+                mEntries.remove(entry.mKey);
+            }
+        }
+        for (final Entry entry : mEntries.values()) {
+            mSize += entry.mSize;
+        }
+        writeIndex();
+        mIsOpen = true;
+    }
+
+    /**
+     * Reads an encoded output.
+     *
+     * @param cacheKey        the cache key of an operation
+     * @param resultClassName the name of the result class of the operation
+     * @return the encoded output, or {@code null} if there is no fresh output of the same result
+     * class
+     */
+    @Nullable
+    synchronized final byte[] get(@NonNull final String cacheKey,
+            @NonNull final String resultClassName) {
+        final Entry entry = mEntries.get(cacheKey);
+        if (entry == null || !entry.mResultClassName.equals(resultClassName)) {
+            return null;
+        }
+        if (System.currentTimeMillis() >= entry.mExpirationTime) {
+            remove(cacheKey);
+            onEvicted(cacheKey);
+            return null;
+        }
+        final byte[] data = readEntry(entry);
+        if (data == null) {
+            // the file is damaged or lost
+            remove(cacheKey);
+            onEvicted(cacheKey);
+        }
+        return data;
+    }
+
+    /**
+     * Stores an encoded output, and evicts the least recently used ones if the cache is too
+     * large. An output which is larger than the cache itself is not stored, but replaces nothing
+     * either.
+     *
+     * @param cacheKey        the cache key of an operation
+     * @param resultClassName the name of the result class of the operation
+     * @param data            the encoded output
+     * @param expirationTime  the time the output stops being fresh, in milliseconds since epoch
+     * @param tags            the tags the output depends on
+     * @throws IOException if the output can't be written
+     */
+    synchronized final void put(@NonNull final String cacheKey,
+            @NonNull final String resultClassName, @NonNull final byte[] data,
+            final long expirationTime, @NonNull final Collection<String> tags)
+            throws IOException {
+        if (!mIsOpen || data.length > mMaxSize) {
+            return;
+        }
+        final Entry entry = new Entry(cacheKey, mNextFileId++, resultClassName, expirationTime, 0,
+                tags.toArray(new String[tags.size()]));
+        final File file = new File(mDirectory, entry.getFileName());
+        writeEntry(file, entry, data);
+        entry.mSize = file.length();
+
+        final Entry previousEntry = mEntries.put(cacheKey, entry);
+        if (previousEntry != null) {
+            mSize -= previousEntry.mSize;
+            delete(new File(mDirectory, previousEntry.getFileName()));
+        }
+        mSize += entry.mSize;
+        trimToSize();
+        writeIndex();
+    }
+
+    /**
+     * @param cacheKey the cache key of an operation
+     * @return {@code true} if there is an output, fresh or not, {@code false} otherwise
+     */
+    @Contract(pure = true)
+    synchronized final boolean contains(@NonNull final String cacheKey) {
+        return mEntries.containsKey(cacheKey);
+    }
+
+    /**
+     * Removes an output from the cache.
+     *
+     * @param cacheKey the cache key of an operation
+     */
+    synchronized final void remove(@NonNull final String cacheKey) {
+        final Entry entry = mEntries.remove(cacheKey);
+        if (entry != null) {
+            mSize -= entry.mSize;
+            delete(new File(mDirectory, entry.getFileName()));
+            writeIndexQuietly();
+        }
+    }
+
+    /**
+     * Removes all the outputs from the cache.
+     */
+    synchronized final void clear() {
+        if (!mIsOpen) {
+            return;
+        }
+        for (final Entry entry : mEntries.values()) {
+            delete(new File(mDirectory, entry.getFileName()));
+        }
+        mEntries.clear();
+        mSize = 0;
+        writeIndexQuietly();
+    }
+
+    /**
+     * Detaches the cache from its directory, which may be taken by a new cache then. The files are
+     * kept, and the launches which still hold the cache neither find outputs in it, nor store
+     * them.
+     *
+     * @return the cache keys of the outputs the cache held
+     */
+    @NonNull
+    synchronized final Set<String> close() {
+        mIsOpen = false;
+        mIsClosed = true;
+        final Set<String> keys = new HashSet<>(mEntries.keySet());
+        mEntries.clear();
+        mSize = 0;
+        return keys;
+    }
+
+    /**
+     * @param cacheKey the cache key of an operation
+     * @return the time the cached output stops being fresh, in milliseconds since epoch, or
+     * {@code 0} if there is no output
+     */
+    @Contract(pure = true)
+    synchronized final long getExpirationTime(@NonNull final String cacheKey) {
+        final Entry entry = mEntries.get(cacheKey);
+        return entry != null ? entry.mExpirationTime : 0;
+    }
+
+    /**
+     * @return the tags of the cached outputs by their cache keys, outputs without tags are omitted
+     */
+    @NonNull
+    @Contract(pure = true)
+    synchronized final Map<String, Collection<String>> getTags() {
+        final Map<String, Collection<String>> tags = new LinkedHashMap<>();
+        for (final Entry entry : mEntries.values()) {
+            if (entry.mTags.length > 0) {
+                tags.put(entry.mKey, Arrays.asList(entry.mTags));
+            }
+        }
+        return tags;
+    }
+
+    /**
+     * @return the total size of the cached outputs, in bytes
+     */
+    @Contract(pure = true)
+    synchronized final long getSize() {
+        return mSize;
+    }
+
+    /**
+     * @return the number of the cached outputs
+     */
+    @Contract(pure = true)
+    synchronized final int getCount() {
+        return mEntries.size();
+    }
+
+    @NonNull
+    @Contract(pure = true)
+    final File getDirectory() {
+        return mDirectory;
+    }
+
+    @Contract(pure = true)
+    final long getMaxSize() {
+        return mMaxSize;
+    }
+
+    private void trimToSize() {
+        final Iterator<Entry> iterator = mEntries.values().iterator();
+        while (mSize > mMaxSize && iterator.hasNext()) {
+            final Entry entry = iterator.next();
+            iterator.remove();
+            mSize -= entry.mSize;
+            delete(new File(mDirectory, entry.getFileName()));
+            onEvicted(entry.mKey);
+        }
+    }
+
+    private void onEvicted(@NonNull final String cacheKey) {
+        if (mEvictionListener != null) {
+            mEvictionListener.onEvicted(cacheKey);
+        }
+    }
+
+    private void writeEntry(@NonNull final File file, @NonNull final Entry entry,
+            @NonNull final byte[] data) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length + 128);
+        final DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(ENTRY_MAGIC);
+        output.writeInt(VERSION);
+        output.writeUTF(entry.mKey);
+        output.writeUTF(entry.mResultClassName);
+        output.writeLong(entry.mExpirationTime);
+        output.writeInt(data.length);
+        output.write(data);
+        mChecksum.reset();
+        mChecksum.update(data, 0, data.length);
+        output.writeInt((int) mChecksum.getValue());
+
+        final File tempFile = new File(file.getPath() + TEMP_SUFFIX);
+        final FileOutputStream fileOutput = new FileOutputStream(tempFile);
+        try {
+            bytes.writeTo(fileOutput);
+        } finally {
+            fileOutput.close();
+        }
+        if (!tempFile.renameTo(file)) {
+            delete(tempFile);
+            throw new IOException("Can't write " + file);
+        }
+    }
+
+    /**
+     * @return the encoded output, or {@code null} if the file is damaged or lost
+     */
+    @Nullable
+    private byte[] readEntry(@NonNull final Entry entry) {
+        final File file = new File(mDirectory, entry.getFileName());
+        try {
+            final DataInputStream input = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(file)));
+            try {
+                if (input.readInt() != ENTRY_MAGIC || input.readInt() != VERSION
+                        || !entry.mKey.equals(input.readUTF())
+                        || !entry.mResultClassName.equals(input.readUTF())) {
+                    return null;
+                }
+                input.readLong();
+                final int length = input.readInt();
+                if (length < 0 || length > entry.mSize) {
+                    return null;
+                }
+                final byte[] data = new byte[length];
+                input.readFully(data);
+                mChecksum.reset();
+                mChecksum.update(data, 0, length);
+                return (int) mChecksum.getValue() == input.readInt() ? data : null;
+            } finally {
+                input.close();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void readIndex() {
+        final File indexFile = new File(mDirectory, INDEX_FILE_NAME);
+        if (!indexFile.exists()) {
+            return;
+        }
+        try {
+            final DataInputStream input = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(indexFile)));
+            try {
+                if (input.readInt() != INDEX_MAGIC || input.readInt() != VERSION) {
+                    return;
+                }
+                mNextFileId = input.readLong();
+                final int count = input.readInt();
+                for (int i = 0; i < count; i++) {
+                    final Entry entry = new Entry(input.readUTF(), input.readLong(),
+                            input.readUTF(), input.readLong(), input.readLong(), readTags(input));
+                    mEntries.put(entry.mKey, entry);
+                    mNextFileId = Math.max(mNextFileId, entry.mFileId + 1);
+                }
+            } finally {
+                input.close();
+            }
+        } catch (EOFException e) {
+            // the index is replaced atomically, so it's damaged by something else; the entries
+            // read so far are still valid
+        } catch (IOException e) {
+            mEntries.clear();
+        }
+    }
+
+    @NonNull
+    private static String[] readTags(@NonNull final DataInputStream input) throws IOException {
+        final int count = input.readInt();
+        if (count < 0) {
+            throw new IOException("Invalid tag count " + count);
+        }
+        final String[] tags = new String[count];
+        for (int i = 0; i < count; i++) {
+            tags[i] = input.readUTF();
+        }
+        return tags;
+    }
+
+    private void writeIndex() throws IOException {
+        final File indexFile = new File(mDirectory, INDEX_FILE_NAME);
+        final File tempFile = new File(indexFile.getPath() + TEMP_SUFFIX);
+        final DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tempFile)));
+        try {
+            output.writeInt(INDEX_MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(mNextFileId);
+            output.writeInt(mEntries.size());
+            for (final Entry entry : mEntries.values()) {
+                output.writeUTF(entry.mKey);
+                output.writeLong(entry.mFileId);
+                output.writeUTF(entry.mResultClassName);
+                output.writeLong(entry.mExpirationTime);
+                output.writeLong(entry.mSize);
+                output.writeInt(entry.mTags.length);
+                for (final String tag : entry.mTags) {
+                    output.writeUTF(tag);
+                }
+            }
+        } finally {
+            output.close();
+        }
+        if (!tempFile.renameTo(indexFile)) {
+            delete(tempFile);
+            throw new IOException("Can't write " + indexFile);
+        }
+    }
+
+    private void writeIndexQuietly() {
+        try {
+            writeIndex();
+        } catch (IOException e) {
+            // the removed entries have no files, so they will be dropped when the index is read
+        }
+    }
+
+    private static void delete(@NonNull final File file) {
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+
+    private final static class Entry {
+
+        @NonNull
+        private final String mKey;
+
+        private final long mFileId;
+
+        @NonNull
+        private final String mResultClassName;
+
+        private final long mExpirationTime;
+
+        @NonNull
+        private final String[] mTags;
+
+        private long mSize;
+
+        private Entry(@NonNull final String key, final long fileId,
+                @NonNull final String resultClassName, final long expirationTime,
+                final long size, @NonNull final String[] tags) {
+            mKey = key;
+            mFileId = fileId;
+            mResultClassName = resultClassName;
+            mExpirationTime = expirationTime;
+            mSize = size;
+            mTags = tags;
+        }
+
+        @NonNull
+        @Contract(pure = true)
+        private String getFileName() {
+            return mFileId + ENTRY_FILE_SUFFIX;
+        }
+
+        @Override
+        @Contract(pure = true)
+        public String toString() {
+            return "Entry[class=" + mResultClassName + "; size=" + mSize + "]";
+        }
+    }
+}
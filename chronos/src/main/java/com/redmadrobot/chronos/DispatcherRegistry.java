@@ -0,0 +1,152 @@
+package com.redmadrobot.chronos;
+
+import org.jetbrains.annotations.Contract;
+
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A storage of dispatchers for Chronos client classes. A dispatcher generated by chronos-compiler
+ * is used if there is one for the client class, otherwise the reflection-based one is used.
+ *
+ * @author maximefimov
+ * @see ChronosDispatcher
+ * @see ReflectionDispatcher
+ */
+final class DispatcherRegistry {
+
+    @NonNull
+    private final static DispatcherRegistry INSTANCE = new DispatcherRegistry();
+
+    @NonNull
+    private final static String LOG_TAG = DispatcherRegistry.class.getSimpleName();
+
+    @NonNull
+    private final Map<Class<?>, ChronosDispatcher> mDispatchers = new HashMap<>();
+
+    @NonNull
+    private final static Class<?>[] NO_RESULT_CLASSES = new Class<?>[0];
+
+    @NonNull
+    private final Map<Class<?>, Class<?>[]> mBroadcastResultClasses = new HashMap<>();
+
+    @NonNull
+    private final ReflectionDispatcher mReflectionDispatcher = new ReflectionDispatcher();
+
+    private DispatcherRegistry() {
+    }
+
+    @NonNull
+    @Contract(pure = true)
+    static DispatcherRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Gets a dispatcher for a given client class. The lookup of the generated dispatcher is done
+     * only once per class.
+     *
+     * @param listenerClass a class of Chronos client
+     * @return a generated dispatcher for the class, or the reflection-based one, if there is no
+     * generated dispatcher
+     */
+    @NonNull
+    synchronized final ChronosDispatcher getDispatcher(@NonNull final Class<?> listenerClass) {
+        ChronosDispatcher dispatcher = mDispatchers.get(listenerClass);
+        if (dispatcher == null) {
+            dispatcher = loadGeneratedDispatcher(listenerClass);
+            if (dispatcher == null) {
+                dispatcher = mReflectionDispatcher;
+            }
+            mDispatchers.put(listenerClass, dispatcher);
+        }
+        return dispatcher;
+    }
+
+    /**
+     * Finds the result classes a client class has methods to receive broadcast results for. The
+     * methods are scanned only once per class.
+     *
+     * @param listenerClass a class of Chronos client
+     * @return the parameter classes of {@link Chronos#BROADCAST_CALLBACK_METHOD_NAME} methods,
+     * empty if there are no such methods
+     */
+    @NonNull
+    synchronized final Class<?>[] getBroadcastResultClasses(
+            @NonNull final Class<?> listenerClass) {
+        Class<?>[] resultClasses = mBroadcastResultClasses.get(listenerClass);
+        if (resultClasses == null) {
+            final Set<Class<?>> classes = new LinkedHashSet<>();
+            for (final Method method : listenerClass.getMethods()) {
+                final Class<?>[] parameters = method.getParameterTypes();
+                if (method.getName().equals(Chronos.BROADCAST_CALLBACK_METHOD_NAME)
+                        && method.getReturnType() == Void.TYPE && parameters.length == 1) {
+                    classes.add(parameters[0]);
+                }
+            }
+            resultClasses = classes.isEmpty() ? NO_RESULT_CLASSES
+                    : classes.toArray(new Class<?>[classes.size()]);
+            mBroadcastResultClasses.put(listenerClass, resultClasses);
+        }
+        return resultClasses;
+    }
+
+    /**
+     * Gets the reflection-based dispatcher, which works for any client class.
+     *
+     * @return the reflection-based dispatcher
+     */
+    @NonNull
+    @Contract(pure = true)
+    final ChronosDispatcher getReflectionDispatcher() {
+        return mReflectionDispatcher;
+    }
+
+    /**
+     * Passes the progress of an operation to the client callbacks. Progress is delivered at a
+     * limited rate, so the callbacks are always found via reflection.
+     *
+     * @param listener a client to pass the progress to
+     * @param progress a progress value published by the operation
+     * @return {@code true} if at least one callback method was called, {@code false} otherwise
+     * @see Chronos#PROGRESS_CALLBACK_METHOD_NAME
+     */
+    final boolean dispatchProgress(@NonNull final Object listener,
+            @NonNull final Object progress) {
+        return mReflectionDispatcher.dispatchProgress(listener, progress);
+    }
+
+    /**
+     * Creates an instance of a generated dispatcher for a given client class.
+     *
+     * @param listenerClass a class of Chronos client
+     * @return a generated dispatcher, or {@code null} if there is no such one
+     */
+    @SuppressWarnings("TryWithIdenticalCatches")
+    private static ChronosDispatcher loadGeneratedDispatcher(@NonNull final Class<?> listenerClass) {
+        final String dispatcherClassName = listenerClass.getName()
+                + ChronosDispatcher.GENERATED_CLASS_SUFFIX;
+        try {
+            final Class<?> dispatcherClass = Class.forName(dispatcherClassName, true,
+                    listenerClass.getClassLoader());
+            return (ChronosDispatcher) dispatcherClass.newInstance();
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (InstantiationException e) {
+            Log.w(LOG_TAG, "Can't create a new instance of " + dispatcherClassName);
+            return null;
+        } catch (IllegalAccessException e) {
+            Log.w(LOG_TAG, dispatcherClassName + " constructor is not accessible");
+            return null;
+        } catch (ClassCastException e) {
+            Log.w(LOG_TAG, dispatcherClassName + " is not a " + ChronosDispatcher.class.getName());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.redmadrobot.chronos;
+
+import org.jetbrains.annotations.Contract;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An operation in an {@link OperationGraph}, together with the nodes whose outputs it takes as
+ * inputs. An operation reads the inputs via {@link #getOutput()} of its dependencies, which is
+ * allowed in its {@code run} method only, as the operation is not run until all of them are
+ * finished.
+ *
+ * @param <Output> class of the result, returned by the Operations' {@code run} method
+ * @author maximefimov
+ * @see OperationGraph.Builder#add(ChronosOperation, GraphNode[])
+ */
+public final class GraphNode<Output> {
+
+    @NonNull
+    private final ChronosOperation<Output> mOperation;
+
+    @NonNull
+    private final List<GraphNode<?>> mDependencies;
+
+    @NonNull
+    private final List<GraphNode<?>> mDependents = new ArrayList<>();
+
+    @NonNull
+    private final Object mGraphKey;
+
+    private final int mIndex;
+
+    private volatile Output mOutput;
+
+    private volatile boolean mIsFinished = false;
+
+    /**
+     * @param operation    the operation of the node
+     * @param dependencies nodes which outputs the operation takes as inputs
+     * @param graphKey     an object which identifies the graph being built
+     * @param index        the index of the node in the graph
+     */
+    GraphNode(@NonNull final ChronosOperation<Output> operation,
+            @NonNull final List<GraphNode<?>> dependencies, @NonNull final Object graphKey,
+            final int index) {
+        mOperation = operation;
+        mDependencies = Collections.unmodifiableList(dependencies);
+        mGraphKey = graphKey;
+        mIndex = index;
+    }
+
+    /**
+     * Gets the output of the operation of the node. Dependent operations may call the method
+     * from their {@code run} method.
+     *
+     * @return the output of the operation
+     * @throws IllegalStateException if the operation has not finished successfully yet
+     */
+    @Nullable
+    @Contract(pure = true)
+    public final Output getOutput() {
+        if (!mIsFinished) {
+            throw new IllegalStateException("Operation " + mOperation + " is not finished yet");
+        }
+        return mOutput;
+    }
+
+    /**
+     * @param output the output of the successfully finished operation
+     */
+    final void setOutput(@Nullable final Output output) {
+        mOutput = output;
+        mIsFinished = true;
+    }
+
+    @NonNull
+    @Contract(pure = true)
+    final ChronosOperation<Output> getOperation() {
+        return mOperation;
+    }
+
+    @NonNull
+    @Contract(pure = true)
+    final List<GraphNode<?>> getDependencies() {
+        return mDependencies;
+    }
+
+    /**
+     * @return nodes which take the output of this one as an input
+     */
+    @NonNull
+    @Contract(pure = true)
+    final List<GraphNode<?>> getDependents() {
+        return mDependents;
+    }
+
+    @NonNull
+    @Contract(pure = true)
+    final Object getGraphKey() {
+        return mGraphKey;
+    }
+
+    @Contract(pure = true)
+    final int getIndex() {
+        return mIndex;
+    }
+
+    @Override
+    @Contract(pure = true)
+    public String toString() {
+        return "GraphNode[index=" + mIndex + "; operation=" + mOperation + "]";
+    }
+}
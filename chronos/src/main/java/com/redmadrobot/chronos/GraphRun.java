@@ -0,0 +1,180 @@
+package com.redmadrobot.chronos;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A run of an operation graph. Every operation is submitted by the worker thread which has
+ * finished its last dependency, and the graph is finished when all the operations are, or when one
+ * of them fails. The run is stored as the running operation of the graph launch, so cancelling the
+ * launch cancels every task of the graph.
+ *
+ * @param <Output> class of the output of the graph
+ * @author maximefimov
+ * @see ChronosService#runGraphNode(GraphRun, GraphNode)
+ */
+final class GraphRun<Output> extends FutureTask<Void> {
+
+    @NonNull
+    private final static Runnable NO_ACTION = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    @NonNull
+    private final OperationGraph<Output> mGraph;
+
+    @NonNull
+    private final ChronosOperationResult<Output> mResult;
+
+    @NonNull
+    private final ChronosService mService;
+
+    @NonNull
+    private final AtomicIntegerArray mRemainingDependencies;
+
+    @NonNull
+    private final AtomicInteger mRemainingNodes;
+
+    @NonNull
+    private final AtomicBoolean mIsFinished = new AtomicBoolean(false);
+
+    @NonNull
+    private final List<Future<?>> mTasks = new ArrayList<>();
+
+    /**
+     * @param graph   the graph to be run
+     * @param result  the result of the graph launch
+     * @param service the service which runs the operations of the graph
+     */
+    GraphRun(@NonNull final OperationGraph<Output> graph,
+            @NonNull final ChronosOperationResult<Output> result,
+            @NonNull final ChronosService service) {
+        super(NO_ACTION, null);
+        mGraph = graph;
+        mResult = result;
+        mService = service;
+        final List<GraphNode<?>> nodes = graph.getNodes();
+        mRemainingDependencies = new AtomicIntegerArray(nodes.size());
+        for (final GraphNode<?> node : nodes) {
+            mRemainingDependencies.set(node.getIndex(), node.getDependencies().size());
+        }
+        mRemainingNodes = new AtomicInteger(nodes.size());
+    }
+
+    /**
+     * @return the unique id of the graph launch
+     */
+    final int getId() {
+        return mResult.getId();
+    }
+
+    /**
+     * Runs the operations which have no dependencies.
+     */
+    final void start() {
+        for (final GraphNode<?> node : mGraph.getNodes()) {
+            if (node.getDependencies().isEmpty()) {
+                mService.runGraphNode(this, node);
+            }
+        }
+    }
+
+    /**
+     * Binds the run to a task which executes one of its operations.
+     *
+     * @param task the task of the operation
+     * @return {@code true} if the task should be executed, {@code false} if the graph is already
+     * finished or cancelled
+     */
+    synchronized final boolean addTask(@NonNull final Future<?> task) {
+        if (isDone()) {
+            return false;
+        }
+        mTasks.add(task);
+        return true;
+    }
+
+    /**
+     * Is called when an operation of the graph is finished. Runs the operations which have got all
+     * of their inputs, or finishes the graph, if it was the last operation or it has failed.
+     *
+     * @param node      the node of the finished operation
+     * @param exception the exception thrown by the operation, or {@code null} if it was successful
+     */
+    final void onNodeFinished(@NonNull final GraphNode<?> node,
+            @Nullable final Exception exception) {
+        if (exception != null) {
+            finish(exception);
+            return;
+        }
+        for (final GraphNode<?> dependent : node.getDependents()) {
+            if (mRemainingDependencies.decrementAndGet(dependent.getIndex()) == 0) {
+                mService.runGraphNode(this, dependent);
+            }
+        }
+        if (mRemainingNodes.decrementAndGet() == 0) {
+            finish(null);
+        }
+    }
+
+    @Override
+    public boolean cancel(final boolean mayInterruptIfRunning) {
+        synchronized (this) {
+            if (!super.cancel(mayInterruptIfRunning)) {
+                return false;
+            }
+        }
+        for (final GraphNode<?> node : mGraph.getNodes()) {
+            node.getOperation().cancel();
+        }
+        cancelTasks(mayInterruptIfRunning);
+        return true;
+    }
+
+    /**
+     * Posts the result of the graph, unless it is cancelled.
+     *
+     * @param exception the exception of the failed operation, or {@code null} if all the
+     *                  operations were successful
+     */
+    private void finish(@Nullable final Exception exception) {
+        if (!mIsFinished.compareAndSet(false, true)) {
+            return;
+        }
+        synchronized (this) {
+            if (isCancelled()) {
+                return;
+            }
+            run();
+        }
+        if (exception != null) {
+            mResult.setException(exception);
+            // the operations that are not started yet will not be needed
+            cancelTasks(false);
+        } else {
+            mResult.setOutput(mGraph.getResultNode().getOutput());
+        }
+        ResultRouter.getInstance().post(mResult);
+        RunningOperationStorage.getInstance().operationFinished(getId());
+    }
+
+    private void cancelTasks(final boolean mayInterrupt) {
+        final List<Future<?>> tasks;
+        synchronized (this) {
+            tasks = new ArrayList<>(mTasks);
+        }
+        for (final Future<?> task : tasks) {
+            task.cancel(mayInterrupt);
+        }
+    }
+}
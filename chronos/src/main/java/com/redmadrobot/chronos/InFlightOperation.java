@@ -0,0 +1,248 @@
+package com.redmadrobot.chronos;
+
+import org.jetbrains.annotations.Contract;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A single run shared by identical operation launches. The first launch starts the run, the
+ * launches made while it is in flight join it, and each of them gets a copy of the output under its
+ * own id. A cancelled launch just leaves the run, the run itself is cancelled only when no launches
+ * are left in it.
+ *
+ * @author maximefimov
+ * @see ChronosOperation#getDeduplicationKey()
+ */
+final class InFlightOperation {
+
+    @NonNull
+    private final static Runnable NO_ACTION = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    @NonNull
+    private final Key mKey;
+
+    @NonNull
+    private final ConcurrentMap<Key, InFlightOperation> mRegistry;
+
+    @NonNull
+    private final ChronosOperation<?> mOperation;
+
+    @NonNull
+    private final List<Launch> mLaunches = new ArrayList<>();
+
+    @Nullable
+    private Future<?> mTask;
+
+    private boolean mClosed = false;
+
+    /**
+     * @param key       the key of the run in the registry
+     * @param registry  the registry of runs in flight, which the run removes itself from when it is
+     *                  closed
+     * @param operation the operation which is actually run
+     */
+    InFlightOperation(@NonNull final Key key,
+            @NonNull final ConcurrentMap<Key, InFlightOperation> registry,
+            @NonNull final ChronosOperation<?> operation) {
+        mKey = key;
+        mRegistry = registry;
+        mOperation = operation;
+    }
+
+    /**
+     * Adds a launch to the run and stores it as a running operation.
+     *
+     * @param operationResult the result of the launch
+     * @return {@code true} if the launch has joined the run, {@code false} if the run is already
+     * finished or cancelled
+     */
+    synchronized final boolean join(@NonNull final ChronosOperationResult<?> operationResult) {
+        if (mClosed) {
+            return false;
+        }
+        final Launch launch = new Launch(operationResult);
+        mLaunches.add(launch);
+        // the shared operation must not be marked as cancelled by a single launch
+        RunningOperationStorage.getInstance()
+                .operationStarted(operationResult, null, launch);
+        return true;
+    }
+
+    /**
+     * @return the operation which is actually run
+     */
+    @NonNull
+    @Contract(pure = true)
+    final ChronosOperation<?> getOperation() {
+        return mOperation;
+    }
+
+    /**
+     * Binds the run to the task which executes it.
+     *
+     * @param task the task of the run
+     * @return {@code true} if the task should be executed, {@code false} if all the launches have
+     * already left the run
+     */
+    synchronized final boolean start(@NonNull final Future<?> task) {
+        if (mClosed) {
+            return false;
+        }
+        mTask = task;
+        return true;
+    }
+
+    /**
+     * Passes an intermediate value of the run to every launch that is still in it.
+     *
+     * @param progress a progress value to be delivered
+     */
+    final void publishProgress(@NonNull final Object progress) {
+        final int[] ids;
+        synchronized (this) {
+            ids = new int[mLaunches.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = mLaunches.get(i).mOperationResult.getId();
+            }
+        }
+        for (final int id : ids) {
+            ResultRouter.getInstance().publishProgress(id, progress);
+        }
+    }
+
+    /**
+     * Finishes the run, and passes a copy of its output to every launch that is still in it.
+     *
+     * @param sharedResult the result which holds the output of the run
+     */
+    @SuppressWarnings("unchecked")
+    final void finish(@NonNull final ChronosOperationResult<?> sharedResult) {
+        final List<Launch> launches;
+        synchronized (this) {
+            mClosed = true;
+            launches = new ArrayList<>(mLaunches);
+            mLaunches.clear();
+        }
+        mRegistry.remove(mKey, this);
+
+        for (final Launch launch : launches) {
+            launch.run();
+            final ChronosOperationResult<Object> operationResult
+                    = (ChronosOperationResult<Object>) launch.mOperationResult;
+            if (!launch.isCancelled()) {
+                operationResult.setOutput(sharedResult.getOutput());
+                operationResult.setFresh(sharedResult.isFresh());
+                final Exception exception = sharedResult.getException();
+                if (exception != null) {
+                    operationResult.setException(exception);
+                }
+                ResultRouter.getInstance().post(operationResult);
+            }
+            RunningOperationStorage.getInstance().operationFinished(operationResult.getId());
+        }
+    }
+
+    /**
+     * Removes a cancelled launch from the run, and cancels the run if it was the last one.
+     *
+     * @param launch       the cancelled launch
+     * @param mayInterrupt {@code true} if thread executing the run should be interrupted
+     */
+    private void leave(@NonNull final Launch launch, final boolean mayInterrupt) {
+        final Future<?> task;
+        synchronized (this) {
+            if (!mLaunches.remove(launch) || !mLaunches.isEmpty() || mClosed) {
+                return;
+            }
+            mClosed = true;
+            task = mTask;
+        }
+        mRegistry.remove(mKey, this);
+        mOperation.cancel();
+        if (task != null) {
+            task.cancel(mayInterrupt);
+        }
+    }
+
+    /**
+     * A launch which has joined the run. It is done when the run is finished.
+     */
+    private final class Launch extends FutureTask<Void> {
+
+        @NonNull
+        private final ChronosOperationResult<?> mOperationResult;
+
+        private Launch(@NonNull final ChronosOperationResult<?> operationResult) {
+            super(NO_ACTION, null);
+            mOperationResult = operationResult;
+        }
+
+        @Override
+        public boolean cancel(final boolean mayInterruptIfRunning) {
+            final boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                leave(this, mayInterruptIfRunning);
+            }
+            return cancelled;
+        }
+    }
+
+    /**
+     * A key of a run in flight. Launches are coalesced only if their results are of the same
+     * class, as the output of the run is copied to the result of each launch.
+     */
+    static final class Key {
+
+        @NonNull
+        private final String mDeduplicationKey;
+
+        @NonNull
+        private final Class<?> mResultClass;
+
+        /**
+         * @param deduplicationKey the deduplication key of the operation
+         * @param resultClass      the class of the operation result
+         */
+        Key(@NonNull final String deduplicationKey, @NonNull final Class<?> resultClass) {
+            mDeduplicationKey = deduplicationKey;
+            mResultClass = resultClass;
+        }
+
+        @Override
+        @Contract(value = "null -> false", pure = true)
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return mDeduplicationKey.equals(other.mDeduplicationKey)
+                    && mResultClass == other.mResultClass;
+        }
+
+        @Override
+        @Contract(pure = true)
+        public int hashCode() {
+            return 31 * mDeduplicationKey.hashCode() + mResultClass.hashCode();
+        }
+
+        @Override
+        @Contract(pure = true)
+        public String toString() {
+            return "Key[" + mDeduplicationKey + "; class=" + mResultClass.getName() + "]";
+        }
+    }
+}
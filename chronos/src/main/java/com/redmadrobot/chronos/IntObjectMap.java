@@ -0,0 +1,205 @@
+package com.redmadrobot.chronos;
+
+import org.jetbrains.annotations.Contract;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * A map with primitive int keys, which does not box its keys. It is an open addressing hash table
+ * with linear probing, so lookups, insertions and removals take a constant time on average.
+ * Values may be {@code null}. The map is not thread-safe.
+ *
+ * @param <V> class of the values
+ * @author maximefimov
+ */
+final class IntObjectMap<V> {
+
+    private final static int DEFAULT_CAPACITY = 8;
+
+    @NonNull
+    private int[] mKeys;
+
+    @NonNull
+    private Object[] mValues;
+
+    @NonNull
+    private boolean[] mUsed;
+
+    private int mSize = 0;
+
+    IntObjectMap() {
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @return the number of entries in the map
+     */
+    @Contract(pure = true)
+    final int size() {
+        return mSize;
+    }
+
+    /**
+     * @return {@code true} if the map has no entries, {@code false} otherwise
+     */
+    @Contract(pure = true)
+    final boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    /**
+     * @param key a key to look for
+     * @return {@code true} if the map has an entry with the key, {@code false} otherwise
+     */
+    @Contract(pure = true)
+    final boolean containsKey(final int key) {
+        return mUsed[indexOf(key)];
+    }
+
+    /**
+     * @param key a key to look for
+     * @return the value of the entry with the key, or {@code null} if there is no such entry
+     */
+    @Nullable
+    @Contract(pure = true)
+    @SuppressWarnings("unchecked")
+    final V get(final int key) {
+        final int index = indexOf(key);
+        return mUsed[index] ? (V) mValues[index] : null;
+    }
+
+    /**
+     * Stores an entry in the map, replacing the previous one with the same key.
+     *
+     * @param key   a key of the entry
+     * @param value a value of the entry
+     * @return the previous value of the entry with the key, or {@code null} if there was no such
+     * entry
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    final V put(final int key, @Nullable final V value) {
+        final int index = indexOf(key);
+        if (mUsed[index]) {
+            final V previousValue = (V) mValues[index];
+            mValues[index] = value;
+            return previousValue;
+        }
+        mKeys[index] = key;
+        mValues[index] = value;
+        mUsed[index] = true;
+        mSize++;
+        if (mSize * 2 > mKeys.length) {
+            rehash(mKeys.length * 2);
+        }
+        return null;
+    }
+
+    /**
+     * Removes an entry from the map.
+     *
+     * @param key a key of the entry
+     * @return the value of the removed entry, or {@code null} if there was no such entry
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    final V remove(final int key) {
+        int index = indexOf(key);
+        if (!mUsed[index]) {
+            return null;
+        }
+        final V value = (V) mValues[index];
+        mSize--;
+
+        // shifts the following entries of the probe sequence back, so that no gaps are left in it
+        final int mask = mKeys.length - 1;
+        int next = (index + 1) & mask;
+        while (mUsed[next]) {
+            final int home = hash(mKeys[next]) & mask;
+            if (((next - home) & mask) >= ((next - index) & mask)) {
+                mKeys[index] = mKeys[next];
+                mValues[index] = mValues[next];
+                index = next;
+            }
+            next = (next + 1) & mask;
+        }
+        mUsed[index] = false;
+        mValues[index] = null;
+        return value;
+    }
+
+    /**
+     * Removes all the entries from the map.
+     */
+    final void clear() {
+        Arrays.fill(mUsed, false);
+        Arrays.fill(mValues, null);
+        mSize = 0;
+    }
+
+    /**
+     * @return the keys of all the entries in the map
+     */
+    @NonNull
+    @Contract(pure = true)
+    final int[] keys() {
+        final int[] keys = new int[mSize];
+        int count = 0;
+        for (int i = 0; i < mKeys.length; i++) {
+            if (mUsed[i]) {
+                keys[count++] = mKeys[i];
+            }
+        }
+        return keys;
+    }
+
+    @Override
+    @Contract(pure = true)
+    public String toString() {
+        return "IntObjectMap[size=" + mSize + "]";
+    }
+
+    /**
+     * Finds the slot of the entry with the key, or the free slot where it should be stored.
+     */
+    @Contract(pure = true)
+    private int indexOf(final int key) {
+        final int mask = mKeys.length - 1;
+        int index = hash(key) & mask;
+        while (mUsed[index] && mKeys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void allocate(final int capacity) {
+        mKeys = new int[capacity];
+        mValues = new Object[capacity];
+        mUsed = new boolean[capacity];
+    }
+
+    private void rehash(final int capacity) {
+        final int[] keys = mKeys;
+        final Object[] values = mValues;
+        final boolean[] used = mUsed;
+        allocate(capacity);
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                final int index = indexOf(keys[i]);
+                mKeys[index] = keys[i];
+                mValues[index] = values[i];
+                mUsed[index] = true;
+            }
+        }
+    }
+
+    @Contract(pure = true)
+    private static int hash(final int key) {
+        // launch ids are sequential, so the bits are mixed to spread them over the table
+        final int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
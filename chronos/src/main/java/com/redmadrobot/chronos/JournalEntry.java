@@ -0,0 +1,102 @@
+package com.redmadrobot.chronos;
+
+import org.jetbrains.annotations.Contract;
+
+import android.support.annotation.NonNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+/**
+ * A launch of a durable operation as it is written to the operation journal.
+ *
+ * @author maximefimov
+ * @see OperationJournal
+ * @see ChronosOperation#isDurable()
+ */
+final class JournalEntry {
+
+    @NonNull
+    private final ChronosOperation<?> mOperation;
+
+    private final boolean mIsBroadcast;
+
+    private JournalEntry(@NonNull final ChronosOperation<?> operation, final boolean isBroadcast) {
+        mOperation = operation;
+        mIsBroadcast = isBroadcast;
+    }
+
+    /**
+     * Serializes a launch of a durable operation.
+     *
+     * @param operation   the launched operation
+     * @param isBroadcast {@code true} if the result of the launch should be broadcasted
+     * @return the data of the journal entry
+     * @throws IllegalArgumentException if the operation can't be serialized, or it is serialized
+     *                                  to more than {@link OperationJournal#MAX_ENTRY_SIZE} bytes
+     */
+    @NonNull
+    static byte[] toBytes(@NonNull final ChronosOperation<?> operation, final boolean isBroadcast) {
+        if (!(operation instanceof Serializable)) {
+            throw new IllegalArgumentException(
+                    "Durable operation " + operation.getClass().getName() + " is not Serializable");
+        }
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            final ObjectOutputStream output = new ObjectOutputStream(bytes);
+            output.writeBoolean(isBroadcast);
+            output.writeObject(operation);
+            output.close();
+        } catch (IOException e) {
+            throw new IllegalArgumentException(
+                    "Durable operation " + operation.getClass().getName()
+                            + " can't be serialized", e);
+        }
+        if (bytes.size() > OperationJournal.MAX_ENTRY_SIZE) {
+            throw new IllegalArgumentException(
+                    "Durable operation " + operation.getClass().getName() + " is serialized to "
+                            + bytes.size() + " bytes, more than "
+                            + OperationJournal.MAX_ENTRY_SIZE);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Restores a launch of a durable operation.
+     *
+     * @param data the data of the journal entry
+     * @return the launch
+     * @throws IOException            if the data is damaged
+     * @throws ClassNotFoundException if the operation class does not exist any more
+     */
+    @NonNull
+    static JournalEntry fromBytes(@NonNull final byte[] data)
+            throws IOException, ClassNotFoundException {
+        final ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(data));
+        try {
+            final boolean isBroadcast = input.readBoolean();
+            final Object operation = input.readObject();
+            if (!(operation instanceof ChronosOperation)) {
+                throw new IOException("Not an operation: " + operation);
+            }
+            return new JournalEntry((ChronosOperation<?>) operation, isBroadcast);
+        } finally {
+            input.close();
+        }
+    }
+
+    @NonNull
+    @Contract(pure = true)
+    final ChronosOperation<?> getOperation() {
+        return mOperation;
+    }
+
+    @Contract(pure = true)
+    final boolean isBroadcast() {
+        return mIsBroadcast;
+    }
+}
@@ -0,0 +1,240 @@
+package com.redmadrobot.chronos;
+
+import org.jetbrains.annotations.Contract;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.lang.ref.SoftReference;
+
+/**
+ * An operation result on its way to a particular listener. A stored result of a known size is held
+ * strongly within the memory budget of stored results, a result of unknown size is held by a soft
+ * reference. If the result is lost either way, an empty result with {@link ResultEvictedException}
+ * is delivered instead.
+ *
+ * @param <T> type of output generated by the related operation
+ * @author maximefimov
+ * @see StoredResultRetention
+ */
+final class OperationDelivery<T> {
+
+    enum DeliveryMode {
+        NORMAL,
+        BROADCAST
+    }
+
+    /**
+     * The operation of the result, or {@code null} if the result is of a batch launch, or was
+     * restored from disk.
+     */
+    @Nullable
+    private final ChronosOperation<T> mOperation;
+
+    @NonNull
+    private final Class<?> mResultClass;
+
+    private final int mId;
+
+    private final boolean mIsBroadcast;
+
+    @NonNull
+    private final DeliveryMode mDeliveryMode;
+
+    @Nullable
+    private final String mTag;
+
+    /**
+     * {@code true} if it is a cached output of a revalidating launch, which is superseded by the
+     * final result of the launch.
+     */
+    private final boolean mIsInterim;
+
+    @Nullable
+    private ChronosOperationResult<T> mResult;
+
+    @Nullable
+    private SoftReference<ChronosOperationResult<T>> mSoftResult;
+
+    private long mSize = ChronosOperationResult.SIZE_UNKNOWN;
+
+    private long mSequence;
+
+    /**
+     * @param result       the result to be delivered
+     * @param deliveryMode the way the result is delivered
+     * @param tag          the tag of the launch, or {@code null} if it is a broadcast result, or
+     *                     the launch has no tag
+     */
+    OperationDelivery(@NonNull final ChronosOperationResult<T> result,
+            @NonNull final DeliveryMode deliveryMode, @Nullable final String tag) {
+        this(result, deliveryMode, tag, false);
+    }
+
+    /**
+     * @param result       the result to be delivered
+     * @param deliveryMode the way the result is delivered
+     * @param tag          the tag of the launch, or {@code null} if it is a broadcast result, or
+     *                     the launch has no tag
+     * @param isInterim    {@code true} if the result is a cached output of a revalidating launch
+     */
+    OperationDelivery(@NonNull final ChronosOperationResult<T> result,
+            @NonNull final DeliveryMode deliveryMode, @Nullable final String tag,
+            final boolean isInterim) {
+        mIsInterim = isInterim;
+        mOperation = result.getOperation();
+        mResultClass = result.getClass();
+        mId = result.getId();
+        mIsBroadcast = result.isBroadcast();
+        mResult = result;
+        mDeliveryMode = deliveryMode;
+        mTag = tag;
+    }
+
+    /**
+     * Gets the result to be delivered.
+     *
+     * @return the result, or an empty result of the same class with {@link
+     * ResultEvictedException}, if the result was dropped from memory
+     */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    final ChronosOperationResult<T> getResult() {
+        ChronosOperationResult<T> result = mResult;
+        if (result == null && mSoftResult != null) {
+            result = mSoftResult.get();
+        }
+        if (result == null) {
+            if (mOperation != null) {
+                result = mOperation.createResult();
+                result.setOperation(mOperation);
+            } else {
+                result = ResultConstructorCache.getInstance().newInstance(
+                        (Class<? extends ChronosOperationResult<T>>) mResultClass);
+            }
+            result.setId(mId);
+            result.setBroadcast(mIsBroadcast);
+            result.setException(new ResultEvictedException());
+        }
+        return result;
+    }
+
+    @NonNull
+    @Contract(pure = true)
+    final DeliveryMode getDeliveryMode() {
+        return mDeliveryMode;
+    }
+
+    /**
+     * @return the tag of the launch, or {@code null} if it is a broadcast result, or the launch has
+     * no tag
+     */
+    @Nullable
+    @Contract(pure = true)
+    final String getTag() {
+        return mTag;
+    }
+
+    /**
+     * @return the priority of the operation, or {@link ChronosOperation#PRIORITY_NORMAL} if there
+     * is no operation, lower priority results are evicted first
+     */
+    @Contract(pure = true)
+    final int getPriority() {
+        return mOperation != null ? mOperation.getPriority() : ChronosOperation.PRIORITY_NORMAL;
+    }
+
+    /**
+     * @return the estimated size of the stored result in bytes, or {@link
+     * ChronosOperationResult#SIZE_UNKNOWN}
+     */
+    @Contract(pure = true)
+    final long getSize() {
+        return mSize;
+    }
+
+    @Contract(pure = true)
+    final long getSequence() {
+        return mSequence;
+    }
+
+    /**
+     * @param sequence the number of the delivery in the order it was stored
+     */
+    final void setSequence(final long sequence) {
+        mSequence = sequence;
+    }
+
+    /**
+     * Prepares the delivery to be stored until the listener is resumed. A result of unknown size
+     * is held by a soft reference from now on.
+     *
+     * @return {@code true} if the size of the result is known, so it should be counted in the
+     * memory budget, {@code false} otherwise
+     */
+    final boolean onStored() {
+        final ChronosOperationResult<T> result = mResult;
+        if (result == null) {
+            return false;
+        }
+        mSize = result.getEstimatedSize();
+        if (mSize >= 0) {
+            return true;
+        }
+        mSoftResult = new SoftReference<>(result);
+        mResult = null;
+        return false;
+    }
+
+    /**
+     * Drops the result to free memory, an empty one will be delivered instead.
+     */
+    final void evict() {
+        mResult = null;
+        mSoftResult = null;
+    }
+
+    /**
+     * @param other another delivery
+     * @return {@code true} if both deliveries are own results of launches with the same tag
+     */
+    @Contract(pure = true)
+    final boolean hasSameTag(@NonNull final OperationDelivery<?> other) {
+        return mTag != null && mTag.equals(other.mTag);
+    }
+
+    /**
+     * @return {@code true} if it is a cached output of a revalidating launch, {@code false}
+     * otherwise
+     */
+    @Contract(pure = true)
+    final boolean isInterim() {
+        return mIsInterim;
+    }
+
+    /**
+     * @param other another delivery
+     * @return {@code true} if the other delivery is an interim result of the same launch, delivered
+     * the same way, so it is outdated by this one
+     */
+    @Contract(pure = true)
+    final boolean supersedes(@NonNull final OperationDelivery<?> other) {
+        return other.mIsInterim && mId == other.mId && mDeliveryMode == other.mDeliveryMode;
+    }
+
+    /**
+     * @param other another delivery
+     * @return {@code true} if both deliveries have the same result class and delivery mode
+     */
+    @Contract(pure = true)
+    final boolean hasSameClass(@NonNull final OperationDelivery<?> other) {
+        return mDeliveryMode == other.mDeliveryMode && mResultClass == other.mResultClass;
+    }
+
+    @Override
+    @Contract(pure = true)
+    public String toString() {
+        return "OperationDelivery[id=" + mId + "; class=" + mResultClass.getName() + "; mode="
+                + mDeliveryMode + "]";
+    }
+}
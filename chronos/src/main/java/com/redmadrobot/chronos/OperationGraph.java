@@ -0,0 +1,179 @@
+package com.redmadrobot.chronos;
+
+import org.jetbrains.annotations.Contract;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An operation which consists of several operations that depend on the outputs of each other.
+ * When launched in background, independent operations of the graph are run in parallel, and every
+ * operation is started in a background thread as soon as all of its dependencies are finished, so
+ * there are no returns to the main thread between the stages. The graph is delivered as a single
+ * launch with the result of its result operation, or with the exception of the first operation
+ * that failed, in which case the operations that are not started yet are dropped.
+ * <p/>
+ * A graph can be launched only once, as its nodes keep the outputs of the run. Build a new graph to
+ * run the operations again.
+ *
+ * @param <Output> class of the output of the result operation
+ * @author maximefimov
+ * @see Builder
+ */
+public final class OperationGraph<Output> extends ChronosOperation<Output> {
+
+    @NonNull
+    private final List<GraphNode<?>> mNodes;
+
+    @NonNull
+    private final GraphNode<Output> mResultNode;
+
+    @NonNull
+    private final AtomicBoolean mIsLaunched = new AtomicBoolean(false);
+
+    private OperationGraph(@NonNull final List<GraphNode<?>> nodes,
+            @NonNull final GraphNode<Output> resultNode) {
+        mNodes = Collections.unmodifiableList(nodes);
+        mResultNode = resultNode;
+    }
+
+    /**
+     * Runs the operations of the graph one by one in the calling thread.
+     *
+     * @return the output of the result operation
+     * @throws IllegalStateException if the graph has already been launched
+     */
+    @Nullable
+    @Override
+    public Output run() {
+        onLaunched();
+        for (final GraphNode<?> node : mNodes) {
+            runNode(node);
+        }
+        return mResultNode.getOutput();
+    }
+
+    @NonNull
+    @Contract(pure = true)
+    @Override
+    public Class<? extends ChronosOperationResult<Output>> getResultClass() {
+        return mResultNode.getOperation().getResultClass();
+    }
+
+    @NonNull
+    @Override
+    public ChronosOperationResult<Output> createResult() {
+        return mResultNode.getOperation().createResult();
+    }
+
+    /**
+     * Marks the graph as launched.
+     *
+     * @throws IllegalStateException if the graph has already been launched
+     */
+    final void onLaunched() {
+        if (!mIsLaunched.compareAndSet(false, true)) {
+            throw new IllegalStateException("Graph has already been launched");
+        }
+    }
+
+    /**
+     * @return all the nodes of the graph, every node goes after all of its dependencies
+     */
+    @NonNull
+    @Contract(pure = true)
+    final List<GraphNode<?>> getNodes() {
+        return mNodes;
+    }
+
+    /**
+     * @return the node which output is the output of the graph
+     */
+    @NonNull
+    @Contract(pure = true)
+    final GraphNode<Output> getResultNode() {
+        return mResultNode;
+    }
+
+    private static <NodeOutput> void runNode(@NonNull final GraphNode<NodeOutput> node) {
+        node.setOutput(node.getOperation().run());
+    }
+
+    /**
+     * A builder of operation graphs. A node may depend only on the nodes added before it, so the
+     * graph never has cycles.
+     */
+    public final static class Builder {
+
+        @NonNull
+        private final List<GraphNode<?>> mNodes = new ArrayList<>();
+
+        private boolean mIsBuilt = false;
+
+        /**
+         * Adds an operation to the graph.
+         *
+         * @param operation    an operation to be run
+         * @param dependencies nodes which outputs the operation takes as inputs, the operation
+         *                     will not be run until all of them are finished
+         * @param <NodeOutput> class of the result, returned by the Operations' {@code run} method
+         * @return the node of the operation, which is passed to the operations that depend on it
+         * @throws IllegalArgumentException if a dependency was not added to this builder
+         * @throws IllegalStateException    if the graph is already built
+         */
+        @NonNull
+        public final <NodeOutput> GraphNode<NodeOutput> add(
+                @NonNull final ChronosOperation<NodeOutput> operation,
+                @NonNull final GraphNode<?>... dependencies) {
+            checkNotBuilt();
+            final List<GraphNode<?>> nodeDependencies = new ArrayList<>(
+                    Arrays.asList(dependencies));
+            for (final GraphNode<?> dependency : nodeDependencies) {
+                checkOwnNode(dependency);
+            }
+            final GraphNode<NodeOutput> node = new GraphNode<>(operation, nodeDependencies,
+                    this, mNodes.size());
+            for (final GraphNode<?> dependency : nodeDependencies) {
+                dependency.getDependents().add(node);
+            }
+            mNodes.add(node);
+            return node;
+        }
+
+        /**
+         * Builds the graph. The builder can't be used after that.
+         *
+         * @param resultNode   the node which output is the output of the graph
+         * @param <NodeOutput> class of the output of the result operation
+         * @return a new graph
+         * @throws IllegalArgumentException if the node was not added to this builder
+         * @throws IllegalStateException    if the graph is already built
+         */
+        @NonNull
+        public final <NodeOutput> OperationGraph<NodeOutput> build(
+                @NonNull final GraphNode<NodeOutput> resultNode) {
+            checkNotBuilt();
+            checkOwnNode(resultNode);
+            mIsBuilt = true;
+            return new OperationGraph<>(mNodes, resultNode);
+        }
+
+        private void checkNotBuilt() {
+            if (mIsBuilt) {
+                throw new IllegalStateException("Graph is already built");
+            }
+        }
+
+        private void checkOwnNode(@NonNull final GraphNode<?> node) {
+            if (node.getGraphKey() != this) {
+                throw new IllegalArgumentException(node + " belongs to another graph");
+            }
+        }
+    }
+}
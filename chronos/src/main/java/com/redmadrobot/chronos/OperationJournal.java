@@ -0,0 +1,355 @@
+package com.redmadrobot.chronos;
+
+import org.jetbrains.annotations.Contract;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only file of operation launches which must be finished even if the process dies. An
+ * entry is appended when a launch is submitted and is marked as completed when it is finished, so
+ * the entries which are not completed on the next start belong to the launches interrupted by the
+ * death of the process.
+ * <p/>
+ * The file has a header of a magic number and a format version, followed by records of an entry
+ * submission or completion. A record holds its type, the entry id, the length of the entry data,
+ * the data itself, and a CRC32 checksum of all that, and is written with a single system call. A
+ * record torn by the death of the process or damaged otherwise fails the checksum, and the file is
+ * read only up to it. Records reach the OS before an append returns, so they survive the death of
+ * the process, but not necessarily a power loss.
+ * <p/>
+ * The file is compacted, so that it holds only the entries which are not completed, every time it
+ * is opened, and when the number of completed entries exceeds the compaction threshold and the
+ * number of the entries left. The data of the entries left are kept in memory for that purpose.
+ * <p/>
+ * The class does not depend on Android, and all the methods are thread-safe.
+ *
+ * @author maximefimov
+ * @see ChronosOperation#isDurable()
+ */
+final class OperationJournal {
+
+    final static int DEFAULT_COMPACTION_THRESHOLD = 256;
+
+    private final static int MAGIC = 0x43484a31;
+
+    private final static int VERSION = 1;
+
+    private final static byte RECORD_SUBMITTED = 1;
+
+    private final static byte RECORD_COMPLETED = 2;
+
+    /**
+     * Type, entry id and data length.
+     */
+    private final static int RECORD_HEADER_SIZE = 1 + 8 + 4;
+
+    private final static int CHECKSUM_SIZE = 4;
+
+    /**
+     * The maximum size of the data of an entry, larger launches are not journaled.
+     */
+    final static int MAX_ENTRY_SIZE = 1024 * 1024;
+
+    @NonNull
+    private final static String TEMP_SUFFIX = ".tmp";
+
+    @NonNull
+    private final File mFile;
+
+    private final int mCompactionThreshold;
+
+    /**
+     * The data of the entries which are not completed yet by their ids, in the order they were
+     * appended.
+     */
+    @NonNull
+    private final Map<Long, byte[]> mPendingEntries = new LinkedHashMap<>();
+
+    @NonNull
+    private final RecordBuffer mRecordBuffer = new RecordBuffer();
+
+    @NonNull
+    private final DataOutputStream mRecordOutput = new DataOutputStream(mRecordBuffer);
+
+    @NonNull
+    private final CRC32 mChecksum = new CRC32();
+
+    @Nullable
+    private FileOutputStream mOutput;
+
+    private long mNextEntryId = 1;
+
+    private int mCompletedSinceCompaction = 0;
+
+    /**
+     * {@code true} until the journal is opened or closed, appends wait for it meanwhile.
+     */
+    private boolean mIsPending = true;
+
+    /**
+     * @param file the file of the journal, it is created if it does not exist
+     */
+    OperationJournal(@NonNull final File file) {
+        this(file, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * @param file                the file of the journal, it is created if it does not exist
+     * @param compactionThreshold the minimal number of completed entries which makes the journal
+     *                            compacted
+     */
+    OperationJournal(@NonNull final File file, final int compactionThreshold) {
+        mFile = file;
+        mCompactionThreshold = compactionThreshold;
+    }
+
+    /**
+     * Reads the journal, and prepares it for appending.
+     *
+     * @return the data of the entries which were not completed by the previous process by their
+     * ids, in the order they were appended
+     * @throws IOException if the journal can't be read or written, or it is already closed
+     */
+    @NonNull
+    synchronized final Map<Long, byte[]> open() throws IOException {
+        if (mOutput != null) {
+            throw new IllegalStateException("Journal is already open");
+        }
+        if (!mIsPending) {
+            throw new IOException("Journal is closed");
+        }
+        try {
+            mPendingEntries.clear();
+            if (mFile.exists()) {
+                read();
+            }
+            // the completed entries and a torn record are dropped
+            compact();
+            return new LinkedHashMap<>(mPendingEntries);
+        } finally {
+            mIsPending = false;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Appends an entry of a submitted launch. If the journal is being opened in background, waits
+     * until it is open.
+     *
+     * @param data the data needed to launch the operation again
+     * @return the id of the entry
+     * @throws IOException if the entry can't be written
+     */
+    synchronized final long append(@NonNull final byte[] data) throws IOException {
+        if (data.length > MAX_ENTRY_SIZE) {
+            throw new IllegalArgumentException("Journal entry is too large: " + data.length);
+        }
+        while (mIsPending) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while the journal is opened");
+            }
+        }
+        final long entryId = mNextEntryId++;
+        writeRecord(getOutput(), RECORD_SUBMITTED, entryId, data);
+        mPendingEntries.put(entryId, data);
+        return entryId;
+    }
+
+    /**
+     * Marks an entry as completed, so that it is not returned by {@link #open()} any more.
+     *
+     * @param entryId the id of the entry
+     * @throws IOException if the record can't be written
+     */
+    synchronized final void complete(final long entryId) throws IOException {
+        if (mOutput == null || mPendingEntries.remove(entryId) == null) {
+            // the journal is closed, or the entry is already completed
+            return;
+        }
+        writeRecord(mOutput, RECORD_COMPLETED, entryId, null);
+        mCompletedSinceCompaction++;
+        if (mCompletedSinceCompaction >= mCompactionThreshold
+                && mCompletedSinceCompaction > mPendingEntries.size()) {
+            compact();
+        }
+    }
+
+    /**
+     * Closes the file of the journal. The entries which are not completed yet stay in it.
+     */
+    synchronized final void close() {
+        mIsPending = false;
+        notifyAll();
+        closeOutput();
+    }
+
+    /**
+     * @return the number of entries which are not completed yet
+     */
+    @Contract(pure = true)
+    synchronized final int getPendingCount() {
+        return mPendingEntries.size();
+    }
+
+    @NonNull
+    private FileOutputStream getOutput() throws IOException {
+        if (mOutput == null) {
+            throw new IOException("Journal is not open");
+        }
+        return mOutput;
+    }
+
+    private void closeOutput() {
+        if (mOutput != null) {
+            try {
+                mOutput.close();
+            } catch (IOException e) {
+                // the records have already been written
+            }
+            mOutput = null;
+        }
+    }
+
+    /**
+     * Rewrites the file with the entries which are not completed yet, the file is replaced only by
+     * a complete new one.
+     *
+     * @throws IOException if the file can't be written
+     */
+    private void compact() throws IOException {
+        closeOutput();
+        final File tempFile = new File(mFile.getPath() + TEMP_SUFFIX);
+        try {
+            final FileOutputStream output = new FileOutputStream(tempFile);
+            try {
+                writeHeader(output);
+                for (final Map.Entry<Long, byte[]> entry : mPendingEntries.entrySet()) {
+                    writeRecord(output, RECORD_SUBMITTED, entry.getKey(), entry.getValue());
+                }
+                output.getFD().sync();
+            } finally {
+                output.close();
+            }
+            if (!tempFile.renameTo(mFile)) {
+                throw new IOException("Can't replace " + mFile);
+            }
+            mCompletedSinceCompaction = 0;
+        } finally {
+            // if the compaction has failed, the previous file is still valid to be appended to
+            if (mFile.exists()) {
+                mOutput = new FileOutputStream(mFile, true);
+            }
+        }
+    }
+
+    /**
+     * Reads the records of the file up to the end, or to the first damaged record.
+     */
+    private void read() throws IOException {
+        final long fileLength = mFile.length();
+        final DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(mFile)));
+        try {
+            if (fileLength < 8 || input.readInt() != MAGIC || input.readInt() != VERSION) {
+                // not a journal of this version, nothing can be recovered from it
+                return;
+            }
+            long position = 8;
+            while (position + RECORD_HEADER_SIZE + CHECKSUM_SIZE <= fileLength) {
+                final byte type = input.readByte();
+                final long entryId = input.readLong();
+                final int length = input.readInt();
+                if (length < 0 || length > MAX_ENTRY_SIZE
+                        || position + RECORD_HEADER_SIZE + length + CHECKSUM_SIZE > fileLength) {
+                    return;
+                }
+                final byte[] data = new byte[length];
+                input.readFully(data);
+                final int checksum = input.readInt();
+
+                mChecksum.reset();
+                mRecordBuffer.reset();
+                mRecordOutput.writeByte(type);
+                mRecordOutput.writeLong(entryId);
+                mRecordOutput.writeInt(length);
+                mRecordBuffer.updateChecksum(mChecksum);
+                mChecksum.update(data, 0, length);
+                if ((int) mChecksum.getValue() != checksum) {
+                    return;
+                }
+
+                if (type == RECORD_SUBMITTED) {
+                    mPendingEntries.put(entryId, data);
+                } else if (type == RECORD_COMPLETED) {
+                    mPendingEntries.remove(entryId);
+                } else {
+                    return;
+                }
+                mNextEntryId = Math.max(mNextEntryId, entryId + 1);
+                position += RECORD_HEADER_SIZE + length + CHECKSUM_SIZE;
+            }
+        } catch (EOFException e) {
+            // the last record is torn
+        } finally {
+            input.close();
+        }
+    }
+
+    private void writeHeader(@NonNull final FileOutputStream output) throws IOException {
+        mRecordBuffer.reset();
+        mRecordOutput.writeInt(MAGIC);
+        mRecordOutput.writeInt(VERSION);
+        mRecordBuffer.writeTo(output);
+    }
+
+    /**
+     * Writes a record with a single system call, so that the process can't die in the middle of
+     * it, unless the system does.
+     */
+    private void writeRecord(@NonNull final FileOutputStream output, final byte type,
+            final long entryId, @Nullable final byte[] data) throws IOException {
+        final int length = data != null ? data.length : 0;
+        mRecordBuffer.reset();
+        mRecordOutput.writeByte(type);
+        mRecordOutput.writeLong(entryId);
+        mRecordOutput.writeInt(length);
+        if (data != null) {
+            mRecordOutput.write(data);
+        }
+        mChecksum.reset();
+        mRecordBuffer.updateChecksum(mChecksum);
+        mRecordOutput.writeInt((int) mChecksum.getValue());
+        mRecordBuffer.writeTo(output);
+    }
+
+    /**
+     * A reusable buffer of a record, which computes the checksum without copying the record.
+     */
+    private final static class RecordBuffer extends ByteArrayOutputStream {
+
+        private RecordBuffer() {
+            super(RECORD_HEADER_SIZE + CHECKSUM_SIZE + 256);
+        }
+
+        private void updateChecksum(@NonNull final CRC32 checksum) {
+            checksum.update(buf, 0, count);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.redmadrobot.chronos;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A background task that is ordered in the queue by its operation priority. To prevent starvation
+ * the priority is aged: every aging step spent in the queue is worth one priority level, so a task
+ * waits for the tasks of higher priority at most for the priority difference times aging step.
+ *
+ * @author maximefimov
+ * @see ChronosOperation#getPriority()
+ * @see ChronosConfiguration#getPriorityAgingStepMillis()
+ * @see QueueWaitStatistics
+ */
+final class PriorityTask extends FutureTask<Void> implements Comparable<PriorityTask> {
+
+    @NonNull
+    private final static AtomicLong SEQUENCE = new AtomicLong(0);
+
+    @NonNull
+    private final QueueWaitStatistics mStatistics;
+
+    private final long mEnqueueTime;
+
+    private final long mOrderKey;
+
+    private final long mSequenceNumber = SEQUENCE.getAndIncrement();
+
+    /**
+     * Set when the task is started or discarded, whichever happens first.
+     */
+    @NonNull
+    private final AtomicBoolean mIsClaimed = new AtomicBoolean(false);
+
+    /**
+     * The number of times the task has been put to the queue, it is changed only by the queue.
+     */
+    private volatile int mQueuedCount = 0;
+
+    /**
+     * @param runnable       the work of the task
+     * @param priority       the operation priority
+     * @param agingStepNanos the time in the queue which is worth one priority level
+     * @param statistics     the statistics to record the wait time of the task to
+     */
+    PriorityTask(@NonNull final Runnable runnable, final int priority, final long agingStepNanos,
+            @NonNull final QueueWaitStatistics statistics) {
+        super(runnable, null);
+        mStatistics = statistics;
+        mEnqueueTime = System.nanoTime();
+        mOrderKey = mEnqueueTime - priority * agingStepNanos;
+    }
+
+    @Override
+    public void run() {
+        if (!mIsClaimed.compareAndSet(false, true)) {
+            // the task has been discarded
+            return;
+        }
+        if (!isDone()) {
+            mStatistics.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - mEnqueueTime));
+        }
+        super.run();
+    }
+
+    /**
+     * Marks the task as discarded, so that it does nothing if it is run later.
+     *
+     * @return {@code true} if the task is discarded, {@code false} if it has already been started
+     */
+    final boolean discard() {
+        return mIsClaimed.compareAndSet(false, true);
+    }
+
+    final int getQueuedCount() {
+        return mQueuedCount;
+    }
+
+    /**
+     * Called by the queue, under its lock, when the task is put to it.
+     */
+    @SuppressWarnings("NonAtomicOperationOnVolatileField")
+    final void onQueued() {
+        mQueuedCount++;
+    }
+
+    @Override
+    public int compareTo(@NonNull final PriorityTask another) {
+        if (mOrderKey != another.mOrderKey) {
+            return mOrderKey < another.mOrderKey ? -1 : 1;
+        }
+        return mSequenceNumber < another.mSequenceNumber ? -1
+                : (mSequenceNumber == another.mSequenceNumber ? 0 : 1);
+    }
+}
@@ -0,0 +1,43 @@
+package com.redmadrobot.chronos;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.PriorityBlockingQueue;
+
+/**
+ * A priority queue of background tasks with a limited capacity.
+ *
+ * @author maximefimov
+ * @see PriorityTask
+ */
+final class PriorityTaskQueue extends PriorityBlockingQueue<Runnable> {
+
+    private final int mCapacity;
+
+    /**
+     * @param capacity the maximum number of tasks in the queue
+     */
+    PriorityTaskQueue(final int capacity) {
+        mCapacity = capacity;
+    }
+
+    @Override
+    public boolean offer(@NonNull final Runnable runnable) {
+        // tasks are only removed concurrently, so the size can't grow between the check and the
+        // insertion while offers are serialized
+        synchronized (this) {
+            if (size() >= mCapacity || !super.offer(runnable)) {
+                return false;
+            }
+            if (runnable instanceof PriorityTask) {
+                ((PriorityTask) runnable).onQueued();
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Math.max(0, mCapacity - size());
+    }
+}
@@ -0,0 +1,89 @@
+package com.redmadrobot.chronos;
+
+import org.jetbrains.annotations.Contract;
+
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Statistics of the time operations of a single priority wait in the queue before they are
+ * started. Percentiles are calculated over the most recent {@link #SAMPLE_COUNT} operations.
+ *
+ * @author maximefimov
+ * @see Chronos#getQueueWaitStatistics(int)
+ */
+public final class QueueWaitStatistics {
+
+    /**
+     * The maximum number of recent wait times used to calculate percentiles.
+     */
+    public final static int SAMPLE_COUNT = 1024;
+
+    @NonNull
+    private final long[] mSamples = new long[SAMPLE_COUNT];
+
+    private long mCount = 0;
+
+    private long mMaxMillis = 0;
+
+    QueueWaitStatistics() {
+    }
+
+    /**
+     * Records the wait time of an operation that has just been started.
+     *
+     * @param waitMillis time in milliseconds the operation has spent in the queue
+     */
+    synchronized final void record(final long waitMillis) {
+        mSamples[(int) (mCount % SAMPLE_COUNT)] = waitMillis;
+        mCount++;
+        if (waitMillis > mMaxMillis) {
+            mMaxMillis = waitMillis;
+        }
+    }
+
+    /**
+     * @return the number of operations started since the statistics was created
+     */
+    @Contract(pure = true)
+    public synchronized final long getCount() {
+        return mCount;
+    }
+
+    /**
+     * @return the longest wait time in milliseconds since the statistics was created
+     */
+    @Contract(pure = true)
+    public synchronized final long getMaxMillis() {
+        return mMaxMillis;
+    }
+
+    /**
+     * Calculates a percentile of the recent wait times.
+     *
+     * @param percentile a percentile in range {@code (0, 100]}, for example, {@code 99} for the
+     *                   p99 wait time
+     * @return the wait time in milliseconds, or {@code 0} if no operations were started
+     */
+    @Contract(pure = true)
+    public synchronized final long getPercentileMillis(final double percentile) {
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be in range (0, 100]");
+        }
+        final int size = (int) Math.min(mCount, SAMPLE_COUNT);
+        if (size == 0) {
+            return 0;
+        }
+        final long[] samples = Arrays.copyOf(mSamples, size);
+        Arrays.sort(samples);
+        final int index = (int) Math.ceil(percentile / 100 * size) - 1;
+        return samples[Math.max(0, index)];
+    }
+
+    @Override
+    @Contract(pure = true)
+    public synchronized String toString() {
+        return "QueueWaitStatistics[count=" + mCount + "; max=" + mMaxMillis + "ms]";
+    }
+}
@@ -0,0 +1,202 @@
+package com.redmadrobot.chronos;
+
+import org.jetbrains.annotations.Contract;
+
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A dispatcher that looks for client callback methods via reflection. It is used for client
+ * classes which have no generated dispatcher. Resolved callbacks are cached for every combination
+ * of client class, result class and callback name, including the ones that have no callbacks at
+ * all, so the client class methods are scanned only once per combination.
+ *
+ * @author maximefimov
+ * @see DispatcherRegistry
+ */
+final class ReflectionDispatcher implements ChronosDispatcher {
+
+    @NonNull
+    private final static String LOG_TAG = ReflectionDispatcher.class.getSimpleName();
+
+    @NonNull
+    private final static Method[] NO_CALLBACKS = new Method[0];
+
+    @NonNull
+    private final Map<CallbackKey, Method[]> mCallbacks = new HashMap<>();
+
+    /**
+     * Checks if a method can be used as a callback to handle operation result.
+     *
+     * @param method      a method to be checked
+     * @param resultClass a class of the value passed to the callback
+     * @param methodName  a required method name
+     * @return {@code true} if method can be used as a callback; {@code false} otherwise
+     */
+    @Contract(pure = true)
+    private static boolean isCallback(@NonNull final Method method,
+            @NonNull final Class<?> resultClass,
+            @NonNull final String methodName) {
+        if (method.getName().equals(methodName)) {
+            if (method.getReturnType() == Void.TYPE) {
+                final Class<?>[] parameters = method.getParameterTypes();
+                if (parameters.length == 1 && parameters[0].isAssignableFrom(resultClass)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Scans client class methods for the callbacks.
+     *
+     * @param listenerClass a class of Chronos client
+     * @param resultClass   an operation result class
+     * @param methodName    a required method name
+     * @return callback methods, prepared to be invoked without access checks
+     */
+    @NonNull
+    private static Method[] findCallbacks(@NonNull final Class<?> listenerClass,
+            @NonNull final Class<?> resultClass, @NonNull final String methodName) {
+        final List<Method> callbacks = new ArrayList<>();
+        for (Method method : listenerClass.getMethods()) {
+            if (isCallback(method, resultClass, methodName)) {
+                try {
+                    method.setAccessible(true);
+                } catch (SecurityException e) {
+                    // the method is public, so it still can be invoked with access checks
+                }
+                callbacks.add(method);
+            }
+        }
+        return callbacks.isEmpty() ? NO_CALLBACKS : callbacks.toArray(new Method[callbacks.size()]);
+    }
+
+    /**
+     * Gets callback methods from the cache, resolving them if there is no cached value.
+     *
+     * @param listenerClass a class of Chronos client
+     * @param resultClass   an operation result class
+     * @param broadcast     {@code true} if broadcast callbacks are required, {@code false}
+     *                      otherwise
+     * @return callback methods, may be empty if the client has no callbacks for the result class
+     */
+    @NonNull
+    final Method[] getCallbacks(@NonNull final Class<?> listenerClass,
+            @NonNull final Class<?> resultClass, final boolean broadcast) {
+        return getCallbacks(listenerClass, resultClass,
+                broadcast ? Chronos.BROADCAST_CALLBACK_METHOD_NAME
+                        : Chronos.OWN_CALLBACK_METHOD_NAME);
+    }
+
+    /**
+     * Gets callback methods from the cache, resolving them if there is no cached value.
+     *
+     * @param listenerClass a class of Chronos client
+     * @param valueClass    a class of the value passed to the callbacks
+     * @param methodName    a required method name
+     * @return callback methods, may be empty if the client has no callbacks for the value class
+     */
+    @NonNull
+    private synchronized Method[] getCallbacks(@NonNull final Class<?> listenerClass,
+            @NonNull final Class<?> valueClass, @NonNull final String methodName) {
+        final CallbackKey key = new CallbackKey(listenerClass, valueClass, methodName);
+        Method[] callbacks = mCallbacks.get(key);
+        if (callbacks == null) {
+            callbacks = findCallbacks(listenerClass, valueClass, methodName);
+            mCallbacks.put(key, callbacks);
+        }
+        return callbacks;
+    }
+
+    @Override
+    public final boolean dispatch(@NonNull final Object listener,
+            @NonNull final ChronosOperationResult<?> result, final boolean broadcast) {
+        return invoke(listener, result,
+                getCallbacks(listener.getClass(), result.getClass(), broadcast));
+    }
+
+    /**
+     * Calls every client callback method that is able to receive the progress of an operation.
+     *
+     * @param listener a client to pass the progress to
+     * @param progress a progress value published by the operation
+     * @return {@code true} if at least one callback method was called, {@code false} otherwise
+     * @see Chronos#PROGRESS_CALLBACK_METHOD_NAME
+     */
+    final boolean dispatchProgress(@NonNull final Object listener,
+            @NonNull final Object progress) {
+        return invoke(listener, progress, getCallbacks(listener.getClass(), progress.getClass(),
+                Chronos.PROGRESS_CALLBACK_METHOD_NAME));
+    }
+
+    @SuppressWarnings("TryWithIdenticalCatches")
+    private static boolean invoke(@NonNull final Object listener, @NonNull final Object value,
+            @NonNull final Method[] callbacks) {
+        for (Method method : callbacks) {
+            try {
+                method.invoke(listener, value);
+            } catch (IllegalAccessException e) {
+                Log.w(LOG_TAG, Log.getStackTraceString(e));
+            } catch (InvocationTargetException e) {
+                Log.w(LOG_TAG, Log.getStackTraceString(e));
+            }
+        }
+
+        return callbacks.length > 0;
+    }
+
+    /**
+     * A key of resolved callbacks cache.
+     */
+    private final static class CallbackKey {
+
+        @NonNull
+        private final Class<?> mListenerClass;
+
+        @NonNull
+        private final Class<?> mValueClass;
+
+        @NonNull
+        private final String mMethodName;
+
+        private CallbackKey(@NonNull final Class<?> listenerClass,
+                @NonNull final Class<?> valueClass, @NonNull final String methodName) {
+            mListenerClass = listenerClass;
+            mValueClass = valueClass;
+            mMethodName = methodName;
+        }
+
+        @Override
+        @Contract(pure = true)
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CallbackKey)) {
+                return false;
+            }
+            final CallbackKey that = (CallbackKey) o;
+            return mListenerClass == that.mListenerClass && mValueClass == that.mValueClass
+                    && mMethodName.equals(that.mMethodName);
+        }
+
+        @Override
+        @Contract(pure = true)
+        public int hashCode() {
+            int result = mListenerClass.hashCode();
+            result = 31 * result + mValueClass.hashCode();
+            result = 31 * result + mMethodName.hashCode();
+            return result;
+        }
+    }
+}
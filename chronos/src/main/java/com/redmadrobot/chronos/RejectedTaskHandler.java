@@ -0,0 +1,47 @@
+package com.redmadrobot.chronos;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * A wrapper of the handler of tasks which can't be accepted by the thread pool. If the wrapped
+ * handler neither throws, nor runs the task, nor puts it to the queue, the task is discarded and
+ * {@link RejectedExecutionException} is thrown instead, so that the launch is finished with the
+ * exception as its result rather than is never delivered. Tasks rejected by a pool which has been
+ * shut down are not passed to the wrapped handler, so that they can be submitted to the new pool.
+ *
+ * @author maximefimov
+ * @see ChronosConfiguration#getRejectedExecutionHandler()
+ */
+final class RejectedTaskHandler implements RejectedExecutionHandler {
+
+    @NonNull
+    private final RejectedExecutionHandler mHandler;
+
+    /**
+     * @param handler the handler configured by the user
+     */
+    RejectedTaskHandler(@NonNull final RejectedExecutionHandler handler) {
+        mHandler = handler;
+    }
+
+    @Override
+    public void rejectedExecution(final Runnable runnable, final ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Thread pool has been shut down");
+        }
+        if (!(runnable instanceof PriorityTask)) {
+            mHandler.rejectedExecution(runnable, executor);
+            return;
+        }
+        final PriorityTask task = (PriorityTask) runnable;
+        final int queuedCount = task.getQueuedCount();
+        mHandler.rejectedExecution(task, executor);
+        if (task.getQueuedCount() == queuedCount && task.discard()) {
+            throw new RejectedExecutionException("Task was discarded by " + mHandler);
+        }
+    }
+}
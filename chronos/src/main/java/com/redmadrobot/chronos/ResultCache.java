@@ -0,0 +1,251 @@
+package com.redmadrobot.chronos;
+
+import org.jetbrains.annotations.Contract;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.util.LruCache;
+import android.util.Log;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * A memory cache of successful operation outputs by operation cache keys. Outputs are evicted in
+ * the least recently used order when the total size of them exceeds the limit, and are dropped
+ * when they are no longer fresh. The cache is thread-safe.
+ *
+ * @author maximefimov
+ * @see ChronosOperation#getCacheKey()
+ */
+final class ResultCache {
+
+    @NonNull
+    private final static String LOG_TAG = ResultCache.class.getSimpleName();
+
+    @Nullable
+    private final LruCache<String, Entry> mEntries;
+
+    @NonNull
+    private final ResultCacheStatistics mStatistics;
+
+    @NonNull
+    private final CacheEvictionListener mEvictionListener;
+
+    private final int mMaxSize;
+
+    /**
+     * @param maxSize          the maximum total size of cached outputs, {@code 0} to disable the
+     *                         cache
+     * @param statistics       the statistics to be updated by the cache
+     * @param evictionListener the listener of outputs which are evicted or are no longer fresh
+     */
+    ResultCache(final int maxSize, @NonNull final ResultCacheStatistics statistics,
+            @NonNull final CacheEvictionListener evictionListener) {
+        mStatistics = statistics;
+        mEvictionListener = evictionListener;
+        mMaxSize = maxSize;
+        mEntries = maxSize > 0 ? new LruCache<String, Entry>(maxSize) {
+            @Override
+            protected int sizeOf(final String key, final Entry entry) {
+                return entry.mSize;
+            }
+
+            @Override
+            protected void entryRemoved(final boolean evicted, final String key,
+                    final Entry oldEntry, final Entry newEntry) {
+                if (evicted) {
+                    mStatistics.onEviction();
+                    mEvictionListener.onEvicted(key);
+                }
+            }
+        } : null;
+    }
+
+    /**
+     * @return the maximum total size of cached outputs, {@code 0} if the cache is disabled
+     */
+    @Contract(pure = true)
+    final int getMaxSize() {
+        return mMaxSize;
+    }
+
+    /**
+     * Finishes a launch with a cached output, if there is a fresh one.
+     *
+     * @param cacheKey        the cache key of the launched operation
+     * @param operationResult the result of the launch
+     * @param <Output>        class of the operation output
+     * @return {@code true} if the result got the cached output, {@code false} otherwise
+     */
+    @SuppressWarnings("unchecked")
+    final <Output> boolean get(@NonNull final String cacheKey,
+            @NonNull final ChronosOperationResult<Output> operationResult) {
+        final Entry entry = mEntries != null ? mEntries.get(cacheKey) : null;
+        if (entry == null || entry.mResultClass != operationResult.getClass()) {
+            mStatistics.onMiss();
+            return false;
+        }
+        if (SystemClock.elapsedRealtime() >= entry.mExpirationTime) {
+            if (mEntries.remove(cacheKey) == entry) {
+                mEvictionListener.onEvicted(cacheKey);
+            }
+            mStatistics.onMiss();
+            return false;
+        }
+        operationResult.setOutput((Output) entry.mOutput);
+        operationResult.setFresh(false);
+        mStatistics.onHit();
+        return true;
+    }
+
+    /**
+     * Finishes a launch with a cached output, even if it is no longer fresh. The output is kept in
+     * the cache.
+     *
+     * @param cacheKey        the cache key of the launched operation
+     * @param operationResult the result of the launch
+     * @param <Output>        class of the operation output
+     * @return {@code true} if the result got the cached output, {@code false} otherwise
+     */
+    @SuppressWarnings("unchecked")
+    final <Output> boolean getStale(@NonNull final String cacheKey,
+            @NonNull final ChronosOperationResult<Output> operationResult) {
+        final Entry entry = mEntries != null ? mEntries.get(cacheKey) : null;
+        if (entry == null || entry.mResultClass != operationResult.getClass()) {
+            mStatistics.onMiss();
+            return false;
+        }
+        operationResult.setOutput((Output) entry.mOutput);
+        operationResult.setFresh(false);
+        mStatistics.onHit();
+        return true;
+    }
+
+    /**
+     * Stores the output of a successful launch. The output is not cached if the operation fails
+     * to tell its max age or size, so that a launch is not broken by its cache parameters.
+     *
+     * @param cacheKey        the cache key of the launched operation
+     * @param operation       the launched operation
+     * @param operationResult the result of the launch
+     * @param <Output>        class of the operation output
+     */
+    final <Output> void put(@NonNull final String cacheKey,
+            @NonNull final ChronosOperation<Output> operation,
+            @NonNull final ChronosOperationResult<Output> operationResult) {
+        final long maxAge;
+        try {
+            maxAge = operation.getCacheMaxAgeMillis();
+        } catch (RuntimeException e) {
+            Log.w(LOG_TAG, "Can't get max age of output by key " + cacheKey + ": " + e);
+            return;
+        }
+        put(cacheKey, operation, operationResult, maxAge);
+    }
+
+    /**
+     * Stores the output of a successful launch for a given time. The output is not cached if the
+     * operation fails to tell its size.
+     *
+     * @param cacheKey        the cache key of the launched operation
+     * @param operation       the launched operation
+     * @param operationResult the result of the launch
+     * @param maxAge          the time the output stays fresh, in milliseconds
+     * @param <Output>        class of the operation output
+     */
+    final <Output> void put(@NonNull final String cacheKey,
+            @NonNull final ChronosOperation<Output> operation,
+            @NonNull final ChronosOperationResult<Output> operationResult, final long maxAge) {
+        if (mEntries == null || !operationResult.isSuccessful()) {
+            return;
+        }
+        final Output output = operationResult.getOutput();
+        final long now = SystemClock.elapsedRealtime();
+        final long expirationTime = maxAge < Long.MAX_VALUE - now ? now + maxAge : Long.MAX_VALUE;
+        final int size;
+        try {
+            size = operation.getCachedSize(output);
+        } catch (RuntimeException e) {
+            Log.w(LOG_TAG, "Can't get size of output by key " + cacheKey + ": " + e);
+            return;
+        }
+        if (size < 0) {
+            Log.w(LOG_TAG, "Output by key " + cacheKey + " has negative size " + size);
+            return;
+        }
+        mEntries.put(cacheKey, new Entry(output, operationResult.getClass(), expirationTime,
+                size));
+    }
+
+    /**
+     * Checks if there is an output in the cache, fresh or not. The output is not counted as used.
+     *
+     * @param cacheKey the cache key of an operation
+     * @return {@code true} if there is an output, {@code false} otherwise
+     */
+    @Contract(pure = true)
+    final boolean contains(@NonNull final String cacheKey) {
+        return mEntries != null && mEntries.snapshot().containsKey(cacheKey);
+    }
+
+    /**
+     * Removes the output from the cache.
+     *
+     * @param cacheKey the cache key of an operation
+     */
+    final void remove(@NonNull final String cacheKey) {
+        if (mEntries != null) {
+            mEntries.remove(cacheKey);
+        }
+    }
+
+    /**
+     * @return the cache keys of the outputs in the cache, fresh or not
+     */
+    @NonNull
+    @Contract(pure = true)
+    final Set<String> getKeys() {
+        return mEntries != null ? mEntries.snapshot().keySet() : Collections.<String>emptySet();
+    }
+
+    /**
+     * Removes all the outputs from the cache.
+     */
+    final void clear() {
+        if (mEntries != null) {
+            // removed one by one, so that they are not counted as evicted
+            for (final String cacheKey : mEntries.snapshot().keySet()) {
+                mEntries.remove(cacheKey);
+            }
+        }
+    }
+
+    private final static class Entry {
+
+        @Nullable
+        private final Object mOutput;
+
+        @NonNull
+        private final Class<?> mResultClass;
+
+        private final long mExpirationTime;
+
+        private final int mSize;
+
+        private Entry(@Nullable final Object output, @NonNull final Class<?> resultClass,
+                final long expirationTime, final int size) {
+            mOutput = output;
+            mResultClass = resultClass;
+            mExpirationTime = expirationTime;
+            mSize = size;
+        }
+
+        @Override
+        @Contract(pure = true)
+        public String toString() {
+            return "Entry[class=" + mResultClass.getName() + "; size=" + mSize + "]";
+        }
+    }
+}
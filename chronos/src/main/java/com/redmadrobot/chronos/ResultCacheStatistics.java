@@ -0,0 +1,84 @@
+package com.redmadrobot.chronos;
+
+import org.jetbrains.annotations.Contract;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics of the cache of operation outputs. Counters are accumulated since the statistics was
+ * created, regardless of cache reconfigurations.
+ *
+ * @author maximefimov
+ * @see Chronos#getResultCacheStatistics()
+ */
+public final class ResultCacheStatistics {
+
+    private final AtomicLong mHitCount = new AtomicLong(0);
+
+    private final AtomicLong mMissCount = new AtomicLong(0);
+
+    private final AtomicLong mEvictionCount = new AtomicLong(0);
+
+    private final AtomicLong mDiskHitCount = new AtomicLong(0);
+
+    ResultCacheStatistics() {
+    }
+
+    final void onHit() {
+        mHitCount.incrementAndGet();
+    }
+
+    final void onMiss() {
+        mMissCount.incrementAndGet();
+    }
+
+    final void onEviction() {
+        mEvictionCount.incrementAndGet();
+    }
+
+    final void onDiskHit() {
+        mDiskHitCount.incrementAndGet();
+    }
+
+    /**
+     * @return the number of launches that were finished with a cached output
+     */
+    @Contract(pure = true)
+    public final long getHitCount() {
+        return mHitCount.get();
+    }
+
+    /**
+     * @return the number of launches of cached operations that had to be run, because there was no
+     * fresh output in the cache
+     */
+    @Contract(pure = true)
+    public final long getMissCount() {
+        return mMissCount.get();
+    }
+
+    /**
+     * @return the number of launches that missed the memory cache, but were finished with an
+     * output cached on disk. They are counted as misses too.
+     * @see ChronosOperation#getResultCodec()
+     */
+    @Contract(pure = true)
+    public final long getDiskHitCount() {
+        return mDiskHitCount.get();
+    }
+
+    /**
+     * @return the number of outputs removed from the memory cache to fit its size
+     */
+    @Contract(pure = true)
+    public final long getEvictionCount() {
+        return mEvictionCount.get();
+    }
+
+    @Override
+    @Contract(pure = true)
+    public String toString() {
+        return "ResultCacheStatistics[hits=" + getHitCount() + "; misses=" + getMissCount()
+                + "; diskHits=" + getDiskHitCount() + "; evictions=" + getEvictionCount() + "]";
+    }
+}
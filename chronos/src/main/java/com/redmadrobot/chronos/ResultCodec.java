@@ -0,0 +1,42 @@
+package com.redmadrobot.chronos;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.IOException;
+
+/**
+ * A converter of operation outputs to bytes and back, which allows the outputs to be cached on disk
+ * and to outlive the process. Implementations should be stateless, as a single instance may be used
+ * by several threads at once.
+ *
+ * @param <Output> class of the output
+ * @author maximefimov
+ * @see ChronosOperation#getResultCodec()
+ * @see ChronosConfiguration.Builder#setDiskResultCacheDirectory(java.io.File)
+ */
+public interface ResultCodec<Output> {
+
+    /**
+     * Converts an output to bytes.
+     *
+     * @param output a successful output of the operation
+     * @return the bytes of the output
+     * @throws IOException if the output can't be converted, it is not cached then, the same as if
+     *                     a runtime exception is thrown
+     */
+    @NonNull
+    byte[] encode(@Nullable final Output output) throws IOException;
+
+    /**
+     * Restores an output from bytes.
+     *
+     * @param data the bytes returned by {@link #encode(Object)}, possibly by an earlier version of
+     *             the application
+     * @return the output
+     * @throws IOException if the output can't be restored, the operation is run then, the same as
+     *                     if a runtime exception is thrown
+     */
+    @Nullable
+    Output decode(@NonNull final byte[] data) throws IOException;
+}
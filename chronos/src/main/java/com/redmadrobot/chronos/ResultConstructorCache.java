@@ -0,0 +1,77 @@
+package com.redmadrobot.chronos;
+
+import org.jetbrains.annotations.Contract;
+
+import android.support.annotation.NonNull;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A cache of the no-argument constructors of operation result classes. A constructor is looked up
+ * and made accessible only once per class, so results are created without repeated reflective
+ * lookups and access checks, even if the constructor is not public.
+ *
+ * @author maximefimov
+ * @see ChronosOperation#createResult()
+ */
+final class ResultConstructorCache {
+
+    @NonNull
+    private final static ResultConstructorCache INSTANCE = new ResultConstructorCache();
+
+    @NonNull
+    private final ConcurrentMap<Class<?>, Constructor<?>> mConstructors
+            = new ConcurrentHashMap<>();
+
+    private ResultConstructorCache() {
+    }
+
+    @NonNull
+    @Contract(pure = true)
+    static ResultConstructorCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Creates a new instance of a result class.
+     *
+     * @param resultClass a class of the result
+     * @param <Output>    class of the result output
+     * @return a new empty result
+     * @throws RuntimeException if the class can't be instantiated
+     */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    final <Output> ChronosOperationResult<Output> newInstance(
+            @NonNull final Class<? extends ChronosOperationResult<Output>> resultClass) {
+        try {
+            return (ChronosOperationResult<Output>) getConstructor(resultClass).newInstance();
+        } catch (InstantiationException e) {
+            throw new RuntimeException("Can't create a new instance of " + resultClass.getName());
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(resultClass.getName() + " constructor is not accessible");
+        } catch (InvocationTargetException e) {
+            throw new RuntimeException(resultClass.getName() + " constructor has thrown an exception",
+                    e.getCause());
+        }
+    }
+
+    @NonNull
+    private Constructor<?> getConstructor(@NonNull final Class<?> resultClass) {
+        Constructor<?> constructor = mConstructors.get(resultClass);
+        if (constructor == null) {
+            try {
+                constructor = resultClass.getDeclaredConstructor();
+            } catch (NoSuchMethodException e) {
+                throw new RuntimeException(
+                        resultClass.getName() + " has no constructor without arguments");
+            }
+            constructor.setAccessible(true);
+            mConstructors.put(resultClass, constructor);
+        }
+        return constructor;
+    }
+}
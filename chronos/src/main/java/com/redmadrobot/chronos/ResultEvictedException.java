@@ -0,0 +1,17 @@
+package com.redmadrobot.chronos;
+
+/**
+ * An exception of a result which was obtained while its client was paused, but was dropped from
+ * memory before the client was resumed. The client gets an empty result of the same class with
+ * this exception instead, so the loss is never silent.
+ *
+ * @author maximefimov
+ * @see ChronosOperationResult#getEstimatedSize()
+ * @see ChronosConfiguration#getStoredResultsBudgetBytes()
+ */
+public final class ResultEvictedException extends RuntimeException {
+
+    ResultEvictedException() {
+        super("Result was evicted from memory before it could be delivered");
+    }
+}
@@ -0,0 +1,352 @@
+package com.redmadrobot.chronos;
+
+import org.jetbrains.annotations.Contract;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A module which passes operation results from background threads to Chronos clients in the Main
+ * Thread. An own result is passed only to the listener which has launched the operation, a
+ * broadcast one is also passed to the listeners subscribed to it, which are found by the index of
+ * broadcast subscriptions.
+ * Progress of an operation is passed only to its owner, at a limited rate.
+ *
+ * @author maximefimov
+ */
+final class ResultRouter {
+
+    @NonNull
+    private final static ResultRouter INSTANCE = new ResultRouter();
+
+    @NonNull
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    @NonNull
+    private final ConcurrentMap<Integer, ChronosListener> mOwners = new ConcurrentHashMap<>();
+
+    @NonNull
+    private final BroadcastSubscriptions mBroadcastSubscriptions = new BroadcastSubscriptions();
+
+    @NonNull
+    private final ConcurrentMap<Integer, ProgressChannel> mProgressChannels
+            = new ConcurrentHashMap<>();
+
+    private volatile long mProgressIntervalMillis = 0;
+
+    private ResultRouter() {
+    }
+
+    @NonNull
+    @Contract(pure = true)
+    static ResultRouter getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Binds an operation launch to the listener which should receive its result. Must be called
+     * before the operation is started.
+     *
+     * @param operationId the unique id of operations' launch
+     * @param owner       the listener which has launched the operation
+     */
+    final void registerOwner(final int operationId, @NonNull final ChronosListener owner) {
+        mOwners.put(operationId, owner);
+    }
+
+    /**
+     * Unbinds a cancelled operation launch from its listener, so that its result will not be
+     * delivered as an own one, and notifies the listener in the Main Thread.
+     *
+     * @param operationId the unique id of operations' launch
+     */
+    final void onOperationCancelled(final int operationId) {
+        mProgressChannels.remove(operationId);
+        final ChronosListener owner = mOwners.remove(operationId);
+        if (owner != null) {
+            runInMainThread(new Runnable() {
+                @Override
+                public void run() {
+                    owner.onOwnOperationCancelled(operationId);
+                }
+            });
+        }
+    }
+
+    /**
+     * Removes all the bindings of the listener, so that it will neither receive own results of the
+     * operations it has launched, nor broadcast results.
+     *
+     * @param listener a listener to be unbound
+     */
+    synchronized final void unregisterListener(@NonNull final ChronosListener listener) {
+        mBroadcastSubscriptions.unsubscribe(listener);
+        final Iterator<ChronosListener> owners = mOwners.values().iterator();
+        while (owners.hasNext()) {
+            if (owners.next() == listener) {
+                owners.remove();
+            }
+        }
+    }
+
+    /**
+     * Subscribes the listener to all the broadcast results, as its client is not known yet.
+     *
+     * @param listener a listener to be subscribed
+     */
+    synchronized final void subscribeToAllBroadcasts(@NonNull final ChronosListener listener) {
+        mBroadcastSubscriptions.subscribeAll(listener);
+    }
+
+    /**
+     * Subscribes the listener to the broadcast results its client consumes, replacing the previous
+     * subscription.
+     *
+     * @param listener      a listener to be subscribed
+     * @param resultClasses the parameter classes of the broadcast callbacks of the client
+     * @param topics        the topics the client consumes, or {@code null} if it consumes all of
+     *                      them
+     * @see BroadcastTopicSubscriber
+     */
+    synchronized final void subscribeToBroadcasts(@NonNull final ChronosListener listener,
+            @NonNull final Class<?>[] resultClasses, @Nullable final Collection<String> topics) {
+        mBroadcastSubscriptions.subscribe(listener, resultClasses, topics);
+    }
+
+    /**
+     * Checks if the listener is subscribed to a broadcast result.
+     *
+     * @param listener        a listener
+     * @param operationResult a broadcast result
+     * @return {@code true} if the listener consumes the result, {@code false} otherwise
+     */
+    @Contract(pure = true)
+    synchronized final boolean isSubscribed(@NonNull final ChronosListener listener,
+            @NonNull final ChronosOperationResult<?> operationResult) {
+        return mBroadcastSubscriptions.isSubscribed(listener, operationResult);
+    }
+
+    /**
+     * @param progressIntervalMillis the minimal time between two progress deliveries of an
+     *                               operation launch, in milliseconds
+     */
+    final void setProgressIntervalMillis(final long progressIntervalMillis) {
+        mProgressIntervalMillis = progressIntervalMillis;
+    }
+
+    /**
+     * Passes an intermediate value of a running operation to its owner in the Main Thread. Values
+     * published faster than the progress interval are conflated, so only the newest one is
+     * passed.
+     *
+     * @param operationId the unique id of operations' launch
+     * @param progress    a progress value to be delivered
+     */
+    final void publishProgress(final int operationId, @NonNull final Object progress) {
+        if (!mOwners.containsKey(operationId)) {
+            // the launch is finished, cancelled, or synchronous
+            return;
+        }
+        ProgressChannel channel = mProgressChannels.get(operationId);
+        if (channel == null) {
+            final ProgressChannel newChannel = new ProgressChannel(operationId);
+            channel = mProgressChannels.putIfAbsent(operationId, newChannel);
+            if (channel == null) {
+                channel = newChannel;
+            }
+        }
+        channel.publish(progress);
+    }
+
+    /**
+     * Passes an operation result to the listeners in the Main Thread. The result is always passed
+     * asynchronously, even if the method is called from the Main Thread.
+     *
+     * @param operationResult an operation result to be delivered
+     * @see #send(ChronosOperationResult)
+     */
+    final void post(@NonNull final ChronosOperationResult<?> operationResult) {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                route(operationResult);
+            }
+        });
+    }
+
+    /**
+     * Passes a cached output of a launch which is still running to the listeners in the Main
+     * Thread. The launch is finished only by its final result.
+     *
+     * @param operationResult an operation result to be delivered
+     * @see ChronosService#runRevalidatingAsync(ChronosOperation, boolean, ChronosListener)
+     */
+    final void postInterim(@NonNull final ChronosOperationResult<?> operationResult) {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                routeInterim(operationResult);
+            }
+        });
+    }
+
+    /**
+     * Passes an operation result to the listeners in the Main Thread. If the method is called from
+     * the Main Thread, the result is passed immediately.
+     *
+     * @param operationResult an operation result to be delivered
+     * @see #post(ChronosOperationResult)
+     */
+    final void send(@NonNull final ChronosOperationResult<?> operationResult) {
+        runInMainThread(new Runnable() {
+            @Override
+            public void run() {
+                route(operationResult);
+            }
+        });
+    }
+
+    /**
+     * Runs an action in the Main Thread, immediately if the method is called from it.
+     *
+     * @param action an action to be run
+     */
+    private void runInMainThread(@NonNull final Runnable action) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            action.run();
+        } else {
+            mMainHandler.post(action);
+        }
+    }
+
+    /**
+     * Passes an operation result to its owner and, if the result is a broadcast one, to all the
+     * listeners that accept broadcast results.
+     *
+     * @param operationResult an operation result to be delivered
+     */
+    private void route(@NonNull final ChronosOperationResult<?> operationResult) {
+        final int operationId = operationResult.getId();
+
+        mProgressChannels.remove(operationId);
+        final ChronosListener owner = mOwners.remove(operationId);
+
+        if (RunningOperationStorage.getInstance().isOperationCancelled(operationResult)) {
+            return;
+        }
+        if (operationResult.isUnchanged()) {
+            if (owner != null) {
+                owner.onOwnResultUnchanged(operationId);
+            }
+            return;
+        }
+        deliver(operationResult, owner, true);
+    }
+
+    /**
+     * Passes a cached output of a launch to its owner, which keeps tracking the launch, and, if the
+     * result is a broadcast one, to all the listeners that accept broadcast results.
+     *
+     * @param operationResult an operation result to be delivered
+     */
+    private void routeInterim(@NonNull final ChronosOperationResult<?> operationResult) {
+        if (RunningOperationStorage.getInstance().isOperationCancelled(operationResult)) {
+            return;
+        }
+        deliver(operationResult, mOwners.get(operationResult.getId()), false);
+    }
+
+    private void deliver(@NonNull final ChronosOperationResult<?> operationResult,
+            @Nullable final ChronosListener owner, final boolean isFinal) {
+        final ChronosListener[] broadcastListeners;
+        synchronized (this) {
+            broadcastListeners = operationResult.isBroadcast()
+                    ? mBroadcastSubscriptions.getListeners(operationResult) : null;
+        }
+
+        if (isFinal && operationResult.isBroadcast() && operationResult.isSuccessful()
+                && operationResult.isStickyBroadcast()) {
+            StickyBroadcastStore.getInstance().put(operationResult,
+                    ChronosService.getInstance().getConfiguration().getStickyBroadcastCapacity());
+        }
+        if (owner != null) {
+            if (isFinal) {
+                owner.onOwnResult(operationResult);
+            } else {
+                owner.onOwnInterimResult(operationResult);
+            }
+        }
+        if (broadcastListeners != null) {
+            for (final ChronosListener listener : broadcastListeners) {
+                if (listener == owner) {
+                    continue;
+                }
+                if (isFinal) {
+                    listener.onBroadcastResult(operationResult);
+                } else {
+                    listener.onBroadcastInterimResult(operationResult);
+                }
+            }
+        }
+    }
+
+    /**
+     * A conflating queue of progress values of a single operation launch. It holds the newest
+     * value only, and has at most one pending delivery in the Main Thread.
+     */
+    private final class ProgressChannel implements Runnable {
+
+        private final int mOperationId;
+
+        @NonNull
+        private final AtomicReference<Object> mProgress = new AtomicReference<>();
+
+        @NonNull
+        private final AtomicBoolean mIsScheduled = new AtomicBoolean(false);
+
+        private volatile long mLastDeliveryTime = 0;
+
+        private ProgressChannel(final int operationId) {
+            mOperationId = operationId;
+        }
+
+        private void publish(@NonNull final Object progress) {
+            mProgress.set(progress);
+            if (mIsScheduled.compareAndSet(false, true)) {
+                final long delay = mLastDeliveryTime + mProgressIntervalMillis
+                        - SystemClock.uptimeMillis();
+                if (delay > 0) {
+                    mMainHandler.postDelayed(this, delay);
+                } else {
+                    mMainHandler.post(this);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            mIsScheduled.set(false);
+            final Object progress = mProgress.getAndSet(null);
+            final ChronosListener owner = mOwners.get(mOperationId);
+            if (owner == null) {
+                // the result has been delivered, so the progress is outdated
+                mProgressChannels.remove(mOperationId, this);
+                return;
+            }
+            if (progress != null) {
+                mLastDeliveryTime = SystemClock.uptimeMillis();
+                owner.onOwnProgress(mOperationId, progress);
+            }
+        }
+    }
+}
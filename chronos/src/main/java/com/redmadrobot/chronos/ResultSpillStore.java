@@ -0,0 +1,503 @@
+package com.redmadrobot.chronos;
+
+import org.jetbrains.annotations.Contract;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A disk store of results which were not delivered to paused listeners, so that they survive the
+ * death of the process. Every listener has its own file, named after the listener id, which is
+ * rewritten in background every time the listener saves its state, and is read back in background
+ * when the listener is restored by its id in a new process. Only results with a {@link Serializable}
+ * output and a constructor without arguments can be spilled.
+ * <p/>
+ * A file is removed once it is read, and the files of listeners which are never restored are
+ * removed when they are older than {@link #STALE_FILE_AGE_MILLIS}.
+ * <p/>
+ * A file has a header of a magic number, a format version and an entry count, followed by
+ * length-prefixed entries, each of which is serialized separately, so that a result which can't
+ * be read back is skipped without losing the others. The newest results are kept if not all of
+ * them fit into {@link ChronosConfiguration#getResultSpillMaxBytes()}.
+ *
+ * @author maximefimov
+ * @see ChronosConfiguration#getResultSpillDirectory()
+ */
+final class ResultSpillStore {
+
+    @NonNull
+    private final static ResultSpillStore INSTANCE = new ResultSpillStore();
+
+    @NonNull
+    private final static String LOG_TAG = ResultSpillStore.class.getSimpleName();
+
+    private final static int MAGIC = 0x43485231;
+
+    private final static int VERSION = 1;
+
+    private final static int HEADER_SIZE = 12;
+
+    private final static int ENTRY_HEADER_SIZE = 4;
+
+    @NonNull
+    private final static String FILE_PREFIX = "chronos-results-";
+
+    @NonNull
+    private final static String TEMP_SUFFIX = ".tmp";
+
+    @NonNull
+    private final static String THREAD_NAME_PREFIX = "ChronosSpill";
+
+    /**
+     * The age after which a file is not expected to be restored anymore, as the saved state it
+     * belongs to is most likely gone.
+     */
+    private final static long STALE_FILE_AGE_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    /**
+     * A single background thread, so that writes of the same file are never reordered.
+     */
+    @NonNull
+    private final ExecutorService mWriteExecutor;
+
+    /**
+     * Snapshots of listener results which are not written yet, by listener ids.
+     */
+    @NonNull
+    private final ConcurrentMap<Long, List<SpilledResult>> mPendingSnapshots
+            = new ConcurrentHashMap<>();
+
+    @NonNull
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private ResultSpillStore() {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new ChronosThreadFactory(THREAD_NAME_PREFIX, Process.THREAD_PRIORITY_BACKGROUND));
+        executor.allowCoreThreadTimeOut(true);
+        mWriteExecutor = executor;
+    }
+
+    @NonNull
+    @Contract(pure = true)
+    static ResultSpillStore getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return the directory of spilled results, or {@code null} if spilling is disabled
+     */
+    @Nullable
+    @Contract(pure = true)
+    private static File getDirectory() {
+        return ChronosService.getInstance().getConfiguration().getResultSpillDirectory();
+    }
+
+    /**
+     * @return {@code true} if spilling is enabled, {@code false} otherwise
+     */
+    @Contract(pure = true)
+    final boolean isEnabled() {
+        return getDirectory() != null;
+    }
+
+    /**
+     * Replaces the spilled results of a listener in background. The results are snapshotted in the
+     * calling thread, and if the listener saves them again before they are written, only the newest
+     * snapshot is written.
+     *
+     * @param listenerId the id of the listener
+     * @param deliveries undelivered results of the listener, in the order they were obtained
+     */
+    final void save(final long listenerId,
+            @NonNull final Collection<OperationDelivery<?>> deliveries) {
+        if (!isEnabled()) {
+            return;
+        }
+        final List<SpilledResult> snapshot = new ArrayList<>(deliveries.size());
+        for (final OperationDelivery<?> delivery : deliveries) {
+            final SpilledResult spilledResult = SpilledResult.from(delivery);
+            if (spilledResult != null) {
+                snapshot.add(spilledResult);
+            }
+        }
+        schedule(listenerId, snapshot);
+    }
+
+    /**
+     * Deletes the spilled results of a listener in background.
+     *
+     * @param listenerId the id of the listener
+     */
+    final void delete(final long listenerId) {
+        if (isEnabled()) {
+            schedule(listenerId, Collections.<SpilledResult>emptyList());
+        }
+    }
+
+    private void schedule(final long listenerId, @NonNull final List<SpilledResult> snapshot) {
+        if (mPendingSnapshots.put(listenerId, snapshot) != null) {
+            // the write is already scheduled, and will take the new snapshot
+            return;
+        }
+        mWriteExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<SpilledResult> pendingSnapshot = mPendingSnapshots.remove(listenerId);
+                final File directory = getDirectory();
+                if (pendingSnapshot != null && directory != null) {
+                    write(getFile(directory, listenerId), pendingSnapshot,
+                            ChronosService.getInstance().getConfiguration()
+                                    .getResultSpillMaxBytes());
+                }
+            }
+        });
+    }
+
+    /**
+     * Reads the spilled results of a listener in background, and deletes them from disk. The read
+     * is ordered with the writes, so a listener which saves its state before the results are read
+     * doesn't overwrite them.
+     *
+     * @param listenerId the id of the listener
+     * @param callback   a callback to be called in the Main Thread, if there are any results
+     */
+    final void restore(final long listenerId, @NonNull final RestoreCallback callback) {
+        if (!isEnabled()) {
+            return;
+        }
+        mWriteExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<OperationDelivery<?>> deliveries = restore(listenerId);
+                if (deliveries.isEmpty()) {
+                    return;
+                }
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onRestored(deliveries);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Reads the spilled results of a listener, and deletes them from disk. Must not be called from
+     * the Main Thread.
+     *
+     * @param listenerId the id of the listener
+     * @return the results in the order they were obtained, may be empty
+     * @see #restore(long, RestoreCallback)
+     */
+    @NonNull
+    final List<OperationDelivery<?>> restore(final long listenerId) {
+        final File directory = getDirectory();
+        if (directory == null) {
+            return Collections.emptyList();
+        }
+        final File file = getFile(directory, listenerId);
+        if (!file.exists()) {
+            return Collections.emptyList();
+        }
+        final List<OperationDelivery<?>> deliveries = read(file);
+        if (!file.delete()) {
+            Log.w(LOG_TAG, "Can't delete " + file);
+        }
+        return deliveries;
+    }
+
+    /**
+     * Removes the files of listeners which were not restored for too long in background.
+     *
+     * @param directory the directory of spilled results
+     */
+    final void removeStaleFiles(@NonNull final File directory) {
+        mWriteExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final File[] files = directory.listFiles();
+                if (files == null) {
+                    return;
+                }
+                final long staleTime = System.currentTimeMillis() - STALE_FILE_AGE_MILLIS;
+                for (final File file : files) {
+                    if (file.getName().startsWith(FILE_PREFIX) && file.lastModified() < staleTime
+                            && !file.delete()) {
+                        Log.w(LOG_TAG, "Can't delete " + file);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Waits until all the scheduled writes are done.
+     *
+     * @throws InterruptedException if the current thread was interrupted while waiting
+     */
+    final void flush() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        mWriteExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        });
+        latch.await();
+    }
+
+    /**
+     * @param directory  the directory of spilled results
+     * @param listenerId the id of the listener
+     * @return the file of spilled results of the listener
+     */
+    @NonNull
+    @Contract(pure = true)
+    static File getFile(@NonNull final File directory, final long listenerId) {
+        return new File(directory, FILE_PREFIX + listenerId);
+    }
+
+    private static void write(@NonNull final File file, @NonNull final List<SpilledResult> snapshot,
+            final int maxBytes) {
+        if (snapshot.isEmpty()) {
+            if (file.exists() && !file.delete()) {
+                Log.w(LOG_TAG, "Can't delete " + file);
+            }
+            return;
+        }
+
+        // the newest results are the most valuable, so they are taken first
+        final List<byte[]> entries = new ArrayList<>(snapshot.size());
+        int size = HEADER_SIZE;
+        for (int i = snapshot.size() - 1; i >= 0; i--) {
+            final byte[] entry = snapshot.get(i).toBytes();
+            if (entry == null) {
+                continue;
+            }
+            if (size + ENTRY_HEADER_SIZE + entry.length > maxBytes) {
+                Log.w(LOG_TAG, "Spill file limit is reached, " + (i + 1) + " results are dropped");
+                break;
+            }
+            size += ENTRY_HEADER_SIZE + entry.length;
+            entries.add(entry);
+        }
+        Collections.reverse(entries);
+
+        final File tempFile = new File(file.getPath() + TEMP_SUFFIX);
+        DataOutputStream output = null;
+        try {
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(entries.size());
+            for (final byte[] entry : entries) {
+                output.writeInt(entry.length);
+                output.write(entry);
+            }
+            output.close();
+            output = null;
+            // the previous file is replaced only with a complete new one
+            if (!tempFile.renameTo(file)) {
+                Log.w(LOG_TAG, "Can't replace " + file);
+            }
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Can't write " + file + ": " + e);
+        } finally {
+            closeQuietly(output);
+            if (tempFile.exists() && !tempFile.delete()) {
+                Log.w(LOG_TAG, "Can't delete " + tempFile);
+            }
+        }
+    }
+
+    @NonNull
+    private static List<OperationDelivery<?>> read(@NonNull final File file) {
+        final List<OperationDelivery<?>> deliveries = new ArrayList<>();
+        DataInputStream input = null;
+        try {
+            input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                Log.w(LOG_TAG, file + " has unknown format");
+                return deliveries;
+            }
+            final int count = input.readInt();
+            for (int i = 0; i < count; i++) {
+                final byte[] entry = new byte[input.readInt()];
+                input.readFully(entry);
+                final OperationDelivery<?> delivery = SpilledResult.fromBytes(entry);
+                if (delivery != null) {
+                    deliveries.add(delivery);
+                }
+            }
+        } catch (IOException e) {
+            // a truncated file still gives the entries read before the damage
+            Log.w(LOG_TAG, "Can't read " + file + ": " + e);
+        } finally {
+            closeQuietly(input);
+        }
+        return deliveries;
+    }
+
+    private static void closeQuietly(@Nullable final Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // nothing to do
+            }
+        }
+    }
+
+    /**
+     * A callback to get the results restored in background.
+     */
+    interface RestoreCallback {
+
+        /**
+         * Called in the Main Thread.
+         *
+         * @param deliveries the restored results in the order they were obtained, not empty
+         */
+        void onRestored(@NonNull List<OperationDelivery<?>> deliveries);
+    }
+
+    /**
+     * A snapshot of an undelivered result which can be written to disk.
+     */
+    private final static class SpilledResult {
+
+        @NonNull
+        private final String mResultClassName;
+
+        private final int mId;
+
+        private final boolean mIsBroadcast;
+
+        @NonNull
+        private final OperationDelivery.DeliveryMode mDeliveryMode;
+
+        @Nullable
+        private final String mTag;
+
+        @Nullable
+        private final Object mOutput;
+
+        @Nullable
+        private final Exception mException;
+
+        private SpilledResult(@NonNull final ChronosOperationResult<?> result,
+                @NonNull final OperationDelivery<?> delivery) {
+            mResultClassName = result.getClass().getName();
+            mId = result.getId();
+            mIsBroadcast = result.isBroadcast();
+            mDeliveryMode = delivery.getDeliveryMode();
+            mTag = delivery.getTag();
+            mOutput = result.getOutput();
+            mException = result.getException();
+        }
+
+        /**
+         * @param delivery an undelivered result
+         * @return a snapshot of the result, or {@code null} if it can't be spilled
+         */
+        @Nullable
+        private static SpilledResult from(@NonNull final OperationDelivery<?> delivery) {
+            final ChronosOperationResult<?> result = delivery.getResult();
+            final Object output = result.getOutput();
+            if (output != null && !(output instanceof Serializable)) {
+                return null;
+            }
+            return new SpilledResult(result, delivery);
+        }
+
+        /**
+         * @return the serialized snapshot, or {@code null} if it can't be serialized
+         */
+        @Nullable
+        private byte[] toBytes() {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try {
+                final ObjectOutputStream output = new ObjectOutputStream(bytes);
+                output.writeUTF(mResultClassName);
+                output.writeInt(mId);
+                output.writeBoolean(mIsBroadcast);
+                output.writeByte(mDeliveryMode.ordinal());
+                output.writeBoolean(mTag != null);
+                if (mTag != null) {
+                    output.writeUTF(mTag);
+                }
+                output.writeObject(mOutput);
+                output.writeObject(mException);
+                output.close();
+                return bytes.toByteArray();
+            } catch (IOException e) {
+                Log.w(LOG_TAG, "Can't spill " + mResultClassName + ": " + e);
+                return null;
+            }
+        }
+
+        /**
+         * @param bytes a serialized snapshot
+         * @return the restored result, or {@code null} if it can't be restored
+         */
+        @Nullable
+        @SuppressWarnings("unchecked")
+        private static OperationDelivery<?> fromBytes(@NonNull final byte[] bytes) {
+            try {
+                final ObjectInputStream input = new ObjectInputStream(
+                        new ByteArrayInputStream(bytes));
+                final Class<? extends ChronosOperationResult<Object>> resultClass
+                        = (Class<? extends ChronosOperationResult<Object>>) Class
+                        .forName(input.readUTF()).asSubclass(ChronosOperationResult.class);
+                final ChronosOperationResult<Object> result = ResultConstructorCache.getInstance()
+                        .newInstance(resultClass);
+                result.setId(input.readInt());
+                result.setBroadcast(input.readBoolean());
+                final OperationDelivery.DeliveryMode deliveryMode = OperationDelivery.DeliveryMode
+                        .values()[input.readByte()];
+                final String tag = input.readBoolean() ? input.readUTF() : null;
+                result.setOutput(input.readObject());
+                final Exception exception = (Exception) input.readObject();
+                if (exception != null) {
+                    result.setException(exception);
+                }
+                return new OperationDelivery<>(result, deliveryMode, tag);
+            } catch (IOException | ClassNotFoundException | RuntimeException e) {
+                Log.w(LOG_TAG, "Can't restore a spilled result: " + e);
+                return null;
+            }
+        }
+    }
+}
@@ -3,15 +3,16 @@ package com.redmadrobot.chronos;
 import org.jetbrains.annotations.Contract;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
 
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Future;
 
 /**
- * A storage for launched operation.
+ * A storage for launched operation. All the methods are thread-safe and do not block each other.
  *
  * @author maximefimov
  */
@@ -21,10 +22,21 @@ final class RunningOperationStorage {
     private final static RunningOperationStorage INSTANCE = new RunningOperationStorage();
 
     @NonNull
-    private final Map<Integer, RunningOperation> mRunningOperations = new HashMap<>();
+    private final static String LOG_TAG = RunningOperationStorage.class.getSimpleName();
 
     @NonNull
-    private final List<Integer> mCancelledOperations = new LinkedList<>();
+    private final ConcurrentMap<Integer, RunningOperation> mRunningOperations
+            = new ConcurrentHashMap<>();
+
+    @NonNull
+    private final CancelledOperationIds mCancelledOperations = new CancelledOperationIds();
+
+    /**
+     * Journal entries of the running durable operations by their launch ids.
+     */
+    @NonNull
+    private final ConcurrentMap<Integer, JournaledLaunch> mJournaledLaunches
+            = new ConcurrentHashMap<>();
 
     private RunningOperationStorage() {
     }
@@ -36,39 +48,33 @@ final class RunningOperationStorage {
     }
 
     /**
-     * Cancels running operation.
+     * Stores the future as a running operation with the id of the given result. Must be called
+     * before the future is submitted for execution, so that the operation could not be finished
+     * before it is stored.
      *
-     * @param id              the unique id of operations' launch
-     * @param mayInterrupt    {@code true} if thread executing operation task should be interrupted;
-     *                        otherwise, in-progress tasks are allowed to complete
-     * @param removeOperation {@code true} if the operation should be marked as removed
-     * @return {@code false} if the task could not be cancelled, typically because it has already
-     * completed normally; {@code true} otherwise
+     * @param result    the result of an operation launch, which is marked as cancelled when the
+     *                  launch is cancelled
+     * @param operation the operation to be marked as cancelled when the launch is cancelled, or
+     *                  {@code null} if the operation is shared with other launches, or the launch
+     *                  is a batch one
+     * @param future    the object that represents a running operation
      */
-    private synchronized boolean cancel(final int id, final boolean mayInterrupt,
-            final boolean removeOperation) {
-        final RunningOperation runningOperation = mRunningOperations.get(id);
-        if (runningOperation != null) {
-            if (removeOperation) {
-                mRunningOperations.remove(id);
-            }
-            mCancelledOperations.add(id);
-            return runningOperation.cancel(mayInterrupt);
-        } else {
-            return false;
-        }
+    final void operationStarted(@NonNull final ChronosOperationResult<?> result,
+            @Nullable final ChronosOperation<?> operation, @NonNull final Future<?> future) {
+        mRunningOperations.put(result.getId(), new RunningOperation(result, operation, future));
     }
 
     /**
-     * Stores the future as a running operation with a given runs' id.
+     * Binds a launch of a durable operation to its journal entry, which will be completed when the
+     * launch is finished or cancelled. Must be called before the launch is stored as started.
      *
-     * @param id     the unique id of an operation launch
-     * @param future the object that represents a running operation
+     * @param id      the unique id of an operation launch
+     * @param journal the journal which holds the entry
+     * @param entryId the id of the journal entry
      */
-    synchronized final void operationStarted(final int id, @NonNull final ChronosOperation<?> operation,
-            @NonNull final Future<?> future
-    ) {
-        mRunningOperations.put(id, new RunningOperation(operation, future));
+    final void operationJournaled(final int id, @NonNull final OperationJournal journal,
+            final long entryId) {
+        mJournaledLaunches.put(id, new JournaledLaunch(journal, entryId));
     }
 
     /**
@@ -76,8 +82,9 @@ final class RunningOperationStorage {
      *
      * @param id the unique id of operations' launch
      */
-    synchronized final void operationFinished(final int id) {
+    final void operationFinished(final int id) {
         mRunningOperations.remove(id);
+        completeJournalEntry(id);
     }
 
     /**
@@ -89,22 +96,29 @@ final class RunningOperationStorage {
      * @return {@code false} if the task could not be cancelled, typically because it has already
      * completed normally; {@code true} otherwise
      */
-    synchronized final boolean cancel(final int id, final boolean mayInterrupt) {
-        return cancel(id, mayInterrupt, true);
+    final boolean cancel(final int id, final boolean mayInterrupt) {
+        final RunningOperation runningOperation = mRunningOperations.remove(id);
+        if (runningOperation != null) {
+            mCancelledOperations.add(id);
+            completeJournalEntry(id);
+            ResultRouter.getInstance().onOperationCancelled(id);
+            return runningOperation.cancel(mayInterrupt);
+        } else {
+            return false;
+        }
     }
 
     /**
-     * Cancels all running operations.
+     * Cancels all running operations. Operations that are started concurrently with the call may
+     * be left running.
      *
      * @param mayInterrupt {@code true} if threads executing operations task should be interrupted;
      *                     otherwise, in-progress tasks are allowed to complete
      */
-    synchronized final void cancelAll(final boolean mayInterrupt) {
+    final void cancelAll(final boolean mayInterrupt) {
         for (final Integer key : mRunningOperations.keySet()) {
-            cancel(key, mayInterrupt, false);
+            cancel(key, mayInterrupt);
         }
-
-        mRunningOperations.clear();
     }
 
     /**
@@ -114,35 +128,77 @@ final class RunningOperationStorage {
      * @return {@code true} if the operation is still running, {@code false} otherwise
      */
     @Contract(pure = true)
-    synchronized final boolean isOperationRunning(final int id) {
+    final boolean isOperationRunning(final int id) {
         return mRunningOperations.containsKey(id);
     }
 
     /**
-     * Checks if operation launch with given id was cancelled.
+     * Checks if operation launch of the given result was cancelled.
      *
-     * @param id the unique id of operations' launch
+     * @param operationResult the result of operations' launch
      * @return {@code true} if the operation was cancelled, {@code false} otherwise
      */
     @Contract(pure = true)
-    synchronized final boolean isOperationCancelled(final int id) {
-        return mCancelledOperations.contains(Integer.valueOf(id));
+    final boolean isOperationCancelled(@NonNull final ChronosOperationResult<?> operationResult) {
+        // the ids of launches cancelled long ago may be evicted from the ring, but their results
+        // are still marked
+        return mCancelledOperations.contains(operationResult.getId())
+                || operationResult.isCancelled();
+    }
+
+    /**
+     * Completes the journal entry of a durable operation launch, if there is one.
+     *
+     * @param id the unique id of operations' launch
+     */
+    private void completeJournalEntry(final int id) {
+        final JournaledLaunch journaledLaunch = mJournaledLaunches.remove(id);
+        if (journaledLaunch != null) {
+            try {
+                journaledLaunch.mJournal.complete(journaledLaunch.mEntryId);
+            } catch (IOException e) {
+                // the launch will be repeated in the next process
+                Log.w(LOG_TAG, "Can't complete journal entry of launch " + id + ": " + e);
+            }
+        }
+    }
+
+    private static class JournaledLaunch {
+
+        @NonNull
+        private final OperationJournal mJournal;
+
+        private final long mEntryId;
+
+        private JournaledLaunch(@NonNull final OperationJournal journal, final long entryId) {
+            mJournal = journal;
+            mEntryId = entryId;
+        }
     }
 
     private static class RunningOperation {
 
+        @NonNull
+        private final ChronosOperationResult<?> mResult;
+
+        @Nullable
         private final ChronosOperation<?> mOperation;
 
+        @NonNull
         private final Future<?> mFuture;
 
-        public RunningOperation(@NonNull final ChronosOperation<?> operation,
-                @NonNull final Future<?> future) {
+        public RunningOperation(@NonNull final ChronosOperationResult<?> result,
+                @Nullable final ChronosOperation<?> operation, @NonNull final Future<?> future) {
+            mResult = result;
             mOperation = operation;
             mFuture = future;
         }
 
         public final boolean cancel(final boolean mayInterrupt) {
-            mOperation.cancel();
+            mResult.markCancelled();
+            if (mOperation != null) {
+                mOperation.cancel();
+            }
             return mFuture.cancel(mayInterrupt);
         }
     }
@@ -0,0 +1,145 @@
+package com.redmadrobot.chronos;
+
+import org.jetbrains.annotations.Contract;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * A store of the latest successful broadcast results of sticky operations, one per broadcast topic,
+ * or per result class for the operations without a topic. The results are delivered to listeners
+ * created after they were posted, when the listeners are resumed for the first time. The store
+ * holds at most {@link ChronosConfiguration#getStickyBroadcastCapacity()} results, and the oldest
+ * ones are dropped first.
+ * <p/>
+ * Every stored result is numbered, so that a listener gets only the results posted before it was
+ * created, as it receives the newer ones as ordinary broadcasts. All the methods are
+ * thread-safe.
+ *
+ * @author maximefimov
+ * @see ChronosOperation#isStickyBroadcast()
+ */
+final class StickyBroadcastStore {
+
+    @NonNull
+    private final static StickyBroadcastStore INSTANCE = new StickyBroadcastStore();
+
+    /**
+     * Results by topics or result classes, from the oldest to the newest one.
+     */
+    @NonNull
+    private final LinkedHashMap<Object, Entry> mEntries = new LinkedHashMap<>();
+
+    private long mSequence = 0;
+
+    private StickyBroadcastStore() {
+    }
+
+    @NonNull
+    @Contract(pure = true)
+    static StickyBroadcastStore getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return the number of the newest stored result, which a new listener should get the results
+     * up to
+     */
+    @Contract(pure = true)
+    synchronized final long getSequence() {
+        return mSequence;
+    }
+
+    /**
+     * Stores a broadcast result, replacing the previous one of the same topic or result class.
+     *
+     * @param operationResult a successful broadcast result of a sticky operation
+     * @param capacity        the maximum number of stored results
+     */
+    synchronized final void put(@NonNull final ChronosOperationResult<?> operationResult,
+            final int capacity) {
+        final Object key = getKey(operationResult);
+        // the result becomes the newest one
+        mEntries.remove(key);
+        if (capacity <= 0) {
+            return;
+        }
+        mEntries.put(key, new Entry(operationResult, ++mSequence));
+        final Iterator<Entry> iterator = mEntries.values().iterator();
+        while (mEntries.size() > capacity && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * @param sequence the sequence number taken when a listener was created
+     * @return the stored results posted before the listener was created, from the oldest to the
+     * newest one
+     */
+    @NonNull
+    @Contract(pure = true)
+    synchronized final List<ChronosOperationResult<?>> getResults(final long sequence) {
+        final List<ChronosOperationResult<?>> results = new ArrayList<>();
+        for (final Entry entry : mEntries.values()) {
+            if (entry.mSequence <= sequence) {
+                results.add(entry.mResult);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Removes the stored result of a topic or of a result class.
+     *
+     * @param key a broadcast topic or a result class
+     */
+    synchronized final void remove(@NonNull final Object key) {
+        mEntries.remove(key);
+    }
+
+    /**
+     * Removes all the stored results.
+     */
+    synchronized final void clear() {
+        mEntries.clear();
+    }
+
+    /**
+     * @return the number of the stored results
+     */
+    @Contract(pure = true)
+    synchronized final int size() {
+        return mEntries.size();
+    }
+
+    @NonNull
+    @Contract(pure = true)
+    private static Object getKey(@NonNull final ChronosOperationResult<?> operationResult) {
+        final String topic = operationResult.getBroadcastTopic();
+        return topic != null ? topic : operationResult.getClass();
+    }
+
+    private final static class Entry {
+
+        @NonNull
+        private final ChronosOperationResult<?> mResult;
+
+        private final long mSequence;
+
+        private Entry(@NonNull final ChronosOperationResult<?> result, final long sequence) {
+            mResult = result;
+            mSequence = sequence;
+        }
+
+        @Override
+        @Contract(pure = true)
+        public String toString() {
+            return "Entry[class=" + mResult.getClass().getName() + "; sequence=" + mSequence + "]";
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.redmadrobot.chronos;
+
+import org.jetbrains.annotations.Contract;
+
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import java.util.Comparator;
+import java.util.TreeSet;
+
+/**
+ * A memory budget of results stored by all the paused listeners. Results that have an estimated
+ * size are counted in the budget, and when it is exceeded, the results of the lowest priority
+ * operations are evicted, the oldest ones first.
+ *
+ * @author maximefimov
+ * @see ChronosConfiguration#getStoredResultsBudgetBytes()
+ * @see ChronosOperationResult#getEstimatedSize()
+ */
+final class StoredResultRetention {
+
+    @NonNull
+    private final static String LOG_TAG = StoredResultRetention.class.getSimpleName();
+
+    @NonNull
+    private final static Comparator<OperationDelivery<?>> EVICTION_ORDER
+            = new Comparator<OperationDelivery<?>>() {
+        @Override
+        public int compare(final OperationDelivery<?> lhs, final OperationDelivery<?> rhs) {
+            if (lhs.getPriority() != rhs.getPriority()) {
+                return lhs.getPriority() < rhs.getPriority() ? -1 : 1;
+            }
+            return lhs.getSequence() < rhs.getSequence() ? -1
+                    : (lhs.getSequence() == rhs.getSequence() ? 0 : 1);
+        }
+    };
+
+    // created after the comparator, which it depends on
+    @NonNull
+    private final static StoredResultRetention INSTANCE = new StoredResultRetention();
+
+    @NonNull
+    private final TreeSet<OperationDelivery<?>> mDeliveries = new TreeSet<>(EVICTION_ORDER);
+
+    private long mTotalSize = 0;
+
+    private long mNextSequence = 0;
+
+    private StoredResultRetention() {
+    }
+
+    @NonNull
+    @Contract(pure = true)
+    static StoredResultRetention getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts counting a stored result in the budget, evicting other results if the budget is
+     * exceeded.
+     *
+     * @param delivery a delivery which is stored by a listener
+     */
+    synchronized final void retain(@NonNull final OperationDelivery<?> delivery) {
+        if (!delivery.onStored()) {
+            return;
+        }
+        delivery.setSequence(mNextSequence++);
+        mDeliveries.add(delivery);
+        mTotalSize += delivery.getSize();
+
+        final long budget = ChronosService.getInstance().getConfiguration()
+                .getStoredResultsBudgetBytes();
+        while (mTotalSize > budget) {
+            final OperationDelivery<?> evicted = mDeliveries.pollFirst();
+            mTotalSize -= evicted.getSize();
+            evicted.evict();
+            Log.w(LOG_TAG, evicted + " is evicted, as stored results exceed " + budget + " bytes");
+        }
+    }
+
+    /**
+     * Stops counting a stored result, as it is delivered or dropped by its listener.
+     *
+     * @param delivery a delivery which is no longer stored
+     */
+    synchronized final void release(@NonNull final OperationDelivery<?> delivery) {
+        if (delivery.getSize() >= 0 && mDeliveries.remove(delivery)) {
+            mTotalSize -= delivery.getSize();
+        }
+    }
+
+    /**
+     * @return the estimated size of all the results counted in the budget, in bytes
+     */
+    @Contract(pure = true)
+    synchronized final long getTotalSize() {
+        return mTotalSize;
+    }
+}
@@ -1,12 +1,16 @@
 package com.redmadrobot.chronos.gui;
 
+import com.redmadrobot.chronos.BatchOperationResult;
 import com.redmadrobot.chronos.Chronos;
 import com.redmadrobot.chronos.ChronosOperation;
+import com.redmadrobot.chronos.ChronosOperationResult;
 
 import org.jetbrains.annotations.Contract;
 
 import android.support.annotation.NonNull;
 
+import java.util.List;
+
 /**
  * A set of methods which is provided by pre-defined GUI classes.
  *
@@ -87,6 +91,47 @@ public interface ChronosConnectorWrapper {
      */
     int runOperationBroadcast(@NonNull final ChronosOperation operation);
 
+    /**
+     * Runs an operation in a background thread in the stale-while-revalidate mode. The cached output
+     * of the operation, even an expired one, is delivered to {@link Chronos#OWN_CALLBACK_METHOD_NAME}
+     * method at once, then the operation is run, and its fresh result is delivered to the same
+     * method, unless its output equals the cached one. The results are told apart by {@link
+     * ChronosOperationResult#isFresh()}. A paused client gets only the fresh result, if it comes
+     * before the client is resumed.
+     *
+     * @param operation an operation to be run in background
+     * @return a unique launch id
+     * @see ChronosOperation#getCacheKey()
+     * @see #runOperation(ChronosOperation)
+     * @see #cancelOperation(int)
+     */
+    int runOperationRevalidating(@NonNull final ChronosOperation<?> operation);
+
+    /**
+     * Runs a batch of operations in background threads. The operations are run in parallel, but the
+     * batch is a single launch, and its {@link BatchOperationResult} is delivered to {@link
+     * Chronos#OWN_CALLBACK_METHOD_NAME} method once, when all the operations are finished.
+     *
+     * @param operations operations to be run in background
+     * @return a unique launch id of the batch
+     * @see #runOperationsBroadcast(List)
+     * @see #cancelOperation(int)
+     */
+    int runOperations(@NonNull final List<? extends ChronosOperation<?>> operations);
+
+    /**
+     * Runs a batch of operations in background threads, and broadcast its result when all the
+     * operations are finished. The {@link BatchOperationResult} will be delivered to {@link
+     * Chronos#OWN_CALLBACK_METHOD_NAME} method. All other Chronos clients will receive the result
+     * in {@link Chronos#BROADCAST_CALLBACK_METHOD_NAME} method.
+     *
+     * @param operations operations to be run in background
+     * @return a unique launch id of the batch
+     * @see #runOperations(List)
+     * @see #cancelOperation(int)
+     */
+    int runOperationsBroadcast(@NonNull final List<? extends ChronosOperation<?>> operations);
+
     /**
      * Cancels a running operation by its launch id. It is not guaranteed that execution would be
      * interrupted immediately, however, no result would be delivered to the activity, or any other
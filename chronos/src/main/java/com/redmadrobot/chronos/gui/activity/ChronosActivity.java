@@ -10,6 +10,8 @@ import android.app.Activity;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
 
+import java.util.List;
+
 /**
  * An Activity that is connected to Chronos.
  *
@@ -48,6 +50,12 @@ public abstract class ChronosActivity extends Activity implements ChronosConnect
         super.onPause();
     }
 
+    @Override
+    protected void onDestroy() {
+        mConnector.onDestroy(isFinishing());
+        super.onDestroy();
+    }
+
     @Override
     public final int runOperation(@NonNull final ChronosOperation operation,
             @NonNull final String tag) {
@@ -70,6 +78,22 @@ public abstract class ChronosActivity extends Activity implements ChronosConnect
         return mConnector.runOperation(operation, true);
     }
 
+    @Override
+    public final int runOperationRevalidating(@NonNull final ChronosOperation<?> operation) {
+        return mConnector.runOperationRevalidating(operation, false);
+    }
+
+    @Override
+    public final int runOperations(@NonNull final List<? extends ChronosOperation<?>> operations) {
+        return mConnector.runOperations(operations, false);
+    }
+
+    @Override
+    public final int runOperationsBroadcast(
+            @NonNull final List<? extends ChronosOperation<?>> operations) {
+        return mConnector.runOperations(operations, true);
+    }
+
     @Override
     public final boolean cancelOperation(final int id) {
         return mConnector.cancelOperation(id, true);
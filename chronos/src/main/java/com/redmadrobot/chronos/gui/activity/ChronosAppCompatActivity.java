@@ -11,6 +11,8 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v7.app.AppCompatActivity;
 
+import java.util.List;
+
 /**
  * An AppCompatActivity that is connected to Chronos.
  *
@@ -38,6 +40,12 @@ public abstract class ChronosAppCompatActivity extends AppCompatActivity impleme
         super.onPause();
     }
 
+    @Override
+    protected void onDestroy() {
+        mConnector.onDestroy(isFinishing());
+        super.onDestroy();
+    }
+
     @Override
     protected void onResume() {
         super.onResume();
@@ -72,6 +80,22 @@ public abstract class ChronosAppCompatActivity extends AppCompatActivity impleme
         return mConnector.runOperation(operation, true);
     }
 
+    @Override
+    public final int runOperationRevalidating(@NonNull final ChronosOperation<?> operation) {
+        return mConnector.runOperationRevalidating(operation, false);
+    }
+
+    @Override
+    public final int runOperations(@NonNull final List<? extends ChronosOperation<?>> operations) {
+        return mConnector.runOperations(operations, false);
+    }
+
+    @Override
+    public final int runOperationsBroadcast(
+            @NonNull final List<? extends ChronosOperation<?>> operations) {
+        return mConnector.runOperations(operations, true);
+    }
+
     @Override
     public final boolean cancelOperation(final int id) {
         return mConnector.cancelOperation(id, true);
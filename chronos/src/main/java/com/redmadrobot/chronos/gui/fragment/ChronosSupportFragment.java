@@ -12,6 +12,8 @@ import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.v4.app.Fragment;
 
+import java.util.List;
+
 /**
  * A Fragment of support library that is connected to Chronos.
  *
@@ -50,6 +52,12 @@ public abstract class ChronosSupportFragment extends Fragment implements
         super.onPause();
     }
 
+    @Override
+    public void onDestroy() {
+        mConnector.onDestroy(getActivity() != null && getActivity().isFinishing());
+        super.onDestroy();
+    }
+
     @Override
     public final int runOperation(@NonNull final ChronosOperation operation,
             @NonNull final String tag) {
@@ -72,6 +80,22 @@ public abstract class ChronosSupportFragment extends Fragment implements
         return mConnector.runOperation(operation, true);
     }
 
+    @Override
+    public final int runOperationRevalidating(@NonNull final ChronosOperation<?> operation) {
+        return mConnector.runOperationRevalidating(operation, false);
+    }
+
+    @Override
+    public final int runOperations(@NonNull final List<? extends ChronosOperation<?>> operations) {
+        return mConnector.runOperations(operations, false);
+    }
+
+    @Override
+    public final int runOperationsBroadcast(
+            @NonNull final List<? extends ChronosOperation<?>> operations) {
+        return mConnector.runOperations(operations, true);
+    }
+
     @Override
     public final boolean cancelOperation(final int id) {
         return mConnector.cancelOperation(id, true);
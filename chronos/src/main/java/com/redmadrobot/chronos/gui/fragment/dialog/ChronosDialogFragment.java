@@ -14,6 +14,8 @@ import android.os.Build;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
 
+import java.util.List;
+
 /**
  * A DialogFragment that is connected to Chronos.
  *
@@ -53,6 +55,12 @@ public abstract class ChronosDialogFragment extends DialogFragment implements
         super.onPause();
     }
 
+    @Override
+    public void onDestroy() {
+        mConnector.onDestroy(getActivity() != null && getActivity().isFinishing());
+        super.onDestroy();
+    }
+
     @Override
     public final int runOperation(@NonNull final ChronosOperation operation,
             @NonNull final String tag) {
@@ -75,6 +83,22 @@ public abstract class ChronosDialogFragment extends DialogFragment implements
         return mConnector.runOperation(operation, true);
     }
 
+    @Override
+    public final int runOperationRevalidating(@NonNull final ChronosOperation<?> operation) {
+        return mConnector.runOperationRevalidating(operation, false);
+    }
+
+    @Override
+    public final int runOperations(@NonNull final List<? extends ChronosOperation<?>> operations) {
+        return mConnector.runOperations(operations, false);
+    }
+
+    @Override
+    public final int runOperationsBroadcast(
+            @NonNull final List<? extends ChronosOperation<?>> operations) {
+        return mConnector.runOperations(operations, true);
+    }
+
     @Override
     public final boolean cancelOperation(final int id) {
         return mConnector.cancelOperation(id, true);
@@ -0,0 +1,91 @@
+package com.redmadrobot.chronos;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the index of cached operation outputs by their tags.
+ *
+ * @author maximefimov
+ */
+public class CacheTagIndexTest {
+
+    private final static List<String> PROFILE = Collections.singletonList("profile");
+
+    private final static List<String> CATALOG = Collections.singletonList("catalog");
+
+    @Test
+    public void testInvalidationReturnsDependentKeysOnly() {
+        final CacheTagIndex index = new CacheTagIndex();
+        final long stamp = index.acquireStamp();
+        assertTrue(index.add("profile", PROFILE, stamp));
+        assertTrue(index.add("feed", Arrays.asList("profile", "catalog"), stamp));
+        assertTrue(index.add("catalog", CATALOG, stamp));
+
+        final Set<String> keys = index.invalidate(PROFILE);
+        assertEquals(2, keys.size());
+        assertTrue(keys.contains("profile") && keys.contains("feed"));
+        // the feed is unbound from all its tags
+        assertEquals(1, index.getKeyCount("catalog"));
+        assertEquals(0, index.getKeyCount("profile"));
+    }
+
+    @Test
+    public void testOutputOfLaunchStartedBeforeInvalidationIsRejected() {
+        final CacheTagIndex index = new CacheTagIndex();
+        final long stamp = index.acquireStamp();
+        index.invalidate(PROFILE);
+
+        assertFalse(index.add("profile", PROFILE, stamp));
+        assertTrue(index.add("catalog", CATALOG, stamp));
+        assertTrue(index.add("profile", PROFILE, index.acquireStamp()));
+    }
+
+    @Test
+    public void testReplacedTagsAreUnbound() {
+        final CacheTagIndex index = new CacheTagIndex();
+        index.add("key", PROFILE, index.acquireStamp());
+        index.add("key", CATALOG, index.acquireStamp());
+
+        assertTrue(index.invalidate(PROFILE).isEmpty());
+        assertEquals(Collections.singleton("key"), index.invalidate(CATALOG));
+    }
+
+    @Test
+    public void testInvalidationsArePrunedWhenNoLaunchNeedsThem() {
+        final CacheTagIndex index = new CacheTagIndex();
+        index.invalidate(PROFILE);
+        assertEquals(0, index.getInvalidationCount());
+
+        final long stamp = index.acquireStamp();
+        index.invalidate(PROFILE);
+        index.invalidate(CATALOG);
+        assertEquals(2, index.getInvalidationCount());
+        final long newerStamp = index.acquireStamp();
+        index.releaseStamp(stamp);
+        // the newer launch was started after both invalidations
+        assertEquals(0, index.getInvalidationCount());
+        index.releaseStamp(newerStamp);
+    }
+
+    @Test
+    public void testEvictionKeepsNewerBinding() {
+        final CacheTagIndex index = new CacheTagIndex();
+        index.add("key", PROFILE, index.acquireStamp());
+        final long generation = index.getGeneration("key");
+        index.add("key", PROFILE, index.acquireStamp());
+
+        index.remove("key", generation);
+        assertEquals(1, index.getKeyCount("profile"));
+        index.remove("key", index.getGeneration("key"));
+        assertEquals(0, index.getKeyCount("profile"));
+    }
+}
@@ -0,0 +1,164 @@
+package com.redmadrobot.chronos;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Comparison of the read latency of an output cached on disk with the re-execution of its
+ * operation. The operation builds a catalog in memory only, so its time is the lower bound of a
+ * real one, which also loads the catalog over the network.
+ *
+ * @author maximefimov
+ */
+public class DiskResultCacheBenchmarkTest {
+
+    private final static int WARM_UP_COUNT = 50;
+
+    private final static int READ_COUNT = 500;
+
+    private final static int CATALOG_SIZE = 2000;
+
+    private final static String CACHE_KEY = "catalog";
+
+    private final static List<String> NO_TAGS = Collections.emptyList();
+
+    private File mDirectory;
+
+    @Before
+    public void setUp() throws IOException {
+        mDirectory = File.createTempFile("cache", "");
+        assertTrue(mDirectory.delete());
+    }
+
+    @After
+    public void tearDown() {
+        final File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        mDirectory.delete();
+    }
+
+    @Test
+    public void testReadLatency() throws IOException {
+        final CatalogOperation operation = new CatalogOperation();
+        final ResultCodec<List<String>> codec = operation.getResultCodec();
+        final DiskResultCache cache = new DiskResultCache(mDirectory, 4 * 1024 * 1024);
+        cache.open();
+        cache.put(CACHE_KEY, CatalogResult.class.getName(), codec.encode(operation.run()),
+                Long.MAX_VALUE, NO_TAGS);
+
+        for (int i = 0; i < WARM_UP_COUNT; i++) {
+            operation.run();
+            codec.decode(cache.get(CACHE_KEY, CatalogResult.class.getName()));
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < READ_COUNT; i++) {
+            assertEquals(CATALOG_SIZE, operation.run().size());
+        }
+        final long runNanos = (System.nanoTime() - start) / READ_COUNT;
+
+        start = System.nanoTime();
+        for (int i = 0; i < READ_COUNT; i++) {
+            final List<String> catalog = codec.decode(
+                    cache.get(CACHE_KEY, CatalogResult.class.getName()));
+            assertEquals(CATALOG_SIZE, catalog.size());
+        }
+        final long readNanos = (System.nanoTime() - start) / READ_COUNT;
+
+        // the disk level pays off only if a read is cheaper than even the in-memory run
+        assertTrue(readNanos < runNanos);
+    }
+
+    /**
+     * An operation which builds a sorted catalog.
+     */
+    private final static class CatalogOperation extends ChronosOperation<List<String>> {
+
+        @Nullable
+        @Override
+        public List<String> run() {
+            final List<String> catalog = new ArrayList<>(CATALOG_SIZE);
+            for (int i = 0; i < CATALOG_SIZE; i++) {
+                catalog.add(String.format(Locale.US, "item %08x: %.3f", i * 7919, i / 3.0));
+            }
+            Collections.sort(catalog);
+            return catalog;
+        }
+
+        @NonNull
+        @Override
+        public Class<? extends ChronosOperationResult<List<String>>> getResultClass() {
+            return CatalogResult.class;
+        }
+
+        @Nullable
+        @Override
+        public String getCacheKey() {
+            return CACHE_KEY;
+        }
+
+        @NonNull
+        @Override
+        public ResultCodec<List<String>> getResultCodec() {
+            return new CatalogCodec();
+        }
+    }
+
+    private final static class CatalogResult extends ChronosOperationResult<List<String>> {
+
+    }
+
+    private final static class CatalogCodec implements ResultCodec<List<String>> {
+
+        @NonNull
+        @Override
+        public byte[] encode(@Nullable final List<String> catalog) throws IOException {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final DataOutputStream output = new DataOutputStream(bytes);
+            output.writeInt(catalog != null ? catalog.size() : 0);
+            if (catalog != null) {
+                for (final String item : catalog) {
+                    output.writeUTF(item);
+                }
+            }
+            output.close();
+            return bytes.toByteArray();
+        }
+
+        @NonNull
+        @Override
+        public List<String> decode(@NonNull final byte[] data) throws IOException {
+            final DataInputStream input = new DataInputStream(new ByteArrayInputStream(data));
+            final int size = input.readInt();
+            final List<String> catalog = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                catalog.add(input.readUTF());
+            }
+            return catalog;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.redmadrobot.chronos;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of the disk cache of operation outputs. A restart of the process is simulated by opening
+ * the cache directory by a new instance.
+ *
+ * @author maximefimov
+ */
+public class DiskResultCacheTest {
+
+    private final static String RESULT_CLASS = "Result";
+
+    private final static byte[] DATA = {1, 2, 3, 4};
+
+    private final static long MAX_SIZE = 4096;
+
+    private final static List<String> NO_TAGS = Collections.emptyList();
+
+    private File mDirectory;
+
+    @Before
+    public void setUp() throws IOException {
+        mDirectory = File.createTempFile("cache", "");
+        assertTrue(mDirectory.delete());
+    }
+
+    @After
+    public void tearDown() {
+        final File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        mDirectory.delete();
+    }
+
+    @Test
+    public void testOutputOutlivesProcess() throws IOException {
+        final DiskResultCache cache = open(MAX_SIZE);
+        cache.put("key", RESULT_CLASS, DATA, Long.MAX_VALUE, NO_TAGS);
+        assertArrayEquals(DATA, cache.get("key", RESULT_CLASS));
+
+        final DiskResultCache restoredCache = open(MAX_SIZE);
+        assertArrayEquals(DATA, restoredCache.get("key", RESULT_CLASS));
+        assertEquals(cache.getSize(), restoredCache.getSize());
+    }
+
+    @Test
+    public void testOtherResultClassMisses() throws IOException {
+        final DiskResultCache cache = open(MAX_SIZE);
+        cache.put("key", RESULT_CLASS, DATA, Long.MAX_VALUE, NO_TAGS);
+        assertTrue(cache.get("key", "OtherResult") == null);
+        assertTrue(cache.get("other_key", RESULT_CLASS) == null);
+    }
+
+    @Test
+    public void testStaleIsDropped() throws IOException {
+        final DiskResultCache cache = open(MAX_SIZE);
+        cache.put("stale", RESULT_CLASS, DATA, System.currentTimeMillis() - 1, NO_TAGS);
+        cache.put("fresh", RESULT_CLASS, DATA, Long.MAX_VALUE, NO_TAGS);
+        assertTrue(cache.get("stale", RESULT_CLASS) == null);
+        assertEquals(1, cache.getCount());
+
+        cache.put("stale", RESULT_CLASS, DATA, System.currentTimeMillis() - 1, NO_TAGS);
+        // stale outputs are dropped when the cache is opened too
+        assertEquals(1, open(MAX_SIZE).getCount());
+        assertEquals(2, mDirectory.listFiles().length);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() throws IOException {
+        final DiskResultCache probe = open(MAX_SIZE);
+        probe.put("probe", RESULT_CLASS, DATA, Long.MAX_VALUE, NO_TAGS);
+        final long entrySize = probe.getSize();
+        probe.clear();
+
+        final DiskResultCache cache = open(2 * entrySize);
+        cache.put("first", RESULT_CLASS, DATA, Long.MAX_VALUE, NO_TAGS);
+        cache.put("third", RESULT_CLASS, DATA, Long.MAX_VALUE, NO_TAGS);
+        // the first one becomes the most recently used
+        assertArrayEquals(DATA, cache.get("first", RESULT_CLASS));
+        cache.put("fifth", RESULT_CLASS, DATA, Long.MAX_VALUE, NO_TAGS);
+
+        assertEquals(2, cache.getCount());
+        assertTrue(cache.get("third", RESULT_CLASS) == null);
+        assertArrayEquals(DATA, cache.get("first", RESULT_CLASS));
+        assertArrayEquals(DATA, cache.get("fifth", RESULT_CLASS));
+        assertTrue(cache.getSize() <= 2 * entrySize);
+        // the index and two outputs
+        assertEquals(3, mDirectory.listFiles().length);
+    }
+
+    @Test
+    public void testDamagedOutputIsDropped() throws IOException {
+        final DiskResultCache cache = open(MAX_SIZE);
+        cache.put("key", RESULT_CLASS, DATA, Long.MAX_VALUE, NO_TAGS);
+        for (final File file : mDirectory.listFiles()) {
+            if (file.getName().endsWith(".entry")) {
+                final RandomAccessFile entryFile = new RandomAccessFile(file, "rw");
+                try {
+                    // the last byte of the output
+                    entryFile.seek(entryFile.length() - 5);
+                    entryFile.write(0xff);
+                } finally {
+                    entryFile.close();
+                }
+            }
+        }
+
+        assertTrue(cache.get("key", RESULT_CLASS) == null);
+        assertEquals(0, cache.getCount());
+    }
+
+    @Test
+    public void testOrphanFilesAreDeleted() throws IOException {
+        open(MAX_SIZE).put("key", RESULT_CLASS, DATA, Long.MAX_VALUE, NO_TAGS);
+        // a file written before the process died, but not added to the index
+        assertTrue(new File(mDirectory, "1000.entry").createNewFile());
+        assertTrue(new File(mDirectory, "1001.entry.tmp").createNewFile());
+
+        final DiskResultCache cache = open(MAX_SIZE);
+        assertEquals(1, cache.getCount());
+        assertEquals(2, mDirectory.listFiles().length);
+    }
+
+    @Test
+    public void testRemove() throws IOException {
+        final DiskResultCache cache = open(MAX_SIZE);
+        cache.put("key", RESULT_CLASS, DATA, Long.MAX_VALUE, NO_TAGS);
+        cache.remove("key");
+        assertTrue(cache.get("key", RESULT_CLASS) == null);
+        assertEquals(0, cache.getSize());
+        assertEquals(0, open(MAX_SIZE).getCount());
+    }
+
+    @Test
+    public void testTagsOutliveProcess() throws IOException {
+        final List<String> tags = Arrays.asList("profile", "settings");
+        final DiskResultCache cache = open(MAX_SIZE);
+        cache.put("tagged", RESULT_CLASS, DATA, Long.MAX_VALUE, tags);
+        cache.put("untagged", RESULT_CLASS, DATA, Long.MAX_VALUE, NO_TAGS);
+
+        final Map<String, Collection<String>> restoredTags = open(MAX_SIZE).getTags();
+        assertEquals(1, restoredTags.size());
+        assertEquals(tags, restoredTags.get("tagged"));
+    }
+
+    @Test
+    public void testEvictionIsReported() throws IOException {
+        final DiskResultCache probe = open(MAX_SIZE);
+        probe.put("probe", RESULT_CLASS, DATA, Long.MAX_VALUE, NO_TAGS);
+        final long entrySize = probe.getSize();
+        probe.clear();
+
+        final List<String> evictedKeys = new ArrayList<>();
+        final DiskResultCache cache = new DiskResultCache(mDirectory, entrySize,
+                new CacheEvictionListener() {
+                    @Override
+                    public void onEvicted(final String cacheKey) {
+                        evictedKeys.add(cacheKey);
+                    }
+                });
+        cache.open();
+        cache.put("first", RESULT_CLASS, DATA, Long.MAX_VALUE, NO_TAGS);
+        cache.put("second", RESULT_CLASS, DATA, System.currentTimeMillis() - 1, NO_TAGS);
+        assertTrue(cache.get("second", RESULT_CLASS) == null);
+        cache.remove("third");
+
+        assertEquals(Arrays.asList("first", "second"), evictedKeys);
+    }
+
+    @Test
+    public void testClosedCacheKeepsFiles() throws IOException {
+        final DiskResultCache cache = open(MAX_SIZE);
+        cache.put("key", RESULT_CLASS, DATA, Long.MAX_VALUE, NO_TAGS);
+        final DiskResultCache reopenedCache = new DiskResultCache(mDirectory, MAX_SIZE);
+
+        assertEquals(Collections.singleton("key"), cache.close());
+        // a launch which still holds the closed cache doesn't touch the files
+        cache.put("other_key", RESULT_CLASS, DATA, Long.MAX_VALUE, NO_TAGS);
+        cache.clear();
+        assertTrue(cache.get("key", RESULT_CLASS) == null);
+
+        reopenedCache.open();
+        assertEquals(1, reopenedCache.getCount());
+        assertArrayEquals(DATA, reopenedCache.get("key", RESULT_CLASS));
+    }
+
+    @Test
+    public void testClosedCacheIsNotOpened() {
+        final DiskResultCache cache = new DiskResultCache(mDirectory, MAX_SIZE);
+        cache.close();
+        try {
+            cache.open();
+            fail("Closed cache is opened");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    private DiskResultCache open(final long maxSize) throws IOException {
+        final DiskResultCache cache = new DiskResultCache(mDirectory, maxSize);
+        cache.open();
+        return cache;
+    }
+}
@@ -0,0 +1,85 @@
+package com.redmadrobot.chronos;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Cost of journal appends, with and without completions of the appended entries. An append is done
+ * in the thread which launches a durable operation, usually the Main Thread, so it must take a
+ * small fraction of a frame on average.
+ *
+ * @author maximefimov
+ */
+public class OperationJournalBenchmarkTest {
+
+    private final static int WARM_UP_COUNT = 1000;
+
+    private final static int APPEND_COUNT = 20000;
+
+    private final static int ENTRY_SIZE = 256;
+
+    private final static long MAX_AVERAGE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private File mFile;
+
+    @Before
+    public void setUp() throws IOException {
+        mFile = File.createTempFile("journal", ".bin");
+        assertTrue(mFile.delete());
+    }
+
+    @After
+    public void tearDown() {
+        //noinspection ResultOfMethodCallIgnored
+        mFile.delete();
+    }
+
+    @Test
+    public void testAppendCost() throws IOException {
+        final OperationJournal journal = new OperationJournal(mFile);
+        journal.open();
+        final byte[] entry = new byte[ENTRY_SIZE];
+        for (int i = 0; i < WARM_UP_COUNT; i++) {
+            journal.append(entry);
+        }
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < APPEND_COUNT; i++) {
+            journal.append(entry);
+        }
+        final long elapsed = System.nanoTime() - start;
+        journal.close();
+
+        assertEquals(WARM_UP_COUNT + APPEND_COUNT, new OperationJournal(mFile).open().size());
+        assertTrue(elapsed / APPEND_COUNT < MAX_AVERAGE_NANOS);
+    }
+
+    @Test
+    public void testAppendCompleteCost() throws IOException {
+        final OperationJournal journal = new OperationJournal(mFile);
+        journal.open();
+        final byte[] entry = new byte[ENTRY_SIZE];
+        for (int i = 0; i < WARM_UP_COUNT; i++) {
+            journal.complete(journal.append(entry));
+        }
+
+        // completions make the journal compacted from time to time, which is counted too
+        final long start = System.nanoTime();
+        for (int i = 0; i < APPEND_COUNT; i++) {
+            journal.complete(journal.append(entry));
+        }
+        final long elapsed = System.nanoTime() - start;
+        journal.close();
+
+        assertTrue(new OperationJournal(mFile).open().isEmpty());
+        assertTrue(elapsed / APPEND_COUNT < MAX_AVERAGE_NANOS);
+    }
+}
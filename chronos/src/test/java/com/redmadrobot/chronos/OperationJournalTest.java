@@ -0,0 +1,213 @@
+package com.redmadrobot.chronos;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Crash recovery tests of the operation journal. A crash is simulated by opening the journal file
+ * again without closing the previous instance, and by damaging the file the way the death of the
+ * process or the system may leave it.
+ *
+ * @author maximefimov
+ */
+public class OperationJournalTest {
+
+    private final static byte[] FIRST = {1, 2, 3};
+
+    private final static byte[] SECOND = {4, 5, 6, 7};
+
+    private final static byte[] THIRD = {8};
+
+    private File mFile;
+
+    @Before
+    public void setUp() throws IOException {
+        mFile = File.createTempFile("journal", ".bin");
+        assertTrue(mFile.delete());
+    }
+
+    @After
+    public void tearDown() {
+        //noinspection ResultOfMethodCallIgnored
+        mFile.delete();
+    }
+
+    @Test
+    public void testUnfinishedEntriesAreRecovered() throws IOException {
+        final OperationJournal journal = new OperationJournal(mFile);
+        assertTrue(journal.open().isEmpty());
+        final long firstId = journal.append(FIRST);
+        final long secondId = journal.append(SECOND);
+        final long thirdId = journal.append(THIRD);
+        journal.complete(secondId);
+
+        final Map<Long, byte[]> recovered = new OperationJournal(mFile).open();
+        assertEquals(2, recovered.size());
+        assertArrayEquals(FIRST, recovered.get(firstId));
+        assertArrayEquals(THIRD, recovered.get(thirdId));
+        // the order of submission is kept
+        assertEquals(firstId, (long) recovered.keySet().iterator().next());
+    }
+
+    @Test
+    public void testRecoveredEntriesCanBeCompleted() throws IOException {
+        final OperationJournal journal = new OperationJournal(mFile);
+        journal.open();
+        final long id = journal.append(FIRST);
+
+        final OperationJournal recoveredJournal = new OperationJournal(mFile);
+        assertEquals(1, recoveredJournal.open().size());
+        recoveredJournal.complete(id);
+        final long newId = recoveredJournal.append(SECOND);
+        // ids are never reused, so an old completion can't complete a new entry
+        assertTrue(newId > id);
+
+        final Map<Long, byte[]> recovered = new OperationJournal(mFile).open();
+        assertEquals(1, recovered.size());
+        assertArrayEquals(SECOND, recovered.get(newId));
+    }
+
+    @Test
+    public void testTornRecordIsDropped() throws IOException {
+        final OperationJournal journal = new OperationJournal(mFile);
+        journal.open();
+        final long firstId = journal.append(FIRST);
+        journal.append(SECOND);
+        truncate(2);
+
+        final OperationJournal recoveredJournal = new OperationJournal(mFile);
+        final Map<Long, byte[]> recovered = recoveredJournal.open();
+        assertEquals(1, recovered.size());
+        assertArrayEquals(FIRST, recovered.get(firstId));
+
+        // the journal is still valid to be appended to
+        final long thirdId = recoveredJournal.append(THIRD);
+        assertEquals(2, new OperationJournal(mFile).open().size());
+        assertTrue(thirdId > firstId);
+    }
+
+    @Test
+    public void testTornCompletionKeepsEntry() throws IOException {
+        final OperationJournal journal = new OperationJournal(mFile);
+        journal.open();
+        final long id = journal.append(FIRST);
+        journal.complete(id);
+        truncate(1);
+
+        // the operation is repeated, rather than lost
+        final Map<Long, byte[]> recovered = new OperationJournal(mFile).open();
+        assertEquals(1, recovered.size());
+        assertArrayEquals(FIRST, recovered.get(id));
+    }
+
+    @Test
+    public void testDamagedRecordIsDropped() throws IOException {
+        final OperationJournal journal = new OperationJournal(mFile);
+        journal.open();
+        final long firstId = journal.append(FIRST);
+        journal.append(SECOND);
+        // the last data byte of the second record
+        final RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+        try {
+            file.seek(file.length() - 5);
+            file.write(0xff);
+        } finally {
+            file.close();
+        }
+
+        final Map<Long, byte[]> recovered = new OperationJournal(mFile).open();
+        assertEquals(1, recovered.size());
+        assertArrayEquals(FIRST, recovered.get(firstId));
+    }
+
+    @Test
+    public void testForeignFileIsIgnored() throws IOException {
+        final RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+        try {
+            file.writeUTF("not a journal");
+        } finally {
+            file.close();
+        }
+
+        final OperationJournal journal = new OperationJournal(mFile);
+        assertTrue(journal.open().isEmpty());
+        final long id = journal.append(FIRST);
+        assertArrayEquals(FIRST, new OperationJournal(mFile).open().get(id));
+    }
+
+    @Test
+    public void testCompaction() throws IOException {
+        final int threshold = 16;
+        final OperationJournal journal = new OperationJournal(mFile, threshold);
+        journal.open();
+        final long liveId = journal.append(FIRST);
+        final long emptyLength = mFile.length();
+        for (int i = 0; i < threshold; i++) {
+            journal.complete(journal.append(SECOND));
+        }
+        // only the live entry is left after the compaction
+        assertTrue(mFile.length() == emptyLength);
+        assertEquals(1, journal.getPendingCount());
+
+        final long newId = journal.append(THIRD);
+        final Map<Long, byte[]> recovered = new OperationJournal(mFile).open();
+        assertEquals(2, recovered.size());
+        assertArrayEquals(FIRST, recovered.get(liveId));
+        assertArrayEquals(THIRD, recovered.get(newId));
+    }
+
+    @Test
+    public void testAppendWaitsForOpen() throws IOException, InterruptedException {
+        final OperationJournal journal = new OperationJournal(mFile);
+        final long[] appendedId = {-1};
+        final Thread appender = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    appendedId[0] = journal.append(FIRST);
+                } catch (IOException e) {
+                    // the id is left unset
+                }
+            }
+        });
+        appender.start();
+        appender.join(100);
+        assertTrue(appender.isAlive());
+
+        journal.open();
+        appender.join();
+        assertArrayEquals(FIRST, new OperationJournal(mFile).open().get(appendedId[0]));
+    }
+
+    @Test
+    public void testClosedJournalIsNotAppended() {
+        final OperationJournal journal = new OperationJournal(mFile);
+        journal.close();
+        try {
+            journal.append(FIRST);
+            fail("Closed journal is appended");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    private void truncate(final int byteCount) throws IOException {
+        final RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+        try {
+            file.setLength(file.length() - byteCount);
+        } finally {
+            file.close();
+        }
+    }
+}